@@ -79,6 +79,7 @@ measurement.ch.node=true \
 measurement.ch.edge=false \
 measurement.lm=true \
 "measurement.lm.active_counts=[4,8,12]" \
+"measurement.lm.reselection_intervals=[0,500,2000]" \
 measurement.lm.edge_based=true \
 measurement.vehicle=car \
 import.osm.ignored_highways=footway,cycleway,path,pedestrian,bridleway \
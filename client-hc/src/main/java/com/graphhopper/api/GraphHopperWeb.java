@@ -27,6 +27,7 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.ResponsePathDeserializerHelper;
+import com.graphhopper.protobuf.RouteResponseProtobuf;
 import com.graphhopper.util.CustomModel;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
@@ -63,11 +64,14 @@ public class GraphHopperWeb {
     private boolean elevation = false;
     private String optimize = "false";
     private boolean postRequest = true;
+    private boolean protobufResponse = false;
     private int maxUnzippedLength = 1000;
     private final Set<String> ignoreSetForGet;
     private final Set<String> ignoreSetForPost;
 
     public static final String TIMEOUT = "timeout";
+    // JSON is still acceptable for errors
+    private static final String PROTOBUF_ACCEPT = RouteResponseProtobuf.MEDIA_TYPE + ", application/json;q=0.9";
     private final long DEFAULT_TIMEOUT = 5000;
 
     public GraphHopperWeb() {
@@ -145,6 +149,16 @@ public class GraphHopperWeb {
         return this;
     }
 
+    /**
+     * If true the route is requested in the binary protobuf format instead of JSON, which is faster to parse and
+     * smaller. Errors are still returned as JSON. The default is false. This requires com.google.protobuf:protobuf-java
+     * on the classpath, which the client does not depend on itself.
+     */
+    public GraphHopperWeb setProtobufResponse(boolean protobufResponse) {
+        this.protobufResponse = protobufResponse;
+        return this;
+    }
+
     /**
      * Enable or disable calculating points for the way. The default is true.
      */
@@ -192,6 +206,14 @@ public class GraphHopperWeb {
             Request okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
             Response rsp = getClientForRequest(ghRequest).newCall(okRequest).execute();
             rspBody = rsp.body();
+            MediaType contentType = rspBody.contentType();
+            if (contentType != null && RouteResponseProtobuf.MEDIA_TYPE.equals(contentType.type() + "/" + contentType.subtype())) {
+                GHResponse res = RouteResponseProtobuf.read(rspBody.byteStream(), tmpTurnDescription);
+                for (Map.Entry<String, List<String>> entry : rsp.headers().toMultimap().entrySet()) {
+                    res.getHints().putObject(entry.getKey(), entry.getValue());
+                }
+                return res;
+            }
             JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
 
             GHResponse res = new GHResponse();
@@ -248,6 +270,8 @@ public class GraphHopperWeb {
         }
         Request.Builder builder = new Request.Builder().url(url).post(RequestBody.create(MT_JSON, body));
         builder.header(X_GH_CLIENT_VERSION, GH_VERSION_FROM_MAVEN);
+        if (protobufResponse)
+            builder.header("Accept", PROTOBUF_ACCEPT);
         // force avoiding our GzipRequestInterceptor for smaller requests ~30 locations
         if (body.length() < maxUnzippedLength)
             builder.header("Content-Encoding", "identity");
@@ -382,9 +406,11 @@ public class GraphHopperWeb {
             }
         }
 
-        return new Request.Builder().url(url)
-                .header(X_GH_CLIENT_VERSION, GH_VERSION_FROM_MAVEN)
-                .build();
+        Request.Builder builder = new Request.Builder().url(url)
+                .header(X_GH_CLIENT_VERSION, GH_VERSION_FROM_MAVEN);
+        if (protobufResponse && !"gpx".equalsIgnoreCase(type))
+            builder.header("Accept", PROTOBUF_ACCEPT);
+        return builder.build();
     }
 
     public String export(GHRequest ghRequest) {
@@ -33,6 +33,7 @@ import com.graphhopper.reader.osm.RestrictionTagParser;
 import com.graphhopper.routing.*;
 import com.graphhopper.routing.ch.CHPreparationHandler;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ch.ShortcutWeightUpdater;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.lm.LMConfig;
 import com.graphhopper.routing.lm.LMPreparationHandler;
@@ -68,6 +69,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -114,6 +118,9 @@ public class GraphHopper {
     private final RouterConfig routerConfig = new RouterConfig();
     // for index
     private LocationIndex locationIndex;
+    private SnapCache snapCache;
+    // shared by all requests, created on first use
+    private volatile ExecutorService routingExecutor;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
     // subnetworks
@@ -130,6 +137,7 @@ public class GraphHopper {
     private final LMPreparationHandler lmPreparationHandler = new LMPreparationHandler();
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
     private Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
+    private boolean chCompactAdjacency = false;
     private Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
 
     // for data reader
@@ -366,6 +374,16 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Copies the upward edges of all node-based CH graphs into a compact layout after the preparation or after
+     * loading them, see {@link CompactRoutingCHGraph}. This speeds up CH queries, but requires additional memory on
+     * the heap.
+     */
+    public GraphHopper setCHCompactAdjacency(boolean chCompactAdjacency) {
+        this.chCompactAdjacency = chCompactAdjacency;
+        return this;
+    }
+
     /**
      * The underlying graph used in algorithms.
      *
@@ -395,6 +413,28 @@ public class GraphHopper {
         return chGraphs;
     }
 
+    /**
+     * Updates the shortcut weights of the node-based CH graph of the given profile after the weights of the given
+     * edges changed in the base graph, see {@link ShortcutWeightUpdater}. The compact CH adjacency (see
+     * {@link #setCHCompactAdjacency}) contains copies of the weights, so it is created again and replaces the old one
+     * for all following requests. The shortcut weights of the CH storage are changed in place, so requests that run
+     * during the update can see a mix of old and new weights. The snap cache is cleared afterwards.
+     */
+    public ShortcutWeightUpdater.Result updateCHShortcutWeights(String profile, IntArrayList changedEdges) {
+        RoutingCHGraph chGraph = chGraphs.get(profile);
+        if (chGraph == null)
+            throw new IllegalArgumentException("There is no CH graph for the profile '" + profile + "'");
+        boolean compact = chGraph instanceof CompactRoutingCHGraph;
+        RoutingCHGraphImpl chGraphImpl = (RoutingCHGraphImpl) (compact ? ((CompactRoutingCHGraph) chGraph).getGraph() : chGraph);
+        ShortcutWeightUpdater.Result result = new ShortcutWeightUpdater(baseGraph.getBaseGraph(), chGraphImpl.getCHStorage(),
+                chGraphImpl.getWeighting()).update(changedEdges);
+        if (compact)
+            chGraphs.put(profile, CompactRoutingCHGraph.fromGraph(chGraphImpl));
+        if (snapCache != null)
+            snapCache.clear();
+        return result;
+    }
+
     /**
      * @return a mapping between profile names and according landmark preparations. The map will be empty before loading
      * or import.
@@ -554,6 +594,7 @@ public class GraphHopper {
         osmReaderConfig.setElevationSmoothingRamerMax(ghConfig.getInt("graph.elevation.edge_smoothing.ramer.max_elevation", osmReaderConfig.getElevationSmoothingRamerMax()));
         osmReaderConfig.setLongEdgeSamplingDistance(ghConfig.getDouble("graph.elevation.long_edge_sampling_distance", osmReaderConfig.getLongEdgeSamplingDistance()));
         osmReaderConfig.setElevationMaxWayPointDistance(ghConfig.getDouble("graph.elevation.way_point_max_distance", osmReaderConfig.getElevationMaxWayPointDistance()));
+        osmReaderConfig.setElevationThreads(ghConfig.getInt("graph.elevation.threads", osmReaderConfig.getElevationThreads()));
         routerConfig.setElevationWayPointMaxDistance(ghConfig.getDouble("graph.elevation.way_point_max_distance", routerConfig.getElevationWayPointMaxDistance()));
         ElevationProvider elevationProvider = createElevationProvider(ghConfig);
         setElevationProvider(elevationProvider);
@@ -568,6 +609,7 @@ public class GraphHopper {
         // prepare CH&LM
         chPreparationHandler.init(ghConfig);
         lmPreparationHandler.init(ghConfig);
+        chCompactAdjacency = ghConfig.getBool("routing.ch.compact_adjacency", chCompactAdjacency);
 
         // osm import
         // We do a few checks for import.osm.ignored_highways to prevent configuration errors when migrating from an older
@@ -604,11 +646,16 @@ public class GraphHopper {
         routerConfig.setMaxRoundTripRetries(ghConfig.getInt(RoundTrip.INIT_MAX_RETRIES, routerConfig.getMaxRoundTripRetries()));
         routerConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, routerConfig.getNonChMaxWaypointDistance()));
         routerConfig.setInstructionsEnabled(ghConfig.getBool(Routing.INIT_INSTRUCTIONS, routerConfig.isInstructionsEnabled()));
+        routerConfig.setSnapCacheSize(ghConfig.getInt(Routing.INIT_SNAP_CACHE_SIZE, routerConfig.getSnapCacheSize()));
+        routerConfig.setAlternativeRouteThreads(ghConfig.getInt(Routing.INIT_ALTERNATIVE_ROUTE_THREADS, routerConfig.getAlternativeRouteThreads()));
+        routerConfig.setViaRoutingThreads(ghConfig.getInt(Routing.INIT_VIA_ROUTING_THREADS, routerConfig.getViaRoutingThreads()));
+        routerConfig.setCHExcludeAreas(ghConfig.getBool(Routing.INIT_CH_EXCLUDE_AREAS, routerConfig.isCHExcludeAreas()));
         int activeLandmarkCount = ghConfig.getInt(Landmark.ACTIVE_COUNT_DEFAULT, Math.min(8, lmPreparationHandler.getLandmarks()));
         if (activeLandmarkCount > lmPreparationHandler.getLandmarks())
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
                     + " should be less or equal to landmark count of " + lmPreparationHandler.getLandmarks());
         routerConfig.setActiveLandmarkCount(activeLandmarkCount);
+        routerConfig.setLandmarkReselectionInterval(ghConfig.getInt(Landmark.RESELECTION_INTERVAL_DEFAULT, routerConfig.getLandmarkReselectionInterval()));
 
         calcChecksums = ghConfig.getBool("graph.calc_checksums", false);
 
@@ -754,10 +801,16 @@ public class GraphHopper {
             provider
                     .setAutoRemoveTemporaryFiles(removeTempElevationFiles)
                     .setInterpolate(interpolate)
-                    .setDAType(elevationDAType);
+                    .setDAType(elevationDAType)
+                    .setMaxCachedTiles(ghConfig.getInt("graph.elevation.max_cached_tiles", 0));
             if (!baseURL.isEmpty())
                 provider.setBaseURL(baseURL);
         }
+
+        String rasterDir = ghConfig.getString("graph.elevation.raster_dir", "");
+        if (!rasterDir.isEmpty() && elevationProvider != ElevationProvider.NOOP)
+            elevationProvider = new RasterElevationProvider(rasterDir, elevationProvider)
+                    .setInterpolate(elevationProvider.canInterpolate());
         return elevationProvider;
     }
 
@@ -1208,6 +1261,16 @@ public class GraphHopper {
                 throw new IllegalArgumentException("CH profile references unknown profile '" + chProfile.getProfile() + "'");
             }
         }
+        for (CHProfile chProfile : chPreparationHandler.getCHProfiles()) {
+            if (!chProfile.usesOtherNodeOrdering())
+                continue;
+            CHProfile other = chPreparationHandler.getCHProfiles().stream()
+                    .filter(p -> p.getProfile().equals(chProfile.getNodeOrderingProfile())).findFirst().orElse(null);
+            if (other == null)
+                throw new IllegalArgumentException("Unknown CH profile '" + chProfile.getNodeOrderingProfile() + "' in CH profile '" + chProfile.getProfile() + "' cannot be used as node_ordering_profile");
+            if (other.usesOtherNodeOrdering())
+                throw new IllegalArgumentException("Cannot use '" + chProfile.getNodeOrderingProfile() + "' as node_ordering_profile for CH profile '" + chProfile.getProfile() + "', because it uses the node ordering of another profile itself.");
+        }
         Map<String, LMProfile> lmProfileMap = new LinkedHashMap<>(lmPreparationHandler.getLMProfiles().size());
         for (LMProfile lmProfile : lmPreparationHandler.getLMProfiles()) {
             LMProfile previous = lmProfileMap.put(lmProfile.getProfile(), lmProfile);
@@ -1343,7 +1406,31 @@ public class GraphHopper {
             throw new IllegalStateException("Location index not initialized");
 
         return doCreateRouter(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks);
+                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks).setSnapCache(snapCache).setExecutor(getRoutingExecutor());
+    }
+
+    /**
+     * @return the thread pool all requests share to calculate parts of a route concurrently, or null if the
+     * {@link RouterConfig} does not ask for more than one thread. The number of threads is fixed when the pool is first
+     * used, so concurrent requests never use more threads than configured in total.
+     */
+    private ExecutorService getRoutingExecutor() {
+        int threads = Math.max(routerConfig.getAlternativeRouteThreads(), routerConfig.getViaRoutingThreads());
+        if (threads <= 1)
+            return null;
+        ExecutorService executor = routingExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                if (routingExecutor == null)
+                    routingExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                        Thread thread = new Thread(runnable, "routing-worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                executor = routingExecutor;
+            }
+        }
+        return executor;
     }
 
     protected Router doCreateRouter(BaseGraph baseGraph, EncodingManager encodingManager, LocationIndex locationIndex, Map<String, Profile> profilesByName,
@@ -1435,8 +1522,9 @@ public class GraphHopper {
         List<CHConfig> configsToPrepare = chConfigs.stream().filter(c -> !loaded.containsKey(c.getName())).collect(Collectors.toList());
         Map<String, PrepareContractionHierarchies.Result> prepared = prepareCH(closeEarly, configsToPrepare);
 
-        // we map all profile names for which there is CH support to the according CH graphs
-        chGraphs = new LinkedHashMap<>();
+        // we map all profile names for which there is CH support to the according CH graphs. the map is shared with
+        // the Router and updateCHShortcutWeights can replace a graph while it routes
+        chGraphs = new ConcurrentHashMap<>();
         for (CHProfile profile : chPreparationHandler.getCHProfiles()) {
             if (loaded.containsKey(profile.getProfile()) && prepared.containsKey(profile.getProfile()))
                 throw new IllegalStateException("CH graph should be either loaded or prepared, but not both: " + profile.getProfile());
@@ -1449,6 +1537,16 @@ public class GraphHopper {
             } else
                 throw new IllegalStateException("CH graph should be either loaded or prepared: " + profile.getProfile());
         }
+
+        if (chCompactAdjacency && !closeEarly)
+            chGraphs.replaceAll((profile, chGraph) -> {
+                if (chGraph.isEdgeBased())
+                    return chGraph;
+                StopWatch sw = new StopWatch().start();
+                CompactRoutingCHGraph compactGraph = CompactRoutingCHGraph.fromGraph(chGraph);
+                logger.info("Created compact CH adjacency for " + profile + ", took: " + sw.stop().getSeconds() + "s, " + getMemInfo());
+                return compactGraph;
+            });
     }
 
     protected Map<String, PrepareContractionHierarchies.Result> prepareCH(boolean closeEarly, List<CHConfig> configsToPrepare) {
@@ -1546,6 +1644,9 @@ public class GraphHopper {
         if (locationIndex != null)
             locationIndex.close();
 
+        if (routingExecutor != null)
+            routingExecutor.shutdownNow();
+
         try {
             lockFactory.forceRemove(fileLockName, true);
         } catch (Exception ex) {
@@ -1577,12 +1678,21 @@ public class GraphHopper {
 
     private void setFullyLoaded() {
         fullyLoaded = true;
+        if (routerConfig.getSnapCacheSize() > 0)
+            snapCache = new SnapCache(baseGraph, routerConfig.getSnapCacheSize());
     }
 
     public boolean getFullyLoaded() {
         return fullyLoaded;
     }
 
+    /**
+     * @return the cache for snapped points or null if it is disabled, see routing.snap_cache.size
+     */
+    public SnapCache getSnapCache() {
+        return snapCache;
+    }
+
     public RouterConfig getRouterConfig() {
         return routerConfig;
     }
@@ -30,6 +30,7 @@ import static com.graphhopper.config.Profile.validateProfileName;
  */
 public class CHProfile {
     private String profile = "";
+    private String nodeOrderingProfile = "this";
 
     private CHProfile() {
         // default constructor needed for jackson
@@ -37,6 +38,7 @@ public class CHProfile {
 
     public CHProfile(CHProfile profile) {
         this.profile = profile.profile;
+        this.nodeOrderingProfile = profile.nodeOrderingProfile;
     }
 
     public CHProfile(String profile) {
@@ -52,9 +54,27 @@ public class CHProfile {
         this.profile = profile;
     }
 
+    public boolean usesOtherNodeOrdering() {
+        return !nodeOrderingProfile.equals("this");
+    }
+
+    public String getNodeOrderingProfile() {
+        return nodeOrderingProfile;
+    }
+
+    /**
+     * Use the node ordering of the CH preparation of the given profile instead of calculating one. This makes the
+     * preparation a lot faster, but queries might be slower if the weightings of the two profiles differ much.
+     */
+    public CHProfile setNodeOrderingProfile(String nodeOrderingProfile) {
+        validateProfileName(nodeOrderingProfile);
+        this.nodeOrderingProfile = nodeOrderingProfile;
+        return this;
+    }
+
     @Override
     public String toString() {
-        return profile;
+        return usesOtherNodeOrdering() ? profile + "|node_ordering_profile=" + nodeOrderingProfile : profile;
     }
 
     @Override
@@ -17,7 +17,6 @@
  */
 package com.graphhopper.reader.dem;
 
-import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.util.Downloader;
 import com.graphhopper.util.Helper;
@@ -39,7 +38,7 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
     private final int WIDTH_BYTE_INDEX = 0;
     private final int DEGREE = 1;
     // use a map as an array is not quite useful if we want to hold only parts of the world
-    private final GHIntObjectHashMap<HeightTile> cacheData = new GHIntObjectHashMap<>();
+    private final HeightTileCache<Integer> cacheData = new HeightTileCache<>(this, this::loadTile);
     private final double precision = 1e7;
     private final double invPrecision = 1 / precision;
 
@@ -86,56 +85,50 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
 
         lat = (int) (lat * precision) / precision;
         lon = (int) (lon * precision) / precision;
-        int intKey = calcIntKey(lat, lon);
-        HeightTile demProvider = cacheData.get(intKey);
-        if (demProvider == null) {
-            if (!cacheDir.exists())
-                cacheDir.mkdirs();
+        return cacheData.getHeight(calcIntKey(lat, lon), lat, lon);
+    }
 
-            int minLat = down(lat);
-            int minLon = down(lon);
+    private HeightTile loadTile(int intKey, double lat, double lon) {
+        if (!cacheDir.exists())
+            cacheDir.mkdirs();
 
-            String fileName = getFileName(lat, lon);
-            if (fileName == null || (Helper.isEmpty(baseUrl) && !new File(fileName).exists()))
-                return 0;
+        int minLat = down(lat);
+        int minLon = down(lon);
 
-            DataAccess heights = getDirectory().create("dem" + intKey);
-            boolean loadExisting = false;
-            try {
-                loadExisting = heights.loadExisting();
-            } catch (Exception ex) {
-                logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
-            }
+        String fileName = getFileName(lat, lon);
+        if (fileName == null || (Helper.isEmpty(baseUrl) && !new File(fileName).exists()))
+            return null;
 
-            if (!loadExisting) {
-                try {
-                    updateHeightsFromFile(lat, lon, heights);
-                } catch (FileNotFoundException ex) {
-                    demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
-                    cacheData.put(intKey, demProvider);
-                    demProvider.setHeights(heights);
-                    demProvider.setSeaLevel(true);
-                    // use small size on disc and in-memory
-                    heights.create(10)
-                            .flush();
-                    return 0;
-                }
-            }
-
-            int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
-            if (width == 0)
-                width = DEFAULT_WIDTH;
+        DataAccess heights = getDirectory().create("dem" + intKey);
+        boolean loadExisting = false;
+        try {
+            loadExisting = heights.loadExisting();
+        } catch (Exception ex) {
+            logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
+        }
 
-            demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
-            cacheData.put(intKey, demProvider);
-            demProvider.setInterpolate(interpolate);
-            demProvider.setHeights(heights);
+        if (!loadExisting) {
+            try {
+                updateHeightsFromFile(lat, lon, heights);
+            } catch (FileNotFoundException ex) {
+                HeightTile demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
+                demProvider.setHeights(heights);
+                demProvider.setSeaLevel(true);
+                // use small size on disc and in-memory
+                heights.create(10)
+                        .flush();
+                return demProvider;
+            }
         }
 
-        if (demProvider.isSeaLevel())
-            return 0;
+        int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
+        if (width == 0)
+            width = DEFAULT_WIDTH;
 
-        return demProvider.getHeight(lat, lon);
+        HeightTile demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
+        demProvider.setInterpolate(interpolate);
+        demProvider.setHeights(heights);
+        return demProvider;
     }
 
     private void updateHeightsFromFile(double lat, double lon, DataAccess heights) throws FileNotFoundException {
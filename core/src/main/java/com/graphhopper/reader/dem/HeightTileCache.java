@@ -0,0 +1,158 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The thread-safe cache of the height tiles of a {@link TileBasedElevationProvider}. Tiles are loaded when they are
+ * accessed for the first time. If the number of tiles is limited via
+ * {@link TileBasedElevationProvider#setMaxCachedTiles(int)} the least recently used tile is closed before another
+ * tile is loaded, so importing a large area does not keep all of its tiles open at the same time.
+ * <p>
+ * Reading the elevation from a cached tile only requires the shared lock, so several threads can do it concurrently.
+ * A tile is loaded (and possibly downloaded) without any lock by the first thread that requests it, while other threads
+ * that need the same tile wait for this load. Only inserting and closing a tile requires the exclusive lock.
+ *
+ * @param <K> the type of the key of a tile
+ */
+class HeightTileCache<K> {
+    interface TileLoader<K> {
+        /**
+         * @return the tile with the given key which contains the given coordinate or null if there is no such tile
+         */
+        HeightTile load(K key, double lat, double lon);
+    }
+
+    private final TileBasedElevationProvider provider;
+    private final TileLoader<K> loader;
+    private final Map<K, CachedTile> tiles = new ConcurrentHashMap<>();
+    private final Map<K, FutureTask<HeightTile>> loading = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong clock = new AtomicLong();
+
+    HeightTileCache(TileBasedElevationProvider provider, TileLoader<K> loader) {
+        this.provider = provider;
+        this.loader = loader;
+    }
+
+    /**
+     * @return the elevation at the given coordinate from the tile with the given key, or 0 if there is no such tile
+     */
+    double getHeight(K key, double lat, double lon) {
+        while (true) {
+            lock.readLock().lock();
+            try {
+                CachedTile cachedTile = tiles.get(key);
+                if (cachedTile != null)
+                    return cachedTile.getHeight(lat, lon);
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            FutureTask<HeightTile> task = new FutureTask<>(() -> loader.load(key, lat, lon));
+            FutureTask<HeightTile> otherTask = loading.putIfAbsent(key, task);
+            if (otherTask != null) {
+                // another thread is loading this tile, so we wait and then read it from the cache
+                if (waitFor(otherTask) == null)
+                    return 0;
+                continue;
+            }
+            try {
+                // the tile is put into the cache before the task is removed, so it might have been loaded meanwhile
+                if (tiles.containsKey(key))
+                    continue;
+                task.run();
+                HeightTile tile = waitFor(task);
+                if (tile == null)
+                    return 0;
+                lock.writeLock().lock();
+                try {
+                    if (provider.maxCachedTiles > 0 && tiles.size() >= provider.maxCachedTiles)
+                        closeLeastRecentlyUsed();
+                    CachedTile cachedTile = new CachedTile(tile);
+                    tiles.put(key, cachedTile);
+                    return cachedTile.getHeight(lat, lon);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                loading.remove(key, task);
+            }
+        }
+    }
+
+    private static HeightTile waitFor(FutureTask<HeightTile> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a height tile", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error)
+                throw (Error) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    private void closeLeastRecentlyUsed() {
+        K lruKey = null;
+        long lruAccess = Long.MAX_VALUE;
+        for (Map.Entry<K, CachedTile> entry : tiles.entrySet()) {
+            if (entry.getValue().lastAccess < lruAccess) {
+                lruAccess = entry.getValue().lastAccess;
+                lruKey = entry.getKey();
+            }
+        }
+        provider.closeTile(tiles.remove(lruKey).tile);
+    }
+
+    int size() {
+        return tiles.size();
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            tiles.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private class CachedTile {
+        final HeightTile tile;
+        volatile long lastAccess;
+
+        CachedTile(HeightTile tile) {
+            this.tile = tile;
+        }
+
+        double getHeight(double lat, double lon) {
+            lastAccess = clock.incrementAndGet();
+            return tile.isSeaLevel() ? 0 : tile.getHeight(lat, lon);
+        }
+    }
+}
@@ -77,6 +77,13 @@ public class MultiSourceElevationProvider extends TileBasedElevationProvider {
         return this;
     }
 
+    @Override
+    public MultiSourceElevationProvider setMaxCachedTiles(int maxCachedTiles) {
+        srtmProvider.setMaxCachedTiles(maxCachedTiles);
+        globalProvider.setMaxCachedTiles(maxCachedTiles);
+        return this;
+    }
+
     @Override
     public MultiSourceElevationProvider setInterpolate(boolean interpolate) {
         srtmProvider.setInterpolate(interpolate);
@@ -0,0 +1,220 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.BBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * Reads the elevation from a single memory mapped raster file that was created with
+ * {@link #createRaster(ElevationProvider, BBox, int, String)} from another provider, e.g. the
+ * {@link MultiSourceElevationProvider}. The raster covers a rectangle of cells with a size of one degree. Every cell
+ * with elevation data is stored as a block of samples with a fixed size, so the elevation of a coordinate is read
+ * with a direct offset and no tiles need to be downloaded, unzipped or decoded during the import. Coordinates outside
+ * of the raster are passed to the fallback provider.
+ */
+public class RasterElevationProvider implements ElevationProvider {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RasterElevationProvider.class);
+    private static final String NAME = "elevation_raster";
+    private static final int VERSION = 1;
+    private static final int NO_DATA = -1;
+    private static final double MIN_ELEVATION_METERS = -12_000;
+    private static final double MAX_ELEVATION_METERS = 9_000;
+
+    private final ElevationProvider fallback;
+    private final Directory dir;
+    private final DataAccess raster;
+    private final int minLat;
+    private final int minLon;
+    private final int latCells;
+    private final int lonCells;
+    private final int samplesPerDegree;
+    // the samples of a block form a square with this width, including the samples on the borders of the cell
+    private final int blockWidth;
+    private final long blockBytes;
+    private final long blocksStart;
+    private boolean interpolate;
+
+    /**
+     * @param rasterDir the directory which contains the raster created with
+     *                  {@link #createRaster(ElevationProvider, BBox, int, String)}
+     * @param fallback  the provider used for coordinates outside of the raster
+     */
+    public RasterElevationProvider(String rasterDir, ElevationProvider fallback) {
+        this.fallback = fallback;
+        dir = new GHDirectory(rasterDir, DAType.MMAP_RO);
+        raster = dir.create(NAME);
+        if (!raster.loadExisting())
+            throw new IllegalStateException("There is no elevation raster in " + new File(rasterDir).getAbsolutePath()
+                    + ". Create it before the import, e.g. with the elevation_raster command");
+        GHUtility.checkDAVersion(NAME, VERSION, raster.getHeader(0));
+        minLat = raster.getHeader(4);
+        minLon = raster.getHeader(8);
+        latCells = raster.getHeader(12);
+        lonCells = raster.getHeader(16);
+        samplesPerDegree = raster.getHeader(20);
+        blockWidth = samplesPerDegree + 1;
+        blockBytes = 2L * blockWidth * blockWidth;
+        blocksStart = 4L * latCells * lonCells;
+    }
+
+    /**
+     * Enables bilinear interpolation between the samples of the raster. Turned off by default.
+     */
+    public RasterElevationProvider setInterpolate(boolean interpolate) {
+        this.interpolate = interpolate;
+        return this;
+    }
+
+    @Override
+    public boolean canInterpolate() {
+        return interpolate;
+    }
+
+    @Override
+    public double getEle(double lat, double lon) {
+        int cellLat = (int) Math.floor(lat);
+        int cellLon = (int) Math.floor(lon);
+        if (cellLat < minLat || cellLat >= minLat + latCells || cellLon < minLon || cellLon >= minLon + lonCells)
+            return fallback.getEle(lat, lon);
+
+        int block = raster.getInt(4L * ((long) (cellLat - minLat) * lonCells + cellLon - minLon));
+        if (block == NO_DATA)
+            return 0;
+
+        long blockStart = blocksStart + block * blockBytes;
+        // the first row of a block is the northernmost one
+        double x = (lon - cellLon) * samplesPerDegree;
+        double y = (cellLat + 1 - lat) * samplesPerDegree;
+        double elevation;
+        if (interpolate) {
+            int left = Math.min((int) x, samplesPerDegree - 1);
+            int top = Math.min((int) y, samplesPerDegree - 1);
+            double topEle = linearInterpolate(getSample(blockStart, left, top), getSample(blockStart, left + 1, top), x - left);
+            double bottomEle = linearInterpolate(getSample(blockStart, left, top + 1), getSample(blockStart, left + 1, top + 1), x - left);
+            elevation = linearInterpolate(topEle, bottomEle, y - top);
+        } else {
+            elevation = getSample(blockStart, (int) Math.round(x), (int) Math.round(y));
+        }
+        return isValidElevation(elevation) ? elevation : Double.NaN;
+    }
+
+    private short getSample(long blockStart, int x, int y) {
+        return raster.getShort(blockStart + 2L * ((long) y * blockWidth + x));
+    }
+
+    private static boolean isValidElevation(double elevation) {
+        return elevation > MIN_ELEVATION_METERS && elevation < MAX_ELEVATION_METERS;
+    }
+
+    private static double linearInterpolate(double a, double b, double f) {
+        // interpolate between a and b but if either are invalid, return the other
+        return !isValidElevation(a) ? b : !isValidElevation(b) ? a : (a + (b - a) * f);
+    }
+
+    @Override
+    public void release() {
+        dir.close();
+        fallback.release();
+    }
+
+    @Override
+    public String toString() {
+        return "raster";
+    }
+
+    /**
+     * Samples the elevation of all cells that intersect the given bounds from the given provider and stores it as
+     * raster in the given directory, which can then be read by a RasterElevationProvider. Cells without any elevation,
+     * e.g. at sea, do not use any space. The raster needs 2 * (samplesPerDegree + 1)^2 bytes for every other cell.
+     *
+     * @param samplesPerDegree the number of samples per degree in both directions, e.g. 1200 for a resolution of
+     *                         three arc seconds like SRTM
+     */
+    public static void createRaster(ElevationProvider source, BBox bounds, int samplesPerDegree, String rasterDir) {
+        if (samplesPerDegree < 1 || samplesPerDegree > 3600)
+            throw new IllegalArgumentException("samplesPerDegree must be in [1, 3600] but was " + samplesPerDegree);
+        StopWatch sw = StopWatch.started();
+        int minLat = (int) Math.floor(bounds.minLat);
+        int minLon = (int) Math.floor(bounds.minLon);
+        int latCells = Math.max(1, (int) Math.ceil(bounds.maxLat) - minLat);
+        int lonCells = Math.max(1, (int) Math.ceil(bounds.maxLon) - minLon);
+        int blockWidth = samplesPerDegree + 1;
+        long blockBytes = 2L * blockWidth * blockWidth;
+        long blocksStart = 4L * latCells * lonCells;
+
+        Helper.removeDir(new File(rasterDir, NAME));
+        Directory dir = new GHDirectory(rasterDir, DAType.MMAP);
+        try {
+            DataAccess raster = dir.create(NAME).create(blocksStart);
+            short[] samples = new short[blockWidth * blockWidth];
+            int blocks = 0;
+            for (int latCell = 0; latCell < latCells; latCell++) {
+                for (int lonCell = 0; lonCell < lonCells; lonCell++) {
+                    double maxLat = minLat + latCell + 1;
+                    double cellMinLon = minLon + lonCell;
+                    boolean hasData = false;
+                    for (int y = 0; y < blockWidth; y++) {
+                        for (int x = 0; x < blockWidth; x++) {
+                            // stay inside the cell, so we do not load the tiles of the neighbouring cells
+                            double lat = Math.min(maxLat - (double) y / samplesPerDegree, maxLat - 1e-7);
+                            double lon = Math.min(cellMinLon + (double) x / samplesPerDegree, cellMinLon + 1 - 1e-7);
+                            double ele = source.getEle(lat, lon);
+                            short sample = isValidElevation(ele) ? (short) Math.round(ele) : Short.MIN_VALUE;
+                            samples[y * blockWidth + x] = sample;
+                            hasData |= sample != 0;
+                        }
+                    }
+                    long cellPointer = 4L * ((long) latCell * lonCells + lonCell);
+                    if (!hasData) {
+                        raster.setInt(cellPointer, NO_DATA);
+                        continue;
+                    }
+                    long blockStart = blocksStart + blocks * blockBytes;
+                    raster.ensureCapacity(blockStart + blockBytes);
+                    for (int i = 0; i < samples.length; i++)
+                        raster.setShort(blockStart + 2L * i, samples[i]);
+                    raster.setInt(cellPointer, blocks);
+                    blocks++;
+                }
+                LOGGER.info("elevation raster - finished row " + (latCell + 1) + " of " + latCells + ", blocks: " + blocks);
+            }
+            raster.setHeader(0, VERSION);
+            raster.setHeader(4, minLat);
+            raster.setHeader(8, minLon);
+            raster.setHeader(12, latCells);
+            raster.setHeader(16, lonCells);
+            raster.setHeader(20, samplesPerDegree);
+            raster.flush();
+            LOGGER.info("Created elevation raster with " + latCells + "x" + lonCells + " cells and " + blocks
+                    + " blocks in " + rasterDir + ", took: " + sw.stop().getTimeString());
+        } finally {
+            dir.close();
+        }
+    }
+}
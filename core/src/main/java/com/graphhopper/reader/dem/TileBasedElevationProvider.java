@@ -41,6 +41,7 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
     DAType daType = DAType.MMAP;
     boolean interpolate = false;
     boolean autoRemoveTemporary = true;
+    int maxCachedTiles = 0;
     long sleep = 2000;
 
     protected TileBasedElevationProvider(String cacheDirString) {
@@ -103,6 +104,19 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
         return this;
     }
 
+    /**
+     * Limits the number of tiles that are kept open at the same time. If the limit is reached the least recently
+     * used tile is closed before another one is loaded. Use this for large areas to bound the memory usage. Tiles
+     * are closed without removing their files unless temporary files are removed automatically. 0 means no limit,
+     * which is the default.
+     */
+    public TileBasedElevationProvider setMaxCachedTiles(int maxCachedTiles) {
+        if (maxCachedTiles < 0)
+            throw new IllegalArgumentException("maxCachedTiles must not be negative: " + maxCachedTiles);
+        this.maxCachedTiles = maxCachedTiles;
+        return this;
+    }
+
     public TileBasedElevationProvider setDownloader(Downloader downloader) {
         this.downloader = downloader;
         return this;
@@ -112,7 +126,15 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
         return cacheDir;
     }
 
-    protected Directory getDirectory() {
+    void closeTile(HeightTile tile) {
+        String name = tile.getHeights().getName();
+        if (autoRemoveTemporary)
+            getDirectory().remove(name);
+        else
+            getDirectory().close(name);
+    }
+
+    protected synchronized Directory getDirectory() {
         if (dir != null)
             return dir;
 
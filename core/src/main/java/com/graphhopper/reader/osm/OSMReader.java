@@ -171,6 +171,7 @@ public class OSMReader {
                 .setRelationProcessor(this::processRelation)
                 .setEdgeHandler(this::addEdge)
                 .setWorkerThreads(config.getWorkerThreads())
+                .setElevationThreads(eleProvider == ElevationProvider.NOOP ? 1 : config.getElevationThreads())
                 .build();
         waySegmentParser.readOSM(osmFile);
         osmDataDate = waySegmentParser.getTimestamp();
@@ -24,6 +24,7 @@ import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.storage.Directory;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointAccess;
 import com.graphhopper.util.PointList;
@@ -37,6 +38,8 @@ import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.*;
 
 import static com.graphhopper.reader.osm.OSMNodeData.*;
@@ -60,6 +63,8 @@ import static com.graphhopper.util.Helper.nf;
  */
 public class WaySegmentParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(WaySegmentParser.class);
+    private static final int ELEVATION_BATCH_SIZE = 100_000;
+    private static final int ELEVATION_CHUNK_SIZE = 1_000;
     private static final Set<String> INCLUDE_IF_NODE_TAGS = new HashSet<>(Arrays.asList("barrier", "highway", "railway", "crossing", "ford"));
 
     private ToDoubleFunction<ReaderNode> elevationProvider = node -> 0d;
@@ -74,6 +79,7 @@ public class WaySegmentParser {
     private EdgeHandler edgeHandler = (from, to, pointList, way, nodeTags) ->
             System.out.println("edge " + from + "->" + to + " (" + pointList.size() + " points)");
     private int workerThreads = 2;
+    private int elevationThreads = 1;
 
     private final OSMNodeData nodeData;
     private Date timestamp;
@@ -101,7 +107,13 @@ public class WaySegmentParser {
 
         LOGGER.info("pass2 - start");
         StopWatch sw2 = new StopWatch().start();
-        readOSM(osmFile, new Pass2Handler(), SkipOptions.none());
+        ExecutorService elevationExecutor = elevationThreads > 1 ? Executors.newFixedThreadPool(elevationThreads) : null;
+        try {
+            readOSM(osmFile, new Pass2Handler(elevationExecutor), SkipOptions.none());
+        } finally {
+            if (elevationExecutor != null)
+                elevationExecutor.shutdownNow();
+        }
         LOGGER.info("pass2 - finished, took: {}", sw2.stop().getTimeString());
 
         nodeData.release();
@@ -180,6 +192,9 @@ public class WaySegmentParser {
     }
 
     private class Pass2Handler implements ReaderElementHandler {
+        private final ExecutorService elevationExecutor;
+        // the accepted nodes whose elevation is not determined yet, only used if there is an elevation executor
+        private final List<ReaderNode> nodeBatch = new ArrayList<>();
         private boolean handledNodes;
         private boolean handledWays;
         private boolean handledRelations;
@@ -188,6 +203,10 @@ public class WaySegmentParser {
         private long ignoredSplitNodes = 0;
         private long wayCounter = 0;
 
+        Pass2Handler(ExecutorService elevationExecutor) {
+            this.elevationExecutor = elevationExecutor;
+        }
+
         @Override
         public void handleNode(ReaderNode node) {
             if (!handledNodes) {
@@ -203,7 +222,39 @@ public class WaySegmentParser {
                 LOGGER.info("pass2 - processed nodes: " + nf(nodeCounter) + ", accepted nodes: " + nf(acceptedNodes) +
                         ", " + Helper.getMemInfo());
 
-            long nodeType = nodeData.addCoordinatesIfMapped(node.getId(), node.getLat(), node.getLon(), () -> elevationProvider.applyAsDouble(node));
+            if (elevationExecutor == null) {
+                addNode(node, () -> elevationProvider.applyAsDouble(node));
+            } else if (nodeData.getId(node.getId()) != EMPTY_NODE) {
+                // the elevation lookup is the expensive part, so we do it for many nodes at once using several
+                // threads and then add the nodes in their original order
+                nodeBatch.add(node);
+                if (nodeBatch.size() >= ELEVATION_BATCH_SIZE)
+                    flushNodeBatch();
+            }
+        }
+
+        private void flushNodeBatch() {
+            if (nodeBatch.isEmpty())
+                return;
+            double[] elevations = new double[nodeBatch.size()];
+            List<Integer> chunkStarts = new ArrayList<>();
+            for (int start = 0; start < nodeBatch.size(); start += ELEVATION_CHUNK_SIZE)
+                chunkStarts.add(start);
+            GHUtility.mapConcurrently(elevationExecutor, chunkStarts, start -> {
+                int end = Math.min(start + ELEVATION_CHUNK_SIZE, nodeBatch.size());
+                for (int i = start; i < end; i++)
+                    elevations[i] = elevationProvider.applyAsDouble(nodeBatch.get(i));
+                return null;
+            });
+            for (int i = 0; i < nodeBatch.size(); i++) {
+                double ele = elevations[i];
+                addNode(nodeBatch.get(i), () -> ele);
+            }
+            nodeBatch.clear();
+        }
+
+        private void addNode(ReaderNode node, DoubleSupplier getEle) {
+            long nodeType = nodeData.addCoordinatesIfMapped(node.getId(), node.getLat(), node.getLon(), getEle);
             if (nodeType == EMPTY_NODE)
                 return;
 
@@ -235,6 +286,7 @@ public class WaySegmentParser {
         @Override
         public void handleWay(ReaderWay way) {
             if (!handledWays) {
+                flushNodeBatch();
                 LOGGER.info("pass2 - start reading OSM ways");
                 handledWays = true;
             }
@@ -370,6 +422,7 @@ public class WaySegmentParser {
         @Override
         public void handleRelation(ReaderRelation relation) {
             if (!handledRelations) {
+                flushNodeBatch();
                 LOGGER.info("pass2 - start reading OSM relations");
                 handledRelations = true;
             }
@@ -379,6 +432,7 @@ public class WaySegmentParser {
 
         @Override
         public void onFinish() {
+            flushNodeBatch();
             LOGGER.info("pass2 - finished, processed ways: {}, way nodes: {}, nodes with tags: {}, node tag capacity: {}, ignored barriers at junctions: {}",
                     nf(wayCounter), nf(acceptedNodes), nf(nodeData.getTaggedNodeCount()), nf(nodeData.getNodeTagCapacity()), nf(ignoredSplitNodes));
         }
@@ -483,6 +537,15 @@ public class WaySegmentParser {
             return this;
         }
 
+        /**
+         * @param elevationThreads the number of threads used to determine the elevation of the OSM nodes. If this
+         *                         is larger than one the elevation provider must be thread-safe.
+         */
+        public Builder setElevationThreads(int elevationThreads) {
+            waySegmentParser.elevationThreads = elevationThreads;
+            return this;
+        }
+
         public WaySegmentParser build() {
             return waySegmentParser;
         }
@@ -29,6 +29,10 @@ import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.Parameters;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
 /**
  * This class implements a bidirectional A* algorithm. It is interesting to note that a
  * bidirectional dijkstra is far more efficient than a single direction one. The same does not hold
@@ -58,6 +62,9 @@ import com.graphhopper.util.Parameters;
 public class AStarBidirection extends AbstractNonCHBidirAlgo {
     private BalancedWeightApproximator weightApprox;
     double stoppingCriterionOffset;
+    private double initialStoppingCriterionOffset;
+    private int approximationUpdateInterval;
+    private int nextApproximationUpdate;
 
     public AStarBidirection(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
@@ -70,7 +77,54 @@ public class AStarBidirection extends AbstractNonCHBidirAlgo {
     void init(int from, double fromWeight, int to, double toWeight) {
         weightApprox.setFromTo(from, to);
         stoppingCriterionOffset = weightApprox.approximate(to, true) + weightApprox.getSlack();
+        initialStoppingCriterionOffset = stoppingCriterionOffset;
         super.init(from, fromWeight, to, toWeight);
+        nextApproximationUpdate = approximationUpdateInterval;
+    }
+
+    @Override
+    protected void runAlgo() {
+        while (!finished() && !isMaxVisitedNodesExceeded() && !isTimeoutExceeded()) {
+            if (approximationUpdateInterval > 0 && getVisitedNodes() >= nextApproximationUpdate) {
+                nextApproximationUpdate = getVisitedNodes() + approximationUpdateInterval;
+                updateApproximation();
+            }
+
+            if (!finishedFrom)
+                finishedFrom = !fillEdgesFrom();
+
+            if (!finishedTo)
+                finishedTo = !fillEdgesTo();
+        }
+    }
+
+    /**
+     * If the approximation changes for the current nodes of the search, the weights of all entries in the queues
+     * have to be recalculated. The search stays correct because the distances of the already visited nodes do not
+     * depend on the approximation. This is done before the next nodes are polled, so that the stopping criterion is
+     * not checked with weights from different approximations.
+     */
+    private void updateApproximation() {
+        if (!weightApprox.update(currFrom.adjNode, currTo.adjNode))
+            return;
+        // The sum of the forward and backward approximation of a node does not change, so neither does the offset. We
+        // must not take the new approximation of the target here, because it would stop the search too early when it is
+        // smaller. But the rounding errors of the previous and the new approximation can add up, so we need more slack.
+        stoppingCriterionOffset = initialStoppingCriterionOffset + weightApprox.getSlack();
+        updateHeapWeights(pqOpenSetFrom, false);
+        updateHeapWeights(pqOpenSetTo, true);
+    }
+
+    private void updateHeapWeights(PriorityQueue<SPTEntry> queue, boolean reverse) {
+        List<SPTEntry> entries = new ArrayList<>(queue.size());
+        for (SPTEntry entry : queue) {
+            if (entry.isDeleted())
+                continue;
+            entry.weight = entry.getWeightOfVisitedPath() + weightApprox.approximate(entry.adjNode, reverse);
+            entries.add(entry);
+        }
+        queue.clear();
+        queue.addAll(entries);
     }
 
     @Override
@@ -110,6 +164,19 @@ public class AStarBidirection extends AbstractNonCHBidirAlgo {
         return this;
     }
 
+    /**
+     * Lets the approximation adapt to the current nodes of the search every time the specified number of nodes was
+     * visited, see {@link WeightApproximator#update(int)}. Use 0 to disable this, which is the default.
+     */
+    public AStarBidirection setApproximationUpdateInterval(int approximationUpdateInterval) {
+        this.approximationUpdateInterval = approximationUpdateInterval;
+        return this;
+    }
+
+    public int getApproximationUpdateInterval() {
+        return approximationUpdateInterval;
+    }
+
     @Override
     void setToDataStructures(AbstractBidirAlgo other) {
         throw new UnsupportedOperationException();
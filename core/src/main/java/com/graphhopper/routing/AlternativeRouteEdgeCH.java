@@ -25,9 +25,12 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 
@@ -36,17 +39,23 @@ import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
  * contraction hierarchies.
  * <p>
  * "Alternative Routes in Road Networks" (Abraham et al.)
+ * <p>
+ * The via-node candidates can be evaluated in parallel just like for {@link AlternativeRouteCH}.
  *
  * @author michaz
  */
-public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
+public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD implements AlternativeRouteStats {
 
     private final double maxWeightFactor;
     private final double maxShareFactor;
     private final double localOptimalityFactor;
     private final int maxPaths;
+    private final int threads;
+    private ExecutorService executor;
     private final List<AlternativeInfo> alternatives = new ArrayList<>();
     private int extraVisitedNodes = 0;
+    private int evaluatedCandidates = 0;
+    private long candidateMillis = 0;
 
     public AlternativeRouteEdgeCH(RoutingCHGraph graph, PMap hints) {
         super(graph);
@@ -54,6 +63,18 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         maxShareFactor = hints.getDouble("alternative_route.max_share_factor", 0.8);
         localOptimalityFactor = hints.getDouble("alternative_route.local_optimality_factor", 0.25);
         maxPaths = hints.getInt("alternative_route.max_paths", 3);
+        threads = hints.getInt("alternative_route.threads", 1);
+        if (threads < 1)
+            throw new IllegalArgumentException("alternative_route.threads must be at least 1, but was " + threads);
+    }
+
+    /**
+     * Sets the pool that is used to evaluate the via-node candidates if alternative_route.threads &gt; 1. The pool
+     * is not shut down by this algorithm. Without a pool the candidates are evaluated on the calling thread.
+     */
+    public AlternativeRouteEdgeCH setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
     }
 
     @Override
@@ -70,6 +91,16 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         return visitedCountFrom + visitedCountTo + extraVisitedNodes;
     }
 
+    @Override
+    public int getEvaluatedCandidates() {
+        return evaluatedCandidates;
+    }
+
+    @Override
+    public long getCandidateMillis() {
+        return candidateMillis;
+    }
+
     List<AlternativeInfo> calcAlternatives(final int s, final int t) {
         // First, do a regular bidirectional route search
         checkAlreadyRun();
@@ -118,53 +149,84 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
 
         potentialAlternativeInfos.sort(Comparator.comparingDouble(o -> o.weight));
 
-        for (PotentialAlternativeInfo potentialAlternativeInfo : potentialAlternativeInfos) {
-            int v = potentialAlternativeInfo.v;
-            int tailSv = potentialAlternativeInfo.edgeIn;
-
-            // Okay, now we want the s -> v -> t shortest via-path, so we route s -> v and v -> t
-            // and glue them together.
-            DijkstraBidirectionEdgeCHNoSOD svRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
-            final Path suvPath = svRouter.calcPath(s, v, ANY_EDGE, tailSv);
-            extraVisitedNodes += svRouter.getVisitedNodes();
-
-            int u = graph.getBaseGraph().getEdgeIteratorState(tailSv, v).getBaseNode();
-
-            DijkstraBidirectionEdgeCHNoSOD vtRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
-            final Path uvtPath = vtRouter.calcPath(u, t, tailSv, ANY_EDGE);
-            if (!uvtPath.isFound())
-                // we were looking for the s->u->v->(x->)t path, but there might be a turn restriction
-                // at u->v->x in which case uvtPath is not found. If we do not stop here we might return
-                // an alternative that does not even reach t, and has a lower weight than the best path.
-                continue;
-            Path path = concat(graph.getBaseGraph(), graph.getBaseGraph().wrapWeighting(graph.getWeighting()), suvPath, uvtPath);
-            extraVisitedNodes += vtRouter.getVisitedNodes();
-
-            double sharedDistanceWithShortest = sharedDistanceWithShortest(path);
-            double detourLength = path.getDistance() - sharedDistanceWithShortest;
-            double directLength = bestPath.getDistance() - sharedDistanceWithShortest;
-            if (detourLength > directLength * maxWeightFactor) {
-                continue;
+        StopWatch sw = new StopWatch().start();
+        // the executor is shared by all requests and bounds the total number of threads
+        ExecutorService executor = threads > 1 ? this.executor : null;
+        int batchSize = threads > 1 ? 2 * threads : 1;
+        for (int i = 0; i < potentialAlternativeInfos.size() && alternatives.size() < maxPaths; i += batchSize) {
+            List<PotentialAlternativeInfo> batch = potentialAlternativeInfos.subList(i, Math.min(i + batchSize, potentialAlternativeInfos.size()));
+            List<Candidate> candidates = GHUtility.mapConcurrently(executor, batch, info -> evaluateCandidate(s, t, bestPath, info));
+            for (Candidate candidate : candidates) {
+                evaluatedCandidates++;
+                extraVisitedNodes += candidate.visitedNodes;
+                if (candidate.path == null)
+                    continue;
+
+                // the share might have changed if another candidate of this batch was accepted
+                double share = calculateShare(candidate.path);
+                if (share > maxShareFactor)
+                    continue;
+
+                alternatives.add(new AlternativeInfo(candidate.path, share));
+                if (alternatives.size() >= maxPaths)
+                    break;
             }
+        }
+        candidateMillis = sw.stop().getMillis();
+        return alternatives;
+    }
 
-            double share = calculateShare(path);
-            if (share > maxShareFactor) {
-                continue;
-            }
+    /**
+     * Calculates the via-path for the given candidate and applies all checks that do not depend on the alternatives
+     * accepted so far. This does not modify the state of this algorithm, so it can be called concurrently.
+     */
+    private Candidate evaluateCandidate(int s, int t, Path bestPath, PotentialAlternativeInfo potentialAlternativeInfo) {
+        Candidate candidate = new Candidate();
+        int v = potentialAlternativeInfo.v;
+        int tailSv = potentialAlternativeInfo.edgeIn;
+
+        // Okay, now we want the s -> v -> t shortest via-path, so we route s -> v and v -> t
+        // and glue them together.
+        DijkstraBidirectionEdgeCHNoSOD svRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
+        final Path suvPath = svRouter.calcPath(s, v, ANY_EDGE, tailSv);
+        candidate.visitedNodes += svRouter.getVisitedNodes();
+
+        int u = graph.getBaseGraph().getEdgeIteratorState(tailSv, v).getBaseNode();
+
+        DijkstraBidirectionEdgeCHNoSOD vtRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
+        final Path uvtPath = vtRouter.calcPath(u, t, tailSv, ANY_EDGE);
+        candidate.visitedNodes += vtRouter.getVisitedNodes();
+        if (!uvtPath.isFound())
+            // we were looking for the s->u->v->(x->)t path, but there might be a turn restriction
+            // at u->v->x in which case uvtPath is not found. If we do not stop here we might return
+            // an alternative that does not even reach t, and has a lower weight than the best path.
+            return candidate;
+        Path path = concat(graph.getBaseGraph(), graph.getBaseGraph().wrapWeighting(graph.getWeighting()), suvPath, uvtPath);
+
+        double sharedDistanceWithShortest = sharedDistanceWithShortest(path);
+        double detourLength = path.getDistance() - sharedDistanceWithShortest;
+        double directLength = bestPath.getDistance() - sharedDistanceWithShortest;
+        if (detourLength > directLength * maxWeightFactor) {
+            return candidate;
+        }
 
-            // This is the final test we need: Discard paths that are not "locally shortest" around v.
-            // So move a couple of nodes to the left and right from v on our path,
-            // route, and check if v is on the shortest path.
-            final IntIndexedContainer svNodes = suvPath.calcNodes();
-            int vIndex = svNodes.size() - 1;
-            if (!tTest(path, vIndex))
-                continue;
-
-            alternatives.add(new AlternativeInfo(path, share));
-            if (alternatives.size() >= maxPaths)
-                break;
+        // The share can only grow when more alternatives are accepted, so we can already discard the candidate
+        // here and skip the more expensive test below.
+        double share = calculateShare(path);
+        if (share > maxShareFactor) {
+            return candidate;
         }
-        return alternatives;
+
+        // This is the final test we need: Discard paths that are not "locally shortest" around v.
+        // So move a couple of nodes to the left and right from v on our path,
+        // route, and check if v is on the shortest path.
+        final IntIndexedContainer svNodes = suvPath.calcNodes();
+        int vIndex = svNodes.size() - 1;
+        if (!tTest(path, vIndex, candidate))
+            return candidate;
+
+        candidate.path = path;
+        return candidate;
     }
 
     private double calculateShare(final Path path) {
@@ -203,7 +265,7 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         return false;
     }
 
-    private boolean tTest(Path path, int vIndex) {
+    private boolean tTest(Path path, int vIndex, Candidate candidate) {
         if (path.getEdgeCount() == 0) return true;
         double detourDistance = detourDistance(path);
         double T = 0.5 * localOptimalityFactor * detourDistance;
@@ -211,7 +273,7 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         EdgeIteratorState toNode = getNextNodeTMetersAway(path, vIndex, T);
         DijkstraBidirectionEdgeCHNoSOD tRouter = new DijkstraBidirectionEdgeCHNoSOD(graph);
         Path tPath = tRouter.calcPath(fromNode.getBaseNode(), toNode.getAdjNode(), fromNode.getEdge(), toNode.getEdge());
-        extraVisitedNodes += tRouter.getVisitedNodes();
+        candidate.visitedNodes += tRouter.getVisitedNodes();
         IntIndexedContainer tNodes = tPath.calcNodes();
         int v = path.calcNodes().get(vIndex);
         return tNodes.contains(v);
@@ -287,6 +349,12 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         }
     }
 
+    private static class Candidate {
+        // null if the candidate was discarded
+        Path path;
+        int visitedNodes;
+    }
+
     public static class AlternativeInfo {
         final double shareWeight;
         final Path path;
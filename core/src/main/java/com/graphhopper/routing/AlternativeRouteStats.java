@@ -0,0 +1,34 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.routing;
+
+/**
+ * Implemented by the alternative route algorithms that can report how many via-node candidates they evaluated.
+ */
+public interface AlternativeRouteStats {
+    /**
+     * @return the number of via-node candidates for which the via-path was calculated
+     */
+    int getEvaluatedCandidates();
+
+    /**
+     * @return the time spent on the evaluation of the via-node candidates
+     */
+    long getCandidateMillis();
+}
@@ -34,6 +34,8 @@ public class CHPathCalculator implements PathCalculator {
     private final PMap algoOpts;
     private String debug;
     private int visitedNodes;
+    private int evaluatedCandidates;
+    private long candidateMillis;
 
     public CHPathCalculator(CHRoutingAlgorithmFactory algoFactory, PMap algoOpts) {
         this.algoFactory = algoFactory;
@@ -71,6 +73,10 @@ public class CHPathCalculator implements PathCalculator {
         if (algo.getVisitedNodes() >= maxVisitedNodes)
             throw new MaximumNodesExceededException("No path found due to maximum nodes exceeded " + maxVisitedNodes, maxVisitedNodes);
         visitedNodes = algo.getVisitedNodes();
+        if (algo instanceof AlternativeRouteStats) {
+            evaluatedCandidates = ((AlternativeRouteStats) algo).getEvaluatedCandidates();
+            candidateMillis = ((AlternativeRouteStats) algo).getCandidateMillis();
+        }
         debug += ", " + algo.getName() + "-routing:" + sw.stop().getMillis() + " ms";
         return paths;
     }
@@ -85,4 +91,15 @@ public class CHPathCalculator implements PathCalculator {
         return visitedNodes;
     }
 
+    /**
+     * @return the number of via-node candidates evaluated by the last alternative route calculation
+     */
+    public int getEvaluatedCandidates() {
+        return evaluatedCandidates;
+    }
+
+    public long getCandidateMillis() {
+        return candidateMillis;
+    }
+
 }
\ No newline at end of file
@@ -122,6 +122,11 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
 
     @Override
     public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+        next(edge, edge.fetchWayGeometry(FetchMode.ALL), index, prevEdgeId);
+    }
+
+    @Override
+    public void next(EdgeIteratorState edge, PointList wayGeo, int index, int prevEdgeId) {
         // baseNode is the current node and adjNode is the next
         int adjNode = edge.getAdjNode();
         int baseNode = edge.getBaseNode();
@@ -135,7 +140,6 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
         double adjLon = nodeAccess.getLon(adjNode);
         double latitude, longitude;
 
-        PointList wayGeo = edge.fetchWayGeometry(FetchMode.ALL);
         boolean isRoundabout = edge.get(roundaboutEnc);
 
         if (wayGeo.size() <= 2) {
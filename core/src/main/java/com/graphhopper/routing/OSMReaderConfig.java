@@ -33,6 +33,7 @@ public class OSMReaderConfig {
     private int ramerElevationSmoothingMax = 5;
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
     private int workerThreads = 2;
+    private int elevationThreads = 1;
     private double defaultElevation = 0;
 
     public List<String> getIgnoredHighways() {
@@ -157,6 +158,19 @@ public class OSMReaderConfig {
         return this;
     }
 
+    public int getElevationThreads() {
+        return elevationThreads;
+    }
+
+    /**
+     * Sets the number of threads used to determine the elevation of the OSM nodes during the import. Using more than
+     * one thread requires a thread-safe elevation provider like the tile based providers.
+     */
+    public OSMReaderConfig setElevationThreads(int elevationThreads) {
+        this.elevationThreads = elevationThreads;
+        return this;
+    }
+
     public double getDefaultElevation() {
         return defaultElevation;
     }
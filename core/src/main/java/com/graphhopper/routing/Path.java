@@ -51,6 +51,7 @@ public class Path {
     private List<String> description;
     private boolean found;
     private String debugInfo = "";
+    private long extractionNanos;
 
     public Path(Graph graph) {
         this.graph = graph;
@@ -186,6 +187,17 @@ public class Path {
         return debugInfo;
     }
 
+    public void setExtractionNanos(long extractionNanos) {
+        this.extractionNanos = extractionNanos;
+    }
+
+    /**
+     * @return the time it took to extract this path from the shortest path tree
+     */
+    public long getExtractionNanos() {
+        return extractionNanos;
+    }
+
     /**
      * Iterates over all edges in this path sorted from start to end and calls the visitor callback
      * for every edge.
@@ -214,6 +226,31 @@ public class Path {
         visitor.finish();
     }
 
+    /**
+     * Iterates over all edges of this path like {@link #forEveryEdge(EdgeVisitor)}, but calls all the given visitors
+     * for every edge. This way every edge state and its geometry is only fetched once, no matter how many visitors
+     * there are. The visitors are called via {@link EdgeVisitor#next(EdgeIteratorState, PointList, int, int)} with the
+     * full geometry of the edge, which is shared between the visitors and therefore immutable.
+     */
+    public void forEveryEdge(List<? extends EdgeVisitor> visitors) {
+        if (visitors.isEmpty())
+            return;
+        forEveryEdge(new EdgeVisitor() {
+            @Override
+            public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+                PointList geometry = edge.fetchWayGeometry(FetchMode.ALL).makeImmutable();
+                for (EdgeVisitor visitor : visitors)
+                    visitor.next(edge, geometry, index, prevEdgeId);
+            }
+
+            @Override
+            public void finish() {
+                for (EdgeVisitor visitor : visitors)
+                    visitor.finish();
+            }
+        });
+    }
+
     /**
      * Returns the list of all edges.
      */
@@ -309,6 +346,15 @@ public class Path {
     public interface EdgeVisitor {
         void next(EdgeIteratorState edge, int index, int prevEdgeId);
 
+        /**
+         * Same as {@link #next(EdgeIteratorState, int, int)}, but with the geometry of the edge including its base and
+         * adjacent node, see {@link #forEveryEdge(List)}. Visitors that need the geometry should override this method
+         * to avoid fetching it again.
+         */
+        default void next(EdgeIteratorState edge, PointList geometry, int index, int prevEdgeId) {
+            next(edge, index, prevEdgeId);
+        }
+
         void finish();
     }
 }
@@ -19,10 +19,12 @@
 package com.graphhopper.routing;
 
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.LongCursor;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.config.Profile;
+import com.graphhopper.json.Statement;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.EncodedValueLookup;
@@ -33,6 +35,7 @@ import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
+import com.graphhopper.routing.weighting.custom.CustomWeightingHelper;
 import com.graphhopper.routing.weighting.custom.FindMinMax;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.Graph;
@@ -46,8 +49,12 @@ import com.graphhopper.util.exceptions.PointNotFoundException;
 import com.graphhopper.util.exceptions.PointOutOfBoundsException;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
+import com.graphhopper.util.shapes.Polygon;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.geom.prep.PreparedPolygon;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
 import static com.graphhopper.util.Parameters.Algorithms.ALT_ROUTE;
@@ -68,6 +75,8 @@ public class Router {
     protected final Map<String, LandmarkStorage> landmarks;
     protected final boolean chEnabled;
     protected final boolean lmEnabled;
+    private SnapCache snapCache;
+    private ExecutorService executor;
 
     public Router(BaseGraph graph, EncodingManager encodingManager, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
@@ -94,6 +103,23 @@ public class Router {
         }
     }
 
+    /**
+     * Sets the cache that is used to snap the points of requests without a custom model, or null to snap every point
+     */
+    public Router setSnapCache(SnapCache snapCache) {
+        this.snapCache = snapCache;
+        return this;
+    }
+
+    /**
+     * Sets the executor that is shared by all requests to calculate parts of a request concurrently, or null to
+     * calculate everything on the calling thread. The executor is not shut down by this class.
+     */
+    public Router setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
     public GHResponse route(GHRequest request) {
         try {
             checkNoLegacyParameters(request);
@@ -113,11 +139,12 @@ public class Router {
                 if (!(solver instanceof FlexSolver))
                     throw new IllegalArgumentException("algorithm=round_trip only works with a flexible algorithm");
                 return routeRoundTrip(request, (FlexSolver) solver);
-            } else if (ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())) {
-                return routeAlt(request, solver);
-            } else {
-                return routeVia(request, solver);
             }
+            GHResponse ghRsp = ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm()) ? routeAlt(request, solver) : routeVia(request, solver);
+            if (solver instanceof CHSolver && ((CHSolver) solver).isExcludedAreaOnRoute())
+                // CH cannot find the best detour around the excluded areas, so we have to calculate it without CH
+                return route(copyWithCHDisabled(request));
+            return ghRsp;
         } catch (MultiplePointsNotFoundException ex) {
             GHResponse ghRsp = new GHResponse();
             for (IntCursor p : ex.getPointsNotFound()) {
@@ -131,6 +158,21 @@ public class Router {
         }
     }
 
+    private static GHRequest copyWithCHDisabled(GHRequest request) {
+        GHRequest copy = new GHRequest(request.getPoints()).
+                setProfile(request.getProfile()).
+                setHeadings(request.getHeadings()).
+                setPointHints(request.getPointHints()).
+                setCurbsides(request.getCurbsides()).
+                setSnapPreventions(request.getSnapPreventions()).
+                setPathDetails(request.getPathDetails()).
+                setAlgorithm(request.getAlgorithm()).
+                setLocale(request.getLocale()).
+                setCustomModel(request.getCustomModel());
+        copy.getHints().putAll(request.getHints());
+        return copy.putHint(Parameters.CH.DISABLE, true);
+    }
+
     private void checkNoLegacyParameters(GHRequest request) {
         if (request.getHints().has("vehicle"))
             throw new IllegalArgumentException("GHRequest may no longer contain a vehicle, use the profile parameter instead, see docs/core/profiles.md");
@@ -201,7 +243,7 @@ public class Router {
 
     protected Solver createCHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
                                     EncodingManager encodingManager, Map<String, RoutingCHGraph> chGraphs) {
-        return new CHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs);
+        return new CHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs, executor);
     }
 
     protected Solver createLMSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
@@ -221,17 +263,26 @@ public class Router {
         StopWatch sw = new StopWatch().start();
         double startHeading = request.getHeadings().isEmpty() ? Double.NaN : request.getHeadings().get(0);
         RoundTripRouting.Params params = new RoundTripRouting.Params(request.getHints(), startHeading, routerConfig.getMaxRoundTripRetries());
-        List<Snap> snaps = RoundTripRouting.lookup(request.getPoints(), solver.createSnapFilter(), locationIndex, params);
+        EdgeFilter snapFilter = solver.createSnapFilter();
+        List<Snap> snaps = RoundTripRouting.lookup(request.getPoints(), snapFilter, getLocationIndex(request, snapFilter), params);
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        putTiming(ghRsp, "snap", sw.getNanos());
 
+        sw = new StopWatch().start();
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        putTiming(ghRsp, "query_graph", sw.stop().getNanos());
         FlexiblePathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
 
+        sw = new StopWatch().start();
         RoundTripRouting.Result result = RoundTripRouting.calcPaths(snaps, pathCalculator);
+        putTiming(ghRsp, "route", sw.stop().getNanos());
+        putPathExtractionTiming(ghRsp, result.paths);
         // we merge the different legs of the roundtrip into one response path
         // note that the waypoints are not just the snapped points of the snaps, as usual, because we do some kind of tweak
         // to avoid 'unnecessary tails' in the roundtrip algo
+        sw = new StopWatch().start();
         ResponsePath responsePath = concatenatePaths(request, solver.weighting, queryGraph, result.paths, result.wayPoints);
+        putTiming(ghRsp, "path_merging", sw.stop().getNanos());
         ghRsp.add(responsePath);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
@@ -244,10 +295,14 @@ public class Router {
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
-        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
+        EdgeFilter snapFilter = solver.createSnapFilter();
+        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), snapFilter, getLocationIndex(request, snapFilter),
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        putTiming(ghRsp, "snap", sw.getNanos());
+        sw = new StopWatch().start();
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        putTiming(ghRsp, "query_graph", sw.stop().getNanos());
         PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
         String curbsideStrictness = getCurbsideStrictness(request.getHints());
@@ -260,16 +315,24 @@ public class Router {
                 pathCalculator, request.getCurbsides(), curbsideStrictness, request.getHeadings(), passThrough);
         if (result.paths.isEmpty())
             throw new RuntimeException("Empty paths for alternative route calculation not expected");
+        putRouteTimings(ghRsp, result);
 
         // each path represents a different alternative and we do the path merging for each of them
+        sw = new StopWatch().start();
         PathMerger pathMerger = createPathMerger(request, solver.weighting, queryGraph);
         for (Path path : result.paths) {
             PointList waypoints = getWaypoints(snaps);
             ResponsePath responsePath = pathMerger.doWork(waypoints, Collections.singletonList(path), encodingManager, translationMap.getWithFallBack(request.getLocale()));
             ghRsp.add(responsePath);
         }
+        putTiming(ghRsp, "path_merging", sw.stop().getNanos());
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
+        if (ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm()) && pathCalculator instanceof CHPathCalculator) {
+            CHPathCalculator chPathCalculator = (CHPathCalculator) pathCalculator;
+            ghRsp.getHints().putObject("alternative_route.candidates", chPathCalculator.getEvaluatedCandidates());
+            ghRsp.getHints().putObject("alternative_route.candidates_time_ms", chPathCalculator.getCandidateMillis());
+        }
         return ghRsp;
     }
 
@@ -277,23 +340,31 @@ public class Router {
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
-        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
+        EdgeFilter snapFilter = solver.createSnapFilter();
+        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), snapFilter, getLocationIndex(request, snapFilter),
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        putTiming(ghRsp, "snap", sw.getNanos());
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
+        sw = new StopWatch().start();
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
-        PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
+        putTiming(ghRsp, "query_graph", sw.stop().getNanos());
         boolean passThrough = getPassThrough(request.getHints());
         String curbsideStrictness = getCurbsideStrictness(request.getHints());
         ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
-                pathCalculator, request.getCurbsides(), curbsideStrictness, request.getHeadings(), passThrough);
+                () -> solver.createPathCalculator(queryGraph), executor, routerConfig.getViaRoutingThreads(),
+                request.getCurbsides(), curbsideStrictness, request.getHeadings(), passThrough);
 
         if (request.getPoints().size() != result.paths.size() + 1)
             throw new RuntimeException("There should be exactly one more point than paths. points:" + request.getPoints().size() + ", paths:" + result.paths.size());
 
+        putRouteTimings(ghRsp, result);
+
         // here each path represents one leg of the via-route and we merge them all together into one response path
+        sw = new StopWatch().start();
         ResponsePath responsePath = concatenatePaths(request, solver.weighting, queryGraph, result.paths, getWaypoints(snaps));
+        putTiming(ghRsp, "path_merging", sw.stop().getNanos());
         responsePath.addDebugInfo(result.debug);
         ghRsp.add(responsePath);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
@@ -301,6 +372,37 @@ public class Router {
         return ghRsp;
     }
 
+    /**
+     * Adds the time of the given stage of the request to the timings of the response
+     */
+    private static void putTiming(GHResponse ghRsp, String stage, long nanos) {
+        ghRsp.addTiming(stage, nanos / 1e6);
+    }
+
+    private static void putRouteTimings(GHResponse ghRsp, ViaRouting.Result result) {
+        long routeNanos = 0;
+        for (LongCursor legNanos : result.legNanos) {
+            routeNanos += legNanos.value;
+            putTiming(ghRsp, "route_legs", legNanos.value);
+        }
+        putTiming(ghRsp, "route", routeNanos);
+        putPathExtractionTiming(ghRsp, result.paths);
+    }
+
+    private static void putPathExtractionTiming(GHResponse ghRsp, List<Path> paths) {
+        long extractionNanos = 0;
+        for (Path path : paths)
+            extractionNanos += path.getExtractionNanos();
+        putTiming(ghRsp, "path_extraction", extractionNanos);
+    }
+
+    private LocationIndex getLocationIndex(GHRequest request, EdgeFilter snapFilter) {
+        // with a custom model in the request the snap filter depends on the request and cannot be cached
+        if (snapCache == null || request.getCustomModel() != null)
+            return locationIndex;
+        return snapCache.wrap(locationIndex, request.getProfile(), snapFilter);
+    }
+
     private PathMerger createPathMerger(GHRequest request, Weighting weighting, Graph graph) {
         boolean enableInstructions = request.getHints().getBool(Parameters.Routing.INSTRUCTIONS, routerConfig.isInstructionsEnabled());
         boolean calcPoints = request.getHints().getBool(Parameters.Routing.CALC_POINTS, routerConfig.isCalcPoints());
@@ -446,11 +548,18 @@ public class Router {
     }
 
     private static class CHSolver extends Solver {
+        private final RouterConfig routerConfig;
         private final Map<String, RoutingCHGraph> chGraphs;
+        private final ExecutorService executor;
+        private List<Polygon> excludedAreas = Collections.emptyList();
+        private volatile boolean excludedAreaOnRoute;
 
-        CHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup, Map<String, RoutingCHGraph> chGraphs) {
+        CHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup,
+                 Map<String, RoutingCHGraph> chGraphs, ExecutorService executor) {
             super(request, profilesByName, routerConfig, lookup);
+            this.routerConfig = routerConfig;
             this.chGraphs = chGraphs;
+            this.executor = executor;
         }
 
         @Override
@@ -462,7 +571,7 @@ public class Router {
             if (getPassThrough(request.getHints()))
                 throw new IllegalArgumentException("The '" + Parameters.Routing.PASS_THROUGH + "' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`. See issue #1765");
 
-            if (request.getCustomModel() != null)
+            if (request.getCustomModel() != null && !(routerConfig.isCHExcludeAreas() && isExcludingAreasOnly(request.getCustomModel())))
                 throw new IllegalArgumentException("The 'custom_model' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
 
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()))
@@ -477,16 +586,96 @@ public class Router {
             // the request hints are ignored for CH as we cannot change the profile after the preparation like this.
             // the weighting here needs to be the same as the one we later use for CHPathCalculator and as it was
             // used for the preparation
+            if (request.getCustomModel() != null)
+                excludedAreas = getExcludedAreas(request.getCustomModel());
             return getRoutingCHGraph(profile.getName()).getWeighting();
         }
 
+        @Override
+        protected EdgeFilter createSnapFilter() {
+            // we snap like with CH disabled, i.e. not to the edges in the excluded areas
+            EdgeFilter snapFilter = super.createSnapFilter();
+            return excludedAreas.isEmpty() ? snapFilter : edgeState -> snapFilter.accept(edgeState) && !isInExcludedArea(edgeState);
+        }
+
+        @Override
+        protected DirectedEdgeFilter createDirectedEdgeFilter() {
+            DirectedEdgeFilter directedEdgeFilter = super.createDirectedEdgeFilter();
+            return excludedAreas.isEmpty() ? directedEdgeFilter : (edgeState, reverse) -> directedEdgeFilter.accept(edgeState, reverse) && !isInExcludedArea(edgeState);
+        }
+
         @Override
         protected PathCalculator createPathCalculator(QueryGraph queryGraph) {
             PMap opts = new PMap(request.getHints());
             opts.putObject(ALGORITHM, request.getAlgorithm());
             opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
             opts.putObject(TIMEOUT_MS, getTimeoutMillis(request.getHints()));
-            return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts);
+            // the number of threads is not up to the client
+            opts.putObject(Parameters.Algorithms.AltRoute.THREADS, routerConfig.getAlternativeRouteThreads());
+            CHRoutingAlgorithmFactory algoFactory = new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph).setExecutor(executor);
+            if (excludedAreas.isEmpty())
+                return new CHPathCalculator(algoFactory, opts);
+            return new CHPathCalculator(algoFactory, opts) {
+                @Override
+                public List<Path> calcPaths(int from, int to, EdgeRestrictions edgeRestrictions) {
+                    List<Path> paths = super.calcPaths(from, to, edgeRestrictions);
+                    for (Path path : paths)
+                        if (isExcludedAreaOnPath(path))
+                            excludedAreaOnRoute = true;
+                    return paths;
+                }
+            };
+        }
+
+        /**
+         * @return true if one of the calculated paths passes an excluded area. The paths are calculated without the
+         * areas, so they are only optimal if they do not pass any of them.
+         */
+        boolean isExcludedAreaOnRoute() {
+            return excludedAreaOnRoute;
+        }
+
+        private boolean isExcludedAreaOnPath(Path path) {
+            for (EdgeIteratorState edge : path.calcEdges())
+                if (isInExcludedArea(edge))
+                    return true;
+            return false;
+        }
+
+        private boolean isInExcludedArea(EdgeIteratorState edge) {
+            for (Polygon area : excludedAreas)
+                if (CustomWeightingHelper.in(area, edge))
+                    return true;
+            return false;
+        }
+
+        /**
+         * @return true if the given custom model does nothing but excluding areas, which we can do without disabling CH
+         */
+        private static boolean isExcludingAreasOnly(CustomModel customModel) {
+            if (!customModel.getSpeed().isEmpty() || customModel.getDistanceInfluence() != null
+                    || customModel.getHeadingPenalty() != null || customModel.getPriority().isEmpty())
+                return false;
+            Map<String, JsonFeature> areas = CustomModel.getAreasAsMap(customModel.getAreas());
+            for (Statement statement : customModel.getPriority()) {
+                if (statement.isBlock() || statement.keyword() == Statement.Keyword.ELSE || statement.operation() != Statement.Op.MULTIPLY
+                        || !statement.value().trim().matches("0(\\.0*)?") || !statement.condition().trim().startsWith("in_")
+                        || !areas.containsKey(statement.condition().trim().substring("in_".length())))
+                    return false;
+            }
+            return true;
+        }
+
+        private static List<Polygon> getExcludedAreas(CustomModel customModel) {
+            Map<String, JsonFeature> areas = CustomModel.getAreasAsMap(customModel.getAreas());
+            List<Polygon> excludedAreas = new ArrayList<>();
+            for (Statement statement : customModel.getPriority()) {
+                JsonFeature area = areas.get(statement.condition().trim().substring("in_".length()));
+                if (!(area.getGeometry() instanceof Polygonal))
+                    throw new IllegalArgumentException("Currently only type=Polygon is supported for areas but was " + area.getGeometry().getGeometryType());
+                excludedAreas.add(new Polygon(new PreparedPolygon((Polygonal) area.getGeometry())));
+            }
+            return excludedAreas;
         }
 
         private RoutingCHGraph getRoutingCHGraph(String profileName) {
@@ -589,7 +778,8 @@ public class Router {
                         "\navailable LM profiles: " + landmarks.keySet());
             if (request.getCustomModel() != null)
                 FindMinMax.checkLMConstraints(profile.getCustomModel(), request.getCustomModel(), lookup);
-            RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount());
+            RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount())
+                    .setDefaultReselectionInterval(routerConfig.getLandmarkReselectionInterval());
             return new FlexiblePathCalculator(queryGraph, routingAlgorithmFactory, weighting, getAlgoOpts());
         }
     }
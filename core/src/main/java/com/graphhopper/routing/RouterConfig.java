@@ -18,6 +18,8 @@
 
 package com.graphhopper.routing;
 
+import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
+
 /**
  * This class contains various parameters that control the behavior of {@link Router}.
  */
@@ -31,6 +33,11 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private int landmarkReselectionInterval = 0;
+    private int snapCacheSize = 0;
+    private int alternativeRouteThreads = 1;
+    private int viaRoutingThreads = 1;
+    private boolean chExcludeAreas = false;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -112,6 +119,20 @@ public class RouterConfig {
         this.activeLandmarkCount = activeLandmarkCount;
     }
 
+    public int getLandmarkReselectionInterval() {
+        return landmarkReselectionInterval;
+    }
+
+    /**
+     * Chooses the active landmarks again every time the specified number of nodes was visited. 0 disables this.
+     * Every reselection updates the weights of all nodes in the queues of the search, so values smaller than
+     * {@link LMRoutingAlgorithmFactory#MIN_RESELECTION_INTERVAL} are increased to it, like for the request hint.
+     */
+    public void setLandmarkReselectionInterval(int landmarkReselectionInterval) {
+        this.landmarkReselectionInterval = landmarkReselectionInterval <= 0 ? 0
+                : Math.max(LMRoutingAlgorithmFactory.MIN_RESELECTION_INTERVAL, landmarkReselectionInterval);
+    }
+
     public double getElevationWayPointMaxDistance() {
         return elevationWayPointMaxDistance;
     }
@@ -119,4 +140,55 @@ public class RouterConfig {
     public void setElevationWayPointMaxDistance(double elevationWayPointMaxDistance) {
         this.elevationWayPointMaxDistance = elevationWayPointMaxDistance;
     }
+
+    public int getSnapCacheSize() {
+        return snapCacheSize;
+    }
+
+    /**
+     * The maximum number of snapped points that are cached per graph, 0 disables the cache.
+     */
+    public void setSnapCacheSize(int snapCacheSize) {
+        this.snapCacheSize = snapCacheSize;
+    }
+
+    public int getAlternativeRouteThreads() {
+        return alternativeRouteThreads;
+    }
+
+    /**
+     * The number of threads that are used to evaluate the via-node candidates of a single alternative route request
+     * with CH. The threads come from a single pool that is shared by all requests, so this also limits the number of
+     * threads for concurrent requests.
+     */
+    public void setAlternativeRouteThreads(int alternativeRouteThreads) {
+        this.alternativeRouteThreads = alternativeRouteThreads;
+    }
+
+    public int getViaRoutingThreads() {
+        return viaRoutingThreads;
+    }
+
+    /**
+     * The number of threads that are used to calculate the legs of a single request with via points concurrently.
+     * Like for {@link #setAlternativeRouteThreads} the threads come from the pool that is shared by all requests.
+     */
+    public void setViaRoutingThreads(int viaRoutingThreads) {
+        if (viaRoutingThreads < 1)
+            throw new IllegalArgumentException("The number of via routing threads must be at least 1 but was " + viaRoutingThreads);
+        this.viaRoutingThreads = viaRoutingThreads;
+    }
+
+    public boolean isCHExcludeAreas() {
+        return chExcludeAreas;
+    }
+
+    /**
+     * Allows requests for CH profiles with a custom model that does nothing but exclude areas. The route is first
+     * calculated with CH, which is optimal if it does not pass any of the areas. Otherwise, the request is calculated
+     * again with CH disabled.
+     */
+    public void setCHExcludeAreas(boolean chExcludeAreas) {
+        this.chExcludeAreas = chExcludeAreas;
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.shapes.BBox;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
+
+/**
+ * A bounded cache for the snaps of frequently requested points, e.g. depots or stores that are the start of many
+ * routes. The points are quantized to roughly 0.1m and the snaps are cached per profile, so this must only be used
+ * for the snap filter of a profile that does not depend on the request, i.e. without a custom model in the request.
+ * A cache belongs to a single graph and must be recreated when the graph changes.
+ * <p>
+ * The cache only stores the edge and the position on it, so every hit creates a new {@link Snap} with the exact
+ * query point that can be modified by the QueryGraph like any other snap.
+ */
+public class SnapCache {
+    private static final double PRECISION = 1e6;
+    private final Graph graph;
+    private final Map<Key, Entry> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SnapCache(Graph graph, int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("The size of the snap cache must be at least 1 but was " + maxSize);
+        this.graph = graph;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return a location index that uses this cache whenever it is called with the given snap filter and the given
+     * location index otherwise
+     */
+    public LocationIndex wrap(LocationIndex locationIndex, String profile, EdgeFilter snapFilter) {
+        return new LocationIndex() {
+            @Override
+            public Snap findClosest(double lat, double lon, EdgeFilter edgeFilter) {
+                if (edgeFilter != snapFilter)
+                    return locationIndex.findClosest(lat, lon, edgeFilter);
+                return SnapCache.this.findClosest(locationIndex, profile, lat, lon, snapFilter);
+            }
+
+            @Override
+            public void query(BBox queryBBox, Visitor function) {
+                locationIndex.query(queryBBox, function);
+            }
+
+            @Override
+            public void query(TileFilter tileFilter, Visitor function) {
+                locationIndex.query(tileFilter, function);
+            }
+
+            @Override
+            public void close() {
+                locationIndex.close();
+            }
+        };
+    }
+
+    private Snap findClosest(LocationIndex locationIndex, String profile, double lat, double lon, EdgeFilter snapFilter) {
+        Key key = new Key(profile, Math.round(lat * PRECISION), Math.round(lon * PRECISION));
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        if (entry == null) {
+            misses.increment();
+            Snap snap = locationIndex.findClosest(lat, lon, snapFilter);
+            // we do not cache points that cannot be found, they lead to an error anyway
+            if (snap.isValid()) {
+                synchronized (cache) {
+                    cache.put(key, new Entry(snap));
+                }
+            }
+            return snap;
+        }
+        hits.increment();
+        Snap snap = new Snap(lat, lon);
+        snap.setClosestEdge(graph.getEdgeIteratorStateForKey(entry.edgeKey));
+        snap.setClosestNode(entry.closestNode);
+        snap.setWayIndex(entry.wayIndex);
+        snap.setSnappedPosition(entry.position);
+        snap.calcSnappedPoint(DIST_PLANE);
+        snap.setQueryDistance(DIST_PLANE.calcDist(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon, lat, lon));
+        return snap;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static class Key {
+        final String profile;
+        final long lat;
+        final long lon;
+
+        Key(String profile, long lat, long lon) {
+            this.profile = profile;
+            this.lat = lat;
+            this.lon = lon;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return lat == key.lat && lon == key.lon && profile.equals(key.profile);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(profile, lat, lon);
+        }
+    }
+
+    private static class Entry {
+        final int edgeKey;
+        final int closestNode;
+        final int wayIndex;
+        final Snap.Position position;
+
+        Entry(Snap snap) {
+            this.edgeKey = snap.getClosestEdge().getEdgeKey();
+            this.closestNode = snap.getClosestNode();
+            this.wayIndex = snap.getWayIndex();
+            this.position = snap.getSnappedPosition();
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package com.graphhopper.routing;
 
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.ev.EnumEncodedValue;
 import com.graphhopper.routing.ev.RoadClass;
@@ -29,11 +30,16 @@ import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -97,6 +103,21 @@ public class ViaRouting {
     public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps,
                                    DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator,
                                    List<String> curbsides, String curbsideStrictness, List<Double> headings, boolean passThrough) {
+        return calcPaths(points, queryGraph, snaps, directedEdgeFilter, () -> pathCalculator, null, 1, curbsides, curbsideStrictness, headings, passThrough);
+    }
+
+    /**
+     * Calculates the paths for all legs. If threads is larger than one the legs are split into chunks that are
+     * calculated concurrently on the given executor, each chunk with its own {@link PathCalculator}. The executor is
+     * shared with other requests and is not shut down here. Without an executor all legs are calculated on the calling
+     * thread. With pass_through every leg depends on
+     * the previous one and with headings the path calculation modifies the query graph, so in these cases the legs are
+     * always calculated one after the other.
+     */
+    public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps,
+                                   DirectedEdgeFilter directedEdgeFilter, Supplier<PathCalculator> pathCalculatorSupplier,
+                                   ExecutorService executor, int threads,
+                                   List<String> curbsides, String curbsideStrictness, List<Double> headings, boolean passThrough) {
         if (!curbsides.isEmpty() && curbsides.size() != points.size())
             throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
         if (!curbsides.isEmpty() && !headings.isEmpty())
@@ -104,68 +125,113 @@ public class ViaRouting {
 
         final int legs = snaps.size() - 1;
         Result result = new Result(legs);
-        for (int leg = 0; leg < legs; ++leg) {
-            Snap fromSnap = snaps.get(leg);
-            Snap toSnap = snaps.get(leg + 1);
-
-            // enforce headings
-            // at via-nodes and the target node the heading parameter is interpreted as the direction we want
-            // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
-            // all for these points (unless using pass through). see this forum discussion:
-            // https://discuss.graphhopper.com/t/meaning-of-heading-parameter-for-via-routing/5643/6
-            double fromHeading = (leg == 0 && !headings.isEmpty()) ? headings.get(0) : Double.NaN;
-            double toHeading = (snaps.size() == headings.size() && !Double.isNaN(headings.get(leg + 1))) ? headings.get(leg + 1) : Double.NaN;
-
-            // enforce pass-through
-            int incomingEdge = NO_EDGE;
-            if (leg != 0) {
-                // enforce straight start after via stop
-                Path prevRoute = result.paths.get(leg - 1);
-                if (prevRoute.getEdgeCount() > 0)
-                    incomingEdge = prevRoute.getFinalEdge().getEdge();
+        int chunks = Math.min(threads, legs);
+        if (executor == null || chunks < 2 || passThrough || !headings.isEmpty()) {
+            PathCalculator pathCalculator = pathCalculatorSupplier.get();
+            for (int leg = 0; leg < legs; ++leg) {
+                // enforce pass-through
+                int incomingEdge = NO_EDGE;
+                if (leg != 0) {
+                    // enforce straight start after via stop
+                    Path prevRoute = result.paths.get(leg - 1);
+                    if (prevRoute.getEdgeCount() > 0)
+                        incomingEdge = prevRoute.getFinalEdge().getEdge();
+                }
+                addLeg(result, calcLeg(leg, incomingEdge, queryGraph, snaps, directedEdgeFilter, pathCalculator,
+                        curbsides, curbsideStrictness, headings, passThrough));
             }
+            return result;
+        }
 
-            // enforce curbsides
-            final String fromCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
-            final String toCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
+        List<List<Leg>> legsPerChunk = GHUtility.mapConcurrently(executor, IntStream.range(0, chunks).boxed().collect(Collectors.toList()), chunk -> {
+            PathCalculator pathCalculator = pathCalculatorSupplier.get();
+            List<Leg> chunkLegs = new ArrayList<>();
+            for (int leg = chunk * legs / chunks; leg < (chunk + 1) * legs / chunks; leg++)
+                chunkLegs.add(calcLeg(leg, NO_EDGE, queryGraph, snaps, directedEdgeFilter, pathCalculator,
+                        curbsides, curbsideStrictness, headings, false));
+            return chunkLegs;
+        });
+        for (List<Leg> chunkLegs : legsPerChunk)
+            for (Leg leg : chunkLegs)
+                addLeg(result, leg);
+        return result;
+    }
 
-            EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(queryGraph, fromSnap, toSnap,
-                    fromHeading, toHeading, incomingEdge, passThrough,
-                    fromCurbside, toCurbside, directedEdgeFilter);
+    private static Leg calcLeg(int leg, int incomingEdge, QueryGraph queryGraph, List<Snap> snaps,
+                               DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator,
+                               List<String> curbsides, String curbsideStrictness, List<Double> headings, boolean passThrough) {
+        Snap fromSnap = snaps.get(leg);
+        Snap toSnap = snaps.get(leg + 1);
+
+        // enforce headings
+        // at via-nodes and the target node the heading parameter is interpreted as the direction we want
+        // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
+        // all for these points (unless using pass through). see this forum discussion:
+        // https://discuss.graphhopper.com/t/meaning-of-heading-parameter-for-via-routing/5643/6
+        double fromHeading = (leg == 0 && !headings.isEmpty()) ? headings.get(0) : Double.NaN;
+        double toHeading = (snaps.size() == headings.size() && !Double.isNaN(headings.get(leg + 1))) ? headings.get(leg + 1) : Double.NaN;
+
+        // enforce curbsides
+        final String fromCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
+        final String toCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
+
+        EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(queryGraph, fromSnap, toSnap,
+                fromHeading, toHeading, incomingEdge, passThrough,
+                fromCurbside, toCurbside, directedEdgeFilter);
+
+        edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, curbsideStrictness));
+        edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, curbsideStrictness));
+
+        // calculate paths
+        long start = System.nanoTime();
+        List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
+        return new Leg(paths, pathCalculator.getDebugString(), pathCalculator.getVisitedNodes(), System.nanoTime() - start);
+    }
 
-            edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, curbsideStrictness));
-            edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, curbsideStrictness));
+    private static void addLeg(Result result, Leg leg) {
+        result.debug += leg.debug;
 
-            // calculate paths
-            List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
-            result.debug += pathCalculator.getDebugString();
+        // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
+        // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
+        // a good method to decide how to combine the different legs
+        for (int i = 0; i < leg.paths.size(); i++) {
+            Path path = leg.paths.get(i);
+            if (path.getTime() < 0)
+                throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
 
-            // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
-            // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
-            // a good method to decide how to combine the different legs
-            for (int i = 0; i < paths.size(); i++) {
-                Path path = paths.get(i);
-                if (path.getTime() < 0)
-                    throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
+            result.paths.add(path);
+            result.debug += ", " + path.getDebugInfo();
+        }
 
-                result.paths.add(path);
-                result.debug += ", " + path.getDebugInfo();
-            }
+        result.visitedNodes += leg.visitedNodes;
+        result.legNanos.add(leg.nanos);
+        result.debug += ", visited nodes sum: " + result.visitedNodes;
+    }
 
-            result.visitedNodes += pathCalculator.getVisitedNodes();
-            result.debug += ", visited nodes sum: " + result.visitedNodes;
+    private static class Leg {
+        final List<Path> paths;
+        final String debug;
+        final int visitedNodes;
+        final long nanos;
+
+        Leg(List<Path> paths, String debug, int visitedNodes, long nanos) {
+            this.paths = paths;
+            this.debug = debug;
+            this.visitedNodes = visitedNodes;
+            this.nanos = nanos;
         }
-
-        return result;
     }
 
     public static class Result {
         public List<Path> paths;
         public long visitedNodes;
         public String debug = "";
+        // the routing time of every leg, including the initialization of the algorithm
+        public LongArrayList legNanos;
 
         Result(int legs) {
             paths = new ArrayList<>(legs);
+            legNanos = new LongArrayList(legs);
         }
     }
 
@@ -27,6 +27,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.graphhopper.util.Helper.createFormatter;
@@ -44,6 +46,8 @@ public class CHPreparationHandler {
     // the actual Weightings)
     private final List<CHProfile> chProfiles = new ArrayList<>();
     private int preparationThreads;
+    private boolean storeNodeOrdering = false;
+    private String nodeOrderingLocation = "";
     private PMap pMap = new PMap();
 
     public CHPreparationHandler() {
@@ -60,6 +64,8 @@ public class CHPreparationHandler {
             throw new IllegalStateException("Use profiles_ch instead of prepare.ch.edge_based, see #1922 and docs/core/profiles.md");
 
         setPreparationThreads(ghConfig.getInt(CH.PREPARE + "threads", getPreparationThreads()));
+        setStoreNodeOrdering(ghConfig.getBool(CH.PREPARE + "store_node_ordering", storeNodeOrdering));
+        setNodeOrderingLocation(ghConfig.getString(CH.PREPARE + "node_ordering_location", nodeOrderingLocation));
         setCHProfiles(ghConfig.getCHProfiles());
         pMap = ghConfig.asPMap();
     }
@@ -95,6 +101,26 @@ public class CHPreparationHandler {
         this.preparationThreads = preparationThreads;
     }
 
+    /**
+     * Stores the node ordering of every prepared CH graph in the graph folder, so it can be used for the CH
+     * preparations of a later import, see {@link #setNodeOrderingLocation}.
+     */
+    public CHPreparationHandler setStoreNodeOrdering(boolean storeNodeOrdering) {
+        this.storeNodeOrdering = storeNodeOrdering;
+        return this;
+    }
+
+    /**
+     * Sets the graph folder of a previous import that contains the node orderings stored with
+     * {@link #setStoreNodeOrdering}. The CH graphs for which such a node ordering exists are then contracted using
+     * this ordering instead of calculating a new one, which is much faster. The nodes are matched via their
+     * coordinates.
+     */
+    public CHPreparationHandler setNodeOrderingLocation(String nodeOrderingLocation) {
+        this.nodeOrderingLocation = nodeOrderingLocation;
+        return this;
+    }
+
     public Map<String, RoutingCHGraph> load(BaseGraph graph, List<CHConfig> chConfigs) {
         Map<String, RoutingCHGraph> loaded = Collections.synchronizedMap(new LinkedHashMap<>());
         Stream<Runnable> runnables = chConfigs.stream()
@@ -118,31 +144,100 @@ public class CHPreparationHandler {
             return Collections.emptyMap();
         }
         LOGGER.info("Creating CH preparations, {}", getMemInfo());
+        // CH graphs that use the node ordering of another CH graph that is prepared now need to wait for it
+        Set<String> names = chConfigs.stream().map(CHConfig::getName).collect(Collectors.toSet());
+        Set<String> requiredNodeOrderings = new HashSet<>();
+        List<CHConfig> firstConfigs = new ArrayList<>(), secondConfigs = new ArrayList<>();
+        for (CHConfig chConfig : chConfigs) {
+            String nodeOrderingProfile = getNodeOrderingProfile(chConfig.getName());
+            if (nodeOrderingProfile != null && names.contains(nodeOrderingProfile)) {
+                requiredNodeOrderings.add(nodeOrderingProfile);
+                secondConfigs.add(chConfig);
+            } else {
+                firstConfigs.add(chConfig);
+            }
+        }
+        Map<String, NodeOrderingProvider> nodeOrderings = new ConcurrentHashMap<>();
         Map<String, PrepareContractionHierarchies.Result> results = Collections.synchronizedMap(new LinkedHashMap<>());
-        List<Runnable> runnables = new ArrayList<>(chConfigs.size());
-        for (int i = 0; i < chConfigs.size(); ++i) {
-            CHConfig chConfig = chConfigs.get(i);
-            LOGGER.info((i + 1) + "/" + chConfigs.size() + " Setting up CH preparation for profile " +
-                    "'" + chConfig.getName() + "' " + chConfig.getTraversalMode() + " ... (" + getMemInfo() + ")");
-            runnables.add(() -> {
-                final String name = chConfig.getName();
-                // toString is not taken into account so we need to cheat, see http://stackoverflow.com/q/6113746/194609 for other options
-                Thread.currentThread().setName(name);
-                PrepareContractionHierarchies prepare = PrepareContractionHierarchies.fromGraph(baseGraph, chConfig);
-                prepare.setParams(pMap);
-                PrepareContractionHierarchies.Result result = prepare.doWork();
-                results.put(name, result);
-                prepare.flush();
-                if (closeEarly)
-                    prepare.close();
-                properties.put(CH.PREPARE + "date." + name, createFormatter().format(new Date()));
-            });
+        int counter = 0;
+        for (List<CHConfig> configs : Arrays.asList(firstConfigs, secondConfigs)) {
+            List<Runnable> runnables = new ArrayList<>(configs.size());
+            for (CHConfig chConfig : configs) {
+                LOGGER.info((++counter) + "/" + chConfigs.size() + " Setting up CH preparation for profile " +
+                        "'" + chConfig.getName() + "' " + chConfig.getTraversalMode() + " ... (" + getMemInfo() + ")");
+                runnables.add(() -> {
+                    final String name = chConfig.getName();
+                    // toString is not taken into account so we need to cheat, see http://stackoverflow.com/q/6113746/194609 for other options
+                    Thread.currentThread().setName(name);
+                    PrepareContractionHierarchies prepare = createCHPreparation(baseGraph, chConfig);
+                    NodeOrderingProvider nodeOrdering = findNodeOrdering(baseGraph, name, nodeOrderings);
+                    if (nodeOrdering != null)
+                        prepare.useFixedNodeOrdering(nodeOrdering);
+                    PrepareContractionHierarchies.Result result = prepare.doWork();
+                    results.put(name, result);
+                    if (storeNodeOrdering || requiredNodeOrderings.contains(name)) {
+                        NodeOrderingProvider resultNodeOrdering = result.getCHStorage().getNodeOrderingProvider();
+                        if (requiredNodeOrderings.contains(name))
+                            nodeOrderings.put(name, resultNodeOrdering);
+                        if (storeNodeOrdering) {
+                            NodeOrderingStorage storage = new NodeOrderingStorage(baseGraph.getDirectory(), name);
+                            storage.store(resultNodeOrdering, baseGraph.getNodeAccess()).flush();
+                            storage.close();
+                        }
+                    }
+                    prepare.flush();
+                    if (closeEarly)
+                        prepare.close();
+                    properties.put(CH.PREPARE + "date." + name, createFormatter().format(new Date()));
+                });
+            }
+            GHUtility.runConcurrently(runnables.stream(), preparationThreads);
         }
-        GHUtility.runConcurrently(runnables.stream(), preparationThreads);
         LOGGER.info("Finished CH preparation, {}", getMemInfo());
         return results;
     }
 
+    private String getNodeOrderingProfile(String name) {
+        for (CHProfile chProfile : chProfiles)
+            if (chProfile.getProfile().equals(name) && chProfile.usesOtherNodeOrdering())
+                return chProfile.getNodeOrderingProfile();
+        return null;
+    }
+
+    /**
+     * @return the fixed node ordering that shall be used for the CH graph with the given name or null if the node
+     * ordering shall be calculated
+     */
+    private NodeOrderingProvider findNodeOrdering(BaseGraph graph, String name, Map<String, NodeOrderingProvider> nodeOrderings) {
+        String nodeOrderingProfile = getNodeOrderingProfile(name);
+        if (nodeOrderingProfile != null) {
+            NodeOrderingProvider nodeOrdering = nodeOrderings.get(nodeOrderingProfile);
+            if (nodeOrdering != null)
+                return nodeOrdering;
+            // the other CH graph was prepared before, so we need its stored node ordering
+            nodeOrdering = loadNodeOrdering(graph.getDirectory(), nodeOrderingProfile, graph);
+            if (nodeOrdering != null)
+                return nodeOrdering;
+            LOGGER.warn("Cannot use node ordering of '" + nodeOrderingProfile + "' for CH preparation of '" + name
+                    + "', because it was not stored. Set " + CH.PREPARE + "store_node_ordering to true and do the CH preparation of '"
+                    + nodeOrderingProfile + "' again");
+        }
+        if (!nodeOrderingLocation.isEmpty())
+            return loadNodeOrdering(new GHDirectory(nodeOrderingLocation, DAType.RAM_STORE), name, graph);
+        return null;
+    }
+
+    private static NodeOrderingProvider loadNodeOrdering(Directory dir, String name, BaseGraph graph) {
+        NodeOrderingStorage storage = new NodeOrderingStorage(dir, name);
+        try {
+            if (!storage.loadExisting())
+                return null;
+            return storage.getNodeOrdering(graph.getNodeAccess(), graph.getNodes());
+        } finally {
+            storage.close();
+        }
+    }
+
     private PrepareContractionHierarchies createCHPreparation(BaseGraph graph, CHConfig chConfig) {
         PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(graph, chConfig);
         pch.setParams(pMap);
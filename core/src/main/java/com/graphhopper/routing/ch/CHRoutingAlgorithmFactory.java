@@ -26,6 +26,8 @@ import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
 
+import java.util.concurrent.ExecutorService;
+
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Routing.*;
 
@@ -35,6 +37,7 @@ import static com.graphhopper.util.Parameters.Routing.*;
  */
 public class CHRoutingAlgorithmFactory {
     private final RoutingCHGraph routingCHGraph;
+    private ExecutorService executor;
 
     public CHRoutingAlgorithmFactory(RoutingCHGraph routingCHGraph, QueryGraph queryGraph) {
         this(new QueryRoutingCHGraph(routingCHGraph, queryGraph));
@@ -44,6 +47,14 @@ public class CHRoutingAlgorithmFactory {
         this.routingCHGraph = routingCHGraph;
     }
 
+    /**
+     * Sets the executor the alternative route algorithms use to evaluate their candidates concurrently
+     */
+    public CHRoutingAlgorithmFactory setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
     public EdgeToEdgeRoutingAlgorithm createAlgo(PMap opts) {
         EdgeToEdgeRoutingAlgorithm algo = routingCHGraph.isEdgeBased()
                 ? createAlgoEdgeBased(routingCHGraph, opts)
@@ -66,7 +77,7 @@ public class CHRoutingAlgorithmFactory {
         } else if (DIJKSTRA_BI.equals(algo)) {
             return new DijkstraBidirectionEdgeCHNoSOD(g);
         } else if (ALT_ROUTE.equalsIgnoreCase(algo)) {
-            return new AlternativeRouteEdgeCH(g, opts);
+            return new AlternativeRouteEdgeCH(g, opts).setExecutor(executor);
         } else {
             throw new IllegalArgumentException("Algorithm " + algo + " not supported for edge-based Contraction Hierarchies. Try with ch.disable=true");
         }
@@ -88,7 +99,7 @@ public class CHRoutingAlgorithmFactory {
                 return new DijkstraBidirectionCHNoSOD(g);
             }
         } else if (ALT_ROUTE.equalsIgnoreCase(algo)) {
-            return new AlternativeRouteCH(g, opts);
+            return new AlternativeRouteCH(g, opts).setExecutor(executor);
         } else {
             throw new IllegalArgumentException("Algorithm " + algo + " not supported for node-based Contraction Hierarchies. Try with ch.disable=true");
         }
@@ -0,0 +1,121 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.Helper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+/**
+ * Stores the order in which the nodes were contracted by a CH preparation, so it can be used as fixed node ordering
+ * for other CH preparations, see {@link PrepareContractionHierarchies#useFixedNodeOrdering}. The nodes are stored by
+ * their coordinates, so the ordering can also be used for a graph that was imported later, e.g. from a newer OSM
+ * file, where the nodes have different ids.
+ */
+public class NodeOrderingStorage {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NodeOrderingStorage.class);
+    private static final int VERSION = 1;
+    private final Directory dir;
+    private final DataAccess da;
+
+    public NodeOrderingStorage(Directory dir, String chGraphName) {
+        this.dir = dir;
+        da = dir.create("node_ordering_" + chGraphName);
+    }
+
+    public boolean loadExisting() {
+        if (!da.loadExisting())
+            return false;
+        if (da.getHeader(0) != VERSION)
+            throw new IllegalStateException("Unexpected version of " + da.getName() + ": " + da.getHeader(0) + ", expected: " + VERSION);
+        return true;
+    }
+
+    /**
+     * Stores the coordinates of the nodes in the given order
+     */
+    public NodeOrderingStorage store(NodeOrderingProvider nodeOrdering, NodeAccess nodeAccess) {
+        int nodes = nodeOrdering.getNumNodes();
+        da.create(8L * nodes);
+        da.setHeader(0, VERSION);
+        da.setHeader(4, nodes);
+        for (int level = 0; level < nodes; level++) {
+            int node = nodeOrdering.getNodeIdForLevel(level);
+            da.setInt(8L * level, Helper.degreeToInt(nodeAccess.getLat(node)));
+            da.setInt(8L * level + 4, Helper.degreeToInt(nodeAccess.getLon(node)));
+        }
+        return this;
+    }
+
+    public int getNodes() {
+        return da.getHeader(4);
+    }
+
+    /**
+     * Creates the node ordering for a graph with the given nodes. Nodes with the same coordinates as a stored node
+     * keep its position in the ordering. All other nodes, e.g. new nodes or nodes that were moved, are contracted
+     * first, i.e. they are treated as the least important nodes.
+     */
+    public NodeOrderingProvider getNodeOrdering(NodeAccess nodeAccess, int nodes) {
+        int storedNodes = getNodes();
+        LongIntHashMap levelsByCoordinates = new LongIntHashMap(storedNodes);
+        for (int level = 0; level < storedNodes; level++)
+            levelsByCoordinates.put(toKey(da.getInt(8L * level), da.getInt(8L * level + 4)), level);
+
+        int[] nodesByStoredLevel = new int[storedNodes];
+        Arrays.fill(nodesByStoredLevel, -1);
+        int[] nodeOrdering = new int[nodes];
+        int unmatched = 0;
+        for (int node = 0; node < nodes; node++) {
+            int level = levelsByCoordinates.getOrDefault(toKey(Helper.degreeToInt(nodeAccess.getLat(node)), Helper.degreeToInt(nodeAccess.getLon(node))), -1);
+            // several nodes might have the same coordinates, but only one of them can take the stored position
+            if (level >= 0 && nodesByStoredLevel[level] < 0)
+                nodesByStoredLevel[level] = node;
+            else
+                nodeOrdering[unmatched++] = node;
+        }
+        int index = unmatched;
+        for (int node : nodesByStoredLevel)
+            if (node >= 0)
+                nodeOrdering[index++] = node;
+        LOGGER.info("Found " + Helper.nf(nodes - unmatched) + " of " + Helper.nf(nodes) + " nodes in " + da.getName()
+                + " with " + Helper.nf(storedNodes) + " nodes");
+        return NodeOrderingProvider.fromArray(nodeOrdering);
+    }
+
+    private static long toKey(int lat, int lon) {
+        return ((long) lat << 32) | (lon & 0xFFFF_FFFFL);
+    }
+
+    public void flush() {
+        da.flush();
+    }
+
+    /**
+     * Closes the storage and removes it from the directory, so it can be opened again later.
+     */
+    public void close() {
+        dir.close(da.getName());
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.IntDoubleCursor;
+import com.graphhopper.routing.DijkstraBidirectionCH;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.BitSet;
+
+/**
+ * Updates the weights of the shortcuts of an existing node-based CH graph after the weights of some edges of the base
+ * graph changed, e.g. because roads were closed by changing their access or speed values. This is much faster than
+ * doing the whole CH preparation again, but the hierarchy is not changed: No shortcuts are added or removed, so routes
+ * that are only optimal due to the changed weights might be missed. This happens if a node was contracted without
+ * adding a shortcut because of a witness path that is no longer shorter. We check for this around the changed edges
+ * and report such nodes in the result, but this check is not exhaustive. If nodes are reported you should consider
+ * doing the CH preparation again.
+ * <p>
+ * The base graph must already contain the new weights, and the CH graph must not be used for queries during the
+ * update. A {@link CompactRoutingCHGraph} contains copies of the weights, so it has to be created again after the
+ * update, which {@link com.graphhopper.GraphHopper#updateCHShortcutWeights} does.
+ */
+public class ShortcutWeightUpdater {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShortcutWeightUpdater.class);
+    private final BaseGraph graph;
+    private final CHStorage chStore;
+    private final Weighting weighting;
+    private final int baseEdges;
+
+    public ShortcutWeightUpdater(BaseGraph graph, CHStorage chStore, Weighting weighting) {
+        if (chStore.isEdgeBased())
+            throw new IllegalArgumentException("Updating the shortcut weights is only supported for node-based CH");
+        this.graph = graph;
+        this.chStore = chStore;
+        this.weighting = weighting;
+        this.baseEdges = graph.getEdges();
+    }
+
+    /**
+     * @param changedEdges the edges of the base graph whose weights changed
+     */
+    public Result update(IntArrayList changedEdges) {
+        StopWatch sw = new StopWatch().start();
+        Result result = new Result();
+        BitSet changed = new BitSet(baseEdges + chStore.getShortcuts());
+        IntHashSet affectedNodes = new IntHashSet();
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (IntCursor c : changedEdges) {
+            changed.set(c.value);
+            EdgeIteratorState edge = graph.getEdgeIteratorState(c.value, Integer.MIN_VALUE);
+            for (int node : new int[]{edge.getBaseNode(), edge.getAdjNode()}) {
+                // the witness paths of the neighbors are likely to use this edge as well
+                affectedNodes.add(node);
+                EdgeIterator iter = explorer.setBaseNode(node);
+                while (iter.next())
+                    affectedNodes.add(iter.getAdjNode());
+            }
+        }
+
+        // the skipped edges of a shortcut were always added before the shortcut itself, so we can update the
+        // shortcuts in the order they were added
+        for (int shortcut = 0; shortcut < chStore.getShortcuts(); shortcut++) {
+            long pointer = chStore.toShortcutPointer(shortcut);
+            int skip1 = chStore.getSkippedEdge1(pointer);
+            int skip2 = chStore.getSkippedEdge2(pointer);
+            if (!changed.get(skip1) && !changed.get(skip2))
+                continue;
+            if (updateShortcut(shortcut, pointer, skip1, skip2, result)) {
+                changed.set(baseEdges + shortcut);
+                result.updatedShortcuts++;
+                affectedNodes.add(chStore.getNodeA(pointer));
+                affectedNodes.add(chStore.getNodeB(pointer));
+            }
+        }
+
+        RoutingCHGraph chGraph = new RoutingCHGraphImpl(graph, chStore, weighting);
+        for (IntCursor node : affectedNodes)
+            if (hasMissingShortcut(chGraph, node.value))
+                result.nodesWithMissingShortcuts.add(node.value);
+        result.checkedNodes = affectedNodes.size();
+        LOGGER.info("Updated " + result.updatedShortcuts + " shortcuts for " + changedEdges.size() + " changed edges, "
+                + result.nodesWithMissingShortcuts.size() + " of " + result.checkedNodes + " checked nodes miss a shortcut, "
+                + result.asymmetricShortcuts.size() + " shortcuts got different weights per direction, took: " + sw.stop().getSeconds() + "s");
+        return result;
+    }
+
+    /**
+     * @return true if the weight or the access of the shortcut changed
+     */
+    private boolean updateShortcut(int shortcut, long pointer, int skip1, int skip2, Result result) {
+        int nodeA = chStore.getNodeA(pointer);
+        int nodeB = chStore.getNodeB(pointer);
+        // find out which skipped edge is adjacent to nodeA, the other one is adjacent to nodeB
+        int edgeA = skip1, edgeB = skip2;
+        if (getOtherNode(skip1, nodeA) < 0) {
+            edgeA = skip2;
+            edgeB = skip1;
+        }
+        int via = getOtherNode(edgeA, nodeA);
+        boolean fwd = chStore.getFwdAccess(pointer);
+        boolean bwd = chStore.getBwdAccess(pointer);
+        double fwdWeight = fwd ? getWeight(edgeA, nodeA, via) + getWeight(edgeB, via, nodeB) : Double.POSITIVE_INFINITY;
+        double bwdWeight = bwd ? getWeight(edgeB, nodeB, via) + getWeight(edgeA, via, nodeA) : Double.POSITIVE_INFINITY;
+
+        double weight;
+        boolean newFwd = fwd, newBwd = bwd;
+        if (fwd && bwd) {
+            // a shortcut has only one weight, so if a direction becomes infinite we remove it
+            if (Double.isInfinite(fwdWeight) != Double.isInfinite(bwdWeight)) {
+                newFwd = !Double.isInfinite(fwdWeight);
+                newBwd = !Double.isInfinite(bwdWeight);
+                weight = Math.min(fwdWeight, bwdWeight);
+            } else {
+                // ... and otherwise we have to use the larger weight, so the shortcut is never too cheap
+                weight = Math.max(fwdWeight, bwdWeight);
+                if (Math.abs(fwdWeight - bwdWeight) > 1e-3)
+                    result.asymmetricShortcuts.add(shortcut);
+            }
+        } else {
+            weight = fwd ? fwdWeight : bwdWeight;
+        }
+        double oldWeight = chStore.getWeight(pointer);
+        if (newFwd == fwd && newBwd == bwd && (oldWeight == weight || Math.abs(oldWeight - weight) < 1e-3))
+            return false;
+        chStore.setWeight(pointer, weight);
+        chStore.setAccess(pointer, newFwd, newBwd);
+        return true;
+    }
+
+    /**
+     * @return the weight of the given edge or shortcut from one node to the other or infinity if it cannot be used
+     * in this direction
+     */
+    private double getWeight(int chEdge, int from, int to) {
+        if (chEdge < baseEdges)
+            return weighting.calcEdgeWeight(graph.getEdgeIteratorState(chEdge, to), false);
+        long pointer = chStore.toShortcutPointer(chEdge - baseEdges);
+        boolean access = chStore.getNodeA(pointer) == from ? chStore.getFwdAccess(pointer) : chStore.getBwdAccess(pointer);
+        return access ? chStore.getWeight(pointer) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the node of the given edge or shortcut that is not the given node or -1 if the edge is not adjacent to it
+     */
+    private int getOtherNode(int chEdge, int node) {
+        int nodeA, nodeB;
+        if (chEdge < baseEdges) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(chEdge, Integer.MIN_VALUE);
+            nodeA = edge.getBaseNode();
+            nodeB = edge.getAdjNode();
+        } else {
+            long pointer = chStore.toShortcutPointer(chEdge - baseEdges);
+            nodeA = chStore.getNodeA(pointer);
+            nodeB = chStore.getNodeB(pointer);
+        }
+        return nodeA == node ? nodeB : nodeB == node ? nodeA : -1;
+    }
+
+    /**
+     * When the given node was contracted there was a shortcut or a witness path for each pair of its neighbors with a
+     * higher level. This checks if this is still the case for the current weights. The shortest path between two
+     * higher neighbors that does not use the node can be found with a CH query, because such a query never visits
+     * nodes with lower levels than its start and end nodes.
+     */
+    private boolean hasMissingShortcut(RoutingCHGraph chGraph, int node) {
+        int level = chGraph.getLevel(node);
+        IntDoubleHashMap inWeights = getNeighborWeights(chGraph, node, level, true);
+        IntDoubleHashMap outWeights = getNeighborWeights(chGraph, node, level, false);
+        for (IntDoubleCursor in : inWeights) {
+            for (IntDoubleCursor out : outWeights) {
+                if (in.key == out.key)
+                    continue;
+                double viaWeight = in.value + out.value;
+                if (Double.isInfinite(viaWeight))
+                    continue;
+                Path path = new DijkstraBidirectionCH(chGraph).calcPath(in.key, out.key);
+                if (!path.isFound() || path.getWeight() > viaWeight + 1e-3)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private IntDoubleHashMap getNeighborWeights(RoutingCHGraph chGraph, int node, int level, boolean incoming) {
+        IntDoubleHashMap weights = new IntDoubleHashMap();
+        RoutingCHEdgeIterator iter = (incoming ? chGraph.createInEdgeExplorer() : chGraph.createOutEdgeExplorer()).setBaseNode(node);
+        while (iter.next()) {
+            int adjNode = iter.getAdjNode();
+            if (adjNode == node || chGraph.getLevel(adjNode) <= level)
+                continue;
+            double weight = iter.getWeight(incoming);
+            if (weight < weights.getOrDefault(adjNode, Double.POSITIVE_INFINITY))
+                weights.put(adjNode, weight);
+        }
+        return weights;
+    }
+
+    public static class Result {
+        private int updatedShortcuts;
+        private int checkedNodes;
+        private final IntArrayList nodesWithMissingShortcuts = new IntArrayList();
+        private final IntArrayList asymmetricShortcuts = new IntArrayList();
+
+        public int getUpdatedShortcuts() {
+            return updatedShortcuts;
+        }
+
+        public int getCheckedNodes() {
+            return checkedNodes;
+        }
+
+        /**
+         * @return the nodes whose contraction would now require a shortcut that does not exist. Routes that pass these
+         * nodes might not be optimal.
+         */
+        public IntArrayList getNodesWithMissingShortcuts() {
+            return nodesWithMissingShortcuts;
+        }
+
+        /**
+         * @return the shortcuts that are used in both directions, but now have different weights per direction. They
+         * use the larger weight, so routes that use them in the other direction might not be optimal.
+         */
+        public IntArrayList getAsymmetricShortcuts() {
+            return asymmetricShortcuts;
+        }
+
+        /**
+         * @return true if all routes are still optimal as far as we know
+         */
+        public boolean isOptimal() {
+            return nodesWithMissingShortcuts.isEmpty() && asymmetricShortcuts.isEmpty();
+        }
+    }
+}
@@ -45,7 +45,7 @@ public class LMApproximator implements WeightApproximator {
     private int towerNodeNextToT = -1;
     private double weightFromTToTowerNode;
     private boolean recalculateActiveLandmarks = true;
-    private final double factor;
+    private double factor;
     private final boolean reverse;
     private final int maxBaseNodes;
     private final Graph graph;
@@ -109,10 +109,7 @@ public class LMApproximator implements WeightApproximator {
         if (recalculateActiveLandmarks) {
             recalculateActiveLandmarks = false;
             if (lms.chooseActiveLandmarks(v, towerNodeNextToT, activeLandmarkIndices, reverse)) {
-                for (int i = 0; i < activeLandmarkIndices.length; i++) {
-                    weightsFromActiveLandmarksToT[i] = lms.getFromWeight(activeLandmarkIndices[i], towerNodeNextToT);
-                    weightsFromTToActiveLandmarks[i] = lms.getToWeight(activeLandmarkIndices[i], towerNodeNextToT);
-                }
+                initActiveLandmarkWeights();
             } else {
                 // note: fallback==true means forever true!
                 fallback = true;
@@ -126,6 +123,34 @@ public class LMApproximator implements WeightApproximator {
         return Math.max(lmApproximation, beelineApproximation.approximate(v));
     }
 
+    private void initActiveLandmarkWeights() {
+        for (int i = 0; i < activeLandmarkIndices.length; i++) {
+            weightsFromActiveLandmarksToT[i] = lms.getFromWeight(activeLandmarkIndices[i], towerNodeNextToT);
+            weightsFromTToActiveLandmarks[i] = lms.getToWeight(activeLandmarkIndices[i], towerNodeNextToT);
+        }
+    }
+
+    /**
+     * Chooses the active landmarks again, so that they are the best ones for the specified node instead of the start
+     * node, see LandmarkStorage.chooseActiveLandmarks. This is useful for longer searches where the landmarks that
+     * were best for the start node are no longer the best ones for the nodes that are currently visited.
+     *
+     * @return true if the active landmarks changed
+     */
+    @Override
+    public boolean update(int currentNode) {
+        if (recalculateActiveLandmarks || fallback || currentNode >= maxBaseNodes || currentNode == towerNodeNextToT
+                || lms.getSubnetwork(currentNode) != lms.getSubnetwork(towerNodeNextToT))
+            return false;
+
+        int[] previousIndices = activeLandmarkIndices.clone();
+        lms.chooseActiveLandmarks(currentNode, towerNodeNextToT, activeLandmarkIndices, reverse);
+        if (Arrays.equals(previousIndices, activeLandmarkIndices))
+            return false;
+        initActiveLandmarkWeights();
+        return true;
+    }
+
     private double getRemainingWeightUnderestimationUpToTowerNode(int v) {
         int maxWeightInt = 0;
         for (int i = 0; i < activeLandmarkIndices.length; i++) {
@@ -182,6 +207,9 @@ public class LMApproximator implements WeightApproximator {
         this.fallBackApproximation.setTo(t);
         this.beelineApproximation.setTo(t);
         findClosestRealNode(t);
+        // with compressed weights every subnetwork has its own factor, which is also needed for the slack
+        if (towerNodeNextToT >= 0)
+            factor = lms.getFactor(towerNodeNextToT);
     }
 
     private void findClosestRealNode(int t) {
@@ -209,7 +237,7 @@ public class LMApproximator implements WeightApproximator {
 
     @Override
     public double getSlack() {
-        return lms.getFactor();
+        return factor;
     }
 
     @Override
@@ -59,6 +59,7 @@ public class LMPreparationHandler {
     private final List<String> lmSuggestionsLocations = new ArrayList<>(5);
     private int preparationThreads;
     private boolean logDetails = false;
+    private boolean compressedWeights = false;
     private AreaIndex<SplitArea> areaIndex;
 
     public LMPreparationHandler() {
@@ -77,6 +78,7 @@ public class LMPreparationHandler {
         landmarkCount = ghConfig.getInt(Parameters.Landmark.COUNT, landmarkCount);
         logDetails = ghConfig.getBool(Landmark.PREPARE + "log_details", false);
         minNodes = ghConfig.getInt(Landmark.PREPARE + "min_network_size", -1);
+        compressedWeights = ghConfig.getBool(Landmark.COMPRESSED_WEIGHTS, compressedWeights);
 
         for (String loc : ghConfig.getString(Landmark.PREPARE + "suggestions_location", "").split(",")) {
             if (!loc.trim().isEmpty())
@@ -116,6 +118,15 @@ public class LMPreparationHandler {
         this.preparationThreads = preparationThreads;
     }
 
+    /**
+     * Stores the landmark weights with one instead of two bytes, see LandmarkStorage.setCompressedWeights. This is
+     * only used for new preparations, existing landmark data is loaded as it was stored.
+     */
+    public LMPreparationHandler setCompressedWeights(boolean compressedWeights) {
+        this.compressedWeights = compressedWeights;
+        return this;
+    }
+
     public LMPreparationHandler setLMProfiles(LMProfile... lmProfiles) {
         return setLMProfiles(Arrays.asList(lmProfiles));
     }
@@ -224,6 +235,7 @@ public class LMPreparationHandler {
                     lmConfig, landmarkCount).
                     setLandmarkSuggestions(lmSuggestions).
                     setMaximumWeight(maximumWeight).
+                    setCompressedWeights(compressedWeights).
                     setLogDetails(logDetails);
             if (minNodes > 1)
                 prepareLandmarks.setMinimumNodes(minNodes);
@@ -23,13 +23,19 @@ import com.graphhopper.routing.*;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
 import com.graphhopper.util.Parameters;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
 
 public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
+    /**
+     * Choosing the active landmarks takes a while, so clients cannot request it more often than this
+     */
+    public static final int MIN_RESELECTION_INTERVAL = 100;
     private final LandmarkStorage lms;
     private int defaultActiveLandmarks;
+    private int defaultReselectionInterval;
 
     public LMRoutingAlgorithmFactory(LandmarkStorage lms) {
         this.lms = lms;
@@ -41,6 +47,14 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         return this;
     }
 
+    /**
+     * @see AStarBidirection#setApproximationUpdateInterval(int)
+     */
+    public LMRoutingAlgorithmFactory setDefaultReselectionInterval(int defaultReselectionInterval) {
+        this.defaultReselectionInterval = defaultReselectionInterval;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
         if (!lms.isInitialized())
@@ -59,6 +73,7 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
             AStarBidirection algo = new AStarBidirection(g, weighting, opts.getTraversalMode());
             algo.setApproximation(getApproximator(g, weighting, activeLM, epsilon));
+            algo.setApproximationUpdateInterval(getReselectionInterval(opts.getHints()));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             algo.setTimeoutMillis(opts.getTimeoutMillis());
             return algo;
@@ -75,6 +90,14 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         }
     }
 
+    private int getReselectionInterval(PMap hints) {
+        if (!hints.has(Parameters.Landmark.RESELECTION_INTERVAL))
+            return defaultReselectionInterval;
+        // the request can disable the reselection, but not make it so frequent that it slows down the server
+        int interval = hints.getInt(Parameters.Landmark.RESELECTION_INTERVAL, defaultReselectionInterval);
+        return interval <= 0 ? 0 : Math.max(MIN_RESELECTION_INTERVAL, interval);
+    }
+
     private LMApproximator getApproximator(Graph g, Weighting weighting, int activeLM, double epsilon) {
         return LMApproximator.forLandmarks(g, weighting, lms, activeLM).setEpsilon(epsilon);
     }
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.lm;
 
+import com.carrotsearch.hppc.DoubleArrayList;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntObjectMap;
@@ -65,6 +66,9 @@ public class LandmarkStorage {
     private static final int SHORT_INFINITY = Short.MAX_VALUE * 2 + 1;
     // We have large values that do not fit into a short, use a specific maximum value
     static final int SHORT_MAX = SHORT_INFINITY - 1;
+    // the same for compressed weights that are stored in an unsigned byte
+    private static final int BYTE_INFINITY = 255;
+    static final int BYTE_MAX = BYTE_INFINITY - 1;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LandmarkStorage.class);
     // This value is used to identify nodes where no subnetwork is associated
@@ -74,12 +78,16 @@ public class LandmarkStorage {
     // one node has an associated landmark information ('one landmark row'): the forward and backward weight
     private long LM_ROW_LENGTH;
     private int landmarks;
-    private final int FROM_OFFSET;
-    private final int TO_OFFSET;
+    // the number of bytes per weight, 1 if the weights are compressed and 2 otherwise
+    private int weightBytes = 2;
+    private int FROM_OFFSET;
+    private int TO_OFFSET;
     private final DataAccess landmarkWeightDA;
     // every subnetwork has its own landmark mapping but the count of landmarks is always the same
     private final List<int[]> landmarkIDs;
     private double factor = -1;
+    // the factor per subnetwork, which is only different from 'factor' if the weights are compressed
+    private final DoubleArrayList subnetworkFactors;
     private final static double DOUBLE_MLTPL = 1e6;
     private final BaseGraph graph;
     private final NodeAccess na;
@@ -135,11 +143,9 @@ public class LandmarkStorage {
         this.landmarkWeightDA = dir.create("landmarks_" + lmConfig.getName());
 
         this.landmarks = landmarks;
-        // one short per landmark and two directions => 2*2 byte
-        this.LM_ROW_LENGTH = landmarks * 4;
-        this.FROM_OFFSET = 0;
-        this.TO_OFFSET = 2;
+        initRowLength();
         this.landmarkIDs = new ArrayList<>();
+        this.subnetworkFactors = new DoubleArrayList();
         this.subnetworkStorage = new SubnetworkStorage(dir.create("landmarks_subnetwork_" + lmConfig.getName()));
     }
 
@@ -162,6 +168,30 @@ public class LandmarkStorage {
         return this;
     }
 
+    /**
+     * Stores the weights with one byte instead of two bytes, which halves the memory usage of the landmark weights.
+     * To keep enough precision every subnetwork gets its own factor, which is estimated from the weights of its first
+     * landmark. Still the approximation gets less precise, which usually means more visited nodes per query.
+     */
+    public LandmarkStorage setCompressedWeights(boolean compressedWeights) {
+        if (isInitialized())
+            throw new IllegalStateException("Cannot change the weight storage after the landmarks were created or loaded");
+        this.weightBytes = compressedWeights ? 1 : 2;
+        initRowLength();
+        return this;
+    }
+
+    public boolean isCompressedWeights() {
+        return weightBytes == 1;
+    }
+
+    private void initRowLength() {
+        // one value per landmark and two directions
+        this.LM_ROW_LENGTH = landmarks * 2L * weightBytes;
+        this.FROM_OFFSET = 0;
+        this.TO_OFFSET = weightBytes;
+    }
+
     /**
      * By default do not log many details.
      */
@@ -235,13 +265,17 @@ public class LandmarkStorage {
         this.landmarkWeightDA.create(2000);
         this.landmarkWeightDA.ensureCapacity(maxBytes);
 
-        for (long pointer = 0; pointer < maxBytes; pointer += 2) {
-            landmarkWeightDA.setShort(pointer, (short) SHORT_INFINITY);
+        for (long pointer = 0; pointer < maxBytes; pointer += weightBytes) {
+            if (isCompressedWeights())
+                landmarkWeightDA.setByte(pointer, (byte) BYTE_INFINITY);
+            else
+                landmarkWeightDA.setShort(pointer, (short) SHORT_INFINITY);
         }
 
         int[] empty = new int[landmarks];
         Arrays.fill(empty, UNSET_SUBNETWORK);
         landmarkIDs.add(empty);
+        subnetworkFactors.add(factor);
 
         byte[] subnetworks = new byte[graph.getNodes()];
         Arrays.fill(subnetworks, (byte) UNSET_SUBNETWORK);
@@ -322,7 +356,8 @@ public class LandmarkStorage {
 
         int subnetworkCount = landmarkIDs.size();
         // store all landmark node IDs and one int for the factor itself.
-        this.landmarkWeightDA.ensureCapacity(maxBytes /* landmark weights */ + (long) subnetworkCount * landmarks /* landmark mapping per subnetwork */ + 4);
+        this.landmarkWeightDA.ensureCapacity(maxBytes /* landmark weights */ + (long) subnetworkCount * landmarks * 4 /* landmark mapping per subnetwork */
+                + (long) subnetworkCount * 4 /* factor per subnetwork */);
 
         // calculate offset to point into landmark mapping
         long bytePos = maxBytes;
@@ -332,6 +367,13 @@ public class LandmarkStorage {
                 bytePos += 4L;
             }
         }
+        if (isCompressedWeights()) {
+            // the factors are stored as float, see createLandmarksForSubnetwork
+            for (int i = 0; i < subnetworkCount; i++) {
+                landmarkWeightDA.setInt(bytePos, Float.floatToRawIntBits((float) subnetworkFactors.get(i)));
+                bytePos += 4L;
+            }
+        }
 
         landmarkWeightDA.setHeader(0 * 4, graph.getNodes());
         landmarkWeightDA.setHeader(1 * 4, landmarks);
@@ -339,6 +381,7 @@ public class LandmarkStorage {
         if (factor * DOUBLE_MLTPL > Integer.MAX_VALUE)
             throw new UnsupportedOperationException("landmark weight factor cannot be bigger than Integer.MAX_VALUE " + factor * DOUBLE_MLTPL);
         landmarkWeightDA.setHeader(3 * 4, (int) Math.round(factor * DOUBLE_MLTPL));
+        landmarkWeightDA.setHeader(4 * 4, weightBytes);
 
         // serialize fast byte[] into DataAccess
         subnetworkStorage.create(graph.getNodes());
@@ -445,6 +488,7 @@ public class LandmarkStorage {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
+        double subnetworkFactor = factor;
         for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
             if (Thread.currentThread().isInterrupted()) {
                 throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
@@ -453,7 +497,9 @@ public class LandmarkStorage {
             LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
             explorer.setStartNode(lmNodeId);
             explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
+            if (lmIdx == 0 && isCompressedWeights())
+                subnetworkFactor = estimateCompressedFactor(explorer.getLastEntry().weight);
+            explorer.initLandmarkWeights(lmIdx, lmNodeId, FROM_OFFSET, subnetworkFactor);
 
             // set subnetwork id to all explored nodes, but do this only for the first landmark
             if (lmIdx == 0) {
@@ -464,7 +510,7 @@ public class LandmarkStorage {
             explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
             explorer.setStartNode(lmNodeId);
             explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+            explorer.initLandmarkWeights(lmIdx, lmNodeId, TO_OFFSET, subnetworkFactor);
 
             if (lmIdx == 0) {
                 if (explorer.setSubnetworks(subnetworks, subnetworkId))
@@ -478,9 +524,23 @@ public class LandmarkStorage {
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
         landmarkIDs.add(tmpLandmarkNodeIds);
+        subnetworkFactors.add(subnetworkFactor);
         return true;
     }
 
+    /**
+     * Every landmark can reach every node via the first landmark, so twice the maximum weight from the first landmark
+     * is a good estimate for the maximum weight we need to store in this subnetwork (with one-ways it is not exact, but
+     * larger weights are just capped). For large subnetworks the configured maximum weight is used instead.
+     */
+    private double estimateCompressedFactor(double maxWeightFromFirstLandmark) {
+        double maxWeight = factor * PRECISION;
+        if (maxWeightFromFirstLandmark > 0)
+            maxWeight = Math.min(maxWeight, 2 * maxWeightFromFirstLandmark);
+        // the factor is stored as float and must be identical when loading the weights again
+        return (float) (maxWeight / BYTE_MAX);
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
@@ -518,54 +578,78 @@ public class LandmarkStorage {
         return factor;
     }
 
+    /**
+     * @return the factor for the weights of the subnetwork of the specified node. This is only different from
+     * {@link #getFactor()} if the weights are compressed.
+     */
+    double getFactor(int node) {
+        if (!isCompressedWeights())
+            return factor;
+        int subnetwork = subnetworkStorage.getSubnetwork(node);
+        return subnetwork > UNCLEAR_SUBNETWORK ? subnetworkFactors.get(subnetwork) : factor;
+    }
+
+    int getSubnetwork(int node) {
+        return subnetworkStorage.getSubnetwork(node);
+    }
+
+    private long getPointer(int landmarkIndex, int node) {
+        return (long) node * LM_ROW_LENGTH + (long) landmarkIndex * 2 * weightBytes;
+    }
+
     /**
      * @return the weight from the landmark to the specified node. Where the landmark integer is not
      * a node ID but the internal index of the landmark array.
      */
     int getFromWeight(int landmarkIndex, int node) {
-        int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4L + FROM_OFFSET)
-                & 0x0000FFFF;
-        if (res == SHORT_INFINITY)
-            // TODO can happen if endstanding oneway
-            // we should set a 'from' value to SHORT_MAX if the 'to' value was already set to find real bugs
-            // and what to return? Integer.MAX_VALUE i.e. convert to Double.pos_infinity upstream?
-            return SHORT_MAX;
-        // throw new IllegalStateException("Do not call getFromWeight for wrong landmark[" + landmarkIndex + "]=" + landmarkIDs[landmarkIndex] + " and node " + node);
+        // TODO infinity can happen if endstanding oneway
+        // we should set a 'from' value to SHORT_MAX if the 'to' value was already set to find real bugs
+        // and what to return? Integer.MAX_VALUE i.e. convert to Double.pos_infinity upstream?
         // TODO if(res == MAX) fallback to beeline approximation!?
-
-        return res;
+        return getWeight(getPointer(landmarkIndex, node) + FROM_OFFSET);
     }
 
     /**
      * @return the weight from the specified node to the landmark (specified *as index*)
      */
     int getToWeight(int landmarkIndex, int node) {
-        int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4 + TO_OFFSET)
-                & 0x0000FFFF;
-        if (res == SHORT_INFINITY)
-            return SHORT_MAX;
+        return getWeight(getPointer(landmarkIndex, node) + TO_OFFSET);
+    }
 
-        return res;
+    private int getWeight(long pointer) {
+        if (isCompressedWeights()) {
+            int res = (int) landmarkWeightDA.getByte(pointer) & 0x000000FF;
+            return res == BYTE_INFINITY ? BYTE_MAX : res;
+        }
+        int res = (int) landmarkWeightDA.getShort(pointer) & 0x0000FFFF;
+        return res == SHORT_INFINITY ? SHORT_MAX : res;
     }
 
     /**
      * @return false if the value capacity was reached and instead of the real value the SHORT_MAX was stored.
      */
     final boolean setWeight(long pointer, double value) {
+        return setWeight(pointer, value, factor);
+    }
+
+    private boolean setWeight(long pointer, double value, double factor) {
         double tmpVal = value / factor;
         if (tmpVal > Integer.MAX_VALUE)
             throw new UnsupportedOperationException("Cannot store infinity explicitly, pointer=" + pointer + ", value=" + value + ", factor=" + factor);
 
-        if (tmpVal >= SHORT_MAX) {
-            landmarkWeightDA.setShort(pointer, (short) SHORT_MAX);
-            return false;
-        } else {
-            landmarkWeightDA.setShort(pointer, (short) tmpVal);
-            return true;
-        }
+        int max = isCompressedWeights() ? BYTE_MAX : SHORT_MAX;
+        boolean stored = tmpVal < max;
+        int intVal = stored ? (int) tmpVal : max;
+        if (isCompressedWeights())
+            landmarkWeightDA.setByte(pointer, (byte) intVal);
+        else
+            landmarkWeightDA.setShort(pointer, (short) intVal);
+        return stored;
     }
 
     boolean isInfinity(long pointer) {
+        if (isCompressedWeights())
+            return ((int) landmarkWeightDA.getByte(pointer) & 0x000000FF) == BYTE_INFINITY;
         return ((int) landmarkWeightDA.getShort(pointer) & 0x0000FFFF) == SHORT_INFINITY;
     }
 
@@ -689,7 +773,9 @@ public class LandmarkStorage {
             landmarks = landmarkWeightDA.getHeader(1 * 4);
             int subnetworks = landmarkWeightDA.getHeader(2 * 4);
             factor = landmarkWeightDA.getHeader(3 * 4) / DOUBLE_MLTPL;
-            LM_ROW_LENGTH = landmarks * 4;
+            // files written before the compressed weights were introduced have no entry here
+            weightBytes = landmarkWeightDA.getHeader(4 * 4) == 1 ? 1 : 2;
+            initRowLength();
             long maxBytes = LM_ROW_LENGTH * nodes;
             long bytePos = maxBytes;
 
@@ -702,6 +788,14 @@ public class LandmarkStorage {
                 }
                 landmarkIDs.add(tmpLandmarks);
             }
+            for (int j = 0; j < subnetworks; j++) {
+                if (isCompressedWeights()) {
+                    subnetworkFactors.add(Float.intBitsToFloat(landmarkWeightDA.getInt(bytePos)));
+                    bytePos += 4;
+                } else {
+                    subnetworkFactors.add(factor);
+                }
+            }
 
             initialized = true;
             return true;
@@ -858,7 +952,7 @@ public class LandmarkStorage {
             return failed.get();
         }
 
-        public void initLandmarkWeights(final int lmIdx, int lmNodeId, final long rowSize, final int offset) {
+        public void initLandmarkWeights(final int lmIdx, int lmNodeId, final int offset, final double factor) {
             IntObjectMap<SPTEntry> map = reverse ? bestWeightMapTo : bestWeightMapFrom;
             final AtomicInteger maxedout = new AtomicInteger(0);
             final Map.Entry<Double, Double> finalMaxWeight = new MapEntry<>(0d, 0d);
@@ -866,7 +960,7 @@ public class LandmarkStorage {
             map.forEach(new IntObjectProcedure<SPTEntry>() {
                 @Override
                 public void apply(int nodeId, SPTEntry b) {
-                    if (!lms.setWeight(nodeId * rowSize + lmIdx * 4 + offset, b.weight)) {
+                    if (!lms.setWeight(lms.getPointer(lmIdx, nodeId) + offset, b.weight, factor)) {
                         maxedout.incrementAndGet();
                         finalMaxWeight.setValue(Math.max(b.weight, finalMaxWeight.getValue()));
                     }
@@ -875,7 +969,7 @@ public class LandmarkStorage {
 
             if ((double) maxedout.get() / map.size() > 0.1) {
                 LOGGER.warn("landmark " + lmIdx + " (" + nodeAccess.getLat(lmNodeId) + "," + nodeAccess.getLon(lmNodeId) + "): " +
-                        "too many weights were maxed out (" + maxedout.get() + "/" + map.size() + "). Use a bigger factor than " + lms.factor
+                        "too many weights were maxed out (" + maxedout.get() + "/" + map.size() + "). Use a bigger factor than " + factor
                         + ". For example use maximum_lm_weight: " + finalMaxWeight.getValue() * 1.2 + " in your LM profile definition");
             }
         }
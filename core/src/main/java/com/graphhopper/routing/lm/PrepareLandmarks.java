@@ -74,6 +74,14 @@ public class PrepareLandmarks {
         return this;
     }
 
+    /**
+     * @see LandmarkStorage#setCompressedWeights(boolean)
+     */
+    public PrepareLandmarks setCompressedWeights(boolean compressedWeights) {
+        lms.setCompressedWeights(compressedWeights);
+        return this;
+    }
+
     /**
      * @see LandmarkStorage#setLMSelectionWeighting(Weighting)
      */
@@ -38,12 +38,15 @@ class QueryOverlay {
     private final IntArrayList closestEdges;
     // stores the virtual edges, for every virtual node there are four such edges: base-snap, snap-base, snap-adj, adj-snap.
     private final List<VirtualEdgeIteratorState> virtualEdges;
+    // stores the geometries of all virtual edges, every pair of virtual edges refers to a range of this list
+    private final PointList virtualEdgePoints;
     // stores the changes that need to be done to the real nodes
     private final IntObjectMap<EdgeChanges> edgeChangesAtRealNodes;
 
     QueryOverlay(int numVirtualNodes, boolean is3D) {
         this.virtualNodes = new PointList(numVirtualNodes, is3D);
         this.virtualEdges = new ArrayList<>(numVirtualNodes * 2);
+        this.virtualEdgePoints = new PointList(numVirtualNodes * 6, is3D);
         this.closestEdges = new IntArrayList(numVirtualNodes);
         edgeChangesAtRealNodes = new GHIntObjectHashMap<>(numVirtualNodes * 3);
     }
@@ -68,6 +71,10 @@ class QueryOverlay {
         return edgeChangesAtRealNodes;
     }
 
+    PointList getVirtualEdgePoints() {
+        return virtualEdgePoints;
+    }
+
     PointList getVirtualNodes() {
         return virtualNodes;
     }
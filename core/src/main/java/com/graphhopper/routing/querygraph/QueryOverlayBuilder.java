@@ -148,6 +148,8 @@ class QueryOverlayBuilder {
                 int adjNode = closestEdge.getAdjNode();
                 int origEdgeKey = closestEdge.getEdgeKey();
                 int origRevEdgeKey = closestEdge.getReverseEdgeKey();
+                // all virtual edges of this edge share the same key values, so we fetch them only once
+                Map<String, KVStorage.KValue> keyValues = closestEdge.getKeyValues();
                 int prevWayIndex = 1;
                 int prevNodeId = baseNode;
                 int virtNodeId = queryOverlay.getVirtualNodes().size() + firstVirtualNodeId;
@@ -178,7 +180,7 @@ class QueryOverlayBuilder {
                     createEdges(origEdgeKey, origRevEdgeKey,
                             prevPoint, prevWayIndex, isPillar,
                             res.getSnappedPoint(), res.getWayIndex(),
-                            fullPL, closestEdge, prevNodeId, virtNodeId);
+                            fullPL, closestEdge, keyValues, prevNodeId, virtNodeId);
 
                     queryOverlay.getVirtualNodes().add(currSnapped.lat, currSnapped.lon, currSnapped.ele);
 
@@ -201,7 +203,7 @@ class QueryOverlayBuilder {
                     createEdges(origEdgeKey, origRevEdgeKey,
                             prevPoint, prevWayIndex, false,
                             fullPL.get(fullPL.size() - 1), fullPL.size() - 2,
-                            fullPL, closestEdge, virtNodeId - 1, adjNode);
+                            fullPL, closestEdge, keyValues, virtNodeId - 1, adjNode);
 
                 return true;
             }
@@ -210,31 +212,33 @@ class QueryOverlayBuilder {
 
     private void createEdges(int origEdgeKey, int origRevEdgeKey,
                              GHPoint3D prevSnapped, int prevWayIndex, boolean isPillar, GHPoint3D currSnapped, int wayIndex,
-                             PointList fullPL, EdgeIteratorState closestEdge,
+                             PointList fullPL, EdgeIteratorState closestEdge, Map<String, KVStorage.KValue> keyValues,
                              int prevNodeId, int nodeId) {
+        // instead of creating two point lists per virtual edge we append the points to the list shared by all virtual
+        // edges and the reverse edge uses the same points in reverse order
+        PointList points = queryOverlay.getVirtualEdgePoints();
+        int pointsFrom = points.size();
         int max = wayIndex + 1;
-        PointList basePoints = new PointList(max - prevWayIndex + 1, is3D);
-        basePoints.add(prevSnapped.lat, prevSnapped.lon, prevSnapped.ele);
+        points.add(prevSnapped.lat, prevSnapped.lon, prevSnapped.ele);
         for (int i = prevWayIndex; i < max; i++) {
-            basePoints.add(fullPL, i);
+            points.add(fullPL, i);
         }
         if (!isPillar) {
-            basePoints.add(currSnapped.lat, currSnapped.lon, currSnapped.ele);
+            points.add(currSnapped.lat, currSnapped.lon, currSnapped.ele);
         }
+        int pointsTo = points.size();
         // basePoints must have at least the size of 2 to make sure fetchWayGeometry(FetchMode.ALL) returns at least 2
-        assert basePoints.size() >= 2 : "basePoints must have at least two points";
+        assert pointsTo - pointsFrom >= 2 : "basePoints must have at least two points";
 
-        PointList baseReversePoints = basePoints.clone(true);
-        double baseDistance = DistancePlaneProjection.DIST_PLANE.calcDistance(basePoints);
+        double baseDistance = calcDistance(points, pointsFrom, pointsTo);
         int virtEdgeId = firstVirtualEdgeId + queryOverlay.getNumVirtualEdges() / 2;
 
         boolean reverse = closestEdge.get(EdgeIteratorState.REVERSE_STATE);
         // edges between base and snapped point
-        Map<String, KVStorage.KValue> keyValues = closestEdge.getKeyValues();
         VirtualEdgeIteratorState baseEdge = new VirtualEdgeIteratorState(origEdgeKey, GHUtility.createEdgeKey(virtEdgeId, false),
-                prevNodeId, nodeId, baseDistance, closestEdge.getFlags(), keyValues, basePoints, reverse);
+                prevNodeId, nodeId, baseDistance, closestEdge.getFlags(), keyValues, points, pointsFrom, pointsTo, false, reverse);
         VirtualEdgeIteratorState baseReverseEdge = new VirtualEdgeIteratorState(origRevEdgeKey, GHUtility.createEdgeKey(virtEdgeId, true),
-                nodeId, prevNodeId, baseDistance, IntsRef.deepCopyOf(closestEdge.getFlags()), keyValues, baseReversePoints, !reverse);
+                nodeId, prevNodeId, baseDistance, IntsRef.deepCopyOf(closestEdge.getFlags()), keyValues, points, pointsFrom, pointsTo, true, !reverse);
 
         baseEdge.setReverseEdge(baseReverseEdge);
         baseReverseEdge.setReverseEdge(baseEdge);
@@ -242,6 +246,20 @@ class QueryOverlayBuilder {
         queryOverlay.addVirtualEdge(baseReverseEdge);
     }
 
+    /**
+     * Same as {@link DistanceCalc#calcDistance(PointList)} for the range [from, to) of the given points.
+     */
+    private static double calcDistance(PointList points, int from, int to) {
+        double dist = 0;
+        for (int i = from + 1; i < to; i++) {
+            if (points.is3D())
+                dist += DIST_PLANE.calcDist3D(points.getLat(i - 1), points.getLon(i - 1), points.getEle(i - 1), points.getLat(i), points.getLon(i), points.getEle(i));
+            else
+                dist += DIST_PLANE.calcDist(points.getLat(i - 1), points.getLon(i - 1), points.getLat(i), points.getLon(i));
+        }
+        return dist;
+    }
+
     private void buildEdgeChangesAtRealNodes() {
         EdgeChangeBuilder.build(queryOverlay.getClosestEdges(), queryOverlay.getVirtualEdges(), firstVirtualNodeId, queryOverlay.getEdgeChangesAtRealNodes());
     }
@@ -36,7 +36,12 @@ import static com.graphhopper.util.Parameters.Details.STREET_NAME;
  * even gets removed.
  */
 public class VirtualEdgeIteratorState implements EdgeIteratorState {
+    // the geometry of this edge is the range [pointsFrom, pointsTo) of this list, possibly in reverse order, so the
+    // virtual edges of a query can share a single list
     private final PointList pointList;
+    private final int pointsFrom;
+    private final int pointsTo;
+    private final boolean reversePoints;
     private final int edgeKey;
     private final int baseNode;
     private final int adjNode;
@@ -52,6 +57,12 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     public VirtualEdgeIteratorState(int originalEdgeKey, int edgeKey, int baseNode, int adjNode, double distance,
                                     IntsRef edgeFlags, Map<String, KVStorage.KValue> keyValues, PointList pointList, boolean reverse) {
+        this(originalEdgeKey, edgeKey, baseNode, adjNode, distance, edgeFlags, keyValues, pointList, 0, pointList.size(), false, reverse);
+    }
+
+    VirtualEdgeIteratorState(int originalEdgeKey, int edgeKey, int baseNode, int adjNode, double distance,
+                             IntsRef edgeFlags, Map<String, KVStorage.KValue> keyValues,
+                             PointList pointList, int pointsFrom, int pointsTo, boolean reversePoints, boolean reverse) {
         this.originalEdgeKey = originalEdgeKey;
         this.edgeKey = edgeKey;
         this.baseNode = baseNode;
@@ -61,6 +72,9 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
         this.edgeIntAccess = new IntsRefEdgeIntAccess(edgeFlags);
         this.keyValues = keyValues;
         this.pointList = pointList;
+        this.pointsFrom = pointsFrom;
+        this.pointsTo = pointsTo;
+        this.reversePoints = reversePoints;
         this.reverse = reverse;
     }
 
@@ -101,30 +115,43 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public PointList fetchWayGeometry(FetchMode mode) {
-        if (pointList.isEmpty())
+        int size = pointsTo - pointsFrom;
+        if (size == 0)
             return PointList.EMPTY;
         // due to API we need to create a new instance per call!
         if (mode == FetchMode.TOWER_ONLY) {
-            if (pointList.size() < 3)
-                return pointList.clone(false);
+            if (size < 3)
+                return copyPoints(0, size);
             PointList towerNodes = new PointList(2, pointList.is3D());
-            towerNodes.add(pointList, 0);
-            towerNodes.add(pointList, pointList.size() - 1);
+            towerNodes.add(pointList, pointIndex(0));
+            towerNodes.add(pointList, pointIndex(size - 1));
             return towerNodes;
         } else if (mode == FetchMode.ALL)
-            return pointList.clone(false);
+            return copyPoints(0, size);
         else if (mode == FetchMode.BASE_AND_PILLAR)
-            return pointList.copy(0, pointList.size() - 1);
+            return copyPoints(0, size - 1);
         else if (mode == FetchMode.PILLAR_AND_ADJ)
-            return pointList.copy(1, pointList.size());
+            return copyPoints(1, size);
         else if (mode == FetchMode.PILLAR_ONLY) {
-            if (pointList.size() == 1)
+            if (size == 1)
                 return PointList.EMPTY;
-            return pointList.copy(1, pointList.size() - 1);
+            return copyPoints(1, size - 1);
         }
         throw new UnsupportedOperationException("Illegal mode:" + mode);
     }
 
+    private int pointIndex(int index) {
+        return reversePoints ? pointsTo - 1 - index : pointsFrom + index;
+    }
+
+    private PointList copyPoints(int from, int to) {
+        PointList result = new PointList(Math.max(0, to - from), pointList.is3D());
+        for (int i = from; i < to; i++) {
+            result.add(pointList, pointIndex(i));
+        }
+        return result;
+    }
+
     @Override
     public EdgeIteratorState setWayGeometry(PointList list) {
         throw new UnsupportedOperationException("Not supported for virtual edge. Set when creating it.");
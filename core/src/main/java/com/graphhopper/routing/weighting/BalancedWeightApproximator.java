@@ -74,6 +74,19 @@ public class BalancedWeightApproximator {
         }
     }
 
+    /**
+     * Updates the forward approximation for the current node of the forward search and the reverse approximation for
+     * the current node of the backward search. The offsets stay the same, so the sum of the forward and backward
+     * approximation of a node is still constant.
+     *
+     * @return true if the approximations changed
+     * @see WeightApproximator#update(int)
+     */
+    public boolean update(int fwdNode, int bwdNode) {
+        boolean changed = uniDirApproximatorForward.update(fwdNode);
+        return uniDirApproximatorReverse.update(bwdNode) || changed;
+    }
+
     public double getSlack() {
         return uniDirApproximatorForward.getSlack();
     }
@@ -41,4 +41,13 @@ public interface WeightApproximator {
     WeightApproximator reverse();
 
     double getSlack();
+
+    /**
+     * Gives the approximator the chance to adapt itself to the current state of the search, e.g. the node that was
+     * visited last. If this method returns true the approximations for all nodes might have changed and the caller
+     * has to recalculate them.
+     */
+    default boolean update(int currentNode) {
+        return false;
+    }
 }
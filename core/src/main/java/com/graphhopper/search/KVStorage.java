@@ -17,6 +17,7 @@
  */
 package com.graphhopper.search;
 
+import com.carrotsearch.hppc.LongArrayList;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.BitUtil;
@@ -26,6 +27,7 @@ import com.graphhopper.util.Helper;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongUnaryOperator;
 
 /**
  * This class stores key-value pairs in an append-only manner.
@@ -39,6 +41,9 @@ public class KVStorage {
     static final int MAX_UNIQUE_KEYS = (1 << 14);
     // Store string value as byte array and store the length into 1 byte
     private static final int MAX_LENGTH = (1 << 8) - 1;
+    // The maximum number of slots of the table used to find identical entry lists (8 bytes per slot). If all slots
+    // probed for an entry list are taken one of them is overwritten, so not every duplicate is found.
+    private static final int MAX_DEDUPLICATION_SLOTS = 1 << 20, DEDUPLICATION_PROBES = 4;
 
     private final Directory dir;
     // It stores the mapping of "key to index" in the keys DataAccess. E.g. if your first key is "some" then we will
@@ -74,7 +79,7 @@ public class KVStorage {
     // 2. Every key can store values only of the same type
     // 3. We need to loop through X entries to get the start val_x.
     // 4. The key index (14 bits) is stored along with the availability (2 bits), i.e. whether they KeyValue is available in forward and/or backward directions
-    private final DataAccess vals;
+    private DataAccess vals;
     private final Map<String, Integer> keyToIndex = new HashMap<>();
     private final List<Class<?>> indexToClass = new ArrayList<>();
     private final List<String> indexToKey = new ArrayList<>();
@@ -82,6 +87,20 @@ public class KVStorage {
     private long bytePointer = START_POINTER;
     private long lastEntryPointer = -1;
     private Map<String, KValue> lastEntries;
+    // the entries at the pointer that was read last by the current thread. E.g. the instructions and the path details
+    // request several values of the same edge, and as the storage is append-only the entries never change. The cache
+    // must not reference this storage, otherwise the threads would keep it in memory after it was closed.
+    private final ThreadLocal<ReadCache> readCache = ThreadLocal.withInitial(ReadCache::new);
+    // increased whenever the entries are moved, which invalidates the read caches
+    private volatile int layoutVersion;
+    // maps the hash of an entry list to its pointer, see MAX_DEDUPLICATION_SLOTS
+    private long[] deduplicationTable;
+    private int deduplicationEntries;
+    // the values written by prepareCompaction that did not replace the current ones yet
+    private DataAccess compacted;
+    private int generation;
+    private boolean deduplication = true;
+    private byte[] entryBytes, otherEntryBytes;
 
     /**
      * Specify a larger cacheSize to reduce disk usage. Note that this increases the memory usage of this object.
@@ -114,6 +133,7 @@ public class KVStorage {
             bytePointer = bitUtil.toLong(vals.getHeader(0), vals.getHeader(4));
             GHUtility.checkDAVersion(vals.getName(), Constants.VERSION_KV_STORAGE, vals.getHeader(8));
             GHUtility.checkDAVersion(keys.getName(), Constants.VERSION_KV_STORAGE, keys.getHeader(0));
+            generation = vals.getHeader(12);
 
             // load keys into memory
             int count = keys.getShort(0);
@@ -253,9 +273,224 @@ public class KVStorage {
         bytePointer = setKVList(bytePointer, entries);
         if (bytePointer < 0)
             throw new IllegalStateException("Negative bytePointer in KVStorage");
+
+        // The same entries are often used for edges that are not added one after another, e.g. for ways with the same
+        // name. In this case we reuse the existing entries and overwrite the ones we just wrote with the next add.
+        if (deduplication) {
+            int length = readEntryBytes(lastEntryPointer, bytePointer);
+            long duplicatePointer = findDuplicate(vals, entryBytes, length, lastEntryPointer);
+            if (duplicatePointer != lastEntryPointer) {
+                bytePointer = lastEntryPointer;
+                lastEntryPointer = duplicatePointer;
+            }
+        }
         return lastEntryPointer;
     }
 
+    private int readEntryBytes(long start, long end) {
+        int length = (int) (end - start);
+        if (entryBytes == null || entryBytes.length < length) {
+            entryBytes = new byte[Math.max(length, 1024)];
+            otherEntryBytes = new byte[entryBytes.length];
+        }
+        vals.getBytes(start, entryBytes, length);
+        return length;
+    }
+
+    /**
+     * @return the pointer of an entry list with the same bytes as the given ones or newPointer if there is no such
+     * entry list in the given values. In the latter case newPointer is stored for the bytes.
+     */
+    private long findDuplicate(DataAccess values, byte[] bytes, int length, long newPointer) {
+        if (deduplicationTable == null) {
+            deduplicationTable = new long[1 << 10];
+            deduplicationEntries = 0;
+        }
+        int mask = deduplicationTable.length - 1;
+        int slot = getSlot(bytes, length, deduplicationTable.length);
+        // look at a few slots after the one of the hash, so entry lists with the same slot do not replace each other
+        for (int i = 0; i < DEDUPLICATION_PROBES; i++) {
+            long candidate = deduplicationTable[(slot + i) & mask];
+            if (candidate == EMPTY_POINTER) {
+                deduplicationTable[(slot + i) & mask] = newPointer;
+                if (++deduplicationEntries > deduplicationTable.length / 2 && deduplicationTable.length < MAX_DEDUPLICATION_SLOTS)
+                    growDeduplicationTable(values);
+                return newPointer;
+            }
+            if (candidate < newPointer && getEntryListLength(values, candidate) == length) {
+                values.getBytes(candidate, otherEntryBytes, length);
+                if (Arrays.equals(bytes, 0, length, otherEntryBytes, 0, length))
+                    return candidate;
+            }
+        }
+        deduplicationTable[slot] = newPointer;
+        return newPointer;
+    }
+
+    private void growDeduplicationTable(DataAccess values) {
+        long[] oldTable = deduplicationTable;
+        deduplicationTable = new long[oldTable.length * 2];
+        deduplicationEntries = 0;
+        int mask = deduplicationTable.length - 1;
+        for (long pointer : oldTable) {
+            if (pointer == EMPTY_POINTER)
+                continue;
+            int length = getEntryListLength(values, pointer);
+            values.getBytes(pointer, otherEntryBytes, length);
+            int slot = getSlot(otherEntryBytes, length, deduplicationTable.length);
+            for (int i = 0; i < DEDUPLICATION_PROBES; i++) {
+                if (deduplicationTable[(slot + i) & mask] == EMPTY_POINTER) {
+                    deduplicationTable[(slot + i) & mask] = pointer;
+                    deduplicationEntries++;
+                    break;
+                }
+            }
+        }
+    }
+
+    private static int getSlot(byte[] bytes, int length, int slots) {
+        // FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++)
+            hash = (hash ^ bytes[i]) * 0x100000001b3L;
+        return (int) ((hash ^ (hash >>> 32)) & (slots - 1));
+    }
+
+    private int getEntryListLength(DataAccess values, long entryPointer) {
+        int keyCount = values.getByte(entryPointer) & 0xFF;
+        long tmpPointer = entryPointer + 1;
+        for (int i = 0; i < keyCount; i++) {
+            int currentKeyIndex = (values.getShort(tmpPointer) & 0xFFFF) >>> 2;
+            tmpPointer += 2;
+            tmpPointer += getValueLength(values, tmpPointer, indexToClass.get(currentKeyIndex));
+        }
+        return (int) (tmpPointer - entryPointer);
+    }
+
+    /**
+     * Removes duplicate entry lists, e.g. from storages that were created before the entries were deduplicated
+     * during the import, and reduces the size of the storage accordingly. All existing pointers become invalid.
+     *
+     * @return the function that maps the old pointers to the new ones
+     */
+    public LongUnaryOperator compact() {
+        LongUnaryOperator getNewPointerForOldPointer = prepareCompaction();
+        finishCompaction();
+        return getNewPointerForOldPointer;
+    }
+
+    /**
+     * Writes the entry lists without duplicates to a new DataAccess and flushes it, see {@link #compact()}. The values
+     * of this storage are not changed until {@link #finishCompaction()} is called, so the caller can first store the
+     * new pointers and a crash does not leave a partially compacted storage behind. The new values get the next
+     * generation, see {@link #getGeneration()}.
+     *
+     * @return the function that maps the old pointers to the new ones
+     */
+    public LongUnaryOperator prepareCompaction() {
+        if (compacted != null)
+            throw new IllegalStateException("A compaction was already prepared");
+        DataAccess newVals = dir.create(getCompactedName(), vals.getType(), vals.getSegmentSize()).create(bytePointer);
+        LongArrayList oldPointers = new LongArrayList();
+        LongArrayList newPointers = new LongArrayList();
+        deduplicationTable = null;
+        long newBytePointer = START_POINTER;
+        for (long pointer = START_POINTER; pointer < bytePointer; ) {
+            int length = getEntryListLength(vals, pointer);
+            readEntryBytes(pointer, pointer + length);
+            long newPointer = findDuplicate(newVals, entryBytes, length, newBytePointer);
+            if (newPointer == newBytePointer) {
+                newVals.setBytes(newBytePointer, entryBytes, length);
+                newBytePointer += length;
+            }
+            oldPointers.add(pointer);
+            newPointers.add(newPointer);
+            pointer += length;
+        }
+        // the table contains pointers into the new values
+        deduplicationTable = null;
+        setValsHeader(newVals, newBytePointer, generation + 1);
+        newVals.flush();
+        compacted = newVals;
+
+        long[] oldArr = oldPointers.buffer;
+        int size = oldPointers.size();
+        return oldPointer -> {
+            if (oldPointer == EMPTY_POINTER)
+                return EMPTY_POINTER;
+            int index = Arrays.binarySearch(oldArr, 0, size, oldPointer);
+            if (index < 0)
+                throw new IllegalArgumentException("There are no entries at pointer " + oldPointer);
+            return newPointers.get(index);
+        };
+    }
+
+    /**
+     * Replaces the values with the ones written by {@link #prepareCompaction()}. The file is renamed, so the old values
+     * are only removed once the new ones are complete.
+     */
+    public void finishCompaction() {
+        if (compacted == null)
+            throw new IllegalStateException("There is no prepared compaction");
+        useCompacted();
+    }
+
+    /**
+     * Completes or discards a compaction that was interrupted before {@link #finishCompaction()}, e.g. by a crash. The
+     * new values are used if the pointers of the given generation were already stored, otherwise they are removed.
+     */
+    public void recoverCompaction(int storedGeneration) {
+        DataAccess newVals = dir.create(getCompactedName(), vals.getType(), vals.getSegmentSize());
+        boolean complete;
+        try {
+            complete = newVals.loadExisting() && newVals.getHeader(12) == storedGeneration;
+        } catch (RuntimeException ex) {
+            // the crash happened while the new values were written
+            complete = false;
+        }
+        if (complete && generation != storedGeneration) {
+            compacted = newVals;
+            useCompacted();
+        } else {
+            dir.remove(newVals.getName());
+        }
+        if (generation != storedGeneration)
+            throw new IllegalStateException("The values in " + vals.getName() + " have generation " + generation
+                    + ", but the stored pointers belong to generation " + storedGeneration);
+    }
+
+    private void useCompacted() {
+        bytePointer = bitUtil.toLong(compacted.getHeader(0), compacted.getHeader(4));
+        generation = compacted.getHeader(12);
+        vals = dir.replace(vals.getName(), compacted.getName());
+        compacted = null;
+        lastEntries = null;
+        lastEntryPointer = -1;
+        layoutVersion++;
+    }
+
+    private String getCompactedName() {
+        return vals.getName() + "_compact";
+    }
+
+    /**
+     * @return the number of compactions of this storage, which allows to detect that the stored pointers do not
+     * belong to the values, see {@link #recoverCompaction(int)}
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    // only for tests, to create a storage with duplicate entry lists
+    KVStorage setDeduplication(boolean deduplication) {
+        this.deduplication = deduplication;
+        return this;
+    }
+
+    long getBytePointer() {
+        return bytePointer;
+    }
+
     public Map<String, KValue> getAll(final long entryPointer) {
         if (entryPointer < 0)
             throw new IllegalStateException("Pointer to access KVStorage cannot be negative:" + entryPointer);
@@ -269,7 +504,7 @@ public class KVStorage {
         long tmpPointer = entryPointer + 1;
         AtomicInteger sizeOfObject = new AtomicInteger();
         for (int i = 0; i < keyCount; i++) {
-            int currentKeyIndexRaw = vals.getShort(tmpPointer);
+            int currentKeyIndexRaw = vals.getShort(tmpPointer) & 0xFFFF;
             boolean bwd = (currentKeyIndexRaw & 1) == 1;
             boolean fwd = (currentKeyIndexRaw & 2) == 2;
             int currentKeyIndex = currentKeyIndexRaw >>> 2;
@@ -307,7 +542,7 @@ public class KVStorage {
         long tmpPointer = entryPointer + 1;
         AtomicInteger sizeOfObject = new AtomicInteger();
         for (int i = 0; i < keyCount; i++) {
-            int currentKeyIndexRaw = vals.getShort(tmpPointer);
+            int currentKeyIndexRaw = vals.getShort(tmpPointer) & 0xFFFF;
             int currentKeyIndex = currentKeyIndexRaw >>> 2;
             tmpPointer += 2;
 
@@ -388,26 +623,39 @@ public class KVStorage {
             else if (clazz.equals(byte[].class)) return valueBytes;
             throw new IllegalArgumentException();
         } else {
-            byte[] valueBytes = new byte[getFixLength(clazz)];
-            vals.getBytes(pointer, valueBytes, valueBytes.length);
+            // the values are stored in little endian like DataAccess reads them, so we do not need a byte array
+            if (sizeOfObject != null) sizeOfObject.set(getFixLength(clazz));
             if (clazz.equals(Integer.class)) {
-                if (sizeOfObject != null) sizeOfObject.set(4);
-                return bitUtil.toInt(valueBytes, 0);
+                return vals.getInt(pointer);
             } else if (clazz.equals(Long.class)) {
-                if (sizeOfObject != null) sizeOfObject.set(8);
-                return bitUtil.toLong(valueBytes, 0);
+                return getLong(pointer);
             } else if (clazz.equals(Float.class)) {
-                if (sizeOfObject != null) sizeOfObject.set(4);
-                return bitUtil.toFloat(valueBytes, 0);
+                return Float.intBitsToFloat(vals.getInt(pointer));
             } else if (clazz.equals(Double.class)) {
-                if (sizeOfObject != null) sizeOfObject.set(8);
-                return bitUtil.toDouble(valueBytes, 0);
+                return Double.longBitsToDouble(getLong(pointer));
             } else {
                 throw new IllegalArgumentException("unknown class " + clazz);
             }
         }
     }
 
+    private long getLong(long pointer) {
+        return (vals.getInt(pointer) & 0xFFFFFFFFL) | ((long) vals.getInt(pointer + 4) << 32);
+    }
+
+    private int getValueLength(long pointer, Class<?> clazz) {
+        return getValueLength(vals, pointer, clazz);
+    }
+
+    private int getValueLength(DataAccess values, long pointer, Class<?> clazz) {
+        return hasDynLength(clazz) ? 1 + (values.getByte(pointer) & 0xFF) : getFixLength(clazz);
+    }
+
+    /**
+     * @return the value of the given key at the given pointer for the given direction or null if there is no such
+     * value. Only the requested value is deserialized and the values of the pointer that was accessed last by the
+     * current thread are cached, so requesting several values of the same pointer does not read its entries again.
+     */
     public Object get(final long entryPointer, String key, boolean reverse) {
         if (entryPointer < 0)
             throw new IllegalStateException("Pointer to access KVStorage cannot be negative:" + entryPointer);
@@ -417,30 +665,62 @@ public class KVStorage {
         Integer keyIndex = keyToIndex.get(key);
         if (keyIndex == null) return null; // key wasn't stored before
 
+        ReadCache cache = readCache.get();
+        if (cache.entryPointer != entryPointer || cache.layoutVersion != layoutVersion)
+            read(cache, entryPointer);
+
+        for (int i = 0; i < cache.size; i++) {
+            int currentKeyIndexRaw = cache.keyIndicesRaw[i];
+            boolean bwd = (currentKeyIndexRaw & 1) == 1;
+            boolean fwd = (currentKeyIndexRaw & 2) == 2;
+            if ((!reverse && fwd || reverse && bwd) && currentKeyIndexRaw >>> 2 == keyIndex) {
+                if (cache.values[i] == null)
+                    cache.values[i] = deserializeObj(null, cache.valuePointers[i], indexToClass.get(keyIndex));
+                // the cached byte array is shared between the calls, so the caller must get its own copy
+                return cache.values[i] instanceof byte[] ? ((byte[]) cache.values[i]).clone() : cache.values[i];
+            }
+        }
+
+        // value for specified key does not exist for the specified pointer
+        return null;
+    }
+
+    /**
+     * The key indices and value positions of the entries at one pointer. The values are only deserialized on demand.
+     */
+    private static class ReadCache {
+        long entryPointer = -1;
+        int layoutVersion;
+        int size;
+        int[] keyIndicesRaw = new int[8];
+        long[] valuePointers = new long[8];
+        Object[] values = new Object[8];
+    }
+
+    private void read(ReadCache cache, long entryPointer) {
         int keyCount = vals.getByte(entryPointer) & 0xFF;
-        if (keyCount == 0) return null; // no entries
+        if (keyCount > cache.keyIndicesRaw.length) {
+            cache.keyIndicesRaw = new int[keyCount];
+            cache.valuePointers = new long[keyCount];
+            cache.values = new Object[keyCount];
+        } else {
+            Arrays.fill(cache.values, 0, cache.size, null);
+        }
 
         long tmpPointer = entryPointer + 1;
         for (int i = 0; i < keyCount; i++) {
-            int currentKeyIndexRaw = vals.getShort(tmpPointer);
-            boolean bwd = (currentKeyIndexRaw & 1) == 1;
-            boolean fwd = (currentKeyIndexRaw & 2) == 2;
+            int currentKeyIndexRaw = vals.getShort(tmpPointer) & 0xFFFF;
             int currentKeyIndex = currentKeyIndexRaw >>> 2;
-
             assert currentKeyIndex < indexToKey.size() : "invalid key index " + currentKeyIndex + ">=" + indexToKey.size() + ", entryPointer=" + entryPointer + ", max=" + bytePointer;
             tmpPointer += 2;
-            if ((!reverse && fwd || reverse && bwd) && currentKeyIndex == keyIndex) {
-                return deserializeObj(null, tmpPointer, indexToClass.get(keyIndex));
-            }
-
+            cache.keyIndicesRaw[i] = currentKeyIndexRaw;
+            cache.valuePointers[i] = tmpPointer;
             // skip to next entry of same edge via skipping the real value
-            Class<?> clazz = indexToClass.get(currentKeyIndex);
-            int valueLength = hasDynLength(clazz) ? 1 + vals.getByte(tmpPointer) & 0xFF : getFixLength(clazz);
-            tmpPointer += valueLength;
+            tmpPointer += getValueLength(tmpPointer, indexToClass.get(currentKeyIndex));
         }
-
-        // value for specified key does not exist for the specified pointer
-        return null;
+        cache.size = keyCount;
+        cache.entryPointer = entryPointer;
+        cache.layoutVersion = layoutVersion;
     }
 
     public void flush() {
@@ -468,12 +748,17 @@ public class KVStorage {
         keys.setHeader(0, Constants.VERSION_KV_STORAGE);
         keys.flush();
 
-        vals.setHeader(0, bitUtil.getIntLow(bytePointer));
-        vals.setHeader(4, bitUtil.getIntHigh(bytePointer));
-        vals.setHeader(8, Constants.VERSION_KV_STORAGE);
+        setValsHeader(vals, bytePointer, generation);
         vals.flush();
     }
 
+    private void setValsHeader(DataAccess da, long bytePointer, int generation) {
+        da.setHeader(0, bitUtil.getIntLow(bytePointer));
+        da.setHeader(4, bitUtil.getIntHigh(bytePointer));
+        da.setHeader(8, Constants.VERSION_KV_STORAGE);
+        da.setHeader(12, generation);
+    }
+
     public void clear() {
         dir.remove(keys.getName());
         dir.remove(vals.getName());
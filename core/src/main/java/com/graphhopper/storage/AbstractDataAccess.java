@@ -59,6 +59,13 @@ public abstract class AbstractDataAccess implements DataAccess {
         return name;
     }
 
+    /**
+     * Changes the name after {@link GHDirectory#replace} renamed the backing file
+     */
+    void rename(String name) {
+        this.name = name;
+    }
+
     protected String getFullName() {
         return location + name;
     }
@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
 
 import static com.graphhopper.util.Helper.nf;
 import static com.graphhopper.util.Parameters.Details.STREET_NAME;
@@ -165,6 +166,8 @@ public class BaseGraph implements Graph, Closeable {
     public synchronized void freeze() {
         if (isFrozen())
             throw new IllegalStateException("base graph already frozen");
+        if (supportsTurnCosts() && !turnCostStorage.isSorted())
+            turnCostStorage.sortEntries();
         store.setFrozen(true);
     }
 
@@ -256,6 +259,8 @@ public class BaseGraph implements Graph, Closeable {
 
         if (!edgeKVStorage.loadExisting())
             return false;
+        store.removeKeyValuesRefsCopy();
+        edgeKVStorage.recoverCompaction(store.getKeyValuesGeneration());
 
         if (supportsTurnCosts() && !turnCostStorage.loadExisting())
             return false;
@@ -382,12 +387,26 @@ public class BaseGraph implements Graph, Closeable {
             turnCostStorage.sortEdges(getNewEdgeForOldEdge);
     }
 
+    /**
+     * Removes duplicate key-value entries of the edges from the KVStorage, see {@link KVStorage#compact()}. This can
+     * also be done for frozen graphs, as only the references of the edges change. The compacted values and the edges
+     * with the new references are written to new files, which then replace the old ones. The edges are replaced
+     * first and their header stores the generation of the values they belong to, so {@link #loadExisting()} can
+     * complete a compaction that was interrupted between both replacements. The graph must not be used by other
+     * threads during the compaction.
+     */
+    public void compactKeyValues() {
+        LongUnaryOperator getNewPointerForOldPointer = edgeKVStorage.prepareCompaction();
+        store.replaceKeyValuesRefs(getNewPointerForOldPointer, edgeKVStorage.getGeneration() + 1);
+        edgeKVStorage.finishCompaction();
+    }
+
     public void relabelNodes(IntUnaryOperator getNewNodeForOldNode) {
         if (isFrozen())
             throw new IllegalStateException("Cannot relabel nodes if graph is already frozen");
         store.relabelNodes(getNewNodeForOldNode);
         if (supportsTurnCosts())
-            turnCostStorage.sortNodes();
+            turnCostStorage.sortEntries();
     }
 
     @Override
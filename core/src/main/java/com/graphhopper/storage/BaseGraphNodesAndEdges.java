@@ -25,6 +25,7 @@ import com.graphhopper.util.shapes.BBox;
 
 import java.util.Locale;
 import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
 
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
 import static com.graphhopper.util.Helper.nf;
@@ -47,11 +48,14 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     private int nodeCount;
 
     // edges
-    private final DataAccess edges;
+    private final Directory dir;
+    private DataAccess edges;
     private final int E_NODEA, E_NODEB, E_LINKA, E_LINKB, E_DIST, E_KV, E_FLAGS, E_GEO;
     private final int bytesForFlags;
     private int edgeEntryBytes;
     private int edgeCount;
+    // the generation of the KVStorage the key-value references of the edges point into, see KVStorage#getGeneration
+    private int keyValuesGeneration;
 
     private final boolean withTurnCosts;
     private final boolean withElevation;
@@ -63,6 +67,7 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     private boolean frozen;
 
     public BaseGraphNodesAndEdges(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags) {
+        this.dir = dir;
         nodes = dir.create("nodes", dir.getDefaultType("nodes", true), segmentSize);
         edges = dir.create("edges", dir.getDefaultType("edges", false), segmentSize);
         this.bytesForFlags = bytesForFlags;
@@ -123,6 +128,7 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         GHUtility.checkDAVersion("edges", Constants.VERSION_EDGE, edgesVersion);
         edgeEntryBytes = edges.getHeader(1 * 4);
         edgeCount = edges.getHeader(2 * 4);
+        keyValuesGeneration = edges.getHeader(3 * 4);
         return true;
     }
 
@@ -141,14 +147,59 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         }
         nodes.setHeader(10 * 4, frozen ? 1 : 0);
 
-        edges.setHeader(0 * 4, Constants.VERSION_EDGE);
-        edges.setHeader(1 * 4, edgeEntryBytes);
-        edges.setHeader(2 * 4, edgeCount);
+        setEdgesHeader(edges);
 
         edges.flush();
         nodes.flush();
     }
 
+    private void setEdgesHeader(DataAccess da) {
+        da.setHeader(0 * 4, Constants.VERSION_EDGE);
+        da.setHeader(1 * 4, edgeEntryBytes);
+        da.setHeader(2 * 4, edgeCount);
+        da.setHeader(3 * 4, keyValuesGeneration);
+    }
+
+    int getKeyValuesGeneration() {
+        return keyValuesGeneration;
+    }
+
+    /**
+     * Writes a copy of the edges in which the key-value references are mapped with the given function and which
+     * points into the given generation of the KVStorage. The copy is flushed and then replaces the edges by renaming
+     * its file, so the stored edges always contain either the old or the new references.
+     */
+    void replaceKeyValuesRefs(LongUnaryOperator getNewRefForOldRef, int generation) {
+        String tmpName = edges.getName() + "_compact";
+        long bytes = (long) edgeCount * edgeEntryBytes;
+        DataAccess copy = dir.create(tmpName, edges.getType(), edges.getSegmentSize()).create(bytes);
+        byte[] buffer = new byte[Math.min(1 << 16, Math.min(edges.getSegmentSize(), copy.getSegmentSize()))];
+        for (long pointer = 0; pointer < bytes; pointer += buffer.length) {
+            int length = (int) Math.min(buffer.length, bytes - pointer);
+            edges.getBytes(pointer, buffer, length);
+            copy.setBytes(pointer, buffer, length);
+        }
+        for (int edge = 0; edge < edgeCount; edge++) {
+            long edgePointer = toEdgePointer(edge);
+            long ref = Integer.toUnsignedLong(copy.getInt(edgePointer + E_KV));
+            copy.setInt(edgePointer + E_KV, BitUtil.toSignedInt(getNewRefForOldRef.applyAsLong(ref)));
+        }
+        keyValuesGeneration = generation;
+        setEdgesHeader(copy);
+        copy.flush();
+        edges = dir.replace(edges.getName(), tmpName);
+    }
+
+    /**
+     * Removes the copy of the edges that was left behind if {@link #replaceKeyValuesRefs} was interrupted before the
+     * copy replaced the edges.
+     */
+    void removeKeyValuesRefsCopy() {
+        String tmpName = edges.getName() + "_compact";
+        DataAccess copy = dir.create(tmpName, edges.getType(), edges.getSegmentSize());
+        dir.remove(copy.getName());
+    }
+
     public void close() {
         edges.close();
         nodes.close();
@@ -269,6 +269,14 @@ public class CHStorage {
         shortcuts.setInt(shortcutPointer + S_NODEB, nodeB << 1 | (accessFlags & PrepareEncoder.getScBwdDir()) >> 1);
     }
 
+    /**
+     * Changes the directions in which the given shortcut can be used
+     */
+    public void setAccess(long shortcutPointer, boolean fwd, boolean bwd) {
+        shortcuts.setInt(shortcutPointer + S_NODEA, getNodeA(shortcutPointer) << 1 | (fwd ? 1 : 0));
+        shortcuts.setInt(shortcutPointer + S_NODEB, getNodeB(shortcutPointer) << 1 | (bwd ? 1 : 0));
+    }
+
     public void setWeight(long shortcutPointer, double weight) {
         setWeightInt(shortcutPointer, weightFromDouble(weight));
     }
@@ -333,9 +341,16 @@ public class CHStorage {
         // the node ordering is the inverse of the ch levels
         // if we really want to save some memory it could be still reasonable to not create the node ordering here,
         // but search nodesCH for a given level on demand.
+        // nodes that were not contracted (see prepare.ch.contracted_nodes) all have the maximum level and come last
+        int uncontractedIndex = numNodes;
         for (int i = 0; i < numNodes; ++i) {
             int level = getLevel(toNodePointer(i));
-            nodeOrdering[level] = i;
+            if (level < numNodes)
+                nodeOrdering[level] = i;
+        }
+        for (int i = numNodes - 1; i >= 0; --i) {
+            if (getLevel(toNodePointer(i)) >= numNodes)
+                nodeOrdering[--uncontractedIndex] = i;
         }
         return NodeOrderingProvider.fromArray(nodeOrdering);
     }
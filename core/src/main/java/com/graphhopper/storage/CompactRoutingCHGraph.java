@@ -0,0 +1,277 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.sorting.IndirectComparator;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import com.graphhopper.routing.weighting.Weighting;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * A read-only copy of the upward edges of a prepared node-based CH graph in a compressed sparse row (CSR) layout that
+ * the bidirectional CH algorithms can scan sequentially. With {@link RoutingCHGraphImpl} every edge requires
+ * following the linked edge list of the base graph or the shortcut chain of {@link CHStorage}, reading the access
+ * flags and calculating the weight of base edges, and all edges leading to lower level nodes are filtered afterwards.
+ * Here each node has two rows: one with the edges leaving it towards higher level nodes (for the forward search)
+ * and one with the edges entering it from higher level nodes (for the backward search). Each entry consists of the
+ * adjacent node, the edge and its weight in the direction of the row. The rows are ordered by decreasing node level,
+ * so the nodes at the top of the hierarchy, which are part of the search space of most queries, are close to each
+ * other in memory.
+ * <p>
+ * The weights are stored as floats, so an entry needs as much memory for its weight as a shortcut in {@link CHStorage},
+ * which rounds the weights to integers. This graph is kept on the heap only and is not written to disk: it is created
+ * from the CH graph whenever the CH graph was prepared or loaded, so storing it would only duplicate the CH graph.
+ * <p>
+ * In contrast to {@link RoutingCHGraph#createOutEdgeExplorer()} the explorers of this graph do not return the base
+ * edges leading to lower level nodes, which the CH algorithms do not use anyway. Everything else like unpacking
+ * shortcuts is delegated to the original graph.
+ */
+public class CompactRoutingCHGraph implements RoutingCHGraph {
+    private final RoutingCHGraph chGraph;
+    private final int baseEdges;
+    private final int[] levels;
+    private final Adjacency out;
+    private final Adjacency in;
+
+    public static CompactRoutingCHGraph fromGraph(RoutingCHGraph chGraph) {
+        return new CompactRoutingCHGraph(chGraph);
+    }
+
+    private CompactRoutingCHGraph(RoutingCHGraph chGraph) {
+        if (chGraph.isEdgeBased())
+            throw new IllegalArgumentException("The compact CH adjacency is only supported for node-based CH");
+        // we store the edge together with a direction bit, see Adjacency
+        if (chGraph.getEdges() > Integer.MAX_VALUE / 2)
+            throw new IllegalArgumentException("Too many edges for the compact CH adjacency: " + chGraph.getEdges());
+        this.chGraph = chGraph;
+        this.baseEdges = chGraph.getBaseGraph().getEdges();
+        levels = new int[chGraph.getNodes()];
+        for (int node = 0; node < levels.length; node++)
+            levels[node] = chGraph.getLevel(node);
+        int[] nodesByLevel = IndirectSort.mergesort(0, levels.length, new IndirectComparator.DescendingIntComparator(levels));
+        out = new Adjacency(chGraph.createOutEdgeExplorer(), levels, nodesByLevel, false);
+        in = new Adjacency(chGraph.createInEdgeExplorer(), levels, nodesByLevel, true);
+    }
+
+    /**
+     * @return the graph this compact graph was created from
+     */
+    public RoutingCHGraph getGraph() {
+        return chGraph;
+    }
+
+    @Override
+    public int getNodes() {
+        return chGraph.getNodes();
+    }
+
+    @Override
+    public int getEdges() {
+        return chGraph.getEdges();
+    }
+
+    @Override
+    public int getShortcuts() {
+        return chGraph.getShortcuts();
+    }
+
+    @Override
+    public RoutingCHEdgeExplorer createInEdgeExplorer() {
+        return new CompactEdgeIterator(in);
+    }
+
+    @Override
+    public RoutingCHEdgeExplorer createOutEdgeExplorer() {
+        return new CompactEdgeIterator(out);
+    }
+
+    @Override
+    public RoutingCHEdgeIteratorState getEdgeIteratorState(int chEdge, int adjNode) {
+        return chGraph.getEdgeIteratorState(chEdge, adjNode);
+    }
+
+    @Override
+    public int getLevel(int node) {
+        return levels[node];
+    }
+
+    @Override
+    public double getTurnWeight(int inEdge, int viaNode, int outEdge) {
+        return chGraph.getTurnWeight(inEdge, viaNode, outEdge);
+    }
+
+    @Override
+    public Graph getBaseGraph() {
+        return chGraph.getBaseGraph();
+    }
+
+    @Override
+    public boolean hasTurnCosts() {
+        return chGraph.hasTurnCosts();
+    }
+
+    @Override
+    public boolean isEdgeBased() {
+        return false;
+    }
+
+    @Override
+    public Weighting getWeighting() {
+        return chGraph.getWeighting();
+    }
+
+    @Override
+    public void close() {
+        chGraph.close();
+    }
+
+    /**
+     * The upward edges of all nodes in one direction. The row of a node is stored at [start, end[ of the entry arrays
+     * where start and end are stored next to each other in the rows array. For base edges the entry holds the edge
+     * key, i.e. the edge and whether it is traversed against its storage direction, and for shortcuts twice the edge.
+     */
+    private static class Adjacency {
+        final int[] rows;
+        final int[] adjNodes;
+        final int[] edgeKeys;
+        final float[] weights;
+        final boolean reverse;
+
+        Adjacency(RoutingCHEdgeExplorer explorer, int[] levels, int[] nodesByLevel, boolean reverse) {
+            this.reverse = reverse;
+            rows = new int[2 * nodesByLevel.length];
+            long entries = 0;
+            for (int node : nodesByLevel) {
+                RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+                rows[2 * node] = (int) entries;
+                while (iter.next())
+                    if (isUpward(iter, levels))
+                        entries++;
+                if (entries > Integer.MAX_VALUE)
+                    throw new IllegalArgumentException("Too many edges for the compact CH adjacency: " + entries);
+                rows[2 * node + 1] = (int) entries;
+            }
+            adjNodes = new int[(int) entries];
+            edgeKeys = new int[(int) entries];
+            weights = new float[(int) entries];
+            for (int node : nodesByLevel) {
+                RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+                int entry = rows[2 * node];
+                while (iter.next()) {
+                    if (!isUpward(iter, levels))
+                        continue;
+                    adjNodes[entry] = iter.getAdjNode();
+                    edgeKeys[entry] = iter.isShortcut() ? 2 * iter.getEdge() : iter.getOrigEdgeKeyFirst();
+                    weights[entry] = (float) iter.getWeight(reverse);
+                    entry++;
+                }
+                assert entry == rows[2 * node + 1];
+            }
+        }
+
+        private static boolean isUpward(RoutingCHEdgeIterator iter, int[] levels) {
+            return levels[iter.getBaseNode()] <= levels[iter.getAdjNode()];
+        }
+    }
+
+    private class CompactEdgeIterator implements RoutingCHEdgeExplorer, RoutingCHEdgeIterator {
+        private final Adjacency adjacency;
+        private int baseNode;
+        private int entry;
+        private int end;
+
+        CompactEdgeIterator(Adjacency adjacency) {
+            this.adjacency = adjacency;
+        }
+
+        @Override
+        public RoutingCHEdgeIterator setBaseNode(int baseNode) {
+            this.baseNode = baseNode;
+            entry = adjacency.rows[2 * baseNode] - 1;
+            end = adjacency.rows[2 * baseNode + 1];
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            return ++entry < end;
+        }
+
+        @Override
+        public int getEdge() {
+            return adjacency.edgeKeys[entry] >>> 1;
+        }
+
+        @Override
+        public int getOrigEdge() {
+            return isShortcut() ? NO_EDGE : getEdge();
+        }
+
+        @Override
+        public int getOrigEdgeKeyFirst() {
+            // node-based shortcuts do not know their original edges
+            return isShortcut() ? NO_EDGE : adjacency.edgeKeys[entry];
+        }
+
+        @Override
+        public int getOrigEdgeKeyLast() {
+            return getOrigEdgeKeyFirst();
+        }
+
+        @Override
+        public int getBaseNode() {
+            return baseNode;
+        }
+
+        @Override
+        public int getAdjNode() {
+            return adjacency.adjNodes[entry];
+        }
+
+        @Override
+        public boolean isShortcut() {
+            return getEdge() >= baseEdges;
+        }
+
+        @Override
+        public int getSkippedEdge1() {
+            return getOriginalState().getSkippedEdge1();
+        }
+
+        @Override
+        public int getSkippedEdge2() {
+            return getOriginalState().getSkippedEdge2();
+        }
+
+        @Override
+        public double getWeight(boolean reverse) {
+            // we only store the weight in the direction of the search that uses this iterator
+            return reverse == adjacency.reverse ? adjacency.weights[entry] : getOriginalState().getWeight(reverse);
+        }
+
+        private RoutingCHEdgeIteratorState getOriginalState() {
+            return chGraph.getEdgeIteratorState(getEdge(), getAdjNode());
+        }
+
+        @Override
+        public String toString() {
+            return getEdge() + " " + getBaseNode() + "-" + getAdjNode();
+        }
+    }
+}
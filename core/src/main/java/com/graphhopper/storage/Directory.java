@@ -53,6 +53,21 @@ public interface Directory {
      */
     void remove(String name);
 
+    /**
+     * Releases the resources of the specified object without removing its backing file, so that it can be created
+     * and loaded again later.
+     */
+    void close(String name);
+
+    /**
+     * Replaces the DataAccess with the given name by the one with the name tmpName, e.g. by a compacted copy. A
+     * stored tmpName has to be flushed before. Its file is then renamed to the file of the given name, so the old file
+     * is only removed once the new one is complete.
+     *
+     * @return the DataAccess that is now available under the given name
+     */
+    DataAccess replace(String name, String tmpName);
+
     /**
      * @return the default type of a newly created DataAccess object
      */
@@ -18,6 +18,9 @@
 package com.graphhopper.storage;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 import static com.graphhopper.storage.DAType.RAM_INT;
@@ -174,6 +177,52 @@ public class GHDirectory implements Directory {
         removeBackingFile(old, name);
     }
 
+    @Override
+    public void close(String name) {
+        DataAccess old = map.remove(name);
+        if (old == null)
+            throw new IllegalStateException("Couldn't close DataAccess: " + name);
+
+        old.close();
+    }
+
+    @Override
+    public DataAccess replace(String name, String tmpName) {
+        DataAccess old = map.get(name);
+        DataAccess tmp = map.get(tmpName);
+        if (old == null || tmp == null)
+            throw new IllegalStateException("Couldn't replace DataAccess " + name + " with " + tmpName);
+        File tmpFile = new File(location + tmpName);
+        if (tmp.getType().isStoring() && !tmpFile.exists())
+            throw new IllegalStateException("DataAccess " + tmpName + " has to be flushed before it can replace " + name);
+
+        // the memory mapped files need to be closed before they are renamed, the in-memory data can be kept
+        if (!tmp.getType().isInMemory())
+            tmp.close();
+        old.close();
+        map.remove(name);
+        map.remove(tmpName);
+        if (tmp.getType().isStoring()) {
+            try {
+                Files.move(tmpFile.toPath(), new File(location + name).toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                throw new RuntimeException("Couldn't rename " + tmpFile + " to " + name, ex);
+            }
+        } else if (old.getType().isStoring()) {
+            removeBackingFile(old, name);
+        }
+
+        if (tmp.getType().isInMemory()) {
+            ((AbstractDataAccess) tmp).rename(name);
+            map.put(name, tmp);
+            return tmp;
+        }
+        DataAccess da = create(name, tmp.getType(), tmp.getSegmentSize());
+        if (!da.loadExisting())
+            throw new IllegalStateException("Couldn't load " + name + " after it was replaced with " + tmpName);
+        return da;
+    }
+
     private void removeBackingFile(DataAccess da, String name) {
         if (da.getType().isStoring())
             removeDir(new File(location + name));
@@ -18,6 +18,7 @@
 package com.graphhopper.storage;
 
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.sorting.IndirectSort;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.ev.EdgeIntAccess;
@@ -49,6 +50,8 @@ public class TurnCostStorage {
     private final DataAccess turnCosts;
     private final EdgeIntAccess edgeIntAccess = createEdgeIntAccess();
     private int turnCostsCount;
+    // true if the entries of every via node are stored next to each other and ordered by from and to edge
+    private boolean sorted;
 
     public TurnCostStorage(BaseGraph baseGraph, DataAccess turnCosts) {
         this.baseGraph = baseGraph;
@@ -64,6 +67,7 @@ public class TurnCostStorage {
         turnCosts.setHeader(0, Constants.VERSION_TURN_COSTS);
         turnCosts.setHeader(4, BYTES_PER_ENTRY);
         turnCosts.setHeader(2 * 4, turnCostsCount);
+        turnCosts.setHeader(3 * 4, sorted ? 1 : 0);
         turnCosts.flush();
     }
 
@@ -84,6 +88,7 @@ public class TurnCostStorage {
             throw new IllegalStateException("Number of bytes per turn cost entry does not match the current configuration: " + turnCosts.getHeader(0) + " vs. " + BYTES_PER_ENTRY);
         }
         turnCostsCount = turnCosts.getHeader(8);
+        sorted = turnCosts.getHeader(3 * 4) == 1;
         return true;
     }
 
@@ -117,6 +122,8 @@ public class TurnCostStorage {
             turnCosts.setInt(pointer + TC_TO, toEdge);
             turnCosts.setInt(pointer + TC_NEXT, prevIndex);
             turnCostsCount++;
+            // the new entry is the first one of its via node, so the order is lost until the next call of sortEntries
+            sorted = false;
         }
         return index;
     }
@@ -161,6 +168,24 @@ public class TurnCostStorage {
 
         final int maxEntries = 1000;
         int index = baseGraph.getNodeAccess().getTurnCostIndex(viaNode);
+        if (sorted) {
+            // the entries are stored one after the other, so we do not need to follow the next pointers and can stop
+            // as soon as we passed the (fromEdge, toEdge) pair
+            if (index == NO_TURN_ENTRY) return -1;
+            for (int i = 0; i < maxEntries; ++i, ++index) {
+                long pointer = toPointer(index);
+                int from = turnCosts.getInt(pointer + TC_FROM);
+                if (from == fromEdge) {
+                    int to = turnCosts.getInt(pointer + TC_TO);
+                    if (to == toEdge) return index;
+                    if (to > toEdge) return -1;
+                } else if (from > fromEdge) {
+                    return -1;
+                }
+                if (turnCosts.getInt(pointer + TC_NEXT) == NO_TURN_ENTRY) return -1;
+            }
+            throw new IllegalStateException("Turn cost list for node: " + viaNode + " is longer than expected, max: " + maxEntries);
+        }
         for (int i = 0; i < maxEntries; ++i) {
             if (index == NO_TURN_ENTRY) return -1;
             long pointer = toPointer(index);
@@ -177,6 +202,8 @@ public class TurnCostStorage {
             turnCosts.setInt(pointer + TC_FROM, getNewEdgeForOldEdge.applyAsInt(turnCosts.getInt(pointer + TC_FROM)));
             turnCosts.setInt(pointer + TC_TO, getNewEdgeForOldEdge.applyAsInt(turnCosts.getInt(pointer + TC_TO)));
         }
+        // the new edge ids do not keep the order
+        sorted = false;
     }
 
     private long toPointer(int index) {
@@ -219,7 +246,13 @@ public class TurnCostStorage {
         return new Itr();
     }
 
-    public void sortNodes() {
+    /**
+     * Stores the entries of every via node next to each other, ordered by node and then by from and to edge. This is
+     * done when the graph is frozen and speeds up the lookups, because they no longer need to follow the next
+     * pointers and can stop early. Entries that are created afterwards are still found, but the lookups are slower
+     * until this method is called again.
+     */
+    public void sortEntries() {
         IntArrayList tcFroms = new IntArrayList();
         IntArrayList tcTos = new IntArrayList();
         IntArrayList tcFlags = new IntArrayList();
@@ -233,10 +266,21 @@ public class TurnCostStorage {
         }
         long turnCostsCountBefore = turnCostsCount;
         turnCostsCount = 0;
+        IntArrayList nodeEntries = new IntArrayList();
         for (int node = 0; node < baseGraph.getNodes(); node++) {
+            nodeEntries.elementsCount = 0;
+            for (int index = baseGraph.getNodeAccess().getTurnCostIndex(node); index != NO_TURN_ENTRY; index = tcNexts.get(index))
+                nodeEntries.add(index);
+            if (nodeEntries.isEmpty())
+                continue;
+            int[] entries = nodeEntries.toArray();
+            int[] order = IndirectSort.mergesort(0, entries.length, (a, b) -> {
+                int cmp = Integer.compare(tcFroms.get(entries[a]), tcFroms.get(entries[b]));
+                return cmp != 0 ? cmp : Integer.compare(tcTos.get(entries[a]), tcTos.get(entries[b]));
+            });
             boolean firstForNode = true;
-            int turnCostIndex = baseGraph.getNodeAccess().getTurnCostIndex(node);
-            while (turnCostIndex != NO_TURN_ENTRY) {
+            for (int i : order) {
+                int turnCostIndex = entries[i];
                 if (firstForNode) {
                     baseGraph.getNodeAccess().setTurnCostIndex(node, turnCostsCount);
                 } else {
@@ -250,11 +294,15 @@ public class TurnCostStorage {
                 turnCosts.setInt(pointer + TC_NEXT, NO_TURN_ENTRY);
                 turnCostsCount++;
                 firstForNode = false;
-                turnCostIndex = tcNexts.get(turnCostIndex);
             }
         }
         if (turnCostsCountBefore != turnCostsCount)
             throw new IllegalStateException("Turn cost count changed unexpectedly: " + turnCostsCountBefore + " -> " + turnCostsCount);
+        sorted = true;
+    }
+
+    public boolean isSorted() {
+        return sorted;
     }
 
     public interface Iterator {
@@ -46,6 +46,20 @@ public interface LocationIndex {
      */
     Snap findClosest(double lat, double lon, EdgeFilter edgeFilter);
 
+    /**
+     * Snaps many points at once. Implementations can use this to share work between nearby points.
+     *
+     * @param latLons the points as latitude and longitude pairs, i.e. lat0, lon0, lat1, lon1, ...
+     * @return for every point the closest Snap as returned by {@link #findClosest(double, double, EdgeFilter)}
+     */
+    default Snap[] findClosest(double[] latLons, EdgeFilter edgeFilter) {
+        Snap[] result = new Snap[latLons.length / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = findClosest(latLons[2 * i], latLons[2 * i + 1], edgeFilter);
+        }
+        return result;
+    }
+
     /**
      * This method explores the LocationIndex with the specified Visitor. It visits only the stored edges (and only once)
      * and limited by the queryBBox. Also (a few) more edges slightly outside of queryBBox could be
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.storage.index;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -28,7 +29,7 @@ import com.graphhopper.util.shapes.BBox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
+import java.util.*;
 
 import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
 
@@ -308,6 +309,140 @@ public class LocationIndexTree implements LocationIndex {
         return closestMatch;
     }
 
+    @Override
+    public Snap[] findClosest(double[] latLons, EdgeFilter edgeFilter) {
+        return findClosest(latLons, edgeFilter, 1);
+    }
+
+    /**
+     * Snaps many points at once, see {@link #findKClosest(double[], int, EdgeFilter, int)}.
+     *
+     * @return for every point the closest snap, which is invalid if no edge was found
+     */
+    public Snap[] findClosest(double[] latLons, EdgeFilter edgeFilter, int threads) {
+        List<List<Snap>> candidates = findKClosest(latLons, 1, edgeFilter, threads);
+        Snap[] result = new Snap[candidates.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = candidates.get(i).isEmpty() ? new Snap(latLons[2 * i], latLons[2 * i + 1]) : candidates.get(i).get(0);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the k closest edges for many points at once. The points are processed in the order of their tiles so
+     * points within the same tile share the edge ids read from the index, and consecutive points read nearby cells.
+     * For k=1 the result is the same as calling {@link #findClosest(double, double, EdgeFilter)} for every point.
+     *
+     * @param latLons    the points as latitude and longitude pairs, i.e. lat0, lon0, lat1, lon1, ...
+     * @param k          the maximum number of candidates per point, every edge is returned at most once per point
+     * @param edgeFilter used from several threads if threads is larger than one
+     * @param threads    the number of threads the sorted points are distributed on
+     * @return for every point the list of its candidates sorted by distance, empty if no edge was found
+     */
+    public List<List<Snap>> findKClosest(double[] latLons, int k, EdgeFilter edgeFilter, int threads) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (latLons.length % 2 != 0)
+            throw new IllegalArgumentException("latLons must contain pairs of latitude and longitude, but its length was " + latLons.length);
+        if (k < 1)
+            throw new IllegalArgumentException("k must be at least 1 but was " + k);
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1 but was " + threads);
+
+        int points = latLons.length / 2;
+        long[] tileKeys = new long[points];
+        Integer[] order = new Integer[points];
+        for (int i = 0; i < points; i++) {
+            tileKeys[i] = indexStructureInfo.getKeyAlgo().encodeLatLon(latLons[2 * i], latLons[2 * i + 1]);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> tileKeys[i]));
+
+        List<List<Snap>> result = new ArrayList<>(Collections.nCopies(points, null));
+        int chunkSize = Math.max(1, (points + threads - 1) / threads);
+        List<Runnable> chunks = new ArrayList<>();
+        for (int start = 0; start < points; start += chunkSize) {
+            int from = start, to = Math.min(points, start + chunkSize);
+            chunks.add(() -> {
+                // the edge ids per iteration of the tile of the previous point, we can reuse them as long as the tile stays the same
+                List<IntArrayList> tileEdgeIds = new ArrayList<>();
+                long currentTileKey = -1;
+                for (int j = from; j < to; j++) {
+                    int point = order[j];
+                    if (j == from || tileKeys[point] != currentTileKey) {
+                        currentTileKey = tileKeys[point];
+                        tileEdgeIds.clear();
+                    }
+                    // every chunk writes different indices, so it is fine to share the list
+                    result.set(point, findKClosest(latLons[2 * point], latLons[2 * point + 1], k, edgeFilter, tileEdgeIds));
+                }
+            });
+        }
+        if (threads == 1 || chunks.size() == 1)
+            chunks.forEach(Runnable::run);
+        else
+            GHUtility.runConcurrently(chunks.stream(), threads);
+        return result;
+    }
+
+    private List<Snap> findKClosest(double queryLat, double queryLon, int k, EdgeFilter edgeFilter, List<IntArrayList> tileEdgeIds) {
+        List<Snap> candidates = new ArrayList<>(k);
+        Snap edgeMatch = new Snap(queryLat, queryLon);
+        IntHashSet seenEdges = new IntHashSet();
+        for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
+            if (tileEdgeIds.size() == iteration) {
+                IntArrayList edgeIds = new IntArrayList();
+                lineIntIndex.findEdgeIdsInNeighborhood(queryLat, queryLon, iteration, edgeIds::add);
+                tileEdgeIds.add(edgeIds);
+            }
+            IntArrayList edgeIds = tileEdgeIds.get(iteration);
+            for (int i = 0; i < edgeIds.size(); i++) {
+                int edgeId = edgeIds.get(i);
+                if (!seenEdges.add(edgeId))
+                    continue;
+                EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(edgeId * 2);
+                if (!edgeFilter.accept(edgeIteratorState))
+                    continue;
+                edgeMatch.setQueryDistance(Double.MAX_VALUE);
+                traverseEdge(queryLat, queryLon, edgeIteratorState, (node, normedDist, wayIndex, pos) -> {
+                    if (normedDist < edgeMatch.getQueryDistance()) {
+                        edgeMatch.setQueryDistance(normedDist);
+                        edgeMatch.setClosestNode(node);
+                        edgeMatch.setWayIndex(wayIndex);
+                        edgeMatch.setSnappedPosition(pos);
+                    }
+                });
+                if (candidates.size() == k && edgeMatch.getQueryDistance() >= candidates.get(k - 1).getQueryDistance())
+                    continue;
+                Snap candidate = new Snap(queryLat, queryLon);
+                candidate.setQueryDistance(edgeMatch.getQueryDistance());
+                candidate.setClosestNode(edgeMatch.getClosestNode());
+                candidate.setClosestEdge(edgeIteratorState.detach(false));
+                candidate.setWayIndex(edgeMatch.getWayIndex());
+                candidate.setSnappedPosition(edgeMatch.getSnappedPosition());
+                // insert after all candidates with the same distance so that for k=1 we get the same snap as findClosest
+                int index = candidates.size();
+                while (index > 0 && candidates.get(index - 1).getQueryDistance() > candidate.getQueryDistance())
+                    index--;
+                candidates.add(index, candidate);
+                if (candidates.size() > k)
+                    candidates.remove(k);
+            }
+            if (candidates.size() == k) {
+                double rMin = calculateRMin(queryLat, queryLon, iteration);
+                double maxDistance = DIST_PLANE.calcDenormalizedDist(candidates.get(k - 1).getQueryDistance());
+                if (maxDistance < rMin)
+                    break;
+            }
+        }
+
+        for (Snap candidate : candidates) {
+            candidate.calcSnappedPoint(DIST_PLANE);
+            candidate.setQueryDistance(DIST_PLANE.calcDist(candidate.getSnappedPoint().lat, candidate.getSnappedPoint().lon, queryLat, queryLon));
+        }
+        return candidates;
+    }
+
     @Override
     public void query(TileFilter tileFilter, Visitor function) {
         lineIntIndex.query(tileFilter, function);
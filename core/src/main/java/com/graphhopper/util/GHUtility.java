@@ -46,7 +46,10 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -538,6 +541,37 @@ public class GHUtility {
         }
     }
 
+    /**
+     * Applies the given function to all items using the given executor, or in the calling thread if the executor is
+     * null. Unlike {@link #runConcurrently(Stream, int)} runtime exceptions thrown by the function are rethrown as they
+     * are, so they can still be mapped to the proper error response.
+     *
+     * @return the results in the order of the items
+     */
+    public static <T, R> List<R> mapConcurrently(ExecutorService executor, List<T> items, Function<T, R> function) {
+        List<R> results = new ArrayList<>(items.size());
+        if (executor == null) {
+            for (T item : items)
+                results.add(function.apply(item));
+            return results;
+        }
+        List<Future<R>> futures = new ArrayList<>(items.size());
+        for (T item : items)
+            futures.add(executor.submit(() -> function.apply(item)));
+        try {
+            for (Future<R> future : futures)
+                results.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+        return results;
+    }
+
     public static BBox createBBox(EdgeIteratorState edgeState) {
         PointList towerNodes = edgeState.fetchWayGeometry(FetchMode.TOWER_ONLY);
         int secondIndex = towerNodes.size() == 1 ? 0 : 1;
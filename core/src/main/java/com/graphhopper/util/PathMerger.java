@@ -23,6 +23,7 @@ import com.graphhopper.routing.Path;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.util.details.PathDetailsBuilder;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.details.PathDetailsFromEdges;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
@@ -110,23 +111,38 @@ public class PathMerger {
             fullTimeInMillis += path.getTime();
             fullDistance += path.getDistance();
             fullWeight += path.getWeight();
+            // we calculate the instructions, points and path details with a single traversal of the path edges
+            List<Path.EdgeVisitor> visitors = new ArrayList<>(3);
+            InstructionList il = new InstructionList(tr);
             if (enableInstructions) {
-                InstructionList il = InstructionsFromEdges.calcInstructions(path, graph, weighting, evLookup, tr);
+                if (path.getEdgeCount() == 0)
+                    il.add(new FinishInstruction(graph.getNodeAccess(), path.getEndNode()));
+                else
+                    visitors.add(new InstructionsFromEdges(graph, weighting, evLookup, il));
+            }
+            PointList tmpPoints = null;
+            List<PathDetailsBuilder> pathBuilders = Collections.emptyList();
+            if (calcPoints || enableInstructions) {
+                tmpPoints = new PointList(path.getEdgeCount() + 1, graph.getNodeAccess().is3D());
+                tmpPoints.add(graph.getNodeAccess(), path.getEdgeCount() == 0 ? path.getEndNode() : path.getFromNode());
+                visitors.add(new PointsFromEdges(tmpPoints));
+                pathBuilders = PathDetailsFromEdges.createPathDetailsBuilders(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, graph);
+                if (!pathBuilders.isEmpty())
+                    visitors.add(new PathDetailsFromEdges(pathBuilders, origPoints));
+            }
+            path.forEveryEdge(visitors);
 
-                if (!il.isEmpty()) {
-                    fullInstructions.addAll(il);
+            if (!il.isEmpty()) {
+                fullInstructions.addAll(il);
 
-                    // for all paths except the last replace the FinishInstruction with a ViaInstruction
-                    if (pathIndex + 1 < paths.size()) {
-                        ViaInstruction newInstr = new ViaInstruction(fullInstructions.get(fullInstructions.size() - 1));
-                        newInstr.setViaCount(pathIndex + 1);
-                        fullInstructions.set(fullInstructions.size() - 1, newInstr);
-                    }
+                // for all paths except the last replace the FinishInstruction with a ViaInstruction
+                if (pathIndex + 1 < paths.size()) {
+                    ViaInstruction newInstr = new ViaInstruction(fullInstructions.get(fullInstructions.size() - 1));
+                    newInstr.setViaCount(pathIndex + 1);
+                    fullInstructions.set(fullInstructions.size() - 1, newInstr);
                 }
-
             }
-            if (calcPoints || enableInstructions) {
-                PointList tmpPoints = path.calcPoints();
+            if (tmpPoints != null) {
                 if (fullPoints.isEmpty())
                     fullPoints = new PointList(tmpPoints.size(), tmpPoints.is3D());
 
@@ -136,7 +152,8 @@ public class PathMerger {
                 }
 
                 fullPoints.add(tmpPoints);
-                responsePath.addPathDetails(PathDetailsFromEdges.calcDetails(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, origPoints, graph));
+                if (!pathBuilders.isEmpty())
+                    responsePath.addPathDetails(PathDetailsFromEdges.buildDetails(pathBuilders));
                 wayPointIndices.add(origPoints);
                 if (pathIndex == paths.size() - 1)
                     wayPointIndices.add(fullPoints.size() - 1);
@@ -249,4 +266,29 @@ public class PathMerger {
     public void setFavoredHeading(double favoredHeading) {
         this.favoredHeading = favoredHeading;
     }
-}
\ No newline at end of file
+
+    private static class PointsFromEdges implements Path.EdgeVisitor {
+        private final PointList points;
+
+        PointsFromEdges(PointList points) {
+            this.points = points;
+        }
+
+        @Override
+        public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+            next(edge, edge.fetchWayGeometry(FetchMode.ALL), index, prevEdgeId);
+        }
+
+        @Override
+        public void next(EdgeIteratorState edge, PointList geometry, int index, int prevEdgeId) {
+            // skip the base node, it was already added by the previous edge
+            for (int i = 1; i < geometry.size(); i++) {
+                points.add(geometry, i);
+            }
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+}
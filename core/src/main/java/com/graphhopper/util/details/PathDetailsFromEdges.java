@@ -23,6 +23,7 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.PointList;
 
 import java.util.*;
 
@@ -55,19 +56,58 @@ public class PathDetailsFromEdges implements Path.EdgeVisitor {
     public static Map<String, List<PathDetail>> calcDetails(Path path, EncodedValueLookup evLookup, Weighting weighting,
                                                             List<String> requestedPathDetails, PathDetailsBuilderFactory pathBuilderFactory,
                                                             int previousIndex, Graph graph) {
-        if (!path.isFound() || requestedPathDetails.isEmpty())
+        List<PathDetailsBuilder> pathBuilders = createPathDetailsBuilders(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, graph);
+        if (pathBuilders.isEmpty())
             return Collections.emptyMap();
+
+        path.forEveryEdge(new PathDetailsFromEdges(pathBuilders, previousIndex));
+        return buildDetails(pathBuilders);
+    }
+
+    /**
+     * Creates the PathDetailsBuilders for the given path, so they can be used with a
+     * {@link PathDetailsFromEdges} visitor that is passed to {@link Path#forEveryEdge(List)} together with other visitors.
+     *
+     * @return the builders or an empty list if no path details were requested
+     */
+    public static List<PathDetailsBuilder> createPathDetailsBuilders(Path path, EncodedValueLookup evLookup, Weighting weighting,
+                                                                     List<String> requestedPathDetails, PathDetailsBuilderFactory pathBuilderFactory,
+                                                                     Graph graph) {
+        if (!path.isFound() || requestedPathDetails.isEmpty())
+            return Collections.emptyList();
         HashSet<String> uniquePD = new HashSet<>(requestedPathDetails.size());
         Collection<String> res = requestedPathDetails.stream().filter(pd -> !uniquePD.add(pd)).toList();
         if (!res.isEmpty())
             throw new IllegalArgumentException("Do not use duplicate path details: " + res);
+        return pathBuilderFactory.createPathDetailsBuilders(requestedPathDetails, path, evLookup, weighting, graph);
+    }
 
-        List<PathDetailsBuilder> pathBuilders = pathBuilderFactory.createPathDetailsBuilders(requestedPathDetails, path, evLookup, weighting, graph);
-        if (pathBuilders.isEmpty())
-            return Collections.emptyMap();
+    @Override
+    public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+        startIntervals(edge);
+        lastIndex += edge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ).size();
+    }
 
-        path.forEveryEdge(new PathDetailsFromEdges(pathBuilders, previousIndex));
+    @Override
+    public void next(EdgeIteratorState edge, PointList geometry, int index, int prevEdgeId) {
+        startIntervals(edge);
+        // the geometry includes the base node, which is the last point of the previous edge
+        lastIndex += geometry.size() - 1;
+    }
+
+    private void startIntervals(EdgeIteratorState edge) {
+        for (PathDetailsBuilder calc : calculators) {
+            if (calc.isEdgeDifferentToLastEdge(edge)) {
+                calc.endInterval(lastIndex);
+                calc.startInterval(lastIndex);
+            }
+        }
+    }
 
+    /**
+     * @return the path details of all the builders after they visited all edges
+     */
+    public static Map<String, List<PathDetail>> buildDetails(List<PathDetailsBuilder> pathBuilders) {
         Map<String, List<PathDetail>> pathDetails = new HashMap<>(pathBuilders.size());
         for (PathDetailsBuilder builder : pathBuilders) {
             Map.Entry<String, List<PathDetail>> entry = builder.build();
@@ -75,21 +115,9 @@ public class PathDetailsFromEdges implements Path.EdgeVisitor {
             if (existing != null)
                 throw new IllegalStateException("Some PathDetailsBuilders use duplicate key: " + entry.getKey());
         }
-
         return pathDetails;
     }
 
-    @Override
-    public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
-        for (PathDetailsBuilder calc : calculators) {
-            if (calc.isEdgeDifferentToLastEdge(edge)) {
-                calc.endInterval(lastIndex);
-                calc.startInterval(lastIndex);
-            }
-        }
-        lastIndex += edge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ).size();
-    }
-
     @Override
     public void finish() {
         for (PathDetailsBuilder calc : calculators) {
@@ -17,6 +17,7 @@
  */
 package com.graphhopper;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.config.CHProfile;
 import com.graphhopper.config.LMProfile;
 import com.graphhopper.config.Profile;
@@ -25,6 +26,7 @@ import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.routing.WeightingFactory;
+import com.graphhopper.routing.ch.ShortcutWeightUpdater;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.util.AllEdgesIterator;
@@ -37,6 +39,7 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.Router;
 import com.graphhopper.routing.RouterConfig;
 import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CompactRoutingCHGraph;
 import com.graphhopper.storage.IntsRef;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndex;
@@ -68,6 +71,8 @@ import org.locationtech.jts.geom.GeometryFactory;
 import java.io.File;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.graphhopper.json.Statement.If;
 import static com.graphhopper.json.Statement.Op.LIMIT;
@@ -152,6 +157,75 @@ public class GraphHopperTest {
         assertTrue(rsp.getErrors().toString().contains("ConnectionNotFoundException"), rsp.getErrors().toString());
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {DIJKSTRA_BI, ASTAR_BI})
+    public void testMonacoCHCompactAdjacency(String algo) {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("profile", "car")).
+                setCHCompactAdjacency(true).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler()
+                .setCHProfiles(new CHProfile("profile"));
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+        assertInstanceOf(CompactRoutingCHGraph.class, hopper.getCHGraphs().get("profile"));
+        GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566)
+                .setAlgorithm(algo)
+                .setProfile("profile"));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        ResponsePath res = rsp.getBest();
+        assertEquals(3587.6, res.getDistance(), .1);
+        assertEquals(274255, res.getTime(), 10);
+        assertEquals(105, res.getPoints().size());
+    }
+
+    @Test
+    public void testUpdateCHShortcutWeightsWithCompactAdjacency() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("profile", "car")).
+                setCHCompactAdjacency(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("profile"));
+        hopper.getRouterConfig().setSnapCacheSize(10);
+        hopper.importOrLoad();
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("profile").
+                setPathDetails(Collections.singletonList("edge_id"));
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(2, hopper.getSnapCache().getSize());
+        long oldTime = rsp.getBest().getTime();
+
+        // close an edge in the middle of the route
+        List<PathDetail> edgeIds = rsp.getBest().getPathDetails().get("edge_id");
+        int edge = ((Number) edgeIds.get(edgeIds.size() / 2).getValue()).intValue();
+        DecimalEncodedValue speedEnc = hopper.getEncodingManager().getDecimalEncodedValue(VehicleSpeed.key("car"));
+        EdgeIteratorState edgeState = hopper.getBaseGraph().getEdgeIteratorState(edge, Integer.MIN_VALUE);
+        edgeState.set(speedEnc, 0);
+        if (speedEnc.isStoreTwoDirections())
+            edgeState.setReverse(speedEnc, 0);
+        RoutingCHGraph oldCHGraph = hopper.getCHGraphs().get("profile");
+        ShortcutWeightUpdater.Result result = hopper.updateCHShortcutWeights("profile", IntArrayList.from(edge));
+        assertTrue(result.isOptimal());
+        // the compact graph contained the old weights, so it was replaced
+        assertNotSame(oldCHGraph, hopper.getCHGraphs().get("profile"));
+        assertInstanceOf(CompactRoutingCHGraph.class, hopper.getCHGraphs().get("profile"));
+
+        GHResponse chRsp = hopper.route(req);
+        assertFalse(chRsp.hasErrors(), chRsp.getErrors().toString());
+        req.putHint(CH.DISABLE, true);
+        GHResponse flexRsp = hopper.route(req);
+        assertFalse(flexRsp.hasErrors(), flexRsp.getErrors().toString());
+        assertTrue(flexRsp.getBest().getTime() > oldTime);
+        assertEquals(flexRsp.getBest().getTime(), chRsp.getBest().getTime());
+        assertEquals(flexRsp.getBest().getPoints(), chRsp.getBest().getPoints());
+        hopper.close();
+    }
+
     /**
      * Variante de GraphHopper permettant d'injecter un WeightingFactory mocké
      * pour tester createWeighting(...) sans dépendre de DefaultWeightingFactory.
@@ -552,6 +626,39 @@ public class GraphHopperTest {
         assertEquals(955, rsp.getAll().get(2).getTime() / 1000);
     }
 
+    @Test
+    public void testAlternativeRoutesCHWithSharedPool() {
+        final String profile = "profile";
+
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(BAYREUTH).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed(profile, "car"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.getRouterConfig().setAlternativeRouteThreads(2);
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(50.023513, 11.548862, 49.969441, 11.537876).setProfile(profile);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertFalse(rsp.getHints().has("alternative_route.candidates"));
+
+        req.setAlgorithm(ALT_ROUTE);
+        req.putHint("alternative_route.max_paths", 3);
+        req.putHint("alternative_route.max_weight_factor", 2);
+        req.putHint("alternative_route.local_optimality_factor", 0.5);
+        // the requests share the pool
+        for (int i = 0; i < 2; i++) {
+            GHResponse altRsp = hopper.route(req);
+            assertFalse(altRsp.hasErrors(), altRsp.getErrors().toString());
+            assertTrue(altRsp.getAll().size() > 1);
+            assertEquals(rsp.getBest().getTime(), altRsp.getBest().getTime());
+            assertTrue(altRsp.getHints().getInt("alternative_route.candidates", 0) > 0);
+        }
+        hopper.close();
+    }
+
     @Test
     public void testPointHint() {
         final String profile = "profile";
@@ -794,6 +901,44 @@ public class GraphHopperTest {
         assertEquals(expectedDistance, rsp.getBest().getDistance(), 1);
     }
 
+    @Test
+    public void testMonacoViaConcurrentLegs() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed(profile, "car")).
+                importOrLoad();
+
+        GHRequest req = new GHRequest().
+                setPoints(Arrays.asList(
+                        new GHPoint(43.727687, 7.418737),
+                        new GHPoint(43.74958, 7.436566),
+                        new GHPoint(43.739213, 7.427806),
+                        new GHPoint(43.730864, 7.420771),
+                        new GHPoint(43.741069, 7.426854))).
+                setProfile(profile);
+        GHResponse expected = hopper.route(req);
+        assertFalse(expected.hasErrors(), expected.getErrors().toString());
+
+        hopper.getRouterConfig().setViaRoutingThreads(3);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(expected.getBest().getDistance(), rsp.getBest().getDistance(), 1.e-6);
+        assertEquals(expected.getBest().getTime(), rsp.getBest().getTime());
+        assertEquals(expected.getBest().getPoints(), rsp.getBest().getPoints());
+        assertEquals(expected.getHints().getLong("visited_nodes.sum", -1), rsp.getHints().getLong("visited_nodes.sum", -2));
+
+        // concurrent requests share the pool of the three routing threads
+        List<GHResponse> responses = IntStream.range(0, 8).parallel().mapToObj(i -> hopper.route(req)).collect(Collectors.toList());
+        for (GHResponse r : responses) {
+            assertFalse(r.hasErrors(), r.getErrors().toString());
+            assertEquals(expected.getBest().getPoints(), r.getBest().getPoints());
+        }
+        hopper.close();
+    }
+
     @Test
     public void testMonacoVia() {
         final String profile = "profile";
@@ -1896,6 +2041,84 @@ public class GraphHopperTest {
         }
     }
 
+    @Test
+    public void testExcludeAreaWithCH() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"));
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car");
+        ResponsePath path = hopper.route(req).getBest();
+        assertFalse(path.hasErrors(), path.getErrors().toString());
+
+        // block a small area around a point in the middle of the route
+        GHPoint middle = path.getPoints().get(path.getPoints().size() / 2);
+        JsonFeature blocked = createCircle("blocked", middle.lat, middle.lon, 30);
+        CustomModel customModel = new CustomModel().addToPriority(If("in_blocked", MULTIPLY, "0"));
+        customModel.getAreas().getFeatures().add(blocked);
+        req.setCustomModel(customModel);
+
+        // this is disabled by default
+        assertEquals("The 'custom_model' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.",
+                hopper.route(req).getErrors().get(0).getMessage());
+
+        hopper.getRouterConfig().setCHExcludeAreas(true);
+        // the fastest route passes the area, so it is calculated again without CH
+        ResponsePath pathExcluded = hopper.route(req).getBest();
+        assertFalse(pathExcluded.hasErrors(), pathExcluded.getErrors().toString());
+        for (GHPoint3D point : pathExcluded.getPoints())
+            assertFalse(blocked.getGeometry().contains(new GeometryFactory().createPoint(new Coordinate(point.lon, point.lat))), point.toString());
+        assertTrue(pathExcluded.getDistance() > path.getDistance());
+        assertEquals(routeDijkstra(hopper, req).getBest().getRouteWeight(), pathExcluded.getRouteWeight(), 1.e-6);
+
+        // an area that the fastest route does not pass does not change it, so the request is answered with CH
+        customModel.getAreas().getFeatures().set(0, createCircle("blocked", 43.738, 7.4235, 30));
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertTrue(rsp.getHints().getInt("visited_nodes.sum", 0) < 400, rsp.getHints().toString());
+        assertEquals(path.getRouteWeight(), rsp.getBest().getRouteWeight(), 1.e-6);
+        // the weights of the CH shortcuts are rounded, so CH routes can differ from Dijkstra by this precision
+        assertEquals(routeDijkstra(hopper, req).getBest().getRouteWeight(), rsp.getBest().getRouteWeight(), 1.e-2);
+
+        // other custom models still need to disable CH
+        req.setCustomModel(new CustomModel(customModel).addToPriority(If("road_class == PRIMARY", MULTIPLY, "0.5")));
+        assertTrue(hopper.route(req).getErrors().get(0).getMessage().startsWith("The 'custom_model' parameter is currently not supported for speed mode"));
+
+        // random routes with via points and areas always yield the same weight as Dijkstra
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        for (int i = 0; i < 50; i++) {
+            customModel = new CustomModel();
+            for (int j = 0; j < 2; j++) {
+                customModel.addToPriority(If("in_blocked" + j, MULTIPLY, "0"));
+                customModel.getAreas().getFeatures().add(createCircle("blocked" + j, 43.727 + rnd.nextDouble() * 0.022, 7.410 + rnd.nextDouble() * 0.030, 200 * rnd.nextDouble()));
+            }
+            req = new GHRequest(Arrays.asList(randomMonacoPoint(rnd), randomMonacoPoint(rnd), randomMonacoPoint(rnd))).
+                    setProfile("car").setCustomModel(customModel);
+            rsp = hopper.route(req);
+            GHResponse rspDijkstra = routeDijkstra(hopper, req);
+            String failMessage = "seed: " + seed + ", query: " + i;
+            assertEquals(rspDijkstra.hasErrors(), rsp.hasErrors(), failMessage);
+            if (!rsp.hasErrors())
+                assertEquals(rspDijkstra.getBest().getRouteWeight(), rsp.getBest().getRouteWeight(), 1.e-2, failMessage);
+        }
+    }
+
+    private static GHPoint randomMonacoPoint(Random rnd) {
+        return new GHPoint(43.727 + rnd.nextDouble() * 0.022, 7.410 + rnd.nextDouble() * 0.030);
+    }
+
+    private static GHResponse routeDijkstra(GraphHopper hopper, GHRequest req) {
+        GHRequest dijkstraReq = new GHRequest(req.getPoints()).setProfile(req.getProfile()).
+                setCustomModel(req.getCustomModel()).setAlgorithm(DIJKSTRA_BI);
+        dijkstraReq.putHint(CH.DISABLE, true);
+        return hopper.route(dijkstraReq);
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = {true, false})
     public void testAStarCHBug(boolean turnCosts) {
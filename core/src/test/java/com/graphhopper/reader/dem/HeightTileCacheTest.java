@@ -0,0 +1,131 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeightTileCacheTest {
+    @TempDir
+    File cacheDir;
+    private SRTMProvider provider;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setup() {
+        provider = new SRTMProvider(cacheDir.getAbsolutePath());
+        provider.setDAType(DAType.RAM);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        provider.release();
+    }
+
+    private HeightTile createSeaLevelTile(int key) {
+        DataAccess heights = provider.getDirectory().create("dem" + key).create(10);
+        HeightTile tile = new HeightTile(0, 0, 10, 10, 1e7, 1, 1);
+        tile.setHeights(heights);
+        tile.setSeaLevel(true);
+        return tile;
+    }
+
+    @Test
+    public void otherTilesCanBeReadWhileLoading() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch finishLoad = new CountDownLatch(1);
+        HeightTileCache<Integer> cache = new HeightTileCache<>(provider, (key, lat, lon) -> {
+            if (key == 1) {
+                loadStarted.countDown();
+                try {
+                    finishLoad.await();
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+            return createSeaLevelTile(key);
+        });
+        Future<Double> slow = executor.submit(() -> cache.getHeight(1, 0.5, 0.5));
+        assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+        // the slow load (think of a download) must not block the other tiles
+        assertEquals(0, executor.submit(() -> cache.getHeight(2, 0.5, 0.5)).get(10, TimeUnit.SECONDS));
+        assertFalse(slow.isDone());
+        finishLoad.countDown();
+        assertEquals(0, slow.get(10, TimeUnit.SECONDS));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void tileIsLoadedOnlyOnce() throws Exception {
+        CountDownLatch finishLoad = new CountDownLatch(1);
+        Map<Integer, AtomicInteger> loads = new ConcurrentHashMap<>();
+        HeightTileCache<Integer> cache = new HeightTileCache<>(provider, (key, lat, lon) -> {
+            loads.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            try {
+                finishLoad.await();
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            return createSeaLevelTile(key);
+        });
+        List<Future<Double>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            futures.add(executor.submit(() -> cache.getHeight(1, 0.5, 0.5)));
+        finishLoad.countDown();
+        for (Future<Double> future : futures)
+            assertEquals(0, future.get(10, TimeUnit.SECONDS));
+        assertEquals(1, loads.get(1).get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void missingAndFailingTiles() {
+        AtomicInteger loads = new AtomicInteger();
+        HeightTileCache<Integer> cache = new HeightTileCache<>(provider, (key, lat, lon) -> {
+            loads.incrementAndGet();
+            if (key == 1)
+                throw new IllegalStateException("cannot download tile");
+            return null;
+        });
+        // a missing tile is not cached, so we try again next time
+        assertEquals(0, cache.getHeight(2, 0.5, 0.5));
+        assertEquals(0, cache.getHeight(2, 0.5, 0.5));
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> cache.getHeight(1, 0.5, 0.5));
+        assertEquals("cannot download tile", ex.getMessage());
+        assertThrows(IllegalStateException.class, () -> cache.getHeight(1, 0.5, 0.5));
+        assertEquals(4, loads.get());
+    }
+}
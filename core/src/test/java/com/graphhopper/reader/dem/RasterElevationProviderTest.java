@@ -0,0 +1,98 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.util.shapes.BBox;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.function.DoubleBinaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RasterElevationProviderTest {
+
+    @Test
+    public void testSameElevationAsSource(@TempDir Path path) {
+        SRTMProvider source = new SRTMProvider("./files/");
+        source.setInterpolate(true);
+        try {
+            RasterElevationProvider.createRaster(source, new BBox(11.5, 11.6, 49.9, 49.99), 1200, path.toString());
+            RasterElevationProvider raster = new RasterElevationProvider(path.toString(), source).setInterpolate(true);
+            // siegesturm
+            assertEquals(source.getEle(49.968651, 11.574869), raster.getEle(49.968651, 11.574869), 1e-2);
+            // am main
+            assertEquals(source.getEle(49.958233, 11.558647), raster.getEle(49.958233, 11.558647), 1e-2);
+            for (int i = 0; i < 100; i++) {
+                double lat = 49.001 + i / 101.0;
+                double lon = 11.999 - i / 101.0;
+                assertEquals(source.getEle(lat, lon), raster.getEle(lat, lon), 1e-2, lat + "," + lon);
+            }
+            // outside of the raster we use the source
+            assertEquals(source.getEle(55.8943144, -3), raster.getEle(55.8943144, -3));
+
+            raster.setInterpolate(false);
+            // without interpolation we get the nearest sample
+            assertEquals(source.getEle(49.9, 11.575), raster.getEle(49.9, 11.575), 1e-2);
+            assertEquals(raster.getEle(49.9, 11.575), raster.getEle(49.9003, 11.5752));
+        } finally {
+            source.release();
+        }
+    }
+
+    @Test
+    public void testCellsWithoutData(@TempDir Path path) {
+        ElevationProvider source = createProvider((lat, lon) -> lat >= 1 ? 0 : lon >= 1 ? 10 : Double.NaN);
+        RasterElevationProvider.createRaster(source, new BBox(0, 2, 0, 2), 10, path.toString());
+        RasterElevationProvider raster = new RasterElevationProvider(path.toString(), createProvider((lat, lon) -> 1_000));
+        try {
+            assertTrue(Double.isNaN(raster.getEle(0.5, 0.5)));
+            assertEquals(10, raster.getEle(0.5, 1.5));
+            assertEquals(0, raster.getEle(1.5, 0.5));
+            assertEquals(0, raster.getEle(1.5, 1.5));
+            assertEquals(1_000, raster.getEle(2.5, 1.5));
+            assertEquals(1_000, raster.getEle(0.5, -0.5));
+        } finally {
+            raster.release();
+        }
+    }
+
+    private static ElevationProvider createProvider(DoubleBinaryOperator getEle) {
+        return new ElevationProvider() {
+            @Override
+            public double getEle(double lat, double lon) {
+                return getEle.applyAsDouble(lat, lon);
+            }
+
+            @Override
+            public boolean canInterpolate() {
+                return false;
+            }
+
+            @Override
+            public void release() {
+            }
+        };
+    }
+
+    @Test
+    public void testMissingRaster(@TempDir Path path) {
+        assertThrows(IllegalStateException.class, () -> new RasterElevationProvider(path.toString(), ElevationProvider.NOOP));
+    }
+}
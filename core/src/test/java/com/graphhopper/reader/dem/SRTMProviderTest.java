@@ -23,6 +23,11 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -99,6 +104,34 @@ public class SRTMProviderTest {
         assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
     }
 
+    @Test
+    public void testMaxCachedTiles() throws Exception {
+        instance = new SRTMProvider("./files/");
+        instance.setMaxCachedTiles(1);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+            assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+            assertEquals(1, instance.getDirectory().getDAs().size());
+        }
+
+        // the tiles are loaded and closed concurrently
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Double>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> instance.getEle(49.968651, 11.574869)));
+                futures.add(executor.submit(() -> instance.getEle(55.8943144, -3)));
+            }
+            for (int i = 0; i < futures.size(); i += 2) {
+                assertEquals(466, futures.get(i).get(), 1e-1);
+                assertEquals(161, futures.get(i + 1).get(), 1e-1);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, instance.getDirectory().getDAs().size());
+    }
+
     @Disabled
     @Test
     public void testGetEle() {
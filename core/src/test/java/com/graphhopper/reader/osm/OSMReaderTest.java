@@ -43,6 +43,8 @@ import com.graphhopper.util.details.PathDetail;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.File;
 import java.io.IOException;
@@ -679,12 +681,14 @@ public class OSMReaderTest {
         assertEquals(17.5, edge_cd.get(weightEnc), 1e-5);
     }
 
-    @Test
-    public void testReadEleFromDataProvider() {
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3})
+    public void testReadEleFromDataProvider(int elevationThreads) {
         GraphHopper hopper = new GraphHopperFacade("test-osm5.xml");
         // get N10E046.hgt.zip
         ElevationProvider provider = new SRTMProvider(GraphHopperTest.DIR);
         hopper.setElevationProvider(provider);
+        hopper.getReaderConfig().setElevationThreads(elevationThreads);
         hopper.importOrLoad();
 
         Graph graph = hopper.getBaseGraph();
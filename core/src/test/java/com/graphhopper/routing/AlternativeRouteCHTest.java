@@ -31,8 +31,11 @@ import com.graphhopper.util.PMap;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AlternativeRouteCHTest {
     private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
@@ -116,4 +119,33 @@ public class AlternativeRouteCHTest {
         // 4 -> 11 -> 12 -> 10 is not too long compared to 4 -> 10
     }
 
+    @Test
+    public void testParallelCandidatesGiveSameResult() {
+        BaseGraph g = createTestGraph(em);
+        RoutingCHGraph routingCHGraph = prepareCH(g);
+        PMap hints = new PMap();
+        hints.putObject("alternative_route.max_weight_factor", 4);
+        hints.putObject("alternative_route.local_optimality_factor", 0.5);
+        hints.putObject("alternative_route.max_paths", 4);
+        AlternativeRouteCH sequential = new AlternativeRouteCH(routingCHGraph, hints);
+        List<AlternativeRouteCH.AlternativeInfo> expected = sequential.calcAlternatives(5, 10);
+
+        hints.putObject("alternative_route.threads", 3);
+        // the shared pool may have fewer threads than a single request asks for
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AlternativeRouteCH parallel = new AlternativeRouteCH(routingCHGraph, hints).setExecutor(executor);
+        List<AlternativeRouteCH.AlternativeInfo> pathInfos;
+        try {
+            pathInfos = parallel.calcAlternatives(5, 10);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(expected.size(), pathInfos.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getPath().calcNodes(), pathInfos.get(i).getPath().calcNodes());
+        }
+        assertTrue(parallel.getEvaluatedCandidates() >= sequential.getEvaluatedCandidates());
+        assertTrue(sequential.getEvaluatedCandidates() >= expected.size() - 1);
+    }
+
 }
@@ -0,0 +1,104 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.PrepareEncoder;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.TurnCostProvider;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactRoutingCHGraphTest {
+
+    @Test
+    public void testUpwardEdges() {
+        //  0 - 1 - 2 - 3, levels are the node ids and there is a shortcut 0->2
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(2, 1).setDistance(200).set(speedEnc, 10, 10);
+        graph.edge(2, 3).setDistance(300).set(speedEnc, 10, 0);
+        graph.freeze();
+
+        CHConfig chConfig = CHConfig.nodeBased("ch", new SpeedWeighting(speedEnc));
+        CHStorage store = CHStorage.fromGraph(graph, chConfig);
+        CHStorageBuilder chBuilder = new CHStorageBuilder(store);
+        chBuilder.setIdentityLevels();
+        int shortcut = graph.getEdges() + chBuilder.addShortcutNodeBased(0, 2, PrepareEncoder.getScFwdDir(), 30, 0, 1);
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, store, chConfig);
+        RoutingCHGraph compactGraph = CompactRoutingCHGraph.fromGraph(chGraph);
+
+        assertEquals(chGraph.getEdges(), compactGraph.getEdges());
+        assertEquals(2, compactGraph.getLevel(2));
+        RoutingCHEdgeExplorer outExplorer = compactGraph.createOutEdgeExplorer();
+        RoutingCHEdgeExplorer inExplorer = compactGraph.createInEdgeExplorer();
+        assertEquals(GHUtility.asSet(1, 2), GHUtility.getNeighbors(outExplorer.setBaseNode(0)));
+        assertEquals(GHUtility.asSet(1), GHUtility.getNeighbors(inExplorer.setBaseNode(0)));
+        // the edges to lower level nodes are not included
+        assertEquals(GHUtility.asSet(2), GHUtility.getNeighbors(outExplorer.setBaseNode(1)));
+        assertEquals(GHUtility.asSet(3), GHUtility.getNeighbors(outExplorer.setBaseNode(2)));
+        // 3->2 is not accessible
+        assertEquals(0, GHUtility.count(inExplorer.setBaseNode(2)));
+        assertEquals(0, GHUtility.count(outExplorer.setBaseNode(3)));
+
+        RoutingCHEdgeIterator iter = outExplorer.setBaseNode(0);
+        while (iter.next()) {
+            RoutingCHEdgeIteratorState expected = chGraph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode());
+            assertEquals(0, iter.getBaseNode());
+            assertEquals(expected.isShortcut(), iter.isShortcut());
+            assertEquals(expected.getWeight(false), iter.getWeight(false), 1.e-6);
+            if (iter.isShortcut()) {
+                assertEquals(shortcut, iter.getEdge());
+                assertEquals(NO_EDGE, iter.getOrigEdge());
+                assertEquals(0, iter.getSkippedEdge1());
+                assertEquals(1, iter.getSkippedEdge2());
+            } else {
+                assertEquals(0, iter.getOrigEdge());
+                assertEquals(expected.getOrigEdgeKeyFirst(), iter.getOrigEdgeKeyFirst());
+            }
+        }
+
+        iter = inExplorer.setBaseNode(1);
+        assertTrue(iter.next());
+        assertEquals(2, iter.getAdjNode());
+        assertEquals(GHUtility.createEdgeKey(1, true), iter.getOrigEdgeKeyFirst());
+        assertEquals(20, iter.getWeight(true), 1.e-6);
+        // the weight in the other direction is taken from the original graph
+        assertEquals(20, iter.getWeight(false), 1.e-6);
+        assertFalse(iter.next());
+    }
+
+    @Test
+    public void testEdgeBasedNotSupported() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).withTurnCosts(true).create();
+        graph.freeze();
+        CHConfig chConfig = CHConfig.edgeBased("ch", new SpeedWeighting(speedEnc, TurnCostProvider.NO_TURN_COST_PROVIDER));
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, CHStorage.fromGraph(graph, chConfig), chConfig);
+        assertThrows(IllegalArgumentException.class, () -> CompactRoutingCHGraph.fromGraph(chGraph));
+    }
+}
@@ -29,6 +29,7 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.*;
 import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.details.PathDetailsBuilder;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.details.PathDetailsFromEdges;
 import org.junit.jupiter.api.Test;
@@ -256,6 +257,31 @@ public class PathTest {
         assertEquals(delta, instr.getTurnAngle(), 0.01);
     }
 
+    @Test
+    public void testForEveryEdgeWithSeveralVisitors() {
+        Weighting weighting = new SpeedWeighting(mixedCarSpeedEnc);
+        Path p = new Dijkstra(roundaboutGraph.g, weighting, TraversalMode.NODE_BASED).calcPath(1, 8);
+        assertTrue(p.isFound());
+        List<String> requestedDetails = List.of(STREET_NAME, EDGE_ID, DISTANCE);
+        InstructionList expectedInstructions = InstructionsFromEdges.calcInstructions(p, p.graph, weighting, mixedEncodingManager, tr);
+        Map<String, List<PathDetail>> expectedDetails = PathDetailsFromEdges.calcDetails(p, mixedEncodingManager, weighting,
+                requestedDetails, new PathDetailsBuilderFactory(), 0, p.graph);
+
+        // a single traversal for the instructions and the details must give the same result as separate ones
+        InstructionList instructions = new InstructionList(tr);
+        List<PathDetailsBuilder> builders = PathDetailsFromEdges.createPathDetailsBuilders(p, mixedEncodingManager, weighting,
+                requestedDetails, new PathDetailsBuilderFactory(), p.graph);
+        p.forEveryEdge(List.of(new InstructionsFromEdges(p.graph, weighting, mixedEncodingManager, instructions),
+                new PathDetailsFromEdges(builders, 0)));
+        assertEquals(getTurnDescriptions(expectedInstructions), getTurnDescriptions(instructions));
+        for (int i = 0; i < expectedInstructions.size(); i++) {
+            assertEquals(expectedInstructions.get(i).getPoints(), instructions.get(i).getPoints());
+            assertEquals(expectedInstructions.get(i).getDistance(), instructions.get(i).getDistance(), 1.e-6);
+            assertEquals(expectedInstructions.get(i).getTime(), instructions.get(i).getTime());
+        }
+        assertEquals(expectedDetails.toString(), PathDetailsFromEdges.buildDetails(builders).toString());
+    }
+
     @Test
     public void testCalcInstructionsRoundaboutBegin() {
         Weighting weighting = new SpeedWeighting(mixedCarSpeedEnc);
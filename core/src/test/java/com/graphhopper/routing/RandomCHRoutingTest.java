@@ -14,6 +14,7 @@ import com.graphhopper.routing.weighting.SpeedWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.CompactRoutingCHGraph;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.RoutingCHGraphImpl;
 import com.graphhopper.storage.index.LocationIndexTree;
@@ -44,6 +45,7 @@ public class RandomCHRoutingTest {
         private final TraversalMode traversalMode;
         private final int maxTurnCosts;
         private final double uTurnCosts;
+        private final boolean compact;
         private final DecimalEncodedValue speedEnc;
         private final DecimalEncodedValue turnCostEnc;
         private Weighting weighting;
@@ -51,9 +53,14 @@ public class RandomCHRoutingTest {
         private CHConfig chConfig;
 
         Fixture(TraversalMode traversalMode, double uTurnCosts) {
+            this(traversalMode, uTurnCosts, false);
+        }
+
+        Fixture(TraversalMode traversalMode, double uTurnCosts, boolean compact) {
             this.traversalMode = traversalMode;
             this.maxTurnCosts = 10;
             this.uTurnCosts = uTurnCosts;
+            this.compact = compact;
             speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
             turnCostEnc = TurnCost.create("car", maxTurnCosts);
             EncodingManager encodingManager = EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
@@ -70,7 +77,7 @@ public class RandomCHRoutingTest {
 
         @Override
         public String toString() {
-            return traversalMode + ", u-turn-costs=" + uTurnCosts;
+            return traversalMode + ", u-turn-costs=" + uTurnCosts + (compact ? ", compact" : "");
         }
     }
 
@@ -79,6 +86,7 @@ public class RandomCHRoutingTest {
         public Stream<? extends Arguments> provideArguments(ExtensionContext context) {
             return Stream.of(
                             new Fixture(TraversalMode.NODE_BASED, Double.POSITIVE_INFINITY),
+                            new Fixture(TraversalMode.NODE_BASED, Double.POSITIVE_INFINITY, true),
                             new Fixture(TraversalMode.EDGE_BASED, 40),
                             new Fixture(TraversalMode.EDGE_BASED, Double.POSITIVE_INFINITY)
                     )
@@ -117,6 +125,8 @@ public class RandomCHRoutingTest {
         PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(f.graph, f.chConfig);
         PrepareContractionHierarchies.Result res = pch.doWork();
         RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(f.graph, res.getCHStorage(), res.getCHConfig());
+        if (f.compact)
+            chGraph = CompactRoutingCHGraph.fromGraph(chGraph);
 
         int numQueryGraph = 25;
         int numVirtualNodes = 20;
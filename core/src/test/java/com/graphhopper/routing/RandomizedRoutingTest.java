@@ -77,6 +77,8 @@ public class RandomizedRoutingTest {
                     FixtureSupplier.create(Algo.CH_DIJKSTRA, true, false, NODE_BASED),
                     FixtureSupplier.create(Algo.LM_UNIDIR, false, true, NODE_BASED),
                     FixtureSupplier.create(Algo.LM_BIDIR, false, true, NODE_BASED),
+                    FixtureSupplier.create(Algo.LM_BIDIR_RESELECTION, false, true, NODE_BASED),
+                    FixtureSupplier.create(Algo.LM_BIDIR_COMPRESSED, false, true, NODE_BASED),
                     FixtureSupplier.create(Algo.DIJKSTRA, false, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_UNIDIR, false, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_BIDIR, false, false, EDGE_BASED),
@@ -84,6 +86,7 @@ public class RandomizedRoutingTest {
                     FixtureSupplier.create(Algo.CH_DIJKSTRA, true, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.LM_UNIDIR, false, true, EDGE_BASED),
                     FixtureSupplier.create(Algo.LM_BIDIR, false, true, EDGE_BASED),
+                    FixtureSupplier.create(Algo.LM_BIDIR_RESELECTION, false, true, EDGE_BASED),
                     FixtureSupplier.create(Algo.PERFECT_ASTAR, false, false, NODE_BASED)
             ).map(Arguments::of);
         }
@@ -160,6 +163,7 @@ public class RandomizedRoutingTest {
                 LMConfig lmConfig = new LMConfig("car", new SpeedWeighting(speedEnc));
                 PrepareLandmarks prepare = new PrepareLandmarks(graph.getDirectory(), graph, encodingManager, lmConfig, 16);
                 prepare.setMaximumWeight(10000);
+                prepare.setCompressedWeights(algo == Algo.LM_BIDIR_COMPRESSED);
                 prepare.doWork();
                 lm = prepare.getLandmarkStorage();
             }
@@ -190,7 +194,10 @@ public class RandomizedRoutingTest {
                     return algoFactory.createAlgo(new PMap().putObject(ALGORITHM, ASTAR_BI));
                 }
                 case LM_BIDIR:
+                case LM_BIDIR_COMPRESSED:
                     return new LMRoutingAlgorithmFactory(lm).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR_BI).setTraversalMode(traversalMode));
+                case LM_BIDIR_RESELECTION:
+                    return new LMRoutingAlgorithmFactory(lm).setDefaultReselectionInterval(5).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR_BI).setTraversalMode(traversalMode));
                 case LM_UNIDIR:
                     return new LMRoutingAlgorithmFactory(lm).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR).setTraversalMode(traversalMode));
                 case PERFECT_ASTAR: {
@@ -212,6 +219,8 @@ public class RandomizedRoutingTest {
         CH_ASTAR,
         CH_DIJKSTRA,
         LM_BIDIR,
+        LM_BIDIR_RESELECTION,
+        LM_BIDIR_COMPRESSED,
         LM_UNIDIR,
         PERFECT_ASTAR
     }
@@ -0,0 +1,90 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapCacheTest {
+
+    @Test
+    public void cacheHitCreatesNewSnap() {
+        // 0 --- 1 --- 2
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+        EncodingManager em = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 49.0, 10.0);
+        na.setNode(1, 49.0, 10.1);
+        na.setNode(2, 49.0, 10.2);
+        graph.edge(0, 1).setDistance(1000);
+        graph.edge(1, 2).setDistance(1000);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+
+        SnapCache snapCache = new SnapCache(graph, 2);
+        EdgeFilter snapFilter = EdgeFilter.ALL_EDGES;
+        LocationIndex cachedIndex = snapCache.wrap(locationIndex, "car", snapFilter);
+
+        Snap first = cachedIndex.findClosest(49.001, 10.05, snapFilter);
+        assertEquals(0, snapCache.getHits());
+        assertEquals(1, snapCache.getMisses());
+        // the query graph modifies the snap, but this must not affect the cache
+        first.setClosestNode(42);
+
+        // almost the same point
+        Snap second = cachedIndex.findClosest(49.00100001, 10.05, snapFilter);
+        assertEquals(1, snapCache.getHits());
+        assertNotSame(first, second);
+        Snap expected = locationIndex.findClosest(49.00100001, 10.05, snapFilter);
+        assertEquals(expected.getClosestEdge().getEdge(), second.getClosestEdge().getEdge());
+        assertEquals(expected.getClosestNode(), second.getClosestNode());
+        assertEquals(expected.getSnappedPosition(), second.getSnappedPosition());
+        assertEquals(expected.getQueryPoint(), second.getQueryPoint());
+        assertEquals(expected.getSnappedPoint(), second.getSnappedPoint());
+        assertEquals(expected.getQueryDistance(), second.getQueryDistance(), 1.e-6);
+
+        // other profiles and other filters are not cached
+        snapCache.wrap(locationIndex, "bike", snapFilter).findClosest(49.001, 10.05, snapFilter);
+        cachedIndex.findClosest(49.001, 10.05, edge -> true);
+        assertEquals(1, snapCache.getHits());
+        assertEquals(2, snapCache.getMisses());
+        assertEquals(2, snapCache.getSize());
+
+        // the least recently used point is removed
+        cachedIndex.findClosest(49.001, 10.15, snapFilter);
+        assertEquals(2, snapCache.getSize());
+        assertEquals(3, snapCache.getMisses());
+        snapCache.wrap(locationIndex, "bike", snapFilter).findClosest(49.001, 10.05, snapFilter);
+        assertEquals(2, snapCache.getHits());
+        cachedIndex.findClosest(49.001, 10.05, snapFilter);
+        assertEquals(4, snapCache.getMisses());
+    }
+}
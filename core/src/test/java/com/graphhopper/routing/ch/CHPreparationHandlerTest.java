@@ -18,10 +18,23 @@
 package com.graphhopper.routing.ch;
 
 import com.graphhopper.config.CHProfile;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -36,4 +49,63 @@ public class CHPreparationHandlerTest {
         assertTrue(instance.isEnabled());
     }
 
+    @Test
+    public void testReuseNodeOrdering(@TempDir Path tempDir) {
+        DecimalEncodedValue carSpeedEnc = new DecimalEncodedValueImpl("car_speed", 5, 5, true);
+        DecimalEncodedValue vanSpeedEnc = new DecimalEncodedValueImpl("van_speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(carSpeedEnc).add(vanSpeedEnc).build();
+        List<CHConfig> chConfigs = List.of(
+                CHConfig.nodeBased("car", new SpeedWeighting(carSpeedEnc)),
+                CHConfig.nodeBased("van", new SpeedWeighting(vanSpeedEnc)));
+        String location = tempDir.toString();
+        BaseGraph graph = createRandomGraph(em, new RAMDirectory(location, true), carSpeedEnc, vanSpeedEnc, 1);
+
+        CHPreparationHandler handler = new CHPreparationHandler();
+        handler.setCHProfiles(new CHProfile("car"), new CHProfile("van").setNodeOrderingProfile("car"));
+        handler.setStoreNodeOrdering(true);
+        Map<String, PrepareContractionHierarchies.Result> results = handler.prepare(graph, new StorableProperties(graph.getDirectory()), chConfigs, false);
+        CHStorage carCH = results.get("car").getCHStorage();
+        CHStorage vanCH = results.get("van").getCHStorage();
+        assertSameLevels(graph.getNodes(), carCH, vanCH);
+        graph.flush();
+
+        // without re-using the node ordering the levels are different
+        handler.setCHProfiles(new CHProfile("car"), new CHProfile("van"));
+        Map<String, PrepareContractionHierarchies.Result> otherResults = handler.prepare(createRandomGraph(em, new RAMDirectory(), carSpeedEnc, vanSpeedEnc, 1),
+                new StorableProperties(new RAMDirectory()), chConfigs, false);
+        assertNotEquals(getLevels(graph.getNodes(), otherResults.get("car").getCHStorage()), getLevels(graph.getNodes(), otherResults.get("van").getCHStorage()));
+
+        // a later import of the same nodes uses the stored node ordering of the first one
+        BaseGraph newGraph = createRandomGraph(em, new RAMDirectory(), carSpeedEnc, vanSpeedEnc, 2);
+        handler = new CHPreparationHandler();
+        handler.setCHProfiles(new CHProfile("car"));
+        handler.setNodeOrderingLocation(location);
+        results = handler.prepare(newGraph, new StorableProperties(newGraph.getDirectory()), chConfigs.subList(0, 1), false);
+        assertSameLevels(graph.getNodes(), carCH, results.get("car").getCHStorage());
+    }
+
+    private static BaseGraph createRandomGraph(EncodingManager em, Directory dir, DecimalEncodedValue carSpeedEnc, DecimalEncodedValue vanSpeedEnc, long speedSeed) {
+        BaseGraph graph = new BaseGraph.Builder(em).setDir(dir).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 500, 2.2, true, null, null, 0.8, 0.8);
+        // the speeds differ for every profile and graph, so they would all get a different node ordering
+        Random rnd = new Random(speedSeed);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            iter.set(carSpeedEnc, 10 + rnd.nextInt(100), 10 + rnd.nextInt(100));
+            iter.set(vanSpeedEnc, 10 + rnd.nextInt(80), 10 + rnd.nextInt(80));
+        }
+        graph.freeze();
+        return graph;
+    }
+
+    private static void assertSameLevels(int nodes, CHStorage expected, CHStorage actual) {
+        assertEquals(getLevels(nodes, expected), getLevels(nodes, actual));
+    }
+
+    private static List<Integer> getLevels(int nodes, CHStorage chStorage) {
+        List<Integer> levels = new ArrayList<>(nodes);
+        for (int node = 0; node < nodes; node++)
+            levels.add(chStorage.getLevel(chStorage.toNodePointer(node)));
+        return levels;
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodeOrderingStorageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void storeAndLoad() {
+        BaseGraph graph = new BaseGraph.Builder(4).create();
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < 5; node++)
+            na.setNode(node, 49 + node * 0.01, 11 + node * 0.02);
+
+        Directory directory = new RAMDirectory(dir.toString(), true);
+        NodeOrderingStorage storage = new NodeOrderingStorage(directory, "car");
+        storage.store(NodeOrderingProvider.fromArray(3, 0, 4, 1, 2), na).flush();
+        storage.close();
+
+        storage = new NodeOrderingStorage(new RAMDirectory(dir.toString(), true), "car");
+        assertTrue(storage.loadExisting());
+        assertEquals(5, storage.getNodes());
+        assertOrdering(new int[]{3, 0, 4, 1, 2}, storage.getNodeOrdering(na, graph.getNodes()));
+        storage.close();
+
+        assertFalse(new NodeOrderingStorage(new RAMDirectory(dir.toString(), true), "bike").loadExisting());
+    }
+
+    @Test
+    public void mapNodesOfOtherGraphByCoordinates() {
+        BaseGraph graph = new BaseGraph.Builder(4).create();
+        for (int node = 0; node < 4; node++)
+            graph.getNodeAccess().setNode(node, 49 + node * 0.01, 11 + node * 0.02);
+        NodeOrderingStorage storage = new NodeOrderingStorage(new RAMDirectory(), "car");
+        storage.store(NodeOrderingProvider.fromArray(2, 0, 3, 1), graph.getNodeAccess());
+
+        // the new graph has the same nodes with other ids, except that the old node 0 was moved and there is an
+        // additional node
+        BaseGraph newGraph = new BaseGraph.Builder(4).create();
+        NodeAccess na = newGraph.getNodeAccess();
+        na.setNode(0, 49.03, 11.06); // old 3
+        na.setNode(1, 49.5, 11.5); // new
+        na.setNode(2, 49.01, 11.02); // old 1
+        na.setNode(3, 49.0001, 11); // old 0, but moved
+        na.setNode(4, 49.02, 11.04); // old 2
+
+        // the unknown nodes come first, the others keep their order
+        assertOrdering(new int[]{1, 3, 4, 0, 2}, storage.getNodeOrdering(na, newGraph.getNodes()));
+        storage.close();
+    }
+
+    private static void assertOrdering(int[] expected, NodeOrderingProvider nodeOrdering) {
+        assertEquals(expected.length, nodeOrdering.getNumNodes());
+        int[] actual = new int[nodeOrdering.getNumNodes()];
+        for (int level = 0; level < actual.length; level++)
+            actual[level] = nodeOrdering.getNodeIdForLevel(level);
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortcutWeightUpdaterTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final EncodingManager em = EncodingManager.start().add(speedEnc).build();
+    private final CHConfig chConfig = CHConfig.nodeBased("c", new SpeedWeighting(speedEnc));
+
+    @Test
+    void updateWeightAndAccess() {
+        // 0-1-2, 1 is contracted first
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        EdgeIteratorState edge01 = graph.edge(0, 1).setDistance(100).set(speedEnc, 50, 50);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 50, 50);
+        CHStorage chStore = prepare(graph, 1, 0, 2);
+        assertEquals(1, chStore.getShortcuts());
+        long pointer = chStore.toShortcutPointer(0);
+        assertEquals(4, chStore.getWeight(pointer), 1.e-6);
+
+        edge01.set(speedEnc, 25, 25);
+        ShortcutWeightUpdater.Result result = new ShortcutWeightUpdater(graph, chStore, chConfig.getWeighting()).update(IntArrayList.from(edge01.getEdge()));
+        assertEquals(1, result.getUpdatedShortcuts());
+        assertTrue(result.isOptimal());
+        assertEquals(6, chStore.getWeight(pointer), 1.e-6);
+        assertTrue(chStore.getFwdAccess(pointer));
+        assertTrue(chStore.getBwdAccess(pointer));
+
+        // the edge becomes one-way, so the shortcut does as well
+        edge01.set(speedEnc, 25, 0);
+        result = new ShortcutWeightUpdater(graph, chStore, chConfig.getWeighting()).update(IntArrayList.from(edge01.getEdge()));
+        assertEquals(1, result.getUpdatedShortcuts());
+        assertEquals(6, chStore.getWeight(pointer), 1.e-6);
+        assertEquals(chStore.getNodeA(pointer) == 0, chStore.getFwdAccess(pointer));
+        assertEquals(chStore.getNodeA(pointer) != 0, chStore.getBwdAccess(pointer));
+
+        // nothing changes if the weight stays the same
+        result = new ShortcutWeightUpdater(graph, chStore, chConfig.getWeighting()).update(IntArrayList.from(edge01.getEdge()));
+        assertEquals(0, result.getUpdatedShortcuts());
+    }
+
+    @Test
+    void asymmetricWeights() {
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        EdgeIteratorState edge01 = graph.edge(0, 1).setDistance(100).set(speedEnc, 50, 50);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 50, 50);
+        CHStorage chStore = prepare(graph, 1, 0, 2);
+
+        edge01.set(speedEnc, 50, 25);
+        ShortcutWeightUpdater.Result result = new ShortcutWeightUpdater(graph, chStore, chConfig.getWeighting()).update(IntArrayList.from(edge01.getEdge()));
+        // the shortcut has only one weight, so we have to use the larger one
+        assertEquals(6, chStore.getWeight(chStore.toShortcutPointer(0)), 1.e-6);
+        assertEquals(IntArrayList.from(0), result.getAsymmetricShortcuts());
+        assertFalse(result.isOptimal());
+    }
+
+    @Test
+    void brokenWitness() {
+        // 0-1-2
+        //  \ /
+        //   3
+        // when node 1 is contracted the path via 3 is a witness, so there is no shortcut 0-2 via 1
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        graph.edge(0, 1).setDistance(200).set(speedEnc, 50, 50);
+        graph.edge(1, 2).setDistance(200).set(speedEnc, 50, 50);
+        EdgeIteratorState edge03 = graph.edge(0, 3).setDistance(100).set(speedEnc, 50, 50);
+        graph.edge(3, 2).setDistance(100).set(speedEnc, 50, 50);
+        CHStorage chStore = prepare(graph, 1, 3, 0, 2);
+        assertEquals(1, chStore.getShortcuts());
+
+        edge03.setDistance(1000);
+        ShortcutWeightUpdater.Result result = new ShortcutWeightUpdater(graph, chStore, chConfig.getWeighting()).update(IntArrayList.from(edge03.getEdge()));
+        assertEquals(1, result.getUpdatedShortcuts());
+        assertEquals(22, chStore.getWeight(chStore.toShortcutPointer(0)), 1.e-6);
+        assertEquals(IntArrayList.from(1), result.getNodesWithMissingShortcuts());
+        assertFalse(result.isOptimal());
+    }
+
+    @Test
+    void compactGraphHasToBeCreatedAgain() {
+        // 0-1-2, 1 is contracted first
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        EdgeIteratorState edge01 = graph.edge(0, 1).setDistance(100).set(speedEnc, 50, 50);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 50, 50);
+        CHStorage chStore = prepare(graph, 1, 0, 2);
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, chStore, chConfig);
+        CompactRoutingCHGraph staleCompactGraph = CompactRoutingCHGraph.fromGraph(chGraph);
+        double oldWeight = calcWeight(chGraph, 0, 2);
+
+        edge01.set(speedEnc, 25, 25);
+        new ShortcutWeightUpdater(graph, chStore, chConfig.getWeighting()).update(IntArrayList.from(edge01.getEdge()));
+        double newWeight = calcWeight(chGraph, 0, 2);
+        assertTrue(newWeight > oldWeight);
+        // the compact graph copied the old weights
+        assertEquals(oldWeight, calcWeight(staleCompactGraph, 0, 2), 1.e-6);
+        assertEquals(newWeight, calcWeight(CompactRoutingCHGraph.fromGraph(chGraph), 0, 2), 1.e-6);
+    }
+
+    @RepeatedTest(10)
+    void randomGraph() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        GHUtility.buildRandomGraph(graph, rnd, 500, 2.2, true, speedEnc, 60d, 0.8, 0.8);
+        graph.freeze();
+        PrepareContractionHierarchies.Result prepareResult = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        CHStorage chStore = prepareResult.getCHStorage();
+
+        IntArrayList changedEdges = new IntArrayList();
+        for (int i = 0; i < 20; i++) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(rnd.nextInt(graph.getEdges()), Integer.MIN_VALUE);
+            double speed = rnd.nextBoolean() ? 0 : 5 + 5 * rnd.nextInt(20);
+            edge.set(speedEnc, speed, speed);
+            changedEdges.add(edge.getEdge());
+        }
+        ShortcutWeightUpdater.Result result = new ShortcutWeightUpdater(graph, chStore, chConfig.getWeighting()).update(changedEdges);
+
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, chStore, chConfig);
+        CompactRoutingCHGraph compactGraph = CompactRoutingCHGraph.fromGraph(chGraph);
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            double expected = new Dijkstra(graph, chConfig.getWeighting(), TraversalMode.NODE_BASED).calcPath(from, to).getWeight();
+            double chWeight = calcWeight(chGraph, from, to);
+            String msg = "seed: " + seed + ", " + from + "->" + to;
+            // the shortcuts always represent existing paths, so the CH result can only be too large
+            assertTrue(chWeight >= expected - 1.e-1, msg);
+            if (result.isOptimal())
+                assertEquals(expected, chWeight, 1.e-1, msg);
+            assertEquals(chWeight, calcWeight(compactGraph, from, to), 1.e-1, msg);
+        }
+    }
+
+    private static double calcWeight(RoutingCHGraph chGraph, int from, int to) {
+        RoutingAlgorithm chAlgo = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap());
+        return chAlgo.calcPath(from, to).getWeight();
+    }
+
+    private CHStorage prepare(BaseGraph graph, int... nodeOrdering) {
+        graph.freeze();
+        return PrepareContractionHierarchies.fromGraph(graph, chConfig)
+                .useFixedNodeOrdering(NodeOrderingProvider.fromArray(nodeOrdering))
+                .doWork().getCHStorage();
+    }
+}
@@ -43,10 +43,16 @@ public class LMApproximatorTest {
     @RepeatedTest(value = 10)
     public void randomGraph() {
         final long seed = System.nanoTime();
-        run(seed);
+        run(seed, false);
     }
 
-    private void run(long seed) {
+    @RepeatedTest(value = 10)
+    public void randomGraphCompressedWeights() {
+        final long seed = System.nanoTime();
+        run(seed, true);
+    }
+
+    private void run(long seed, boolean compressedWeights) {
         Directory dir = new RAMDirectory();
         DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
         DecimalEncodedValue turnCostEnc = TurnCost.create("car", 1);
@@ -60,6 +66,7 @@ public class LMApproximatorTest {
 
         PrepareLandmarks lm = new PrepareLandmarks(dir, graph, encodingManager, new LMConfig("car", weighting), 16);
         lm.setMaximumWeight(10000);
+        lm.setCompressedWeights(compressedWeights);
         lm.doWork();
         LandmarkStorage landmarkStorage = lm.getLandmarkStorage();
 
@@ -114,8 +121,8 @@ public class LMApproximatorTest {
                         int w = neighbors.getAdjNode();
                         double vw = weighting.calcEdgeWeight(neighbors, false);
                         double vwApprox = lmApproximator.approximate(v) - lmApproximator.approximate(w);
-                        if (vwApprox - lm.getLandmarkStorage().getFactor() > vw) {
-                            System.out.printf("%f\t%f\n", vwApprox - lm.getLandmarkStorage().getFactor(), vw);
+                        if (vwApprox - lmApproximator.getSlack() > vw) {
+                            System.out.printf("%f\t%f\n", vwApprox - lmApproximator.getSlack(), vw);
                             nInconsistentWeights++;
                         }
                     }
@@ -125,8 +132,8 @@ public class LMApproximatorTest {
                         int w = neighbors.getAdjNode();
                         double vw = weighting.calcEdgeWeight(neighbors, false);
                         double vwApprox = balancedWeightApproximator.approximate(v, false) - balancedWeightApproximator.approximate(w, false);
-                        if (vwApprox - lm.getLandmarkStorage().getFactor() > vw) {
-                            System.out.printf("%f\t%f\n", vwApprox - lm.getLandmarkStorage().getFactor(), vw);
+                        if (vwApprox - lmApproximator.getSlack() > vw) {
+                            System.out.printf("%f\t%f\n", vwApprox - lmApproximator.getSlack(), vw);
                             nInconsistentWeights++;
                         }
                     }
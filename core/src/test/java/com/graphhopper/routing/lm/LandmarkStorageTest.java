@@ -108,6 +108,31 @@ public class LandmarkStorageTest {
         assertEquals(65534, lms.getFromWeight(0, 0));
     }
 
+    @Test
+    public void testSetGetCompressedWeight() {
+        graph.edge(0, 1).set(speedEnc, 60, 60).setDistance(40.1);
+        Directory dir = new RAMDirectory();
+        LandmarkStorage lms = new LandmarkStorage(graph, encodingManager, dir,
+                new LMConfig("c1", new SpeedWeighting(speedEnc)), 4).
+                setMaximumWeight(LandmarkStorage.PRECISION).
+                setCompressedWeights(true);
+        assertTrue(lms.isCompressedWeights());
+        lms._getInternalDA().create(2000);
+        // 2^8=256, use -1 for infinity and -2 for maximum
+        lms.setWeight(0, 256);
+        assertEquals(256 - 2, lms.getFromWeight(0, 0));
+        lms.setWeight(0, 255);
+        assertEquals(254, lms.getFromWeight(0, 0));
+        lms.setWeight(0, 100.7);
+        assertEquals(100, lms.getFromWeight(0, 0));
+        assertFalse(lms.isInfinity(0));
+
+        // the 'to' weight is stored in the next byte
+        lms.setWeight(1, 42);
+        assertEquals(42, lms.getToWeight(0, 0));
+        assertEquals(100, lms.getFromWeight(0, 0));
+    }
+
     @Test
     public void testWithSubnetworks() {
         // 0-1-2..4-5->6
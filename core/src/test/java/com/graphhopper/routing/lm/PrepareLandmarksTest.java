@@ -18,8 +18,10 @@
 package com.graphhopper.routing.lm;
 
 import com.graphhopper.routing.AStar;
+import com.graphhopper.routing.AStarBidirection;
 import com.graphhopper.routing.AlgorithmOptions;
 import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RouterConfig;
 import com.graphhopper.routing.RoutingAlgorithm;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.querygraph.QueryGraph;
@@ -180,6 +182,39 @@ public class PrepareLandmarksTest {
         assertEquals(expectedAlgo.getVisitedNodes() - 136, qGraphOneDirAlgo.getVisitedNodes());
     }
 
+    @Test
+    public void testReselectionInterval() {
+        graph.edge(0, 1).setDistance(80_000).set(speedEnc, 60);
+        graph.edge(1, 2).setDistance(80_000).set(speedEnc, 60);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        PrepareLandmarks plm = new PrepareLandmarks(new RAMDirectory(), graph, encodingManager, new LMConfig("car", weighting), 2);
+        plm.setMinimumNodes(2);
+        plm.doWork();
+        LMRoutingAlgorithmFactory factory = new LMRoutingAlgorithmFactory(plm.getLandmarkStorage()).setDefaultReselectionInterval(5);
+
+        // the factory uses the given default as it is, but the request cannot go below the minimum
+        assertEquals(5, getReselectionInterval(factory, weighting, new PMap()));
+        assertEquals(0, getReselectionInterval(factory, weighting, new PMap().putObject(Parameters.Landmark.RESELECTION_INTERVAL, 0)));
+        assertEquals(0, getReselectionInterval(factory, weighting, new PMap().putObject(Parameters.Landmark.RESELECTION_INTERVAL, -3)));
+        assertEquals(LMRoutingAlgorithmFactory.MIN_RESELECTION_INTERVAL, getReselectionInterval(factory, weighting, new PMap().putObject(Parameters.Landmark.RESELECTION_INTERVAL, 1)));
+        assertEquals(2000, getReselectionInterval(factory, weighting, new PMap().putObject(Parameters.Landmark.RESELECTION_INTERVAL, 2000)));
+
+        // the configured default cannot go below the minimum either
+        RouterConfig routerConfig = new RouterConfig();
+        routerConfig.setLandmarkReselectionInterval(5);
+        assertEquals(LMRoutingAlgorithmFactory.MIN_RESELECTION_INTERVAL, routerConfig.getLandmarkReselectionInterval());
+        routerConfig.setLandmarkReselectionInterval(-1);
+        assertEquals(0, routerConfig.getLandmarkReselectionInterval());
+        routerConfig.setLandmarkReselectionInterval(2000);
+        assertEquals(2000, routerConfig.getLandmarkReselectionInterval());
+    }
+
+    private int getReselectionInterval(LMRoutingAlgorithmFactory factory, Weighting weighting, PMap hints) {
+        AStarBidirection algo = (AStarBidirection) factory.createAlgo(graph, weighting,
+                new AlgorithmOptions().setAlgorithm(ASTAR_BI).setTraversalMode(TraversalMode.NODE_BASED).setHints(hints));
+        return algo.getApproximationUpdateInterval();
+    }
+
     @Test
     public void testStoreAndLoad() {
         graph.edge(0, 1).setDistance(80_000).set(speedEnc, 60);
@@ -212,4 +247,38 @@ public class PrepareLandmarksTest {
 
         Helper.removeDir(new File(fileStr));
     }
+
+    @Test
+    public void testStoreAndLoadCompressedWeights() {
+        graph.edge(0, 1).setDistance(80_000).set(speedEnc, 60);
+        graph.edge(1, 2).setDistance(80_000).set(speedEnc, 60);
+        String fileStr = "./target/tmp-lm-compressed";
+        Helper.removeDir(new File(fileStr));
+
+        Directory dir = new RAMDirectory(fileStr, true).create();
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        LMConfig lmConfig = new LMConfig("car", weighting);
+        PrepareLandmarks plm = new PrepareLandmarks(dir, graph, encodingManager, lmConfig, 2).setCompressedWeights(true);
+        plm.setMinimumNodes(2);
+        plm.doWork();
+
+        LandmarkStorage lms = plm.getLandmarkStorage();
+        // the subnetwork uses a factor from its own weights, which is much smaller than the default maximum weight
+        double expectedFactor = lms.getFactor(1);
+        assertTrue(expectedFactor < lms.getFactor() * LandmarkStorage.PRECISION / LandmarkStorage.BYTE_MAX);
+        assertEquals(1333, lms.getFromWeight(0, 1) * expectedFactor, expectedFactor);
+
+        dir = new RAMDirectory(fileStr, true);
+        plm = new PrepareLandmarks(dir, graph, encodingManager, lmConfig, 2);
+        assertTrue(plm.loadExisting());
+        lms = plm.getLandmarkStorage();
+        assertTrue(lms.isCompressedWeights());
+        assertEquals(expectedFactor, lms.getFactor(1));
+        assertEquals(Arrays.toString(new int[]{
+                2, 0
+        }), Arrays.toString(lms.getLandmarks(1)));
+        assertEquals(1333, lms.getFromWeight(0, 1) * expectedFactor, expectedFactor);
+
+        Helper.removeDir(new File(fileStr));
+    }
 }
@@ -229,6 +229,14 @@ public class QueryGraphTest {
         assertEquals(3, getPoints(queryGraph, 3, 0).size());
         assertEquals(2, getPoints(queryGraph, 3, 4).size());
         assertEquals(2, getPoints(queryGraph, 4, 1).size());
+        // the virtual edges share their geometry, so the reverse direction must read it backwards
+        PointList forward = getPoints(queryGraph, 0, 3);
+        PointList backward = getPoints(queryGraph, 3, 0);
+        assertEquals(Helper.createPointList(1, 0, 1.5, 1, 1.5, 1.5), forward);
+        backward.reverse();
+        assertEquals(forward, backward);
+        assertEquals(Helper.createPointList(1.5, 1.5, 1.300019, 1.899962), getPoints(queryGraph, 3, 4));
+        assertEquals(Helper.createPointList(1.300019, 1.899962, 1.5, 1.5), getPoints(queryGraph, 4, 3));
         assertNull(GHUtility.getEdge(queryGraph, 4, 0));
         assertNull(GHUtility.getEdge(queryGraph, 3, 1));
     }
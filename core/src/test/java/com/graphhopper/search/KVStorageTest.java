@@ -2,13 +2,18 @@ package com.graphhopper.search;
 
 import com.carrotsearch.hppc.LongArrayList;
 import com.graphhopper.search.KVStorage.KValue;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.util.Helper;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.File;
 import java.util.*;
+import java.util.function.LongUnaryOperator;
 
 import static com.graphhopper.search.KVStorage.MAX_UNIQUE_KEYS;
 import static com.graphhopper.search.KVStorage.cutString;
@@ -176,6 +181,73 @@ public class KVStorageTest {
         assertTrue(e.getMessage().contains("bytes.length cannot be > 255"));
     }
 
+    @Test
+    public void testValueAfterLargestByteArray() {
+        KVStorage index = create();
+        Map<String, KValue> map = new LinkedHashMap<>();
+        map.put("bytes", new KValue(new byte[255]));
+        map.put("name", new KValue("after"));
+        long result = index.add(map);
+        assertEquals("after", index.get(result, "name", false));
+        assertEquals(255, ((byte[]) index.get(result, "bytes", false)).length);
+    }
+
+    @Test
+    public void testCachedByteArrayIsNotShared() {
+        KVStorage index = create();
+        long pointer = index.add(createMap("bytes", new byte[]{1, 2, 3}));
+        byte[] bytes = (byte[]) index.get(pointer, "bytes", false);
+        bytes[0] = 42;
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) index.get(pointer, "bytes", false));
+    }
+
+    @Test
+    public void testGetSeveralValuesOfSamePointer() {
+        KVStorage index = create();
+        long aPointer = index.add(createMap("name", "a name", "ref", "A1", "int", 5));
+        long bPointer = index.add(createMap("name", "b name", "ref", "B1"));
+        for (int i = 0; i < 3; i++) {
+            assertEquals("a name", index.get(aPointer, "name", false));
+            assertEquals("A1", index.get(aPointer, "ref", false));
+            assertEquals(5, index.get(aPointer, "int", true));
+            assertNull(index.get(aPointer, "destination", false));
+            assertEquals("b name", index.get(bPointer, "name", false));
+            assertNull(index.get(bPointer, "int", false));
+            assertEquals("B1", index.get(bPointer, "ref", true));
+        }
+        // the values of the last pointer are not read again
+        assertSame(index.get(bPointer, "name", false), index.get(bPointer, "name", false));
+    }
+
+    @Test
+    public void testGetConcurrently() throws Exception {
+        KVStorage index = create();
+        List<Long> pointers = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            pointers.add(index.add(createMap("name", "name " + i, "ref", "ref " + i)));
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 10_000; i++) {
+                        int p = (i * 7 + offset) % pointers.size();
+                        assertEquals("name " + p, index.get(pointers.get(p), "name", false));
+                        assertEquals("ref " + p, index.get(pointers.get(p), "ref", false));
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(List.of(), errors);
+    }
+
     @Test
     public void testIntLongDoubleFloat() {
         KVStorage index = create();
@@ -303,6 +375,93 @@ public class KVStorageTest {
         assertEquals(pointerA, pointerB);
     }
 
+    @Test
+    public void testDeduplication() {
+        KVStorage index = create();
+        long pointerA = index.add(createMap("name", "A street", "ref", "B 1"));
+        long pointerB = index.add(createMap("name", "B street"));
+        long bytePointer = index.getBytePointer();
+        assertEquals(pointerA, index.add(createMap("name", "A street", "ref", "B 1")));
+        assertEquals(pointerB, index.add(createMap("name", "B street")));
+        assertEquals(bytePointer, index.getBytePointer());
+
+        // same keys and values, but in a different order
+        long pointerC = index.add(createMap("ref", "B 1", "name", "A street"));
+        assertNotEquals(pointerA, pointerC);
+        // the entries after a reused entry list must not be overwritten
+        long pointerD = index.add(createMap("name", "D street"));
+        assertEquals("A street", index.get(pointerC, "name", false));
+        assertEquals("D street", index.get(pointerD, "name", false));
+        assertEquals("B street", index.get(pointerB, "name", false));
+    }
+
+    @Test
+    public void testCompact() {
+        KVStorage index = create().setDeduplication(false);
+        List<Map<String, KValue>> maps = new ArrayList<>();
+        LongArrayList pointers = new LongArrayList();
+        for (int i = 0; i < 1000; i++) {
+            Map<String, KValue> map = i % 3 == 0 ? createMap("name", "street " + i % 7, "maxspeed", i % 5)
+                    : createMap("name", "street " + i % 11);
+            maps.add(map);
+            pointers.add(index.add(map));
+        }
+        long oldBytePointer = index.getBytePointer();
+        assertEquals("street 4", index.get(pointers.get(4), "name", false));
+
+        LongUnaryOperator getNewPointer = index.compact();
+        assertTrue(index.getBytePointer() < oldBytePointer / 5, index.getBytePointer() + " vs. " + oldBytePointer);
+        Set<Long> newPointers = new HashSet<>();
+        for (int i = 0; i < maps.size(); i++) {
+            long newPointer = getNewPointer.applyAsLong(pointers.get(i));
+            newPointers.add(newPointer);
+            assertEquals(maps.get(i), index.getAll(newPointer));
+            assertEquals(maps.get(i).get("name").getFwd(), index.get(newPointer, "name", false));
+        }
+        assertEquals(11 + 35, newPointers.size());
+        assertEquals(0, getNewPointer.applyAsLong(0));
+
+        // adding entries after the compaction still works
+        long pointer = index.add(createMap("name", "new street"));
+        assertEquals("new street", index.get(pointer, "name", false));
+        assertEquals("street 4", index.get(getNewPointer.applyAsLong(pointers.get(4)), "name", false));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"RAM_STORE", "MMAP"})
+    public void testCompactStored(String daType) {
+        Helper.removeDir(new File(location));
+        KVStorage index = new KVStorage(new GHDirectory(location, DAType.fromString(daType)).create(), true).create(1000).setDeduplication(false);
+        LongArrayList pointers = new LongArrayList();
+        for (int i = 0; i < 1000; i++)
+            pointers.add(index.add(createMap("name", "street " + i % 7)));
+        index.flush();
+        long oldBytePointer = index.getBytePointer();
+
+        LongUnaryOperator getNewPointer = index.compact();
+        assertTrue(index.getBytePointer() < oldBytePointer / 10);
+        // the compacted values were written to a temporary file that replaced the old one
+        assertEquals(Arrays.asList("edgekv_keys", "edgekv_vals"), listFiles());
+        long pointer = index.add(createMap("name", "new street"));
+        index.flush();
+        index.close();
+
+        index = new KVStorage(new GHDirectory(location, DAType.fromString(daType)), true);
+        assertTrue(index.loadExisting());
+        for (int i = 0; i < pointers.size(); i++)
+            assertEquals("street " + i % 7, index.get(getNewPointer.applyAsLong(pointers.get(i)), "name", false));
+        assertEquals("new street", index.get(pointer, "name", false));
+        index.close();
+        Helper.removeDir(new File(location));
+    }
+
+    private static List<String> listFiles() {
+        String[] names = new File(location).list();
+        assertNotNull(names);
+        Arrays.sort(names);
+        return Arrays.asList(names);
+    }
+
     @Test
     public void testUnknownValueClass() {
         KVStorage index = create();
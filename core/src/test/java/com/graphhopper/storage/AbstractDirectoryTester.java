@@ -23,8 +23,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.util.Collections;
 
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -62,4 +63,33 @@ public abstract class AbstractDirectoryTester {
         da.create(100);
         da.flush();
     }
+
+    @Test
+    public void testReplace() {
+        Directory dir = createDir();
+        DataAccess old = dir.create("testing", 128);
+        old.create(1000);
+        old.setInt(0, 1);
+        old.flush();
+        DataAccess tmp = dir.create("testing_tmp", 128);
+        tmp.create(100);
+        tmp.setInt(0, 2);
+        tmp.setHeader(0, 3);
+        tmp.flush();
+        da = dir.replace("testing", "testing_tmp");
+        assertEquals("testing", da.getName());
+        assertEquals(2, da.getInt(0));
+        assertEquals(3, da.getHeader(0));
+        assertEquals(128, da.getCapacity());
+        assertFalse(new File(location, "testing_tmp").exists());
+        assertEquals(Collections.singleton("testing"), dir.getDAs().keySet());
+        da.setInt(4, 4);
+        da.flush();
+        da.close();
+
+        da = createDir().create("testing", 128);
+        assertTrue(da.loadExisting());
+        assertEquals(2, da.getInt(0));
+        assertEquals(4, da.getInt(4));
+    }
 }
@@ -27,8 +27,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.LongUnaryOperator;
 
 import static com.graphhopper.util.EdgeIteratorState.REVERSE_STATE;
 import static com.graphhopper.util.FetchMode.*;
@@ -392,6 +394,57 @@ public class BaseGraphTest extends AbstractGraphStorageTester {
         assertTrue(e.getMessage().contains("This edge already has a way geometry so it cannot be changed to a bigger geometry"), e.getMessage());
     }
 
+    @Test
+    public void testCompactKeyValues() {
+        BaseGraph graph = createGHStorage();
+        String[] names = {"A street", "B street", "A street", "", "B street", "C street"};
+        for (int i = 0; i < names.length; i++) {
+            EdgeIteratorState edge = graph.edge(i, i + 1);
+            if (!names[i].isEmpty())
+                edge.setKeyValues(Map.of(STREET_NAME, new KValue(names[i])));
+        }
+        graph.freeze();
+        graph.compactKeyValues();
+        for (int i = 0; i < names.length; i++)
+            assertEquals(names[i], graph.getEdgeIteratorState(i, i + 1).getName());
+        graph.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testInterruptedCompactKeyValues(boolean edgesReplaced) {
+        String[] names = {"A street", "B street", "A street", "", "B street", "C street"};
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false).create(defaultSize);
+        for (int i = 0; i < names.length; i++) {
+            EdgeIteratorState edge = graph.edge(i, i + 1);
+            if (!names[i].isEmpty())
+                edge.setKeyValues(Map.of(STREET_NAME, new KValue(names[i])));
+        }
+        graph.flush();
+        // the compaction stops before the edges or before the values replaced the old files
+        LongUnaryOperator getNewPointerForOldPointer = graph.edgeKVStorage.prepareCompaction();
+        if (edgesReplaced)
+            graph.getStore().replaceKeyValuesRefs(getNewPointerForOldPointer, graph.edgeKVStorage.getGeneration() + 1);
+        graph.close();
+
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false);
+        assertTrue(graph.loadExisting());
+        // the values that belong to the stored edges are used and the temporary files are removed
+        assertEquals(edgesReplaced ? 1 : 0, graph.edgeKVStorage.getGeneration());
+        assertFalse(new File(defaultGraphLoc, "edges_compact").exists());
+        assertFalse(new File(defaultGraphLoc, "edgekv_vals_compact").exists());
+        for (int i = 0; i < names.length; i++)
+            assertEquals(names[i], graph.getEdgeIteratorState(i, i + 1).getName());
+
+        graph.compactKeyValues();
+        graph.close();
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false);
+        assertTrue(graph.loadExisting());
+        assertEquals(edgesReplaced ? 2 : 1, graph.edgeKVStorage.getGeneration());
+        for (int i = 0; i < names.length; i++)
+            assertEquals(names[i], graph.getEdgeIteratorState(i, i + 1).getName());
+    }
+
     @Test
     public void testGeoRef() {
         BaseGraph graph = createGHStorage();
@@ -33,6 +33,7 @@ import java.util.stream.IntStream;
 import static com.graphhopper.util.GHUtility.getEdge;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TurnCostStorageTest {
 
@@ -185,4 +186,42 @@ public class TurnCostStorageTest {
         assertFalse(iterator.next());
     }
 
+    @Test
+    public void testSortedEntries() {
+        BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("car_access", true);
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("car_speed", 5, 5, false);
+        DecimalEncodedValue carEnc = TurnCost.create("car", 15);
+        EncodingManager em = EncodingManager.start().add(accessEnc).add(speedEnc).addTurnCostEncodedValue(carEnc).build();
+        BaseGraph g = new BaseGraph.Builder(em).withTurnCosts(true).create();
+        initGraph(g, accessEnc, speedEnc);
+        TurnCostStorage turnCostStorage = g.getTurnCostStorage();
+        // all turns at node 2, added in an arbitrary order
+        int[] edges = {getEdge(g, 0, 2).getEdge(), getEdge(g, 3, 2).getEdge(), getEdge(g, 4, 2).getEdge()};
+        int[][] turns = {{2, 0}, {0, 1}, {1, 2}, {0, 2}, {2, 1}, {1, 0}};
+        for (int i = 0; i < turns.length; i++)
+            turnCostStorage.set(carEnc, edges[turns[i][0]], 2, edges[turns[i][1]], i + 1);
+        turnCostStorage.set(carEnc, edges[0], 3, edges[1], 7);
+        assertFalse(turnCostStorage.isSorted());
+
+        g.freeze();
+        assertTrue(turnCostStorage.isSorted());
+        assertEquals(7, turnCostStorage.getTurnCostsCount());
+        assertEquals(6, turnCostStorage.getTurnCostsCount(2));
+        for (int i = 0; i < turns.length; i++)
+            assertEquals(i + 1, turnCostStorage.get(carEnc, edges[turns[i][0]], 2, edges[turns[i][1]]));
+        for (int edge : edges)
+            assertEquals(0, turnCostStorage.get(carEnc, edge, 2, edge));
+        assertEquals(7, turnCostStorage.get(carEnc, edges[0], 3, edges[1]));
+        assertEquals(0, turnCostStorage.get(carEnc, edges[1], 3, edges[0]));
+
+        // entries that are added later are still found
+        turnCostStorage.set(carEnc, edges[1], 2, edges[1], 5);
+        assertFalse(turnCostStorage.isSorted());
+        assertEquals(5, turnCostStorage.get(carEnc, edges[1], 2, edges[1]));
+        assertEquals(3, turnCostStorage.get(carEnc, edges[1], 2, edges[2]));
+        turnCostStorage.sortEntries();
+        assertEquals(5, turnCostStorage.get(carEnc, edges[1], 2, edges[1]));
+        assertEquals(3, turnCostStorage.get(carEnc, edges[1], 2, edges[2]));
+        assertEquals(0, turnCostStorage.get(carEnc, edges[2], 2, edges[2]));
+    }
 }
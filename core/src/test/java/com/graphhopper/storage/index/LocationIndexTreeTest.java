@@ -423,6 +423,37 @@ public class LocationIndexTreeTest {
         }
     }
 
+    @Test
+    public void testFindKClosest() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        Random random = new Random(123);
+        GHUtility.buildRandomGraph(graph, random, 200, 2.5, false, speedEnc, 60d, 0.8, 0.8);
+        LocationIndexTree index = (LocationIndexTree) createIndexNoPrepare(graph, 50000).prepareIndex();
+
+        BBox bounds = graph.getBounds();
+        double[] latLons = new double[2 * 500];
+        for (int i = 0; i < latLons.length; i += 2) {
+            latLons[i] = bounds.minLat + random.nextDouble() * (bounds.maxLat - bounds.minLat);
+            latLons[i + 1] = bounds.minLon + random.nextDouble() * (bounds.maxLon - bounds.minLon);
+        }
+        Snap[] closest = index.findClosest(latLons, EdgeFilter.ALL_EDGES, 3);
+        List<List<Snap>> kClosest = index.findKClosest(latLons, 3, EdgeFilter.ALL_EDGES, 2);
+        for (int i = 0; i < closest.length; i++) {
+            Snap expected = index.findClosest(latLons[2 * i], latLons[2 * i + 1], EdgeFilter.ALL_EDGES);
+            assertEquals(expected.getClosestEdge().getEdge(), closest[i].getClosestEdge().getEdge());
+            assertEquals(expected.getClosestNode(), closest[i].getClosestNode());
+            assertEquals(expected.getSnappedPosition(), closest[i].getSnappedPosition());
+            assertEquals(expected.getQueryDistance(), closest[i].getQueryDistance(), 1.e-6);
+
+            List<Snap> candidates = kClosest.get(i);
+            assertEquals(3, candidates.size());
+            assertEquals(expected.getQueryDistance(), candidates.get(0).getQueryDistance(), 1.e-6);
+            assertTrue(candidates.get(0).getQueryDistance() <= candidates.get(1).getQueryDistance());
+            assertTrue(candidates.get(1).getQueryDistance() <= candidates.get(2).getQueryDistance());
+            assertEquals(3, candidates.stream().mapToInt(s -> s.getClosestEdge().getEdge()).distinct().count());
+        }
+    }
+
     private int findClosestNode(LocationIndex index, double lat, double lon) {
         Snap closest = index.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
         assert closest.getSnappedPosition() == Snap.Position.TOWER;
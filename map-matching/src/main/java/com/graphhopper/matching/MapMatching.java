@@ -21,7 +21,6 @@ import com.carrotsearch.hppc.IntHashSet;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
 import com.graphhopper.routing.AStarBidirection;
-import com.graphhopper.routing.DijkstraBidirectionRef;
 import com.graphhopper.routing.Path;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.Subnetwork;
@@ -124,6 +123,8 @@ public class MapMatching {
         int maxVisitedNodes = hints.getInt(Parameters.Routing.MAX_VISITED_NODES, Integer.MAX_VALUE);
 
         Router router = new Router() {
+            private long visitedNodes;
+
             @Override
             public EdgeFilter getSnapFilter() {
                 return snapFilter;
@@ -132,6 +133,15 @@ public class MapMatching {
             @Override
             public List<Path> calcPaths(QueryGraph queryGraph, int fromNode, int fromOutEdge, int[] toNodes, int[] toInEdges) {
                 assert (toNodes.length == toInEdges.length);
+                if (landmarks == null) {
+                    // without landmarks a single Dijkstra search finds the transitions to all candidates of the next
+                    // observation at once, which is much cheaper than one bidirectional search per candidate pair
+                    OneToManyDijkstra dijkstra = new OneToManyDijkstra(queryGraph, queryGraph.wrapWeighting(weighting), 50);
+                    dijkstra.setMaxVisitedNodes(maxVisitedNodes);
+                    List<Path> paths = dijkstra.calcPaths(fromNode, fromOutEdge, toNodes, toInEdges);
+                    visitedNodes += dijkstra.getVisitedNodes();
+                    return paths;
+                }
                 List<Path> result = new ArrayList<>();
                 for (int i = 0; i < toNodes.length; i++) {
                     result.add(calcOnePath(queryGraph, fromNode, toNodes[i], fromOutEdge, toInEdges[i]));
@@ -141,34 +151,30 @@ public class MapMatching {
 
             private Path calcOnePath(QueryGraph queryGraph, int fromNode, int toNode, int fromOutEdge, int toInEdge) {
                 Weighting queryGraphWeighting = queryGraph.wrapWeighting(weighting);
-                if (landmarks != null) {
-                    AStarBidirection aStarBidirection = new AStarBidirection(queryGraph, queryGraphWeighting, TraversalMode.EDGE_BASED) {
-                        @Override
-                        protected void initCollections(int size) {
-                            super.initCollections(50);
-                        }
-                    };
-                    int activeLM = Math.min(8, landmarks.getLandmarkCount());
-                    LMApproximator lmApproximator = LMApproximator.forLandmarks(queryGraph, queryGraphWeighting, landmarks, activeLM);
-                    aStarBidirection.setApproximation(lmApproximator);
-                    aStarBidirection.setMaxVisitedNodes(maxVisitedNodes);
-                    return aStarBidirection.calcPath(fromNode, toNode, fromOutEdge, toInEdge);
-                } else {
-                    DijkstraBidirectionRef dijkstraBidirectionRef = new DijkstraBidirectionRef(queryGraph, queryGraphWeighting, TraversalMode.EDGE_BASED) {
-                        @Override
-                        protected void initCollections(int size) {
-                            super.initCollections(50);
-                        }
-                    };
-                    dijkstraBidirectionRef.setMaxVisitedNodes(maxVisitedNodes);
-                    return dijkstraBidirectionRef.calcPath(fromNode, toNode, fromOutEdge, toInEdge);
-                }
+                AStarBidirection aStarBidirection = new AStarBidirection(queryGraph, queryGraphWeighting, TraversalMode.EDGE_BASED) {
+                    @Override
+                    protected void initCollections(int size) {
+                        super.initCollections(50);
+                    }
+                };
+                int activeLM = Math.min(8, landmarks.getLandmarkCount());
+                LMApproximator lmApproximator = LMApproximator.forLandmarks(queryGraph, queryGraphWeighting, landmarks, activeLM);
+                aStarBidirection.setApproximation(lmApproximator);
+                aStarBidirection.setMaxVisitedNodes(maxVisitedNodes);
+                Path path = aStarBidirection.calcPath(fromNode, toNode, fromOutEdge, toInEdge);
+                visitedNodes += aStarBidirection.getVisitedNodes();
+                return path;
             }
 
             @Override
             public Weighting getWeighting() {
                 return weighting;
             }
+
+            @Override
+            public long getVisitedNodes() {
+                return visitedNodes;
+            }
         };
         return router;
     }
@@ -195,9 +201,26 @@ public class MapMatching {
         this.measurementErrorSigma = measurementErrorSigma;
     }
 
+    public double getMeasurementErrorSigma() {
+        return measurementErrorSigma;
+    }
+
     public MatchResult match(List<Observation> observations) {
-        List<Observation> filteredObservations = filterObservations(observations);
+        return matchFiltered(filterObservations(observations), gpxLength(observations));
+    }
+
+    /**
+     * Same as {@link #match(List)}, but for observations stored in a {@link PointList}. This avoids creating objects
+     * for observations that are filtered out anyway, which are the majority for traces with a high sampling rate.
+     */
+    public MatchResult match(PointList points) {
+        return matchFiltered(filterObservations(points), gpxLength(points));
+    }
+
+    private MatchResult matchFiltered(List<Observation> filteredObservations, double gpxLength) {
         statistics.put("filteredObservations", filteredObservations.size());
+        // the router counts the visited nodes of all its searches, but we only report the ones of this match
+        long visitedNodesBefore = router.getVisitedNodes();
 
         // Snap observations to links. Generates multiple candidate snaps per observation.
         List<List<Snap>> snapsPerObservation = filteredObservations.stream()
@@ -216,7 +239,7 @@ public class MapMatching {
         // Compute the most likely sequence of map matching candidates:
         List<SequenceState<State, Observation, Path>> seq = computeViterbiSequence(timeSteps);
         statistics.put("transitionDistances", seq.stream().filter(s -> s.transitionDescriptor != null).mapToLong(s -> Math.round(s.transitionDescriptor.getDistance())).toArray());
-        statistics.put("visitedNodes", router.getVisitedNodes());
+        statistics.put("visitedNodes", router.getVisitedNodes() - visitedNodesBefore);
         statistics.put("snapDistanceRanks", IntStream.range(0, seq.size()).map(i -> snapsPerObservation.get(i).indexOf(seq.get(i).state.getSnap())).toArray());
         statistics.put("snapDistances", seq.stream().mapToDouble(s -> s.state.getSnap().getQueryDistance()).toArray());
         statistics.put("maxSnapDistances", IntStream.range(0, seq.size()).mapToDouble(i -> snapsPerObservation.get(i).stream().mapToDouble(Snap::getQueryDistance).max().orElse(-1.0)).toArray());
@@ -228,7 +251,7 @@ public class MapMatching {
         result.setMergedPath(new MapMatchedPath(queryGraph, queryGraphWeighting, path));
         result.setMatchMillis(seq.stream().filter(s -> s.transitionDescriptor != null).mapToLong(s -> s.transitionDescriptor.getTime()).sum());
         result.setMatchLength(seq.stream().filter(s -> s.transitionDescriptor != null).mapToDouble(s -> s.transitionDescriptor.getDistance()).sum());
-        result.setGPXEntriesLength(gpxLength(observations));
+        result.setGPXEntriesLength(gpxLength);
         result.setGraph(queryGraph);
         result.setWeighting(queryGraphWeighting);
         return result;
@@ -275,6 +298,35 @@ public class MapMatching {
         return filtered;
     }
 
+    /**
+     * Same as {@link #filterObservations(List)}, but only creates {@link Observation} objects for the points that
+     * are kept.
+     */
+    public List<Observation> filterObservations(PointList points) {
+        List<Observation> filtered = new ArrayList<>();
+        int prevIndex = -1;
+        double acc = 0.0;
+        int last = points.size() - 1;
+        for (int i = 0; i <= last; i++) {
+            if (i == 0 || i == last || distanceCalc.calcDist(
+                    points.getLat(prevIndex), points.getLon(prevIndex),
+                    points.getLat(i), points.getLon(i)) > 2 * measurementErrorSigma) {
+                if (i > 0) {
+                    acc += distanceCalc.calcDist(points.getLat(i - 1), points.getLon(i - 1), points.getLat(i), points.getLon(i));
+                    acc -= distanceCalc.calcDist(points.getLat(prevIndex), points.getLon(prevIndex), points.getLat(i), points.getLon(i));
+                }
+                Observation observation = new Observation(points.get(i));
+                observation.setAccumulatedLinearDistanceToPrevious(acc);
+                filtered.add(observation);
+                prevIndex = i;
+                acc = 0.0;
+            } else {
+                acc += distanceCalc.calcDist(points.getLat(i - 1), points.getLon(i - 1), points.getLat(i), points.getLon(i));
+            }
+        }
+        return filtered;
+    }
+
     public List<Snap> findCandidateSnaps(final double queryLat, final double queryLon) {
         double rLon = (measurementErrorSigma * 360.0 / DistanceCalcEarth.DIST_EARTH.calcCircumference(queryLat));
         double rLat = measurementErrorSigma / DistanceCalcEarth.METERS_PER_DEGREE;
@@ -455,6 +507,96 @@ public class MapMatching {
         return result;
     }
 
+    /**
+     * The result of {@link #calcViterbiStep}. For every candidate of the next observation it contains the probability
+     * of the most likely sequence that ends in it, the candidate of the previous observation this sequence comes from
+     * and the edges of the transition, which are already resolved to the edges of the base graph.
+     */
+    static class ViterbiStep {
+        final List<State> candidates;
+        final double[] minusLogProbabilities;
+        final int[] previousCandidates;
+        final List<List<EdgeIteratorState>> transitionEdges;
+        final List<EdgeIteratorState> stateEdges;
+
+        ViterbiStep(List<State> candidates) {
+            this.candidates = candidates;
+            minusLogProbabilities = new double[candidates.size()];
+            Arrays.fill(minusLogProbabilities, Double.POSITIVE_INFINITY);
+            previousCandidates = new int[candidates.size()];
+            Arrays.fill(previousCandidates, -1);
+            transitionEdges = new ArrayList<>(Collections.nCopies(candidates.size(), Collections.emptyList()));
+            stateEdges = new ArrayList<>(Collections.nCopies(candidates.size(), null));
+        }
+    }
+
+    /**
+     * Extends the Viterbi algorithm by one observation, which is used by {@link MapMatchingSession}. Only the previous
+     * and the next observation are snapped and put into a new query graph, so the candidates of the previous
+     * observation are the same and in the same order as the ones of the next observation in the last step.
+     *
+     * @param previous                      the previous observation or null if next is the first one
+     * @param previousMinusLogProbabilities the probabilities of the most likely sequences that end in the candidates of
+     *                                      the previous observation, infinite if a candidate cannot be reached. There
+     *                                      is no routing from such candidates.
+     */
+    ViterbiStep calcViterbiStep(Observation previous, double[] previousMinusLogProbabilities, Observation next) {
+        List<Observation> observations = previous == null ? Collections.singletonList(next) : Arrays.asList(previous, next);
+        List<List<Snap>> snapsPerObservation = observations.stream()
+                .map(o -> findCandidateSnaps(o.getPoint().lat, o.getPoint().lon))
+                .collect(Collectors.toList());
+        queryGraph = QueryGraph.create(graph, snapsPerObservation.stream().flatMap(Collection::stream).collect(Collectors.toList()));
+        List<ObservationWithCandidateStates> timeSteps = createTimeSteps(observations, snapsPerObservation);
+        List<State> candidates = timeSteps.get(timeSteps.size() - 1).candidates;
+
+        final HmmProbabilities probabilities = new HmmProbabilities(measurementErrorSigma, transitionProbabilityBeta);
+        ViterbiStep step = new ViterbiStep(candidates);
+        double[] emissions = new double[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            emissions[i] = -probabilities.emissionLogProbability(candidates.get(i).getSnap().getQueryDistance());
+            if (candidates.get(i).isOnDirectedEdge())
+                step.stateEdges.set(i, resolveToRealEdge(candidates.get(i).getOutgoingVirtualEdge()));
+        }
+        if (previous == null) {
+            System.arraycopy(emissions, 0, step.minusLogProbabilities, 0, emissions.length);
+            return step;
+        }
+
+        List<State> previousCandidates = timeSteps.get(0).candidates;
+        if (previousCandidates.size() != previousMinusLogProbabilities.length)
+            throw new IllegalStateException("The previous observation has " + previousCandidates.size()
+                    + " candidates, but there are probabilities for " + previousMinusLogProbabilities.length);
+        final double linearDistance = distanceCalc.calcDist(previous.getPoint().lat, previous.getPoint().lon,
+                next.getPoint().lat, next.getPoint().lon) + next.getAccumulatedLinearDistanceToPrevious();
+        int[] toNodes = candidates.stream().mapToInt(c -> c.getSnap().getClosestNode()).toArray();
+        int[] toInEdges = candidates.stream().mapToInt(to -> to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE).toArray();
+        Path[] bestPaths = new Path[candidates.size()];
+        for (int j = 0; j < previousCandidates.size(); j++) {
+            if (Double.isInfinite(previousMinusLogProbabilities[j]))
+                continue;
+            State from = previousCandidates.get(j);
+            int fromOutEdge = from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE;
+            List<Path> paths = router.calcPaths(queryGraph, from.getSnap().getClosestNode(), fromOutEdge, toNodes, toInEdges);
+            for (int i = 0; i < candidates.size(); i++) {
+                Path path = paths.get(i);
+                if (!path.isFound())
+                    continue;
+                double minusLogProbability = previousMinusLogProbabilities[j] + emissions[i]
+                        - probabilities.transitionLogProbability(path.getDistance(), linearDistance);
+                if (minusLogProbability < step.minusLogProbabilities[i]) {
+                    step.minusLogProbabilities[i] = minusLogProbability;
+                    step.previousCandidates[i] = j;
+                    bestPaths[i] = path;
+                }
+            }
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            if (bestPaths[i] != null)
+                step.transitionEdges.set(i, bestPaths[i].calcEdges().stream().map(this::resolveToRealEdge).collect(Collectors.toList()));
+        }
+        return step;
+    }
+
     private List<EdgeMatch> prepareEdgeMatches(List<SequenceState<State, Observation, Path>> seq) {
         // This creates a list of directed edges (EdgeIteratorState instances turned the right way),
         // each associated with 0 or more of the observations.
@@ -527,7 +669,15 @@ public class MapMatching {
         }
     }
 
-    private boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
+    private double gpxLength(PointList points) {
+        double gpxLength = 0;
+        for (int i = 1; i < points.size(); i++) {
+            gpxLength += distanceCalc.calcDist(points.getLat(i - 1), points.getLon(i - 1), points.getLat(i), points.getLon(i));
+        }
+        return gpxLength;
+    }
+
+    static boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
         return edge1.getEdge() == edge2.getEdge()
                 && edge1.getBaseNode() == edge2.getBaseNode()
                 && edge1.getAdjNode() == edge2.getAdjNode();
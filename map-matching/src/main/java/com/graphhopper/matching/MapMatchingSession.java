@@ -0,0 +1,261 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.DistancePlaneProjection;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.*;
+
+/**
+ * Incremental map matching for a single vehicle. Observations are added one at a time and the Viterbi algorithm is
+ * extended by each of them: for every candidate of the last observation the session keeps the probability of the
+ * most likely sequence that ends in it together with a back pointer, so a new observation only requires the routing
+ * from the candidates of the previous observation, see {@link MapMatching#calcViterbiStep}.
+ * <p>
+ * An observation is final once the most likely sequences of all candidates of the last observation go through the
+ * same candidate of it, because then no later observation can change it. This usually happens after a few
+ * observations. If the sequences did not converge after <code>maxPending</code> observations, e.g. on parallel
+ * streets, the oldest pending observation is finalized with the candidate of the currently most likely sequence and
+ * the sequences that do not go through it are dropped. Therefore the memory per vehicle is bounded by
+ * <code>maxPending</code> and not by the length of the trace.
+ * <p>
+ * Like {@link MapMatching#match(List)} the session ignores observations that are too close to the previous one, see
+ * {@link MapMatching#filterObservations(List)}, and keeps the last one in {@link #finish()}. An edge match is returned
+ * as soon as it is complete, i.e. when the next edge of the match is final. Like {@link MapMatching} a session is not
+ * thread safe and the {@link MapMatching} instance must not be shared between sessions that are used concurrently.
+ */
+public class MapMatchingSession {
+    private final MapMatching mapMatching;
+    private final int maxPending;
+    private final DistanceCalc distanceCalc = new DistancePlaneProjection();
+
+    // the forward state: the labels of the candidates of the last observation, null if a candidate is not reachable
+    private Label[] labels;
+    private Observation lastObservation;
+    // the last label that is final and the number of observations after it
+    private Label lastFinal;
+    private int pending;
+
+    // the observations that were filtered out since the last matched observation
+    private Observation lastFilteredOut;
+    private Observation previousAdded;
+    private double accumulatedDistance;
+
+    // the edge match that is built from the final labels
+    private EdgeIteratorState currentEdge;
+    private List<State> currentStates = new ArrayList<>();
+
+    public MapMatchingSession(MapMatching mapMatching, int maxPending) {
+        if (maxPending < 1)
+            throw new IllegalArgumentException("maxPending must be at least 1, but was " + maxPending);
+        this.mapMatching = mapMatching;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Adds the next observation of the vehicle.
+     *
+     * @return the edge matches that were completed by this observation, usually empty
+     * @throws IllegalArgumentException if the observation cannot be reached from any candidate of the previous one.
+     *                                  The session is not changed in this case, so the observation can be skipped.
+     */
+    public List<EdgeMatch> add(Observation observation) {
+        double distance = previousAdded == null ? 0 : calcDist(previousAdded, observation);
+        if (lastObservation != null && calcDist(lastObservation, observation) <= 2 * mapMatching.getMeasurementErrorSigma()) {
+            accumulatedDistance += distance;
+            lastFilteredOut = observation;
+            previousAdded = observation;
+            return Collections.emptyList();
+        }
+        // the distance that is missing because of the filtered out observations, see MapMatching#filterObservations
+        double accumulated = lastObservation == null ? 0 : accumulatedDistance + distance - calcDist(lastObservation, observation);
+        return match(observation, accumulated);
+    }
+
+    /**
+     * Finalizes the most likely sequence, e.g. when the trip of the vehicle has ended. The session can be reused
+     * afterwards.
+     *
+     * @return the remaining edge matches
+     */
+    public List<EdgeMatch> finish() {
+        List<EdgeMatch> result = new ArrayList<>();
+        if (lastFilteredOut != null) {
+            // like MapMatching#filterObservations we always keep the last observation
+            double accumulated = accumulatedDistance - calcDist(lastObservation, lastFilteredOut);
+            result.addAll(match(lastFilteredOut, accumulated));
+        }
+        if (labels != null) {
+            Label best = null;
+            for (Label label : labels)
+                if (label != null && (best == null || label.minusLogProbability < best.minusLogProbability))
+                    best = label;
+            finalizeUpTo(best, result);
+        }
+        if (currentEdge != null)
+            result.add(new EdgeMatch(currentEdge, currentStates));
+        labels = null;
+        lastObservation = null;
+        lastFinal = null;
+        pending = 0;
+        lastFilteredOut = null;
+        previousAdded = null;
+        accumulatedDistance = 0;
+        currentEdge = null;
+        currentStates = new ArrayList<>();
+        return result;
+    }
+
+    /**
+     * @return the number of matched observations whose candidate is not final yet
+     */
+    public int getPendingObservations() {
+        return pending;
+    }
+
+    private List<EdgeMatch> match(Observation observation, double accumulated) {
+        observation.setAccumulatedLinearDistanceToPrevious(accumulated);
+        double[] minusLogProbabilities = null;
+        if (labels != null) {
+            minusLogProbabilities = new double[labels.length];
+            for (int i = 0; i < labels.length; i++)
+                minusLogProbabilities[i] = labels[i] == null ? Double.POSITIVE_INFINITY : labels[i].minusLogProbability;
+        }
+        MapMatching.ViterbiStep step = mapMatching.calcViterbiStep(lastObservation, minusLogProbabilities, observation);
+        Label[] newLabels = new Label[step.candidates.size()];
+        boolean reachable = false;
+        for (int i = 0; i < newLabels.length; i++) {
+            if (Double.isInfinite(step.minusLogProbabilities[i]))
+                continue;
+            Label back = labels == null ? null : labels[step.previousCandidates[i]];
+            newLabels[i] = new Label(step.candidates.get(i), step.minusLogProbabilities[i], step.transitionEdges.get(i), step.stateEdges.get(i), back);
+            reachable = true;
+        }
+        if (!reachable)
+            throw new IllegalArgumentException("Sequence is broken for submitted track at observation " + observation);
+
+        labels = newLabels;
+        lastObservation = observation;
+        previousAdded = observation;
+        lastFilteredOut = null;
+        accumulatedDistance = 0;
+        pending++;
+
+        List<EdgeMatch> result = new ArrayList<>();
+        Label converged = findConvergence();
+        if (converged != null)
+            finalizeUpTo(converged, result);
+        if (pending > maxPending)
+            finalizeOldest(result);
+        return result;
+    }
+
+    /**
+     * @return the last label that is part of the most likely sequences of all candidates or null if there is no such
+     * label after the last final one
+     */
+    private Label findConvergence() {
+        Set<Label> current = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Label label : labels)
+            if (label != null)
+                current.add(label);
+        while (current.size() > 1) {
+            Set<Label> backs = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Label label : current) {
+                if (label.back == null || label.back == lastFinal)
+                    return null;
+                backs.add(label.back);
+            }
+            current = backs;
+        }
+        return current.iterator().next();
+    }
+
+    /**
+     * Finalizes the oldest pending observation with the candidate of the most likely sequence and removes the
+     * candidates whose sequences do not contain it.
+     */
+    private void finalizeOldest(List<EdgeMatch> result) {
+        Label best = null;
+        for (Label label : labels)
+            if (label != null && (best == null || label.minusLogProbability < best.minusLogProbability))
+                best = label;
+        Label oldest = best;
+        while (oldest.back != lastFinal)
+            oldest = oldest.back;
+        for (int i = 0; i < labels.length; i++) {
+            Label label = labels[i];
+            while (label != null && label.back != lastFinal)
+                label = label.back;
+            if (label != oldest)
+                labels[i] = null;
+        }
+        finalizeUpTo(oldest, result);
+    }
+
+    /**
+     * Adds the states of the labels after the last final one up to the given label to the edge matches.
+     */
+    private void finalizeUpTo(Label label, List<EdgeMatch> result) {
+        List<Label> newFinal = new ArrayList<>();
+        for (Label l = label; l != lastFinal; l = l.back)
+            newFinal.add(l);
+        Collections.reverse(newFinal);
+        for (Label l : newFinal) {
+            for (EdgeIteratorState edge : l.transitionEdges)
+                moveTo(edge, result);
+            if (l.stateEdge != null)
+                moveTo(l.stateEdge, result);
+            currentStates.add(l.state);
+        }
+        // the labels before the last final one are no longer needed
+        label.back = null;
+        lastFinal = label;
+        pending -= newFinal.size();
+    }
+
+    private void moveTo(EdgeIteratorState edge, List<EdgeMatch> result) {
+        if (currentEdge != null && !MapMatching.equalEdges(currentEdge, edge)) {
+            result.add(new EdgeMatch(currentEdge, currentStates));
+            currentStates = new ArrayList<>();
+        }
+        currentEdge = edge;
+    }
+
+    private double calcDist(Observation a, Observation b) {
+        return distanceCalc.calcDist(a.getPoint().lat, a.getPoint().lon, b.getPoint().lat, b.getPoint().lon);
+    }
+
+    private static class Label {
+        final State state;
+        final double minusLogProbability;
+        final List<EdgeIteratorState> transitionEdges;
+        final EdgeIteratorState stateEdge;
+        Label back;
+
+        Label(State state, double minusLogProbability, List<EdgeIteratorState> transitionEdges, EdgeIteratorState stateEdge, Label back) {
+            this.state = state;
+            this.minusLogProbability = minusLogProbability;
+            this.transitionEdges = transitionEdges;
+            this.stateEdge = stateEdge;
+            this.back = back;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.AbstractRoutingAlgorithm;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.PathExtractor;
+import com.graphhopper.routing.SPTEntry;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * An edge-based Dijkstra that calculates the paths from one source to several targets with a single search. This is
+ * used to compute all the transitions from one candidate of the current observation to all candidates of the next
+ * observation at once, instead of running one point-to-point search per candidate pair. The search stops as soon as
+ * all targets are settled, so the explored area is bounded by the farthest candidate.
+ * <p>
+ * Just like for the bidirectional algorithms the start and target edges can be restricted, see
+ * {@link #calcPaths(int, int, int[], int[])}.
+ */
+public class OneToManyDijkstra extends AbstractRoutingAlgorithm {
+    private final IntObjectMap<SPTEntry> fromMap;
+    private final PriorityQueue<SPTEntry> fromHeap;
+    private int visitedNodes;
+
+    public OneToManyDijkstra(Graph graph, Weighting weighting, int size) {
+        super(graph, weighting, TraversalMode.EDGE_BASED);
+        fromHeap = new PriorityQueue<>(size);
+        fromMap = new GHIntObjectHashMap<>(size);
+    }
+
+    /**
+     * @param fromOutEdge the edge the path has to start with or {@link EdgeIterator#ANY_EDGE}
+     * @param toInEdges   for each target node the edge the path has to end with or {@link EdgeIterator#ANY_EDGE}
+     * @return one path per target node, the paths that could not be found are marked as not found
+     */
+    public List<Path> calcPaths(int from, int fromOutEdge, int[] toNodes, int[] toInEdges) {
+        if (toNodes.length != toInEdges.length)
+            throw new IllegalArgumentException("toNodes and toInEdges must have the same length");
+        checkAlreadyRun();
+        setupFinishTime();
+
+        // group the targets by node so each settled entry only needs a single lookup
+        IntObjectMap<IntArrayList> targetsByNode = new GHIntObjectHashMap<>(toNodes.length);
+        for (int i = 0; i < toNodes.length; i++) {
+            IntArrayList targets = targetsByNode.get(toNodes[i]);
+            if (targets == null) {
+                targets = new IntArrayList(2);
+                targetsByNode.put(toNodes[i], targets);
+            }
+            targets.add(i);
+        }
+        SPTEntry[] targetEntries = new SPTEntry[toNodes.length];
+        int remaining = toNodes.length;
+
+        SPTEntry startEntry = new SPTEntry(from, 0);
+        // like for the bidirectional algorithms we only allow an empty path if from=to and no edges are restricted
+        if (fromOutEdge == ANY_EDGE) {
+            IntArrayList targets = targetsByNode.get(from);
+            if (targets != null)
+                for (int i = 0; i < targets.size(); i++) {
+                    int target = targets.get(i);
+                    if (toInEdges[target] == ANY_EDGE) {
+                        targetEntries[target] = startEntry;
+                        remaining--;
+                    }
+                }
+        }
+
+        fromHeap.add(startEntry);
+        while (remaining > 0 && !fromHeap.isEmpty()) {
+            SPTEntry currEdge = fromHeap.poll();
+            if (currEdge.isDeleted())
+                continue;
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded() || isTimeoutExceeded())
+                break;
+
+            if (currEdge != startEntry) {
+                IntArrayList targets = targetsByNode.get(currEdge.adjNode);
+                if (targets != null)
+                    for (int i = 0; i < targets.size(); i++) {
+                        int target = targets.get(i);
+                        if (targetEntries[target] == null && (toInEdges[target] == ANY_EDGE || toInEdges[target] == currEdge.edge)) {
+                            targetEntries[target] = currEdge;
+                            remaining--;
+                        }
+                    }
+                if (remaining == 0)
+                    break;
+            }
+
+            EdgeIterator iter = edgeExplorer.setBaseNode(currEdge.adjNode);
+            while (iter.next()) {
+                if (currEdge == startEntry && fromOutEdge != ANY_EDGE && iter.getEdge() != fromOutEdge)
+                    continue;
+
+                double tmpWeight = GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge.edge) + currEdge.weight;
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+                int traversalId = traversalMode.createTraversalId(iter, false);
+
+                SPTEntry nEdge = fromMap.get(traversalId);
+                if (nEdge == null || nEdge.weight > tmpWeight) {
+                    if (nEdge != null)
+                        nEdge.setDeleted();
+                    nEdge = new SPTEntry(iter.getEdge(), iter.getAdjNode(), tmpWeight, currEdge);
+                    fromMap.put(traversalId, nEdge);
+                    fromHeap.add(nEdge);
+                }
+            }
+        }
+
+        List<Path> result = new ArrayList<>(toNodes.length);
+        for (SPTEntry entry : targetEntries) {
+            result.add(entry == null ? createEmptyPath() : PathExtractor.extractPath(graph, weighting, entry));
+        }
+        return result;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPaths(from, ANY_EDGE, new int[]{to}, new int[]{ANY_EDGE}).get(0);
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return "dijkstra_one_to_many_edge_based";
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.DistancePlaneProjection;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.shapes.GHPoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MapMatchingSessionTest {
+    private static final int SIZE = 8;
+    private BaseGraph graph;
+    private CountingMapMatching mapMatching;
+
+    @BeforeEach
+    public void setup() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager encodingManager = EncodingManager.start().add(speedEnc).build();
+        graph = new BaseGraph.Builder(encodingManager).create();
+        // a grid of streets that are about 110m long
+        NodeAccess na = graph.getNodeAccess();
+        for (int row = 0; row < SIZE; row++)
+            for (int col = 0; col < SIZE; col++)
+                na.setNode(node(row, col), 50 + row * 0.001, 10 + col * 0.0015);
+        for (int row = 0; row < SIZE; row++)
+            for (int col = 0; col < SIZE; col++) {
+                if (col + 1 < SIZE)
+                    addEdge(node(row, col), node(row, col + 1), speedEnc);
+                if (row + 1 < SIZE)
+                    addEdge(node(row, col), node(row + 1, col), speedEnc);
+            }
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        mapMatching = new CountingMapMatching(graph, locationIndex, createRouter(new SpeedWeighting(speedEnc)));
+    }
+
+    private void addEdge(int from, int to, DecimalEncodedValue speedEnc) {
+        NodeAccess na = graph.getNodeAccess();
+        double dist = DistancePlaneProjection.DIST_PLANE.calcDist(na.getLat(from), na.getLon(from), na.getLat(to), na.getLon(to));
+        graph.edge(from, to).setDistance(dist).set(speedEnc, 50, 50);
+    }
+
+    private static int node(int row, int col) {
+        return row * SIZE + col;
+    }
+
+    private static MapMatching.Router createRouter(Weighting weighting) {
+        return new MapMatching.Router() {
+            @Override
+            public EdgeFilter getSnapFilter() {
+                return EdgeFilter.ALL_EDGES;
+            }
+
+            @Override
+            public List<Path> calcPaths(QueryGraph queryGraph, int fromNode, int fromOutEdge, int[] toNodes, int[] toInEdges) {
+                return new OneToManyDijkstra(queryGraph, queryGraph.wrapWeighting(weighting), 50).calcPaths(fromNode, fromOutEdge, toNodes, toInEdges);
+            }
+
+            @Override
+            public Weighting getWeighting() {
+                return weighting;
+            }
+        };
+    }
+
+    /**
+     * Drives east along the first row and then north along the last column, with three observations per street.
+     */
+    private List<Observation> createTrace() {
+        List<Observation> observations = new ArrayList<>();
+        NodeAccess na = graph.getNodeAccess();
+        List<Integer> nodes = new ArrayList<>();
+        for (int col = 0; col < SIZE; col++)
+            nodes.add(node(0, col));
+        for (int row = 1; row < SIZE; row++)
+            nodes.add(node(row, SIZE - 1));
+        for (int i = 1; i < nodes.size(); i++) {
+            int from = nodes.get(i - 1), to = nodes.get(i);
+            for (double f : new double[]{0.2, 0.5, 0.8})
+                observations.add(new Observation(new GHPoint(
+                        na.getLat(from) + f * (na.getLat(to) - na.getLat(from)),
+                        na.getLon(from) + f * (na.getLon(to) - na.getLon(from)))));
+        }
+        return observations;
+    }
+
+    @Test
+    public void invalidMaxPending() {
+        assertThrows(IllegalArgumentException.class, () -> new MapMatchingSession(mapMatching, 0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 10, 1000})
+    public void sameEdgesAsMatchingTheWholeTrace(int maxPending) {
+        List<Observation> observations = createTrace();
+        List<String> expected = toString(mapMatching.match(observations).getEdgeMatches());
+
+        MapMatchingSession session = new MapMatchingSession(mapMatching, maxPending);
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        for (Observation observation : observations) {
+            edgeMatches.addAll(session.add(observation));
+            assertTrue(session.getPendingObservations() <= maxPending);
+        }
+        // most edge matches are complete before the end of the trip
+        assertTrue(edgeMatches.size() > expected.size() / 2, edgeMatches.size() + " vs. " + expected.size());
+        edgeMatches.addAll(session.finish());
+        assertEquals(0, session.getPendingObservations());
+
+        assertEquals(expected, toString(edgeMatches));
+        // every observation belongs to exactly one edge match
+        Set<Observation> matched = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (EdgeMatch edgeMatch : edgeMatches)
+            for (State state : edgeMatch.getStates())
+                assertTrue(matched.add(state.getEntry()), "observation " + observations.indexOf(state.getEntry()) + " was emitted twice");
+        assertEquals(observations.size(), matched.size());
+        // every observation extends the Viterbi algorithm by one step, nothing is matched again
+        assertEquals(observations.size(), mapMatching.steps);
+    }
+
+    @Test
+    public void finalizeWhenCandidatesConverge() {
+        List<Observation> observations = createTrace();
+        MapMatchingSession session = new MapMatchingSession(mapMatching, 1000);
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        for (int i = 0; i < 12; i++)
+            edgeMatches.addAll(session.add(observations.get(i)));
+        // the session does not wait for maxPending observations, the sequences converge much earlier
+        assertFalse(edgeMatches.isEmpty());
+        assertTrue(session.getPendingObservations() < 12);
+        for (EdgeMatch edgeMatch : edgeMatches)
+            for (State state : edgeMatch.getStates())
+                assertTrue(observations.indexOf(state.getEntry()) < 12 - session.getPendingObservations());
+    }
+
+    @Test
+    public void finishFlushesPendingObservations() {
+        List<Observation> observations = createTrace();
+        MapMatchingSession session = new MapMatchingSession(mapMatching, 10);
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        for (int i = 0; i < 7; i++)
+            edgeMatches.addAll(session.add(observations.get(i)));
+        edgeMatches.addAll(session.finish());
+        assertEquals(toString(mapMatching.match(observations.subList(0, 7)).getEdgeMatches()), toString(edgeMatches));
+        assertEquals(0, session.getPendingObservations());
+        assertTrue(session.finish().isEmpty());
+
+        // the session can be reused for the next trip
+        List<EdgeMatch> nextTrip = new ArrayList<>();
+        for (int i = 0; i < 7; i++)
+            nextTrip.addAll(session.add(observations.get(i)));
+        nextTrip.addAll(session.finish());
+        assertEquals(toString(edgeMatches), toString(nextTrip));
+    }
+
+    @Test
+    public void filterCloseObservations() {
+        // a vehicle that waits on the same street: like MapMatching#match only the first and the last observation
+        // are used
+        NodeAccess na = graph.getNodeAccess();
+        MapMatchingSession session = new MapMatchingSession(mapMatching, 3);
+        GHPoint point = new GHPoint(na.getLat(node(0, 0)), (na.getLon(node(0, 0)) + na.getLon(node(0, 1))) / 2);
+        List<Observation> observations = new ArrayList<>();
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            observations.add(new Observation(point));
+            edgeMatches.addAll(session.add(observations.get(i)));
+            assertTrue(session.getPendingObservations() <= 1);
+        }
+        edgeMatches.addAll(session.finish());
+        assertEquals(2, mapMatching.steps);
+        Set<Observation> matched = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (EdgeMatch edgeMatch : edgeMatches) {
+            assertEquals(0, edgeMatch.getEdgeState().getEdge());
+            for (State state : edgeMatch.getStates())
+                assertTrue(matched.add(state.getEntry()));
+        }
+        assertEquals(2, matched.size());
+        assertTrue(matched.contains(observations.get(0)));
+        assertTrue(matched.contains(observations.get(99)));
+    }
+
+    private static List<String> toString(List<EdgeMatch> edgeMatches) {
+        List<String> result = new ArrayList<>();
+        for (EdgeMatch edgeMatch : edgeMatches) {
+            EdgeIteratorState edge = edgeMatch.getEdgeState();
+            result.add(edge.getEdge() + ":" + edge.getBaseNode() + "->" + edge.getAdjNode());
+        }
+        return result;
+    }
+
+    private static class CountingMapMatching extends MapMatching {
+        int steps;
+
+        CountingMapMatching(BaseGraph graph, LocationIndexTree locationIndex, Router router) {
+            super(graph, locationIndex, router);
+        }
+
+        @Override
+        ViterbiStep calcViterbiStep(Observation previous, double[] previousMinusLogProbabilities, Observation next) {
+            steps++;
+            return super.calcViterbiStep(previous, previousMinusLogProbabilities, next);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIndexedContainer;
+import com.graphhopper.routing.DijkstraBidirectionRef;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.TurnCost;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.TurnCostStorage;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.RepetitionInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares {@link OneToManyDijkstra} with one {@link DijkstraBidirectionRef} search per target, which is what the map
+ * matching used to do for the transitions.
+ */
+public class OneToManyDijkstraTest {
+    private final int maxTurnCosts = 10;
+    private BaseGraph graph;
+    private DecimalEncodedValue speedEnc;
+    private DecimalEncodedValue turnCostEnc;
+    private TurnCostStorage turnCostStorage;
+
+    @BeforeEach
+    public void setup() {
+        speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        turnCostEnc = TurnCost.create("car", maxTurnCosts);
+        EncodingManager encodingManager = EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+        graph = new BaseGraph.Builder(encodingManager).withTurnCosts(true).create();
+        turnCostStorage = graph.getTurnCostStorage();
+    }
+
+    private Weighting createWeighting(double uTurnCosts) {
+        return new SpeedWeighting(speedEnc, turnCostEnc, turnCostStorage, uTurnCosts);
+    }
+
+    @Test
+    public void sourceEqualsTarget() {
+        // 0 - 1
+        //  \  |
+        //   - 2
+        graph.edge(0, 1).setDistance(1).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(2).set(speedEnc, 10, 10);
+        graph.edge(2, 0).setDistance(3).set(speedEnc, 10, 10);
+        Weighting weighting = createWeighting(Double.POSITIVE_INFINITY);
+
+        // without restrictions we get an empty path, but restricting one of the edges requires a real loop
+        List<Path> paths = new OneToManyDijkstra(graph, weighting, 10).calcPaths(0, ANY_EDGE, new int[]{0, 0, 0}, new int[]{ANY_EDGE, 2, 0});
+        assertTrue(paths.get(0).isFound());
+        assertEquals(0, paths.get(0).getWeight(), 1.e-6);
+        assertEquals(IntArrayList.from(0), paths.get(0).calcNodes());
+        assertEquals(0.6, paths.get(1).getWeight(), 1.e-6);
+        assertEquals(IntArrayList.from(0, 1, 2, 0), paths.get(1).calcNodes());
+        assertEquals(0.6, paths.get(2).getWeight(), 1.e-6);
+        assertEquals(IntArrayList.from(0, 2, 1, 0), paths.get(2).calcNodes());
+
+        paths = new OneToManyDijkstra(graph, weighting, 10).calcPaths(0, 0, new int[]{0}, new int[]{ANY_EDGE});
+        assertEquals(IntArrayList.from(0, 1, 2, 0), paths.get(0).calcNodes());
+        // the loop would have to end with the edge it started with, which requires a u-turn
+        paths = new OneToManyDijkstra(graph, weighting, 10).calcPaths(0, 0, new int[]{0}, new int[]{0});
+        assertFalse(paths.get(0).isFound());
+    }
+
+    @Test
+    public void unreachableTargets() {
+        // 0 -> 1 -> 2    3 - 4
+        graph.edge(0, 1).setDistance(1).set(speedEnc, 10, 0);
+        graph.edge(1, 2).setDistance(1).set(speedEnc, 10, 0);
+        graph.edge(3, 4).setDistance(1).set(speedEnc, 10, 10);
+        Weighting weighting = createWeighting(Double.POSITIVE_INFINITY);
+
+        OneToManyDijkstra dijkstra = new OneToManyDijkstra(graph, weighting, 10);
+        List<Path> paths = dijkstra.calcPaths(1, ANY_EDGE, new int[]{2, 0, 4, 2, 2}, new int[]{ANY_EDGE, ANY_EDGE, ANY_EDGE, 0, NO_EDGE});
+        assertEquals(5, paths.size());
+        assertEquals(IntArrayList.from(1, 2), paths.get(0).calcNodes());
+        // against the one-way, in the other component, or with a target edge that does not end at the target
+        for (int i = 1; i < paths.size(); i++) {
+            assertFalse(paths.get(i).isFound(), "target " + i);
+            assertEquals(Double.MAX_VALUE, paths.get(i).getWeight());
+        }
+        // the search stops when there is nothing left to explore
+        assertEquals(2, dijkstra.getVisitedNodes());
+    }
+
+    @RepeatedTest(20)
+    public void compareWithBidirectionalDijkstra(RepetitionInfo repetitionInfo) {
+        compareWithBidirectionalDijkstra(repetitionInfo.getCurrentRepetition(), createWeighting(Double.POSITIVE_INFINITY));
+    }
+
+    @RepeatedTest(20)
+    public void compareWithBidirectionalDijkstra_finiteUTurnCosts(RepetitionInfo repetitionInfo) {
+        compareWithBidirectionalDijkstra(1000 + repetitionInfo.getCurrentRepetition(), createWeighting(40));
+    }
+
+    private void compareWithBidirectionalDijkstra(long seed, Weighting weighting) {
+        final int numNodes = 100;
+        final int numQueries = 50;
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, numNodes, 2.2, true, speedEnc, null, 0.8, 0.8);
+        GHUtility.addRandomTurnCosts(graph, seed, null, turnCostEnc, maxTurnCosts, turnCostStorage);
+
+        for (int i = 0; i < numQueries; i++) {
+            int source = rnd.nextInt(numNodes);
+            int sourceOutEdge = getAdjEdge(rnd, source);
+            int[] targets = new int[5];
+            int[] targetInEdges = new int[targets.length];
+            for (int t = 0; t < targets.length; t++) {
+                // sometimes use the source or an earlier target again
+                targets[t] = rnd.nextDouble() < 0.1 ? source : rnd.nextDouble() < 0.1 && t > 0 ? targets[t - 1] : rnd.nextInt(numNodes);
+                targetInEdges[t] = getAdjEdge(rnd, targets[t]);
+            }
+
+            List<Path> paths = new OneToManyDijkstra(graph, weighting, 50).calcPaths(source, sourceOutEdge, targets, targetInEdges);
+            assertEquals(targets.length, paths.size());
+            for (int t = 0; t < targets.length; t++) {
+                Path expected = new DijkstraBidirectionRef(graph, weighting, TraversalMode.EDGE_BASED).calcPath(source, targets[t], sourceOutEdge, targetInEdges[t]);
+                String msg = "seed: " + seed + ", source: " + source + ", sourceOutEdge: " + sourceOutEdge
+                        + ", target: " + targets[t] + ", targetInEdge: " + targetInEdges[t];
+                assertEquals(expected.isFound(), paths.get(t).isFound(), msg);
+                assertEquals(expected.getWeight(), paths.get(t).getWeight(), 1.e-6, msg);
+                if (expected.isFound()) {
+                    IntIndexedContainer nodes = paths.get(t).calcNodes();
+                    assertEquals(source, nodes.get(0), msg);
+                    assertEquals(targets[t], nodes.get(nodes.size() - 1), msg);
+                }
+            }
+        }
+    }
+
+    private int getAdjEdge(Random rnd, int node) {
+        // sometimes do not restrict anything
+        if (rnd.nextDouble() < 0.3)
+            return ANY_EDGE;
+        // sometimes use NO_EDGE
+        if (rnd.nextDouble() < 0.05)
+            return NO_EDGE;
+        IntArrayList edgeIds = new IntArrayList();
+        EdgeIterator iter = graph.createEdgeExplorer().setBaseNode(node);
+        while (iter.next())
+            edgeIds.add(iter.getEdge());
+        return edgeIds.isEmpty() ? ANY_EDGE : edgeIds.get(rnd.nextInt(edgeIds.size()));
+    }
+}
@@ -102,9 +102,13 @@ public final class PtRouterImpl implements PtRouter {
         }
 
         public PtRouter createWith(GtfsRealtime.FeedMessage realtimeFeed) {
+            return createWith(realtimeFeed, new RealtimeFeed.TripUpdateCache());
+        }
+
+        public PtRouter createWith(GtfsRealtime.FeedMessage realtimeFeed, RealtimeFeed.TripUpdateCache tripUpdateCache) {
             Map<String, GtfsRealtime.FeedMessage> realtimeFeeds = new HashMap<>();
             realtimeFeeds.put("gtfs_0", realtimeFeed);
-            return new PtRouterImpl(config, translationMap, baseGraph, encodingManager, locationIndex, gtfsStorage, RealtimeFeed.fromProtobuf(gtfsStorage, this.transfers, realtimeFeeds), new PathDetailsBuilderFactory());
+            return new PtRouterImpl(config, translationMap, baseGraph, encodingManager, locationIndex, gtfsStorage, RealtimeFeed.fromProtobuf(gtfsStorage, this.transfers, realtimeFeeds, tripUpdateCache), new PathDetailsBuilderFactory());
         }
 
         public PtRouter createWithoutRealtimeFeed() {
@@ -71,6 +71,15 @@ public class RealtimeFeed {
     }
 
     public static RealtimeFeed fromProtobuf(GtfsStorage staticGtfs, Map<String, Transfers> transfers, Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        return fromProtobuf(staticGtfs, transfers, feedMessages, new TripUpdateCache());
+    }
+
+    /**
+     * Creates a new feed from the given messages. The trip updates that were already part of the previous feed
+     * created with the same cache are not evaluated again, only the ones that changed. The returned feed is never
+     * modified afterwards, so it can be swapped in for the previous one while queries are still using that.
+     */
+    public static RealtimeFeed fromProtobuf(GtfsStorage staticGtfs, Map<String, Transfers> transfers, Map<String, GtfsRealtime.FeedMessage> feedMessages, TripUpdateCache tripUpdateCache) {
         final IntHashSet blockedEdges = new IntHashSet();
         final IntLongHashMap delaysForBoardEdges = new IntLongHashMap();
         final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
@@ -104,6 +113,7 @@ public class RealtimeFeed {
 
         };
 
+        Map<String, Map<GtfsRealtime.TripUpdate, ScheduledTripUpdate>> evaluatedTripUpdates = new HashMap<>();
         feedMessages.forEach((feedKey, feedMessage) -> {
             GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
             ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
@@ -114,11 +124,24 @@ public class RealtimeFeed {
             BitSet validOnDay = new BitSet();
             LocalDate startDate = feed.getStartDate();
             validOnDay.set((int) DAYS.between(startDate, dateToChange));
+            Map<GtfsRealtime.TripUpdate, ScheduledTripUpdate> previousTripUpdates = tripUpdateCache.evaluatedTripUpdates.getOrDefault(feedKey, Collections.emptyMap());
+            Map<GtfsRealtime.TripUpdate, ScheduledTripUpdate> currentTripUpdates = new HashMap<>();
+            evaluatedTripUpdates.put(feedKey, currentTripUpdates);
             feedMessage.getEntityList().stream()
                     .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
                     .map(GtfsRealtime.FeedEntity::getTripUpdate)
                     .filter(tripUpdate -> tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED)
-                    .forEach(tripUpdate -> maybeUpdateScheduledTrip(staticGtfs, feedKey, tripUpdate, feed, blockedEdges, delaysForAlightEdges, ptGraphNodesAndEdges, gtfsReader, timezone, validOnDay, delaysForBoardEdges));
+                    .forEach(tripUpdate -> {
+                        // the timestamp of a trip update changes with every message even if nothing else does
+                        GtfsRealtime.TripUpdate key = tripUpdate.hasTimestamp() ? tripUpdate.toBuilder().clearTimestamp().build() : tripUpdate;
+                        ScheduledTripUpdate scheduledTripUpdate = previousTripUpdates.get(key);
+                        if (scheduledTripUpdate == null)
+                            scheduledTripUpdate = currentTripUpdates.get(key);
+                        if (scheduledTripUpdate == null)
+                            scheduledTripUpdate = evaluateScheduledTrip(staticGtfs, feedKey, tripUpdate, feed, ptGraphNodesAndEdges);
+                        currentTripUpdates.put(key, scheduledTripUpdate);
+                        scheduledTripUpdate.apply(tripUpdate.getTrip(), blockedEdges, delaysForAlightEdges, gtfsReader, timezone, validOnDay, delaysForBoardEdges);
+                    });
             feedMessage.getEntityList().stream()
                     .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
                     .map(GtfsRealtime.FeedEntity::getTripUpdate)
@@ -126,25 +149,28 @@ public class RealtimeFeed {
                     .forEach(tripUpdate -> maybeAddExtraTrip(staticGtfs, feedKey, tripUpdate, timezone, validOnDay, gtfsReader));
             gtfsReader.wireUpAdditionalDeparturesAndArrivals(timezone);
         });
+        // only keep the trip updates of this feed, so the cache does not grow with trips that are long gone
+        tripUpdateCache.evaluatedTripUpdates = evaluatedTripUpdates;
 
         return new RealtimeFeed(feedMessages, blockedEdges, delaysForBoardEdges, delaysForAlightEdges, additionalEdges);
     }
 
-    private static void maybeUpdateScheduledTrip(GtfsStorage staticGtfs, String feedKey, GtfsRealtime.TripUpdate tripUpdate, GTFSFeed feed, IntHashSet blockedEdges, IntLongHashMap delaysForAlightEdges, PtGraph ptGraphNodesAndEdges, GtfsReader gtfsReader, ZoneId timezone, BitSet validOnDay, IntLongHashMap delaysForBoardEdges) {
+    private static ScheduledTripUpdate evaluateScheduledTrip(GtfsStorage staticGtfs, String feedKey, GtfsRealtime.TripUpdate tripUpdate, GTFSFeed feed, PtGraph ptGraphNodesAndEdges) {
         Collection<Frequency> frequencies = feed.getFrequencies(tripUpdate.getTrip().getTripId());
         int timeOffset = (tripUpdate.getTrip().hasStartTime() && !frequencies.isEmpty()) ? LocalTime.parse(tripUpdate.getTrip().getStartTime()).toSecondOfDay() : 0;
         final int[] boardEdges = findBoardEdgesForTrip(staticGtfs, feedKey, feed, tripUpdate.getTrip());
         final int[] leaveEdges = findAlightEdgesForTrip(staticGtfs, feedKey, feed, tripUpdate.getTrip());
         if (boardEdges == null || leaveEdges == null) {
             logger.warn("Trip not found: {}", tripUpdate.getTrip());
-            return;
+            return ScheduledTripUpdate.TRIP_NOT_FOUND;
         }
+        ScheduledTripUpdate result = new ScheduledTripUpdate();
         tripUpdate.getStopTimeUpdateList().stream()
                 .filter(stopTimeUpdate -> stopTimeUpdate.getScheduleRelationship() == SKIPPED)
                 .mapToInt(GtfsRealtime.TripUpdate.StopTimeUpdate::getStopSequence)
                 .forEach(skippedStopSequenceNumber -> {
-                    blockedEdges.add(boardEdges[skippedStopSequenceNumber]);
-                    blockedEdges.add(leaveEdges[skippedStopSequenceNumber]);
+                    result.blockedEdges.add(boardEdges[skippedStopSequenceNumber]);
+                    result.blockedEdges.add(leaveEdges[skippedStopSequenceNumber]);
                 });
         GtfsReader.TripWithStopTimes tripWithStopTimes = toTripWithStopTimes(feed, tripUpdate);
         tripWithStopTimes.stopTimes.forEach(stopTime -> {
@@ -154,15 +180,60 @@ public class RealtimeFeed {
             }
             final StopTime originalStopTime = feed.stop_times.get(new Fun.Tuple2(tripUpdate.getTrip().getTripId(), stopTime.stop_sequence));
             int arrivalDelay = stopTime.arrival_time - originalStopTime.arrival_time;
-            delaysForAlightEdges.put(leaveEdges[stopTime.stop_sequence], arrivalDelay * 1000);
+            result.delaysForAlightEdges.put(leaveEdges[stopTime.stop_sequence], arrivalDelay * 1000);
             int departureDelay = stopTime.departure_time - originalStopTime.departure_time;
             if (departureDelay > 0) {
                 int boardEdge = boardEdges[stopTime.stop_sequence];
                 int departureNode = ptGraphNodesAndEdges.edge(boardEdge).getAdjNode();
-                int delayedBoardEdge = gtfsReader.addDelayedBoardEdge(timezone, tripUpdate.getTrip(), stopTime.stop_sequence, stopTime.departure_time + timeOffset, departureNode, validOnDay);
-                delaysForBoardEdges.put(delayedBoardEdge, departureDelay * 1000);
+                result.delayedDepartures.add(new DelayedDeparture(stopTime.stop_sequence, stopTime.departure_time + timeOffset, departureNode, departureDelay * 1000));
             }
         });
+        return result;
+    }
+
+    /**
+     * Remembers how the trip updates of the last feed created with it changed the static timetable, so the next feed
+     * only needs to evaluate the trip updates that are new or changed. This is meant to be used by the single thread
+     * that periodically reloads the realtime feed and is not thread safe.
+     */
+    public static class TripUpdateCache {
+        private Map<String, Map<GtfsRealtime.TripUpdate, ScheduledTripUpdate>> evaluatedTripUpdates = Collections.emptyMap();
+    }
+
+    /**
+     * The effect of a single SCHEDULED trip update on the static timetable. It only depends on the trip update and the
+     * static feed, so it can be reused for the following feeds as long as the trip update does not change. The delayed
+     * departures are only added to the overlay graph when the update is applied, because the ids of the additional
+     * nodes and edges depend on all other updates of the feed.
+     */
+    private static class ScheduledTripUpdate {
+        static final ScheduledTripUpdate TRIP_NOT_FOUND = new ScheduledTripUpdate();
+        final IntArrayList blockedEdges = new IntArrayList();
+        final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
+        final List<DelayedDeparture> delayedDepartures = new ArrayList<>();
+
+        void apply(GtfsRealtime.TripDescriptor tripDescriptor, IntHashSet blockedEdges, IntLongHashMap delaysForAlightEdges, GtfsReader gtfsReader, ZoneId timezone, BitSet validOnDay, IntLongHashMap delaysForBoardEdges) {
+            blockedEdges.addAll(this.blockedEdges);
+            delaysForAlightEdges.putAll(this.delaysForAlightEdges);
+            for (DelayedDeparture delayedDeparture : delayedDepartures) {
+                int delayedBoardEdge = gtfsReader.addDelayedBoardEdge(timezone, tripDescriptor, delayedDeparture.stopSequence, delayedDeparture.departureTime, delayedDeparture.departureNode, validOnDay);
+                delaysForBoardEdges.put(delayedBoardEdge, delayedDeparture.delay);
+            }
+        }
+    }
+
+    private static class DelayedDeparture {
+        final int stopSequence;
+        final int departureTime;
+        final int departureNode;
+        final long delay;
+
+        DelayedDeparture(int stopSequence, int departureTime, int departureNode, long delay) {
+            this.stopSequence = stopSequence;
+            this.departureTime = departureTime;
+            this.departureNode = departureNode;
+            this.delay = delay;
+        }
     }
 
     private static void maybeAddExtraTrip(GtfsStorage staticGtfs, String feedKey, GtfsRealtime.TripUpdate tripUpdate, ZoneId timezone, BitSet validOnDay, GtfsReader gtfsReader) {
@@ -185,9 +185,13 @@ public class TripBasedRouter {
                     break;
                 Trips.TripAtStopTime transferOrigin = new Trips.TripAtStopTime(enqueuedTripSegment.tripPointer.idx, stopTime.stop_sequence);
                 logger.debug("  {}", print(transferOrigin, tripTransfers, ARRIVAL));
-                Collection<Trips.TripAtStopTime> transferDestinations = gtfsStorage.tripTransfers.getTripTransfers(enqueuedTripSegment.serviceDay).get(transferOrigin);
-                if (transferDestinations == null) continue; // currently if we didn't build the service day.
-                for (Trips.TripAtStopTime transferDestination : transferDestinations) {
+                TripTransfers transfersForServiceDay = gtfsStorage.tripTransfers.getTripTransfers(enqueuedTripSegment.serviceDay);
+                if (transfersForServiceDay == null) continue; // currently if we didn't build the service day.
+                int origin = transfersForServiceDay.getOrigin(transferOrigin.tripIdx, transferOrigin.stop_sequence);
+                if (origin < 0) continue;
+                int transfersEnd = transfersForServiceDay.getTransfersEnd(origin);
+                for (int transfer = transfersForServiceDay.getTransfersStart(origin); transfer < transfersEnd; transfer++) {
+                    Trips.TripAtStopTime transferDestination = new Trips.TripAtStopTime(transfersForServiceDay.getDestinationTripIdx(transfer), transfersForServiceDay.getDestinationStopSequence(transfer));
                     GTFSFeed.StopTimesForTripWithTripPatternKey destinationTripPointer = tripTransfers.getTrip(transferDestination.tripIdx);
                     GTFSFeed destinationFeed = gtfsStorage.getGtfsFeeds().get(destinationTripPointer.feedId);
                     ZoneId destinationZoneId = ZoneId.of(destinationFeed.agency.values().stream().findFirst().get().agency_timezone);
@@ -0,0 +1,192 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.conveyal.gtfs.GTFSFeed;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The trip-based transfers of a single traffic day in a compressed sparse row layout, so they can be stored in and
+ * read from a {@link DataAccess} (and therefore be memory-mapped) without creating an object per transfer.
+ * <p>
+ * The origins of the transfers are addressed by (trip index, stop sequence): the first section contains for every trip
+ * the index of its first origin slot, the second section contains for every origin slot the index of its first
+ * transfer and the third section contains the destinations as (trip index, stop sequence) pairs.
+ */
+public class TripTransfers {
+    // the trip transfers used to be written with an ObjectOutputStream, files of that format cannot be read anymore
+    private static final int VERSION = 1;
+    private static final int TRIP_ENTRY_BYTES = 4, ORIGIN_ENTRY_BYTES = 4, TRANSFER_ENTRY_BYTES = 8;
+    private final DataAccess da;
+    private int tripCount;
+    private int originCount;
+    private long originsPointer;
+    private long transfersPointer;
+
+    public TripTransfers(Directory dir, String name) {
+        da = dir.create(name, dir.getDefaultType(name, true), -1);
+    }
+
+    /**
+     * Writes the given transfers, all origins must belong to the given trips.
+     */
+    public void create(List<GTFSFeed.StopTimesForTripWithTripPatternKey> trips, Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> transfers) {
+        tripCount = trips.size();
+        int[] firstOriginOfTrip = new int[tripCount + 1];
+        for (int i = 0; i < tripCount; i++) {
+            firstOriginOfTrip[i + 1] = firstOriginOfTrip[i] + trips.get(i).stopTimes.size();
+        }
+        originCount = firstOriginOfTrip[tripCount];
+        int[] transferCounts = new int[originCount];
+        long transferCount = 0;
+        for (Map.Entry<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> entry : transfers.entrySet()) {
+            transferCounts[originSlot(firstOriginOfTrip, entry.getKey())] = entry.getValue().size();
+            transferCount += entry.getValue().size();
+        }
+        if (transferCount > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many trip transfers: " + transferCount);
+        initPointers();
+        da.create(transfersPointer + transferCount * TRANSFER_ENTRY_BYTES);
+        da.ensureCapacity(transfersPointer + transferCount * TRANSFER_ENTRY_BYTES);
+
+        for (int i = 0; i <= tripCount; i++) {
+            da.setInt((long) i * TRIP_ENTRY_BYTES, firstOriginOfTrip[i]);
+        }
+        int firstTransfer = 0;
+        for (int i = 0; i < originCount; i++) {
+            da.setInt(originsPointer + (long) i * ORIGIN_ENTRY_BYTES, firstTransfer);
+            firstTransfer += transferCounts[i];
+        }
+        da.setInt(originsPointer + (long) originCount * ORIGIN_ENTRY_BYTES, firstTransfer);
+
+        for (Map.Entry<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> entry : transfers.entrySet()) {
+            long pointer = transferPointer(getTransfersStart(originSlot(firstOriginOfTrip, entry.getKey())));
+            for (Trips.TripAtStopTime destination : entry.getValue()) {
+                da.setInt(pointer, destination.tripIdx);
+                da.setInt(pointer + 4, destination.stop_sequence);
+                pointer += TRANSFER_ENTRY_BYTES;
+            }
+        }
+    }
+
+    private static int originSlot(int[] firstOriginOfTrip, Trips.TripAtStopTime origin) {
+        int slot = firstOriginOfTrip[origin.tripIdx] + origin.stop_sequence;
+        if (slot >= firstOriginOfTrip[origin.tripIdx + 1])
+            throw new IllegalArgumentException("Invalid stop sequence for trip transfer origin " + origin);
+        return slot;
+    }
+
+    private void initPointers() {
+        originsPointer = (long) (tripCount + 1) * TRIP_ENTRY_BYTES;
+        transfersPointer = originsPointer + (long) (originCount + 1) * ORIGIN_ENTRY_BYTES;
+    }
+
+    public boolean loadExisting() {
+        boolean loaded;
+        try {
+            loaded = da.loadExisting();
+        } catch (RuntimeException ex) {
+            throw new IllegalStateException(createReimportMessage("cannot be read"), ex);
+        }
+        if (!loaded)
+            return false;
+        int version = da.getHeader(0);
+        if (version != VERSION)
+            throw new IllegalStateException(createReimportMessage("have version " + version + " instead of " + VERSION));
+        tripCount = da.getHeader(4);
+        originCount = da.getHeader(8);
+        initPointers();
+        return true;
+    }
+
+    private String createReimportMessage(String problem) {
+        return "The trip-based transfers in " + da.getName() + " " + problem + ". They were probably written by an older "
+                + "GraphHopper version, which stored them in a different format. A re-import is required: remove the "
+                + "graph folder and import the GTFS feeds again.";
+    }
+
+    public void flush() {
+        da.setHeader(0, VERSION);
+        da.setHeader(4, tripCount);
+        da.setHeader(8, originCount);
+        da.flush();
+    }
+
+    public void close() {
+        da.close();
+    }
+
+    /**
+     * @return the origin slot for the given trip and stop sequence or -1 if the trip is unknown
+     */
+    public int getOrigin(int tripIdx, int stopSequence) {
+        if (tripIdx < 0 || tripIdx >= tripCount)
+            return -1;
+        int slot = da.getInt((long) tripIdx * TRIP_ENTRY_BYTES) + stopSequence;
+        return slot < da.getInt((long) (tripIdx + 1) * TRIP_ENTRY_BYTES) ? slot : -1;
+    }
+
+    /**
+     * @return the index of the first transfer of the given origin slot
+     */
+    public int getTransfersStart(int origin) {
+        return da.getInt(originsPointer + (long) origin * ORIGIN_ENTRY_BYTES);
+    }
+
+    /**
+     * @return the index after the last transfer of the given origin slot
+     */
+    public int getTransfersEnd(int origin) {
+        return da.getInt(originsPointer + (long) (origin + 1) * ORIGIN_ENTRY_BYTES);
+    }
+
+    public int getDestinationTripIdx(int transfer) {
+        return da.getInt(transferPointer(transfer));
+    }
+
+    public int getDestinationStopSequence(int transfer) {
+        return da.getInt(transferPointer(transfer) + 4);
+    }
+
+    private long transferPointer(int transfer) {
+        return transfersPointer + (long) transfer * TRANSFER_ENTRY_BYTES;
+    }
+
+    /**
+     * Convenience method that creates the destinations of the transfers from the given origin, or null if the origin
+     * is unknown.
+     */
+    public List<Trips.TripAtStopTime> get(Trips.TripAtStopTime origin) {
+        int slot = getOrigin(origin.tripIdx, origin.stop_sequence);
+        if (slot < 0)
+            return null;
+        int end = getTransfersEnd(slot);
+        List<Trips.TripAtStopTime> result = new ArrayList<>(end - getTransfersStart(slot));
+        for (int transfer = getTransfersStart(slot); transfer < end; transfer++) {
+            result.add(new Trips.TripAtStopTime(getDestinationTripIdx(transfer), getDestinationStopSequence(transfer)));
+        }
+        return result;
+    }
+}
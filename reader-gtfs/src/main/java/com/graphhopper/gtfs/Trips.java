@@ -19,7 +19,7 @@ public class Trips {
 
     public final List<GTFSFeed.StopTimesForTripWithTripPatternKey> trips;
     private Map<GtfsStorage.FeedIdWithStopId, Map<String, List<TripAtStopTime>>> boardingsForStopByPattern = new ConcurrentHashMap<>();
-    private Map<LocalDate, Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>>> tripTransfersPerDay = new ConcurrentHashMap<>();
+    private Map<LocalDate, TripTransfers> tripTransfersPerDay = new ConcurrentHashMap<>();
     public int idx;
 
     public Trips(GtfsStorage gtfsStorage) {
@@ -218,12 +218,19 @@ public class Trips {
             });
     }
 
-    public Map<LocalDate, Map<TripAtStopTime, Collection<TripAtStopTime>>> getTripTransfers() {
+    public Map<LocalDate, TripTransfers> getTripTransfers() {
         return tripTransfersPerDay;
     }
 
-    public Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> getTripTransfers(LocalDate trafficDay) {
-        return tripTransfersPerDay.computeIfAbsent(trafficDay, k -> new TreeMap<>());
+    /**
+     * @return the transfers for the given traffic day or null if they were not computed for this day
+     */
+    public TripTransfers getTripTransfers(LocalDate trafficDay) {
+        return tripTransfersPerDay.get(trafficDay);
+    }
+
+    public void close() {
+        tripTransfersPerDay.values().forEach(TripTransfers::close);
     }
 
     public GTFSFeed.StopTimesForTripWithTripPatternKey getTrip(int tripIdx) {
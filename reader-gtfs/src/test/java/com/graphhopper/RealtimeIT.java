@@ -22,6 +22,7 @@ import com.google.transit.realtime.GtfsRealtime;
 import com.graphhopper.gtfs.GraphHopperGtfs;
 import com.graphhopper.gtfs.PtRouter;
 import com.graphhopper.gtfs.PtRouterImpl;
+import com.graphhopper.gtfs.RealtimeFeed;
 import com.graphhopper.gtfs.Request;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.util.Helper;
@@ -186,6 +187,40 @@ public class RealtimeIT {
         assertEquals(time(0, 5), response.getBest().getTime(), 0.1, "I am two minutes late for my bus, but the bus is two minutes late, too, so I catch it!");
     }
 
+    @Test
+    public void testDelayIsKeptWhenUnchangedTripUpdateIsReused() {
+        final double FROM_LAT = 36.914893, FROM_LON = -116.76821; // NADAV stop
+        final double TO_LAT = 36.914944, TO_LON = -116.761472; // NANAA stop
+        Request ghRequest = new Request(
+                FROM_LAT, FROM_LON,
+                TO_LAT, TO_LON
+        );
+        ghRequest.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 6, 46).atZone(zoneId).toInstant());
+
+        RealtimeFeed.TripUpdateCache tripUpdateCache = new RealtimeFeed.TripUpdateCache();
+        for (int minute = 0; minute < 3; minute++) {
+            // The next message of the feed only differs in its timestamps, so the trip update is not evaluated again
+            final GtfsRealtime.FeedMessage.Builder feedMessageBuilder = GtfsRealtime.FeedMessage.newBuilder();
+            long timestamp = ZonedDateTime.of(LocalDate.of(2007, 1, 1), LocalTime.of(0, minute), zoneId).toEpochSecond();
+            feedMessageBuilder.setHeader(GtfsRealtime.FeedHeader.newBuilder()
+                    .setGtfsRealtimeVersion("1")
+                    .setTimestamp(timestamp));
+            feedMessageBuilder.addEntityBuilder()
+                    .setId("1")
+                    .getTripUpdateBuilder()
+                    .setTimestamp(timestamp)
+                    .setTrip(GtfsRealtime.TripDescriptor.newBuilder().setTripId("CITY2").setStartTime("06:00:00"))
+                    .addStopTimeUpdateBuilder()
+                    .setScheduleRelationship(SCHEDULED)
+                    .setStopSequence(3)
+                    .setArrival(GtfsRealtime.TripUpdate.StopTimeEvent.newBuilder().setDelay(120).build());
+
+            GHResponse response = graphHopperFactory.createWith(feedMessageBuilder.build(), tripUpdateCache).route(ghRequest);
+
+            assertEquals(time(0, 5), response.getBest().getTime(), 0.1, "I still catch the delayed bus");
+        }
+    }
+
     @Test
     public void testSkipArrivalStop() {
         final double FROM_LAT = 36.914893, FROM_LON = -116.76821; // NADAV stop
@@ -0,0 +1,128 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.StopTime;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.GHDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TripTransfersTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void storeAndLoad() {
+        // three trips with 3, 1 and 4 stops
+        List<GTFSFeed.StopTimesForTripWithTripPatternKey> trips = Arrays.asList(trip(3), trip(1), trip(4));
+        Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> transfers = new HashMap<>();
+        transfers.put(new Trips.TripAtStopTime(0, 1), Arrays.asList(new Trips.TripAtStopTime(2, 0), new Trips.TripAtStopTime(1, 0)));
+        transfers.put(new Trips.TripAtStopTime(0, 2), Collections.singletonList(new Trips.TripAtStopTime(2, 3)));
+        transfers.put(new Trips.TripAtStopTime(1, 0), Collections.emptyList());
+        transfers.put(new Trips.TripAtStopTime(2, 3), Arrays.asList(new Trips.TripAtStopTime(0, 0), new Trips.TripAtStopTime(1, 0), new Trips.TripAtStopTime(0, 2)));
+
+        TripTransfers tripTransfers = new TripTransfers(new GHDirectory(dir.toString(), DAType.RAM_STORE), "trip_transfers_2024-01-01");
+        tripTransfers.create(trips, transfers);
+        assertTransfers(trips, transfers, tripTransfers);
+        tripTransfers.flush();
+        tripTransfers.close();
+
+        tripTransfers = new TripTransfers(new GHDirectory(dir.toString(), DAType.RAM_STORE), "trip_transfers_2024-01-01");
+        assertTrue(tripTransfers.loadExisting());
+        assertTransfers(trips, transfers, tripTransfers);
+        tripTransfers.close();
+
+        tripTransfers = new TripTransfers(new GHDirectory(dir.toString(), DAType.MMAP_RO), "trip_transfers_2024-01-01");
+        assertTrue(tripTransfers.loadExisting());
+        assertTransfers(trips, transfers, tripTransfers);
+        tripTransfers.close();
+
+        assertFalse(new TripTransfers(new GHDirectory(dir.toString(), DAType.RAM_STORE), "trip_transfers_2024-01-02").loadExisting());
+    }
+
+    @Test
+    public void invalidOrigin() {
+        TripTransfers tripTransfers = new TripTransfers(new GHDirectory(dir.toString(), DAType.RAM_STORE), "trip_transfers");
+        Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> transfers = new HashMap<>();
+        transfers.put(new Trips.TripAtStopTime(0, 2), Collections.singletonList(new Trips.TripAtStopTime(0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> tripTransfers.create(Collections.singletonList(trip(2)), transfers));
+    }
+
+    @Test
+    public void olderFormatRequiresReimport() throws IOException {
+        // before they were stored in a DataAccess the transfers were written like this
+        try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(dir.resolve("trip_transfers_2024-01-01")))) {
+            oos.writeInt(1);
+            oos.writeInt(0);
+            oos.writeInt(1);
+            oos.writeInt(1);
+            oos.writeInt(2);
+            oos.writeInt(0);
+        }
+        TripTransfers tripTransfers = new TripTransfers(new GHDirectory(dir.toString(), DAType.RAM_STORE), "trip_transfers_2024-01-01");
+        IllegalStateException ex = assertThrows(IllegalStateException.class, tripTransfers::loadExisting);
+        assertTrue(ex.getMessage().contains("A re-import is required"), ex.getMessage());
+    }
+
+    @Test
+    public void otherVersionRequiresReimport() {
+        DataAccess da = new GHDirectory(dir.toString(), DAType.RAM_STORE).create("trip_transfers_2024-01-01").create(100);
+        da.setHeader(0, 0);
+        da.flush();
+        da.close();
+        TripTransfers tripTransfers = new TripTransfers(new GHDirectory(dir.toString(), DAType.MMAP_RO), "trip_transfers_2024-01-01");
+        IllegalStateException ex = assertThrows(IllegalStateException.class, tripTransfers::loadExisting);
+        assertTrue(ex.getMessage().contains("have version 0 instead of 1"), ex.getMessage());
+        assertTrue(ex.getMessage().contains("A re-import is required"), ex.getMessage());
+    }
+
+    private static void assertTransfers(List<GTFSFeed.StopTimesForTripWithTripPatternKey> trips,
+                                        Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> transfers, TripTransfers tripTransfers) {
+        // TripAtStopTime has no hashCode, so we look up the expected transfers via compareTo
+        Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> expected = new TreeMap<>(transfers);
+        for (int tripIdx = 0; tripIdx < trips.size(); tripIdx++) {
+            for (int stopSequence = 0; stopSequence < trips.get(tripIdx).stopTimes.size(); stopSequence++) {
+                Trips.TripAtStopTime origin = new Trips.TripAtStopTime(tripIdx, stopSequence);
+                List<Trips.TripAtStopTime> destinations = new ArrayList<>(expected.getOrDefault(origin, Collections.emptyList()));
+                assertEquals(destinations, tripTransfers.get(origin), "origin " + origin);
+            }
+            // beyond the last stop of the trip
+            assertNull(tripTransfers.get(new Trips.TripAtStopTime(tripIdx, trips.get(tripIdx).stopTimes.size())));
+        }
+        assertNull(tripTransfers.get(new Trips.TripAtStopTime(trips.size(), 0)));
+        assertNull(tripTransfers.get(new Trips.TripAtStopTime(-1, 0)));
+    }
+
+    private static GTFSFeed.StopTimesForTripWithTripPatternKey trip(int stops) {
+        // only the number of stop times matters for the transfers
+        return new GTFSFeed.StopTimesForTripWithTripPatternKey("feed", null, null, 3, Arrays.asList(new StopTime[stops]), null);
+    }
+}
@@ -219,6 +219,11 @@ public class Measurement {
                                         activeLandmarks(activeLMCount).edgeBased().alternative());
                             }
                         });
+                // compares the query times for different intervals of the landmark reselection, 0 disables it
+                Helper.parseList(args.getString("measurement.lm.reselection_intervals", "[]")).stream()
+                        .mapToInt(Integer::parseInt).forEach(interval ->
+                                measureRouting(hopper, new QuerySettings("routingLM8_reselection" + interval, count / 20, isCH, isLM).
+                                        withInstructions().activeLandmarks(8).reselectionInterval(interval)));
             }
 
             if (hopper.getCHPreparationHandler().isEnabled()) {
@@ -344,6 +349,7 @@ public class Measurement {
         private final int count;
         final boolean ch, lm;
         int activeLandmarks = -1;
+        int reselectionInterval = -1;
         boolean withInstructions, withPointHints, sod, edgeBased, simplify, pathDetails, alternative;
         int points = 2;
 
@@ -379,6 +385,11 @@ public class Measurement {
             return this;
         }
 
+        QuerySettings reselectionInterval(int interval) {
+            this.reselectionInterval = interval;
+            return this;
+        }
+
         QuerySettings edgeBased() {
             this.edgeBased = true;
             return this;
@@ -565,6 +576,9 @@ public class Measurement {
                     putObject(Landmark.ACTIVE_COUNT, querySettings.activeLandmarks).
                     putObject("instructions", querySettings.withInstructions);
 
+            if (querySettings.reselectionInterval >= 0)
+                req.getHints().putObject(Landmark.RESELECTION_INTERVAL, querySettings.reselectionInterval);
+
             if (querySettings.alternative)
                 req.setAlgorithm(ALT_ROUTE);
 
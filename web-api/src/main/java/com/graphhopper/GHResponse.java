@@ -20,8 +20,10 @@ package com.graphhopper;
 import com.graphhopper.util.PMap;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Wrapper containing path and error output of GraphHopper.
@@ -32,6 +34,7 @@ import java.util.Locale;
 public class GHResponse {
     private final List<Throwable> errors = new ArrayList<>(4);
     private PMap hintsMap = new PMap();
+    private final Map<String, List<Double>> timings = new LinkedHashMap<>();
     private final List<ResponsePath> responsePaths = new ArrayList<>(5);
     private String debugInfo = "";
 
@@ -149,6 +152,22 @@ public class GHResponse {
         return hintsMap;
     }
 
+    /**
+     * Adds the duration of a stage of the request like snap or route. A stage can be added multiple times, e.g. one
+     * duration for every leg.
+     */
+    public void addTiming(String stage, double millis) {
+        timings.computeIfAbsent(stage, k -> new ArrayList<>(1)).add(millis);
+    }
+
+    /**
+     * The durations in milliseconds of the stages of the request, see {@link #addTiming(String, double)}. They are
+     * meant for monitoring on the server and are not part of the serialized response, unlike the hints.
+     */
+    public Map<String, List<Double>> getTimings() {
+        return timings;
+    }
+
     public String getHeader(String key, String defaultValue) {
         Object val = hintsMap.getObject(key.toLowerCase(Locale.ROOT), null);
         if (val instanceof List && !((List) val).isEmpty())
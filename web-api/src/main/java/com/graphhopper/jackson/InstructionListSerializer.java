@@ -25,32 +25,38 @@ import com.graphhopper.util.Instruction;
 import com.graphhopper.util.InstructionList;
 
 import java.io.IOException;
-import java.util.*;
+import java.util.Map;
 
 import static com.graphhopper.util.Parameters.Details.STREET_NAME;
 
+/**
+ * Writes the instructions directly to the generator, without creating an intermediate map per instruction.
+ */
 public class InstructionListSerializer extends JsonSerializer<InstructionList> {
     @Override
     public void serialize(InstructionList instructions, JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException {
-        List<Map<String, Object>> instrList = new ArrayList<>(instructions.size());
+        jsonGenerator.writeStartArray();
         int pointsIndex = 0;
         for (Instruction instruction : instructions) {
-            Map<String, Object> instrJson = new HashMap<>();
-            instrList.add(instrJson);
-
-            instrJson.put("text", Helper.firstBig(instruction.getTurnDescription(instructions.getTr())));
-
-            instrJson.put(STREET_NAME, instruction.getName());
-            instrJson.put("time", instruction.getTime());
-            instrJson.put("distance", Helper.round(instruction.getDistance(), 3));
-            instrJson.put("sign", instruction.getSign());
-            instrJson.putAll(instruction.getExtraInfoJSON());
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeStringField("text", Helper.firstBig(instruction.getTurnDescription(instructions.getTr())));
+            jsonGenerator.writeStringField(STREET_NAME, instruction.getName());
+            jsonGenerator.writeNumberField("time", instruction.getTime());
+            jsonGenerator.writeNumberField("distance", Helper.round(instruction.getDistance(), 3));
+            jsonGenerator.writeNumberField("sign", instruction.getSign());
+            for (Map.Entry<String, Object> entry : instruction.getExtraInfoJSON().entrySet()) {
+                jsonGenerator.writeFieldName(entry.getKey());
+                serializerProvider.defaultSerializeValue(entry.getValue(), jsonGenerator);
+            }
 
             int tmpIndex = pointsIndex + instruction.getLength();
-            instrJson.put("interval", Arrays.asList(pointsIndex, tmpIndex));
+            jsonGenerator.writeArrayFieldStart("interval");
+            jsonGenerator.writeNumber(pointsIndex);
+            jsonGenerator.writeNumber(tmpIndex);
+            jsonGenerator.writeEndArray();
             pointsIndex = tmpIndex;
-
+            jsonGenerator.writeEndObject();
         }
-        jsonGenerator.writeObject(instrList);
+        jsonGenerator.writeEndArray();
     }
 }
@@ -18,6 +18,10 @@
 
 package com.graphhopper.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -26,6 +30,7 @@ import com.graphhopper.ResponsePath;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.List;
 import java.util.Locale;
@@ -107,7 +112,7 @@ public class ResponsePathSerializer {
 
             if (calcPoints) {
                 jsonPath.putPOJO("bbox", p.calcBBox2D());
-                jsonPath.putPOJO("points", pointsEncoded ? encodePolyline(p.getPoints(), enableElevation, pointsMultiplier) : p.getPoints().toLineString(enableElevation));
+                jsonPath.putPOJO("points", new Points(p.getPoints(), enableElevation, pointsEncoded, pointsMultiplier));
                 if (enableInstructions) {
                     jsonPath.putPOJO("instructions", p.getInstructions());
                 }
@@ -115,11 +120,59 @@ public class ResponsePathSerializer {
                 jsonPath.put("ascend", p.getAscend());
                 jsonPath.put("descend", p.getDescend());
             }
-            jsonPath.putPOJO("snapped_waypoints", pointsEncoded ? encodePolyline(p.getWaypoints(), enableElevation, pointsMultiplier) : p.getWaypoints().toLineString(enableElevation));
+            jsonPath.putPOJO("snapped_waypoints", new Points(p.getWaypoints(), enableElevation, pointsEncoded, pointsMultiplier));
             if (p.getFare() != null) {
                 jsonPath.put("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(p.getFare()));
             }
         }
         return json;
     }
+
+    /**
+     * The points of a path are only encoded when the response is written, and in the GeoJSON case they are written
+     * straight to the generator, so we do not need to create a {@link org.locationtech.jts.geom.LineString} with a
+     * coordinate object per point first.
+     */
+    static class Points implements JsonSerializable {
+        private final PointList points;
+        private final boolean includeElevation;
+        private final boolean encoded;
+        private final double multiplier;
+
+        Points(PointList points, boolean includeElevation, boolean encoded, double multiplier) {
+            this.points = points;
+            this.includeElevation = includeElevation;
+            this.encoded = encoded;
+            this.multiplier = multiplier;
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            if (encoded) {
+                gen.writeString(encodePolyline(points, includeElevation, multiplier));
+                return;
+            }
+            gen.writeStartObject();
+            gen.writeStringField("type", "LineString");
+            gen.writeArrayFieldStart("coordinates");
+            // special case as just 1 point is not supported in the specification #1412
+            int size = points.size() == 1 ? 2 : points.size();
+            for (int i = 0; i < size; i++) {
+                int index = Math.min(i, points.size() - 1);
+                gen.writeStartArray();
+                gen.writeNumber(Helper.round6(points.getLon(index)));
+                gen.writeNumber(Helper.round6(points.getLat(index)));
+                if (includeElevation)
+                    gen.writeNumber(Helper.round2(points.getEle(index)));
+                gen.writeEndArray();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+            serialize(gen, serializers);
+        }
+    }
 }
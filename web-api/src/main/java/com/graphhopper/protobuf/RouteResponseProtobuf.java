@@ -0,0 +1,538 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.protobuf;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import org.locationtech.jts.geom.Envelope;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Writes and reads the binary protobuf format of the routing API, which is an alternative to the JSON response for
+ * clients that want to avoid the cost of JSON parsing. The schema is in route_response.proto next to this class. We
+ * use the wire format directly instead of generated message classes, so the response is written from the
+ * {@link GHResponse} without creating an intermediate object per point or instruction.
+ */
+public class RouteResponseProtobuf {
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+    private static final double MULTIPLIER = 1e6;
+    private static final ObjectMapper objectMapper = Jackson.newObjectMapper();
+
+    public static void write(GHResponse ghRsp, ResponsePathSerializer.Info info, boolean enableInstructions,
+                             boolean calcPoints, boolean enableElevation, OutputStream outputStream) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(outputStream);
+        for (ResponsePath p : ghRsp.getAll()) {
+            out.writeBytes(1, writeMessage(o -> writePath(o, p, enableInstructions, calcPoints, enableElevation)));
+        }
+        for (Map.Entry<String, Object> entry : ghRsp.getHints().toMap().entrySet()) {
+            out.writeBytes(2, writeMessage(o -> writeEntry(o, entry.getKey(), entry.getValue())));
+        }
+        out.writeBytes(3, writeMessage(o -> {
+            for (String copyright : info.copyrights()) {
+                o.writeString(1, copyright);
+            }
+            o.writeInt64(2, info.took());
+            if (info.roadDataTimestamp() != null)
+                o.writeString(3, info.roadDataTimestamp());
+        }));
+        out.flush();
+    }
+
+    private static void writePath(CodedOutputStream out, ResponsePath p, boolean enableInstructions, boolean calcPoints, boolean enableElevation) throws IOException {
+        out.writeDouble(1, p.getDistance());
+        out.writeDouble(2, p.getRouteWeight());
+        out.writeInt64(3, p.getTime());
+        out.writeInt32(4, p.getNumChanges());
+        for (String description : p.getDescription()) {
+            out.writeString(5, description);
+        }
+        if (calcPoints) {
+            Envelope bbox = p.calcBBox2D();
+            out.writeDouble(6, bbox.getMinX());
+            out.writeDouble(6, bbox.getMinY());
+            out.writeDouble(6, bbox.getMaxX());
+            out.writeDouble(6, bbox.getMaxY());
+            out.writeBytes(7, writeMessage(o -> writePoints(o, p.getPoints(), enableElevation)));
+            if (enableInstructions) {
+                InstructionList instructions = p.getInstructions();
+                int pointsIndex = 0;
+                for (Instruction instruction : instructions) {
+                    int first = pointsIndex;
+                    pointsIndex += instruction.getLength();
+                    out.writeBytes(8, writeMessage(o -> writeInstruction(o, instruction, instructions.getTr(), first, first + instruction.getLength())));
+                }
+            }
+            for (Map.Entry<String, List<PathDetail>> entry : p.getPathDetails().entrySet()) {
+                out.writeBytes(9, writeMessage(o -> {
+                    o.writeString(1, entry.getKey());
+                    for (PathDetail detail : entry.getValue()) {
+                        o.writeBytes(2, writeMessage(io -> {
+                            io.writeInt32(1, detail.getFirst());
+                            io.writeInt32(2, detail.getLast());
+                            io.writeBytes(3, writeMessage(vo -> writeValue(vo, detail.getValue())));
+                        }));
+                    }
+                }));
+            }
+            out.writeDouble(10, p.getAscend());
+            out.writeDouble(11, p.getDescend());
+        }
+        out.writeBytes(12, writeMessage(o -> writePoints(o, p.getWaypoints(), enableElevation)));
+    }
+
+    private static void writePoints(CodedOutputStream out, PointList points, boolean includeElevation) throws IOException {
+        out.writeBool(1, includeElevation);
+        long[] values = new long[points.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.round(points.getLat(i) * MULTIPLIER);
+        }
+        writePackedDeltas(out, 2, values);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.round(points.getLon(i) * MULTIPLIER);
+        }
+        writePackedDeltas(out, 3, values);
+        if (includeElevation) {
+            // 2D points have NaN as elevation which is written as 0, like for the encoded polyline
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Math.round(points.getEle(i) * 100);
+            }
+            writePackedDeltas(out, 4, values);
+        }
+    }
+
+    private static void writePackedDeltas(CodedOutputStream out, int field, long[] values) throws IOException {
+        int size = 0;
+        long prev = 0;
+        for (long value : values) {
+            size += CodedOutputStream.computeSInt64SizeNoTag(value - prev);
+            prev = value;
+        }
+        out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(size);
+        prev = 0;
+        for (long value : values) {
+            out.writeSInt64NoTag(value - prev);
+            prev = value;
+        }
+    }
+
+    private static void writeInstruction(CodedOutputStream out, Instruction instruction, Translation tr, int first, int last) throws IOException {
+        out.writeSInt32(1, instruction.getSign());
+        out.writeString(2, Helper.firstBig(instruction.getTurnDescription(tr)));
+        out.writeString(3, instruction.getName());
+        out.writeInt64(4, instruction.getTime());
+        out.writeDouble(5, instruction.getDistance());
+        out.writeInt32(6, first);
+        out.writeInt32(7, last);
+        for (Map.Entry<String, Object> entry : instruction.getExtraInfoJSON().entrySet()) {
+            out.writeBytes(8, writeMessage(o -> writeEntry(o, entry.getKey(), entry.getValue())));
+        }
+    }
+
+    private static void writeEntry(CodedOutputStream out, String key, Object value) throws IOException {
+        out.writeString(1, key);
+        out.writeBytes(2, writeMessage(o -> writeValue(o, value)));
+    }
+
+    private static void writeValue(CodedOutputStream out, Object value) throws IOException {
+        if (value == null)
+            return;
+        if (value instanceof String)
+            out.writeString(1, (String) value);
+        else if (value instanceof Double || value instanceof Float)
+            out.writeDouble(2, ((Number) value).doubleValue());
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+            out.writeSInt64(3, ((Number) value).longValue());
+        else if (value instanceof Boolean)
+            out.writeBool(4, (Boolean) value);
+        else
+            out.writeString(5, objectMapper.writeValueAsString(value));
+    }
+
+    private interface MessageWriter {
+        void write(CodedOutputStream out) throws IOException;
+    }
+
+    private static ByteString writeMessage(MessageWriter writer) throws IOException {
+        ByteString.Output output = ByteString.newOutput();
+        CodedOutputStream out = CodedOutputStream.newInstance(output);
+        writer.write(out);
+        out.flush();
+        return output.toByteString();
+    }
+
+    /**
+     * @param turnDescription if false the street name instead of the turn description is used as the text of an
+     *                        instruction, like in {@link com.graphhopper.jackson.ResponsePathDeserializerHelper}
+     */
+    public static GHResponse read(InputStream inputStream, boolean turnDescription) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(inputStream);
+        in.setSizeLimit(Integer.MAX_VALUE);
+        GHResponse res = new GHResponse();
+        while (true) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 0:
+                    return res;
+                case 1: {
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    res.add(readPath(in, turnDescription));
+                    in.popLimit(oldLimit);
+                    break;
+                }
+                case 2: {
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    readEntry(in, res.getHints()::putObject);
+                    in.popLimit(oldLimit);
+                    break;
+                }
+                default:
+                    in.skipField(tag);
+            }
+        }
+    }
+
+    private static ResponsePath readPath(CodedInputStream in, boolean turnDescription) throws IOException {
+        ResponsePath path = new ResponsePath();
+        List<String> description = new ArrayList<>();
+        List<RawInstruction> rawInstructions = new ArrayList<>();
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        while (!in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    path.setDistance(in.readDouble());
+                    break;
+                case 2:
+                    path.setRouteWeight(in.readDouble());
+                    break;
+                case 3:
+                    path.setTime(in.readInt64());
+                    break;
+                case 4:
+                    path.setNumChanges(in.readInt32());
+                    break;
+                case 5:
+                    description.add(in.readString());
+                    break;
+                case 7: {
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    path.setPoints(readPoints(in));
+                    in.popLimit(oldLimit);
+                    break;
+                }
+                case 8: {
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    rawInstructions.add(readInstruction(in));
+                    in.popLimit(oldLimit);
+                    break;
+                }
+                case 9: {
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    readDetail(in, details);
+                    in.popLimit(oldLimit);
+                    break;
+                }
+                case 10:
+                    path.setAscend(in.readDouble());
+                    break;
+                case 11:
+                    path.setDescend(in.readDouble());
+                    break;
+                case 12: {
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    path.setWaypoints(readPoints(in));
+                    in.popLimit(oldLimit);
+                    break;
+                }
+                default:
+                    in.skipField(tag);
+            }
+        }
+        if (!description.isEmpty())
+            path.setDescription(description);
+        if (!rawInstructions.isEmpty())
+            path.setInstructions(createInstructions(rawInstructions, path.getPoints(), turnDescription));
+        path.addPathDetails(details);
+        List<Integer> pointsOrder = new ArrayList<>(path.getWaypoints().size());
+        for (int i = 0; i < path.getWaypoints().size(); i++) {
+            pointsOrder.add(i);
+        }
+        path.setPointsOrder(pointsOrder);
+        return path;
+    }
+
+    private static PointList readPoints(CodedInputStream in) throws IOException {
+        boolean elevation = false;
+        long[] lats = new long[0], lons = new long[0], eles = new long[0];
+        while (!in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    elevation = in.readBool();
+                    break;
+                case 2:
+                    lats = readPackedDeltas(in);
+                    break;
+                case 3:
+                    lons = readPackedDeltas(in);
+                    break;
+                case 4:
+                    eles = readPackedDeltas(in);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        if (lats.length != lons.length || elevation && eles.length != lats.length)
+            throw new IllegalStateException("Invalid point list, lat: " + lats.length + ", lon: " + lons.length + ", ele: " + eles.length);
+        PointList points = new PointList(lats.length, elevation);
+        for (int i = 0; i < lats.length; i++) {
+            if (elevation)
+                points.add(lats[i] / MULTIPLIER, lons[i] / MULTIPLIER, eles[i] / 100.0);
+            else
+                points.add(lats[i] / MULTIPLIER, lons[i] / MULTIPLIER);
+        }
+        return points;
+    }
+
+    private static long[] readPackedDeltas(CodedInputStream in) throws IOException {
+        int oldLimit = in.pushLimit(in.readRawVarint32());
+        // every value needs at least one byte
+        long[] values = new long[in.getBytesUntilLimit()];
+        int count = 0;
+        long prev = 0;
+        while (!in.isAtEnd()) {
+            prev += in.readSInt64();
+            values[count++] = prev;
+        }
+        in.popLimit(oldLimit);
+        return Arrays.copyOf(values, count);
+    }
+
+    private static class RawInstruction {
+        int sign;
+        String text = "";
+        String streetName = "";
+        long time;
+        double distance;
+        int first;
+        int last;
+        Map<String, Object> extraInfo = new LinkedHashMap<>();
+    }
+
+    private static RawInstruction readInstruction(CodedInputStream in) throws IOException {
+        RawInstruction instruction = new RawInstruction();
+        while (!in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    instruction.sign = in.readSInt32();
+                    break;
+                case 2:
+                    instruction.text = in.readString();
+                    break;
+                case 3:
+                    instruction.streetName = in.readString();
+                    break;
+                case 4:
+                    instruction.time = in.readInt64();
+                    break;
+                case 5:
+                    instruction.distance = in.readDouble();
+                    break;
+                case 6:
+                    instruction.first = in.readInt32();
+                    break;
+                case 7:
+                    instruction.last = in.readInt32();
+                    break;
+                case 8: {
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    readEntry(in, instruction.extraInfo::put);
+                    in.popLimit(oldLimit);
+                    break;
+                }
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return instruction;
+    }
+
+    private static InstructionList createInstructions(List<RawInstruction> rawInstructions, PointList points, boolean turnDescription) {
+        InstructionList il = new InstructionList(null);
+        int viaCount = 1;
+        for (RawInstruction raw : rawInstructions) {
+            String text = turnDescription ? raw.text : raw.streetName;
+            PointList instPL = new PointList(raw.last - raw.first, points.is3D());
+            for (int j = raw.first; j <= raw.last; j++) {
+                instPL.add(points, j);
+            }
+
+            Instruction instr;
+            if (raw.sign == Instruction.USE_ROUNDABOUT || raw.sign == Instruction.LEAVE_ROUNDABOUT) {
+                RoundaboutInstruction ri = new RoundaboutInstruction(raw.sign, text, instPL);
+                if (raw.extraInfo.get("exit_number") instanceof Number)
+                    ri.setExitNumber(((Number) raw.extraInfo.get("exit_number")).intValue());
+                if (Boolean.TRUE.equals(raw.extraInfo.get("exited")))
+                    ri.setExited();
+                if (raw.extraInfo.get("turn_angle") instanceof Number) {
+                    double angle = ((Number) raw.extraInfo.get("turn_angle")).doubleValue();
+                    ri.setDirOfRotation(angle);
+                    ri.setRadian((angle < 0 ? -Math.PI : Math.PI) - angle);
+                }
+                instr = ri;
+            } else if (raw.sign == Instruction.REACHED_VIA) {
+                ViaInstruction tmpInstr = new ViaInstruction(text, instPL);
+                tmpInstr.setViaCount(viaCount);
+                viaCount++;
+                instr = tmpInstr;
+            } else if (raw.sign == Instruction.FINISH) {
+                instr = new FinishInstruction(text, instPL, 0);
+            } else {
+                instr = new Instruction(raw.sign, text, instPL);
+            }
+            if (!(instr instanceof RoundaboutInstruction))
+                raw.extraInfo.forEach(instr::setExtraInfo);
+
+            if (turnDescription)
+                instr.setUseRawName();
+            instr.setDistance(raw.distance).setTime(raw.time);
+            il.add(instr);
+        }
+        return il;
+    }
+
+    private static void readDetail(CodedInputStream in, Map<String, List<PathDetail>> details) throws IOException {
+        String name = "";
+        List<PathDetail> list = new ArrayList<>();
+        while (!in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    name = in.readString();
+                    break;
+                case 2: {
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    int first = 0, last = 0;
+                    Object value = null;
+                    while (!in.isAtEnd()) {
+                        int intervalTag = in.readTag();
+                        switch (WireFormat.getTagFieldNumber(intervalTag)) {
+                            case 1:
+                                first = in.readInt32();
+                                break;
+                            case 2:
+                                last = in.readInt32();
+                                break;
+                            case 3:
+                                value = readValue(in);
+                                break;
+                            default:
+                                in.skipField(intervalTag);
+                        }
+                    }
+                    in.popLimit(oldLimit);
+                    PathDetail pd = new PathDetail(value);
+                    pd.setFirst(first);
+                    pd.setLast(last);
+                    list.add(pd);
+                    break;
+                }
+                default:
+                    in.skipField(tag);
+            }
+        }
+        details.put(name, list);
+    }
+
+    private interface EntryConsumer {
+        void accept(String key, Object value);
+    }
+
+    private static void readEntry(CodedInputStream in, EntryConsumer consumer) throws IOException {
+        String key = "";
+        Object value = null;
+        while (!in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    key = in.readString();
+                    break;
+                case 2:
+                    value = readValue(in);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        consumer.accept(key, value);
+    }
+
+    private static Object readValue(CodedInputStream in) throws IOException {
+        int oldLimit = in.pushLimit(in.readRawVarint32());
+        Object value = null;
+        while (!in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    value = in.readString();
+                    break;
+                case 2:
+                    value = in.readDouble();
+                    break;
+                case 3:
+                    value = in.readSInt64();
+                    break;
+                case 4:
+                    value = in.readBool();
+                    break;
+                case 5:
+                    value = readJson(in.readString());
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        in.popLimit(oldLimit);
+        return value;
+    }
+
+    private static Object readJson(String json) {
+        try {
+            return objectMapper.readValue(json, Object.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Invalid JSON value: " + json, ex);
+        }
+    }
+}
@@ -66,6 +66,8 @@ public class Parameters {
             public static final String MAX_WEIGHT = ALT_ROUTE + ".max_weight_factor";
 
             public static final String MAX_SHARE = ALT_ROUTE + ".max_share_factor";
+
+            public static final String THREADS = ALT_ROUTE + ".threads";
         }
 
         public static final class AStar {
@@ -104,6 +106,10 @@ public class Parameters {
          */
         public static final String INSTRUCTIONS = "instructions";
         public static final String INIT_INSTRUCTIONS = ROUTING_INIT_PREFIX + "instructions";
+        public static final String INIT_SNAP_CACHE_SIZE = ROUTING_INIT_PREFIX + "snap_cache.size";
+        public static final String INIT_ALTERNATIVE_ROUTE_THREADS = ROUTING_INIT_PREFIX + "alternative_route.threads";
+        public static final String INIT_VIA_ROUTING_THREADS = ROUTING_INIT_PREFIX + "via_routing.threads";
+        public static final String INIT_CH_EXCLUDE_AREAS = ROUTING_INIT_PREFIX + "ch.exclude_areas";
         /**
          * if true the response will contain a point list
          */
@@ -168,10 +174,23 @@ public class Parameters {
          * Default for active count
          */
         public static final String ACTIVE_COUNT_DEFAULT = ROUTING_INIT_PREFIX + ACTIVE_COUNT;
+        /**
+         * Specifies after how many visited nodes the active landmarks are chosen again for the current nodes of the
+         * search. 0 means the active landmarks are only chosen at the beginning of the search.
+         */
+        public static final String RESELECTION_INTERVAL = "lm.reselection_interval";
+        /**
+         * Default for the reselection interval
+         */
+        public static final String RESELECTION_INTERVAL_DEFAULT = ROUTING_INIT_PREFIX + RESELECTION_INTERVAL;
         /**
          * Specifies how many landmarks should be created
          */
         public static final String COUNT = PREPARE + "landmarks";
+        /**
+         * Store the landmark weights with one instead of two bytes
+         */
+        public static final String COMPRESSED_WEIGHTS = PREPARE + "compressed_weights";
     }
 
     /**
@@ -17,10 +17,14 @@
  */
 package com.graphhopper.jackson;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
@@ -79,4 +83,21 @@ public class ResponsePathRepresentationTest {
     public void testEncode1e6() {
         assertEquals("ohdfzAgt}bVoEL", ResponsePathSerializer.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
     }
+
+    @Test
+    public void testPointsAreWrittenLikeLineString() throws IOException {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        for (PointList points : Arrays.asList(
+                Helper.createPointList(38.5, -120.2, 40.7, -120.95, 43.252, -126.453),
+                Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234.567),
+                Helper.createPointList(38.5, -120.2),
+                new PointList())) {
+            for (boolean elevation : new boolean[]{false, true}) {
+                String expected = objectMapper.writeValueAsString(points.toLineString(elevation));
+                assertEquals(expected, objectMapper.writeValueAsString(new ResponsePathSerializer.Points(points, elevation, false, 1e5)));
+            }
+            assertEquals("\"" + ResponsePathSerializer.encodePolyline(points, points.is3D(), 1e5) + "\"",
+                    objectMapper.writeValueAsString(new ResponsePathSerializer.Points(points, points.is3D(), true, 1e5)));
+        }
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.protobuf;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteResponseProtobufTest {
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        PointList points = Helper.createPointList3D(42.5093, 1.5274, 1100.25, 42.5101, 1.5301, 1102, 42.5126, 1.541, 1090.5);
+        InstructionList instructions = new InstructionList(null);
+        Instruction continueInstruction = new Instruction(Instruction.CONTINUE_ON_STREET, "Avinguda", points.copy(0, 2));
+        continueInstruction.setUseRawName();
+        continueInstruction.setExtraInfo("heading", 12.5);
+        continueInstruction.setDistance(250.5).setTime(30_000);
+        instructions.add(continueInstruction);
+        Instruction finishInstruction = new FinishInstruction("Arrive", points.copy(2, 3), 0);
+        finishInstruction.setUseRawName();
+        instructions.add(finishInstruction);
+
+        ResponsePath path = new ResponsePath();
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList3D(42.5093, 1.5274, 1100.25, 42.5126, 1.541, 1090.5));
+        path.setInstructions(instructions);
+        path.setDistance(250.5).setTime(30_000).setRouteWeight(42.123456).setAscend(1.75).setDescend(12);
+        PathDetail speed = new PathDetail(50.0);
+        speed.setFirst(0);
+        speed.setLast(1);
+        PathDetail name = new PathDetail("Avinguda");
+        name.setFirst(1);
+        name.setLast(2);
+        PathDetail intersection = new PathDetail(Map.of("bearings", List.of(90, 180)));
+        intersection.setFirst(0);
+        intersection.setLast(2);
+        path.addPathDetails(Map.of("average_speed", List.of(speed, name), "intersection", List.of(intersection)));
+        GHResponse ghRsp = new GHResponse();
+        ghRsp.add(path);
+        ghRsp.getHints().putObject("visited_nodes.sum", 42);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RouteResponseProtobuf.write(ghRsp, new ResponsePathSerializer.Info(List.of("GraphHopper"), 5, null), true, true, true, out);
+        GHResponse res = RouteResponseProtobuf.read(new ByteArrayInputStream(out.toByteArray()), true);
+
+        assertEquals(42, res.getHints().getLong("visited_nodes.sum", 0));
+        ResponsePath resPath = res.getBest();
+        assertEquals(250.5, resPath.getDistance(), 1.e-6);
+        assertEquals(30_000, resPath.getTime());
+        assertEquals(42.123456, resPath.getRouteWeight(), 1.e-6);
+        assertEquals(1.75, resPath.getAscend(), 1.e-6);
+        assertEquals(12, resPath.getDescend(), 1.e-6);
+        assertEquals(points, resPath.getPoints());
+        assertEquals(path.getWaypoints(), resPath.getWaypoints());
+        assertEquals(List.of(0, 1), resPath.getPointsOrder());
+
+        InstructionList resInstructions = resPath.getInstructions();
+        assertEquals(2, resInstructions.size());
+        assertEquals("Avinguda", resInstructions.get(0).getTurnDescription(null));
+        assertEquals(Instruction.CONTINUE_ON_STREET, resInstructions.get(0).getSign());
+        assertEquals(points.copy(0, 3), resInstructions.get(0).getPoints());
+        assertEquals(250.5, resInstructions.get(0).getDistance(), 1.e-6);
+        assertEquals(30_000, resInstructions.get(0).getTime());
+        assertEquals(12.5, resInstructions.get(0).getExtraInfoJSON().get("heading"));
+        assertInstanceOf(FinishInstruction.class, resInstructions.get(1));
+        assertEquals("Arrive", resInstructions.get(1).getTurnDescription(null));
+
+        Map<String, List<PathDetail>> details = resPath.getPathDetails();
+        assertEquals("[50.0 [0, 1], Avinguda [1, 2]]", details.get("average_speed").toString());
+        assertEquals(Map.of("bearings", List.of(90, 180)), details.get("intersection").get(0).getValue());
+    }
+
+    @Test
+    public void testWithoutPoints() throws IOException {
+        ResponsePath path = new ResponsePath();
+        path.setWaypoints(Helper.createPointList(42.5093, 1.5274, 42.5126, 1.541));
+        path.setDistance(100).setTime(10_000);
+        GHResponse ghRsp = new GHResponse();
+        ghRsp.add(path);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RouteResponseProtobuf.write(ghRsp, new ResponsePathSerializer.Info(List.of(), 5, "2024-01-01"), true, false, false, out);
+        GHResponse res = RouteResponseProtobuf.read(new ByteArrayInputStream(out.toByteArray()), false);
+
+        assertEquals(100, res.getBest().getDistance(), 1.e-6);
+        assertEquals(path.getWaypoints(), res.getBest().getWaypoints());
+        assertThrows(IllegalArgumentException.class, () -> res.getBest().getInstructions());
+        assertTrue(res.getBest().getPathDetails().isEmpty());
+    }
+}
@@ -223,6 +223,16 @@ public class GpxConversions {
         return gpxEntries;
     }
 
+    public static PointList getPoints(Gpx.Trk trk) {
+        PointList points = new PointList(100, true);
+        for (Gpx.Trkseg t : trk.trkseg) {
+            for (Gpx.Trkpt trkpt : t.trkpt) {
+                points.add(trkpt.lat, trkpt.lon, trkpt.ele);
+            }
+        }
+        return points;
+    }
+
     /**
      * @author Peter Karich
      */
@@ -0,0 +1,160 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits how many route and isochrone requests are processed at the same time, see {@link AdmissionController}.
+ * Requests are either cheap or expensive and every class and every profile can have its own {@link Limit}. By
+ * default nothing is limited.
+ */
+public class AdmissionControlConfiguration {
+
+    @JsonProperty
+    private Limit cheap = new Limit();
+
+    @JsonProperty
+    private Limit expensive = new Limit();
+
+    @JsonProperty
+    private Map<String, Limit> profiles = new HashMap<>();
+
+    @JsonProperty
+    private int maxCheapPoints = 10;
+
+    @JsonProperty
+    private long maxCheapIsochroneTimeLimit = 600;
+
+    @JsonProperty
+    private long maxCheapIsochroneDistanceLimit = 10_000;
+
+    public Limit getCheap() {
+        return cheap;
+    }
+
+    public AdmissionControlConfiguration setCheap(Limit cheap) {
+        this.cheap = cheap;
+        return this;
+    }
+
+    public Limit getExpensive() {
+        return expensive;
+    }
+
+    public AdmissionControlConfiguration setExpensive(Limit expensive) {
+        this.expensive = expensive;
+        return this;
+    }
+
+    public Map<String, Limit> getProfiles() {
+        return profiles;
+    }
+
+    public AdmissionControlConfiguration putProfile(String profile, Limit limit) {
+        profiles.put(profile, limit);
+        return this;
+    }
+
+    /**
+     * Route requests with more points are expensive.
+     */
+    public int getMaxCheapPoints() {
+        return maxCheapPoints;
+    }
+
+    public AdmissionControlConfiguration setMaxCheapPoints(int maxCheapPoints) {
+        this.maxCheapPoints = maxCheapPoints;
+        return this;
+    }
+
+    /**
+     * Isochrone requests with a larger time_limit (in seconds) are expensive.
+     */
+    public long getMaxCheapIsochroneTimeLimit() {
+        return maxCheapIsochroneTimeLimit;
+    }
+
+    public AdmissionControlConfiguration setMaxCheapIsochroneTimeLimit(long maxCheapIsochroneTimeLimit) {
+        this.maxCheapIsochroneTimeLimit = maxCheapIsochroneTimeLimit;
+        return this;
+    }
+
+    /**
+     * Isochrone requests with a larger distance_limit (in meters) are expensive.
+     */
+    public long getMaxCheapIsochroneDistanceLimit() {
+        return maxCheapIsochroneDistanceLimit;
+    }
+
+    public AdmissionControlConfiguration setMaxCheapIsochroneDistanceLimit(long maxCheapIsochroneDistanceLimit) {
+        this.maxCheapIsochroneDistanceLimit = maxCheapIsochroneDistanceLimit;
+        return this;
+    }
+
+    public static class Limit {
+        @JsonProperty
+        private int maxConcurrent;
+
+        @JsonProperty
+        private int maxQueued;
+
+        @JsonProperty
+        private long queueTimeoutMs = 1000;
+
+        /**
+         * The number of requests that are processed at the same time. 0 means unlimited.
+         */
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public Limit setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+            return this;
+        }
+
+        /**
+         * The number of requests that wait if maxConcurrent requests are already processed. Further requests are
+         * rejected immediately.
+         */
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public Limit setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+            return this;
+        }
+
+        /**
+         * The maximum time a request waits in the queue before it is rejected.
+         */
+        public long getQueueTimeoutMs() {
+            return queueTimeoutMs;
+        }
+
+        public Limit setQueueTimeoutMs(long queueTimeoutMs) {
+            this.queueTimeoutMs = queueTimeoutMs;
+            return this;
+        }
+    }
+}
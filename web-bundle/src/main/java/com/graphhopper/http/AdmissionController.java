@@ -0,0 +1,171 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.GHRequest;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.util.Parameters;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.graphhopper.util.Parameters.Algorithms.ALT_ROUTE;
+import static com.graphhopper.util.Parameters.Algorithms.ROUND_TRIP;
+
+/**
+ * Limits the number of route and isochrone requests that are processed at the same time, so that expensive requests
+ * like flexible routes with a custom model, alternative routes or big isochrones cannot use up all threads and slow
+ * down the cheap CH requests. Every request first needs a permit for its profile and then one for its cost class.
+ * If there is no permit left the request waits in a bounded queue and if this queue is full or the request waited
+ * too long it is rejected with status 429.
+ */
+public class AdmissionController {
+    public enum Cost {CHEAP, EXPENSIVE}
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private final AdmissionControlConfiguration config;
+    private final Set<String> chProfiles = new HashSet<>();
+    private final Map<Cost, Limiter> costLimiters = new EnumMap<>(Cost.class);
+    private final Map<String, Limiter> profileLimiters = new HashMap<>();
+
+    public AdmissionController(AdmissionControlConfiguration config, List<CHProfile> chProfiles, MetricRegistry registry) {
+        this.config = config;
+        for (CHProfile chProfile : chProfiles)
+            this.chProfiles.add(chProfile.getProfile());
+        addLimiter(costLimiters, Cost.CHEAP, "cheap", config.getCheap(), registry);
+        addLimiter(costLimiters, Cost.EXPENSIVE, "expensive", config.getExpensive(), registry);
+        for (Map.Entry<String, AdmissionControlConfiguration.Limit> entry : config.getProfiles().entrySet())
+            addLimiter(profileLimiters, entry.getKey(), "profile." + entry.getKey(), entry.getValue(), registry);
+    }
+
+    private static <K> void addLimiter(Map<K, Limiter> limiters, K key, String name, AdmissionControlConfiguration.Limit limit, MetricRegistry registry) {
+        if (limit == null || limit.getMaxConcurrent() <= 0)
+            return;
+        Limiter limiter = new Limiter(name, limit, registry.meter(MetricRegistry.name("admission_control", name, "rejected")));
+        registry.register(MetricRegistry.name("admission_control", name, "queued"), (Gauge<Integer>) limiter.queued::get);
+        limiters.put(key, limiter);
+    }
+
+    /**
+     * Route requests are cheap if they can be answered with CH and do not have too many points.
+     */
+    public Cost getCost(GHRequest request) {
+        if (!chProfiles.contains(request.getProfile())
+                || request.getHints().getBool(Parameters.CH.DISABLE, false)
+                || request.getCustomModel() != null
+                || ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())
+                || ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())
+                || request.getPoints().size() > config.getMaxCheapPoints())
+            return Cost.EXPENSIVE;
+        return Cost.CHEAP;
+    }
+
+    /**
+     * Isochrone requests are cheap if their limit is small. For a weight limit we cannot tell, so they are always
+     * expensive.
+     */
+    public Cost getIsochroneCost(long timeLimitInSeconds, long distanceLimitInMeter, long weightLimit) {
+        if (weightLimit > 0)
+            return Cost.EXPENSIVE;
+        if (distanceLimitInMeter > 0)
+            return distanceLimitInMeter > config.getMaxCheapIsochroneDistanceLimit() ? Cost.EXPENSIVE : Cost.CHEAP;
+        return timeLimitInSeconds > config.getMaxCheapIsochroneTimeLimit() ? Cost.EXPENSIVE : Cost.CHEAP;
+    }
+
+    /**
+     * Waits for a permit to process a request of the given profile and cost. The permit must be closed after the
+     * request was processed.
+     *
+     * @throws WebApplicationException with status 429 if the request was rejected
+     */
+    public Permit acquire(String profile, Cost cost) {
+        Permit permit = new Permit();
+        // always acquire in the same order to avoid deadlocks
+        acquire(permit, profileLimiters.get(profile));
+        acquire(permit, costLimiters.get(cost));
+        return permit;
+    }
+
+    private static void acquire(Permit permit, Limiter limiter) {
+        if (limiter == null)
+            return;
+        if (!limiter.tryAcquire()) {
+            permit.close();
+            limiter.rejected.mark();
+            throw new WebApplicationException(Response.status(TOO_MANY_REQUESTS).
+                    header("Retry-After", Math.max(1, TimeUnit.MILLISECONDS.toSeconds(limiter.queueTimeoutMs))).
+                    type(MediaType.APPLICATION_JSON).
+                    entity(new JsonErrorEntity(List.of("Too many " + limiter.name + " requests, try again later"))).
+                    build());
+        }
+        permit.limiters.add(limiter);
+    }
+
+    public static class Permit implements AutoCloseable {
+        private final List<Limiter> limiters = new ArrayList<>(2);
+
+        @Override
+        public void close() {
+            for (Limiter limiter : limiters)
+                limiter.semaphore.release();
+            limiters.clear();
+        }
+    }
+
+    private static class Limiter {
+        final String name;
+        final Semaphore semaphore;
+        final int maxQueued;
+        final long queueTimeoutMs;
+        final AtomicInteger queued = new AtomicInteger();
+        final Meter rejected;
+
+        Limiter(String name, AdmissionControlConfiguration.Limit limit, Meter rejected) {
+            this.name = name;
+            this.semaphore = new Semaphore(limit.getMaxConcurrent(), true);
+            this.maxQueued = limit.getMaxQueued();
+            this.queueTimeoutMs = limit.getQueueTimeoutMs();
+            this.rejected = rejected;
+        }
+
+        boolean tryAcquire() {
+            if (semaphore.tryAcquire())
+                return true;
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                return false;
+            }
+            try {
+                return semaphore.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Gauge;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
@@ -275,11 +276,17 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        final RouteMetrics routeMetrics = new RouteMetrics(environment.metrics());
+        environment.jersey().register(routeMetrics);
+        final AdmissionController admissionController = new AdmissionController(configuration.admissionControl(),
+                configuration.getGraphHopperConfiguration().getCHProfiles(), environment.metrics());
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
                 bind(graphHopper).to(GraphHopper.class);
+                bind(routeMetrics).to(RouteMetrics.class);
+                bind(admissionController).to(AdmissionController.class);
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
                 bindFactory(MapMatchingRouterFactoryFactory.class).to(MapMatchingResource.MapMatchingRouterFactory.class);
@@ -295,6 +302,13 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
             }
         });
 
+        if (graphHopper.getRouterConfig().getSnapCacheSize() > 0) {
+            // the cache is only created when the graph is loaded
+            environment.metrics().register("snap_cache.hits", (Gauge<Long>) () -> graphHopper.getSnapCache() == null ? 0 : graphHopper.getSnapCache().getHits());
+            environment.metrics().register("snap_cache.misses", (Gauge<Long>) () -> graphHopper.getSnapCache() == null ? 0 : graphHopper.getSnapCache().getMisses());
+            environment.metrics().register("snap_cache.size", (Gauge<Integer>) () -> graphHopper.getSnapCache() == null ? 0 : graphHopper.getSnapCache().getSize());
+        }
+
         environment.jersey().register(MVTResource.class);
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
@@ -26,4 +26,8 @@ public interface GraphHopperBundleConfiguration {
 
     RealtimeConfiguration gtfsrealtime();
 
+    default AdmissionControlConfiguration admissionControl() {
+        return new AdmissionControlConfiguration();
+    }
+
 }
@@ -53,6 +53,7 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
     private ExecutorService executor;
     private LoadingCache<String, RealtimeFeed> cache;
     private Map<String, Transfers> transfers;
+    private final RealtimeFeed.TripUpdateCache tripUpdateCache = new RealtimeFeed.TripUpdateCache();
 
     @Inject
     RealtimeFeedLoadingCache(GraphHopperGtfs graphHopper, HttpClient httpClient, GraphHopperBundleConfiguration bundleConfiguration) {
@@ -73,12 +74,13 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
                 .refreshAfterWrite(1, TimeUnit.MINUTES)
                 .build(new CacheLoader<String, RealtimeFeed>() {
                     public RealtimeFeed load(String key) {
-                        return fetchFeedsAndCreateGraph();
+                        return fetchFeedsAndCreateGraph(null);
                     }
 
+                    // Queries keep using the old feed until the new one is completely built and replaces it.
                     @Override
                     public ListenableFuture<RealtimeFeed> reload(String key, RealtimeFeed oldValue) {
-                        ListenableFutureTask<RealtimeFeed> task = ListenableFutureTask.create(() -> fetchFeedsAndCreateGraph());
+                        ListenableFutureTask<RealtimeFeed> task = ListenableFutureTask.create(() -> fetchFeedsAndCreateGraph(oldValue));
                         executor.execute(task);
                         return task;
                     }
@@ -104,7 +106,7 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
     public void stop() {
     }
 
-    private RealtimeFeed fetchFeedsAndCreateGraph() {
+    private synchronized RealtimeFeed fetchFeedsAndCreateGraph(RealtimeFeed oldValue) {
         Map<String, GtfsRealtime.FeedMessage> feedMessageMap = new HashMap<>();
         for (FeedConfiguration configuration : bundleConfiguration.gtfsrealtime().getFeeds()) {
             try {
@@ -125,7 +127,9 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
                 throw new RuntimeException(e);
             }
         }
-        return RealtimeFeed.fromProtobuf(graphHopper.getGtfsStorage(), this.transfers, feedMessageMap);
+        if (oldValue != null && oldValue.feedMessages.equals(feedMessageMap))
+            return oldValue;
+        return RealtimeFeed.fromProtobuf(graphHopper.getGtfsStorage(), this.transfers, feedMessageMap, tripUpdateCache);
     }
 
     private void validate(RealtimeFeed realtimeFeed) {
@@ -0,0 +1,85 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.GHResponse;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters.Algorithms;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the duration of the different stages of successful route requests as timers per profile and algorithm,
+ * which are available under /metrics on the admin port, e.g. route.car.default.snap. The stages are taken from the
+ * timings that the Router adds to the response, see {@link GHResponse#getTimings()}. The time to write the response is recorded as the
+ * serialization stage, which is why this class is also registered as WriterInterceptor.
+ */
+public class RouteMetrics implements WriterInterceptor {
+    private static final String PREFIX_ATTRIBUTE = RouteMetrics.class.getName() + ".prefix";
+    // the algorithm is part of the metric name, so we must not use arbitrary values from the request
+    private static final Set<String> ALGORITHMS = Set.of(Algorithms.DIJKSTRA, Algorithms.DIJKSTRA_BI,
+            Algorithms.DIJKSTRA_ONE_TO_MANY, Algorithms.ASTAR, Algorithms.ASTAR_BI, Algorithms.ALT_ROUTE, Algorithms.ROUND_TRIP);
+    private final MetricRegistry registry;
+
+    public RouteMetrics(MetricRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Records the stages of the given response and marks the request, so the serialization of the response is
+     * recorded under the same name.
+     */
+    public void record(HttpServletRequest httpReq, String profile, String algorithm, GHResponse ghResponse, double tookMillis) {
+        String prefix = MetricRegistry.name("route", profile, Helper.isEmpty(algorithm) ? "default"
+                : ALGORITHMS.contains(algorithm) ? algorithm : "other");
+        // e.g. route_legs contains the time of every leg
+        for (Map.Entry<String, List<Double>> entry : ghResponse.getTimings().entrySet())
+            for (double millis : entry.getValue())
+                update(prefix, entry.getKey(), millis);
+        update(prefix, "total", tookMillis);
+        httpReq.setAttribute(PREFIX_ATTRIBUTE, prefix);
+    }
+
+    private void update(String prefix, String stage, double millis) {
+        registry.timer(MetricRegistry.name(prefix, stage)).update(Math.round(millis * 1e6), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        Object prefix = context.getProperty(PREFIX_ATTRIBUTE);
+        if (!(prefix instanceof String)) {
+            context.proceed();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            context.proceed();
+        } finally {
+            registry.timer(MetricRegistry.name((String) prefix, "serialization")).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -44,6 +44,8 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
@@ -102,13 +104,59 @@ public class MapMatchingResource {
             @QueryParam("gpx.track") @DefaultValue("true") boolean withTrack,
             @QueryParam("traversal_keys") @DefaultValue("false") boolean enableTraversalKeys,
             @QueryParam("gps_accuracy") @DefaultValue("10") double gpsAccuracy) {
-        boolean writeGPX = "gpx".equalsIgnoreCase(outType);
         if (gpx.trk.isEmpty()) {
             throw new IllegalArgumentException("No tracks found in GPX document. Are you using waypoints or routes instead?");
         }
         if (gpx.trk.size() > 1) {
             throw new IllegalArgumentException("GPX documents with multiple tracks not supported yet.");
         }
+        Gpx.Trk trk = gpx.trk.get(0);
+        long startTime = trk.getStartTime().map(Date::getTime).orElse(System.currentTimeMillis());
+        return match(GpxConversions.getPoints(trk), trk.name != null ? trk.name : "", startTime, uriInfo, minPathPrecision, outType, instructions, calcPoints, enableElevation,
+                pointsEncoded, pointsEncodedMultiplier, localeStr, profile, pathDetails, withRoute, withTrack, enableTraversalKeys, gpsAccuracy);
+    }
+
+    /**
+     * Accepts the observations as plain text with one 'lat,lon' or 'lat,lon,ele' line per observation. Unlike GPX
+     * this format is parsed while reading the request body directly into a {@link PointList}, which avoids the
+     * intermediate objects for every track point and is preferable for large batches of observations.
+     */
+    @POST
+    @Consumes("text/csv")
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    public Response matchCSV(
+            @NotNull InputStream csv,
+            @Context UriInfo uriInfo,
+            @QueryParam(WAY_POINT_MAX_DISTANCE) @DefaultValue("0.5") double minPathPrecision,
+            @QueryParam("type") @DefaultValue("json") String outType,
+            @QueryParam(INSTRUCTIONS) @DefaultValue("true") boolean instructions,
+            @QueryParam(CALC_POINTS) @DefaultValue("true") boolean calcPoints,
+            @QueryParam("elevation") @DefaultValue("false") boolean enableElevation,
+            @QueryParam("points_encoded") @DefaultValue("true") boolean pointsEncoded,
+            @QueryParam("points_encoded_multiplier") @DefaultValue("1e5") double pointsEncodedMultiplier,
+            @QueryParam("locale") @DefaultValue("en") String localeStr,
+            @QueryParam("profile") String profile,
+            @QueryParam(PATH_DETAILS) List<String> pathDetails,
+            @QueryParam("gpx.route") @DefaultValue("true") boolean withRoute,
+            @QueryParam("gpx.track") @DefaultValue("true") boolean withTrack,
+            @QueryParam("traversal_keys") @DefaultValue("false") boolean enableTraversalKeys,
+            @QueryParam("gps_accuracy") @DefaultValue("10") double gpsAccuracy) {
+        PointList points;
+        try {
+            points = readCSV(new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return match(points, "", System.currentTimeMillis(), uriInfo, minPathPrecision, outType, instructions, calcPoints, enableElevation,
+                pointsEncoded, pointsEncodedMultiplier, localeStr, profile, pathDetails, withRoute, withTrack, enableTraversalKeys, gpsAccuracy);
+    }
+
+    private Response match(PointList points, String trackName, long startTime,
+                           UriInfo uriInfo, double minPathPrecision, String outType, boolean instructions, boolean calcPoints,
+                           boolean enableElevation, boolean pointsEncoded, double pointsEncodedMultiplier, String localeStr,
+                           String profile, List<String> pathDetails, boolean withRoute, boolean withTrack,
+                           boolean enableTraversalKeys, double gpsAccuracy) {
+        boolean writeGPX = "gpx".equalsIgnoreCase(outType);
 
         instructions = writeGPX || instructions;
 
@@ -129,14 +177,13 @@ public class MapMatchingResource {
         MapMatching matching = new MapMatching(graphHopper.getBaseGraph(), (LocationIndexTree) graphHopper.getLocationIndex(), mapMatchingRouterFactory.createMapMatchingRouter(hints));
         matching.setMeasurementErrorSigma(gpsAccuracy);
 
-        List<Observation> measurements = GpxConversions.getEntries(gpx.trk.get(0));
-        MatchResult matchResult = matching.match(measurements);
+        MatchResult matchResult = matching.match(points);
 
         sw.stop();
         logger.info(objectMapper.createObjectNode()
                 .put("duration", sw.getNanos())
                 .put("profile", profile)
-                .put("observations", measurements.size())
+                .put("observations", points.size())
                 .putPOJO("mapmatching", matching.getStatistics()).toString());
 
         if ("extended_json".equals(outType)) {
@@ -161,10 +208,7 @@ public class MapMatchingResource {
             rsp.add(responsePath);
 
             if (writeGPX) {
-                long time = gpx.trk.get(0).getStartTime()
-                        .map(Date::getTime)
-                        .orElse(System.currentTimeMillis());
-                return Response.ok(GpxConversions.createGPX(rsp.getBest().getInstructions(), gpx.trk.get(0).name != null ? gpx.trk.get(0).name : "", time, enableElevation, withRoute, withTrack, false, Constants.VERSION, tr), "application/gpx+xml").
+                return Response.ok(GpxConversions.createGPX(rsp.getBest().getInstructions(), trackName, startTime, enableElevation, withRoute, withTrack, false, Constants.VERSION, tr), "application/gpx+xml").
                         header("X-GH-Took", "" + Math.round(sw.getMillisDouble())).
                         build();
             } else {
@@ -193,6 +237,34 @@ public class MapMatchingResource {
         }
     }
 
+    static PointList readCSV(BufferedReader reader) throws IOException {
+        PointList points = new PointList(100, true);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            int firstComma = line.indexOf(',');
+            int secondComma = firstComma < 0 ? -1 : line.indexOf(',', firstComma + 1);
+            try {
+                if (firstComma < 0)
+                    throw new NumberFormatException("expected at least two columns");
+                double lat = Double.parseDouble(line.substring(0, firstComma));
+                double lon = Double.parseDouble(secondComma < 0 ? line.substring(firstComma + 1) : line.substring(firstComma + 1, secondComma));
+                double ele = secondComma < 0 ? Double.NaN : Double.parseDouble(line.substring(secondComma + 1));
+                points.add(lat, lon, ele);
+            } catch (NumberFormatException ex) {
+                // allow a header like 'lat,lon'
+                if (lineNumber == 1 && points.isEmpty())
+                    continue;
+                throw new IllegalArgumentException("Cannot parse observation in line " + lineNumber + ": " + line);
+            }
+        }
+        return points;
+    }
+
     public static JsonNode convertToTree(MatchResult result, boolean elevation, boolean pointsEncoded, double pointsEncodedMultiplier) {
         ObjectNode root = JsonNodeFactory.instance.objectNode();
         ObjectNode diary = root.putObject("diary");
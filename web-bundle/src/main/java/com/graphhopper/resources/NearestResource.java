@@ -33,6 +33,7 @@ import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -69,12 +70,43 @@ public class NearestResource {
     public Response doGet(@QueryParam("point") GHPoint point, @QueryParam("elevation") @DefaultValue("false") boolean elevation) {
         Snap snap = index.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
         if (snap.isValid()) {
-            GHPoint3D snappedPoint = snap.getSnappedPoint();
-            double[] coordinates = hasElevation && elevation ? new double[]{snappedPoint.lon, snappedPoint.lat, snappedPoint.ele} : new double[]{snappedPoint.lon, snappedPoint.lat};
-            return new Response(coordinates, calc.calcDist(point.lat, point.lon, snappedPoint.lat, snappedPoint.lon));
+            return createResponse(point, snap, elevation);
         } else {
             throw new MultiException(List.of(new PointNotFoundException("Point " + point + " is either out of bounds or cannot be found", 0)));
         }
     }
 
+    /**
+     * Snaps all points given as [lon, lat] arrays in the request body with a single call to the location index.
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    public List<Response> doPost(List<GHPoint> points, @QueryParam("elevation") @DefaultValue("false") boolean elevation) {
+        if (points == null || points.isEmpty())
+            throw new IllegalArgumentException("At least one point has to be specified");
+        double[] latLons = new double[2 * points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            latLons[2 * i] = points.get(i).lat;
+            latLons[2 * i + 1] = points.get(i).lon;
+        }
+        Snap[] snaps = index.findClosest(latLons, EdgeFilter.ALL_EDGES);
+        List<Response> result = new ArrayList<>(snaps.length);
+        List<Throwable> errors = new ArrayList<>();
+        for (int i = 0; i < snaps.length; i++) {
+            if (snaps[i].isValid())
+                result.add(createResponse(points.get(i), snaps[i], elevation));
+            else
+                errors.add(new PointNotFoundException("Point " + points.get(i) + " is either out of bounds or cannot be found", i));
+        }
+        if (!errors.isEmpty())
+            throw new MultiException(errors);
+        return result;
+    }
+
+    private Response createResponse(GHPoint point, Snap snap, boolean elevation) {
+        GHPoint3D snappedPoint = snap.getSnappedPoint();
+        double[] coordinates = hasElevation && elevation ? new double[]{snappedPoint.lon, snappedPoint.lat, snappedPoint.ele} : new double[]{snappedPoint.lon, snappedPoint.lat};
+        return new Response(coordinates, calc.calcDist(point.lat, point.lon, snappedPoint.lat, snappedPoint.lon));
+    }
+
 }
@@ -22,11 +22,14 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperConfig;
 import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.http.AdmissionController;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.GHRequestTransformer;
 import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.http.RouteMetrics;
 import com.graphhopper.jackson.MultiException;
 import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.protobuf.RouteResponseProtobuf;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.GHPoint;
 import io.dropwizard.jersey.params.AbstractParam;
@@ -50,7 +53,8 @@ import static java.util.stream.Collectors.toList;
 /**
  * Resource to use GraphHopper in a remote client application like mobile or browser. Note: If type
  * is json it returns the points in GeoJson array format [longitude,latitude] unlike the format "lat,lon"
- * used for the request. See the full API response format in docs/web/api-doc.md
+ * used for the request. See the full API response format in docs/web/api-doc.md. Clients that prefer the binary
+ * format "application/x-protobuf" in the Accept header get the response as described in route_response.proto.
  *
  * @author Peter Karich
  */
@@ -63,16 +67,21 @@ public class RouteResource {
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
     private final GHRequestTransformer ghRequestTransformer;
+    private final RouteMetrics routeMetrics;
+    private final AdmissionController admissionController;
     private final Boolean hasElevation;
     private final String osmDate;
     private final List<String> snapPreventionsDefault;
 
     @Inject
-    public RouteResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver, GHRequestTransformer ghRequestTransformer, @Named("hasElevation") Boolean hasElevation) {
+    public RouteResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver, GHRequestTransformer ghRequestTransformer,
+                         RouteMetrics routeMetrics, AdmissionController admissionController, @Named("hasElevation") Boolean hasElevation) {
         this.config = config;
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.ghRequestTransformer = ghRequestTransformer;
+        this.routeMetrics = routeMetrics;
+        this.admissionController = admissionController;
         this.hasElevation = hasElevation;
         this.osmDate = graphHopper.getProperties().getAll().get("datareader.data.date");
         this.snapPreventionsDefault = Arrays.stream(config.getString("routing.snap_preventions_default", "")
@@ -80,9 +89,10 @@ public class RouteResource {
     }
 
     @GET
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", RouteResponseProtobuf.MEDIA_TYPE})
     public Response doGet(
             @Context HttpServletRequest httpReq,
+            @Context HttpHeaders httpHeaders,
             @Context UriInfo uriInfo,
             @QueryParam(WAY_POINT_MAX_DISTANCE) @DefaultValue("0.5") double minPathPrecision,
             @QueryParam(ELEVATION_WAY_POINT_MAX_DISTANCE) Double minPathElevationPrecision,
@@ -151,7 +161,10 @@ public class RouteResource {
         removeLegacyParameters(request.getHints());
         request.setProfile(profileName);
 
-        GHResponse ghResponse = graphHopper.route(request);
+        GHResponse ghResponse;
+        try (AdmissionController.Permit permit = admissionController.acquire(request.getProfile(), admissionController.getCost(request))) {
+            ghResponse = graphHopper.route(request);
+        }
 
         double took = sw.stop().getMillisDouble();
         String logStr = (httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")) + " " + points + ", took: " + String.format("%.1f", took) + "ms, algo: " + algoStr + ", profile: " + profileName;
@@ -169,22 +182,20 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().size()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
+            routeMetrics.record(httpReq, profileName, algoStr, ghResponse, took);
             return writeGPX ?
                     gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION).
                             header("X-GH-Took", "" + Math.round(took)).
                             build()
                     :
-                    Response.ok(ResponsePathSerializer.jsonObject(ghResponse, new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate), instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
-                            header("X-GH-Took", "" + Math.round(took)).
-                            type(MediaType.APPLICATION_JSON).
-                            build();
+                    successResponse(httpHeaders, ghResponse, took, instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier);
         }
     }
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response doPost(@NotNull GHRequest request, @Context HttpServletRequest httpReq) {
+    @Produces({MediaType.APPLICATION_JSON, RouteResponseProtobuf.MEDIA_TYPE})
+    public Response doPost(@NotNull GHRequest request, @Context HttpServletRequest httpReq, @Context HttpHeaders httpHeaders) {
         if (!request.hasSnapPreventions())
             request.setSnapPreventions(snapPreventionsDefault);
 
@@ -201,7 +212,10 @@ public class RouteResource {
         request.setProfile(profileResolver.resolveProfile(profileResolverHints));
         removeLegacyParameters(request.getHints());
 
-        GHResponse ghResponse = graphHopper.route(request);
+        GHResponse ghResponse;
+        try (AdmissionController.Permit permit = admissionController.acquire(request.getProfile(), admissionController.getCost(request))) {
+            ghResponse = graphHopper.route(request);
+        }
         boolean instructions = request.getHints().getBool(INSTRUCTIONS, true);
         boolean enableElevation = request.getHints().getBool("elevation", false);
         boolean calcPoints = request.getHints().getBool(CALC_POINTS, true);
@@ -223,11 +237,39 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().size()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate), instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
+            routeMetrics.record(httpReq, request.getProfile(), request.getAlgorithm(), ghResponse, took);
+            return successResponse(httpHeaders, ghResponse, took, instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier);
+        }
+    }
+
+    private Response successResponse(HttpHeaders httpHeaders, GHResponse ghResponse, double took, boolean instructions,
+                                     boolean calcPoints, boolean enableElevation, boolean pointsEncoded, double pointsEncodedMultiplier) {
+        ResponsePathSerializer.Info info = new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate);
+        if (prefersProtobuf(httpHeaders)) {
+            StreamingOutput output = outputStream -> RouteResponseProtobuf.write(ghResponse, info, instructions, calcPoints, enableElevation, outputStream);
+            return Response.ok(output, RouteResponseProtobuf.MEDIA_TYPE).
                     header("X-GH-Took", "" + Math.round(took)).
-                    type(MediaType.APPLICATION_JSON).
                     build();
         }
+        return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, info, instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
+                header("X-GH-Took", "" + Math.round(took)).
+                type(MediaType.APPLICATION_JSON).
+                build();
+    }
+
+    /**
+     * @return true if the binary format is acceptable for the client and preferred over JSON
+     */
+    static boolean prefersProtobuf(HttpHeaders httpHeaders) {
+        MediaType protobuf = MediaType.valueOf(RouteResponseProtobuf.MEDIA_TYPE);
+        // the acceptable media types are sorted by their quality, and the JSON response is the default for wildcards
+        for (MediaType mediaType : httpHeaders.getAcceptableMediaTypes()) {
+            if (mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE))
+                return false;
+            if (mediaType.getType().equals(protobuf.getType()) && mediaType.getSubtype().equals(protobuf.getSubtype()))
+                return true;
+        }
+        return false;
     }
 
     public static void removeLegacyParameters(PMap hints) {
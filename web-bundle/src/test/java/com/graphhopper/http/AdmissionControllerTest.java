@@ -0,0 +1,82 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.GHRequest;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.util.Parameters;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.graphhopper.http.AdmissionController.Cost.CHEAP;
+import static com.graphhopper.http.AdmissionController.Cost.EXPENSIVE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControllerTest {
+
+    @Test
+    public void testCost() {
+        AdmissionController controller = new AdmissionController(new AdmissionControlConfiguration().setMaxCheapPoints(3),
+                List.of(new CHProfile("car")), new MetricRegistry());
+        assertEquals(CHEAP, controller.getCost(new GHRequest(1, 1, 2, 2).setProfile("car")));
+        assertEquals(EXPENSIVE, controller.getCost(new GHRequest(1, 1, 2, 2).setProfile("bike")));
+        assertEquals(EXPENSIVE, controller.getCost(new GHRequest(1, 1, 2, 2).setProfile("car").putHint(Parameters.CH.DISABLE, true)));
+        assertEquals(EXPENSIVE, controller.getCost(new GHRequest(1, 1, 2, 2).setProfile("car").setAlgorithm(Parameters.Algorithms.ALT_ROUTE)));
+        GHRequest manyPoints = new GHRequest(1, 1, 2, 2).setProfile("car");
+        manyPoints.addPoint(manyPoints.getPoints().get(0)).addPoint(manyPoints.getPoints().get(1));
+        assertEquals(EXPENSIVE, controller.getCost(manyPoints));
+
+        assertEquals(CHEAP, controller.getIsochroneCost(600, -1, -1));
+        assertEquals(EXPENSIVE, controller.getIsochroneCost(3600, -1, -1));
+        assertEquals(CHEAP, controller.getIsochroneCost(3600, 5_000, -1));
+        assertEquals(EXPENSIVE, controller.getIsochroneCost(600, 50_000, -1));
+        assertEquals(EXPENSIVE, controller.getIsochroneCost(600, -1, 100));
+    }
+
+    @Test
+    public void testLimits() {
+        MetricRegistry registry = new MetricRegistry();
+        AdmissionController controller = new AdmissionController(new AdmissionControlConfiguration().
+                setExpensive(new AdmissionControlConfiguration.Limit().setMaxConcurrent(1).setQueueTimeoutMs(10)).
+                putProfile("bike", new AdmissionControlConfiguration.Limit().setMaxConcurrent(2)),
+                List.of(), registry);
+
+        AdmissionController.Permit expensive = controller.acquire("car", EXPENSIVE);
+        // cheap requests are not limited
+        for (int i = 0; i < 10; i++)
+            controller.acquire("car", CHEAP);
+        WebApplicationException ex = assertThrows(WebApplicationException.class, () -> controller.acquire("car", EXPENSIVE));
+        assertEquals(429, ex.getResponse().getStatus());
+        assertEquals(1, registry.meter("admission_control.expensive.rejected").getCount());
+        expensive.close();
+        controller.acquire("car", EXPENSIVE).close();
+
+        // the profile permit is released again if the request is rejected because of its cost
+        AdmissionController.Permit bike = controller.acquire("bike", CHEAP);
+        expensive = controller.acquire("car", EXPENSIVE);
+        assertThrows(WebApplicationException.class, () -> controller.acquire("bike", EXPENSIVE));
+        controller.acquire("bike", CHEAP);
+        assertThrows(WebApplicationException.class, () -> controller.acquire("bike", CHEAP));
+        assertEquals(1, registry.meter("admission_control.profile.bike.rejected").getCount());
+        bike.close();
+        expensive.close();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.resources;
+
+import com.graphhopper.util.PointList;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MapMatchingResourceCSVTest {
+
+    @Test
+    public void testReadCSV() throws IOException {
+        PointList points = MapMatchingResource.readCSV(new BufferedReader(new StringReader(
+                "lat,lon\n51.3436,12.3607\n\n# comment\n 51.3444, 12.3641 \n51.3453,12.3637,120.5\n")));
+        assertEquals(3, points.size());
+        assertEquals(51.3436, points.getLat(0), 1e-6);
+        assertEquals(12.3641, points.getLon(1), 1e-6);
+        assertTrue(Double.isNaN(points.getEle(0)));
+        assertEquals(120.5, points.getEle(2), 1e-6);
+    }
+
+    @Test
+    public void testInvalidCSV() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> MapMatchingResource.readCSV(
+                new BufferedReader(new StringReader("51.3436,12.3607\n51.3444;12.3641\n"))));
+        assertEquals("Cannot parse observation in line 2: 51.3444;12.3641", ex.getMessage());
+    }
+}
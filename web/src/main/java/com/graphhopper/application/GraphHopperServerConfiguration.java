@@ -19,6 +19,7 @@ package com.graphhopper.application;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.http.AdmissionControlConfiguration;
 import com.graphhopper.http.GraphHopperBundleConfiguration;
 import com.graphhopper.http.RealtimeConfiguration;
 import io.dropwizard.core.Configuration;
@@ -34,6 +35,9 @@ public class GraphHopperServerConfiguration extends Configuration implements Gra
     @JsonProperty
     private final RealtimeConfiguration gtfsRealtime = new RealtimeConfiguration();
 
+    @JsonProperty
+    private final AdmissionControlConfiguration admissionControl = new AdmissionControlConfiguration();
+
     public GraphHopperServerConfiguration() {
     }
 
@@ -46,4 +50,9 @@ public class GraphHopperServerConfiguration extends Configuration implements Gra
     public RealtimeConfiguration gtfsrealtime() {
         return gtfsRealtime;
     }
+
+    @Override
+    public AdmissionControlConfiguration admissionControl() {
+        return admissionControl;
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.cli;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.storage.BaseGraph;
+import io.dropwizard.core.cli.ConfiguredCommand;
+import io.dropwizard.core.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CompactKeyValuesCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactKeyValuesCommand.class);
+
+    public CompactKeyValuesCommand() {
+        super("compact_key_values", "removes duplicate key-values of the edges, e.g. street names, from an existing graph");
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace namespace, GraphHopperServerConfiguration configuration) {
+        GraphHopper hopper = new GraphHopper().init(configuration.getGraphHopperConfiguration());
+        if (!hopper.load())
+            throw new IllegalArgumentException("There is no graph in " + hopper.getGraphHopperLocation());
+        try {
+            BaseGraph baseGraph = hopper.getBaseGraph();
+            String before = baseGraph.toDetailsString();
+            baseGraph.compactKeyValues();
+            LOGGER.info("Compacted key-values, before: " + before + ", after: " + baseGraph.toDetailsString());
+        } finally {
+            hopper.close();
+        }
+    }
+}
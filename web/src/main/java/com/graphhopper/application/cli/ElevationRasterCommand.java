@@ -0,0 +1,69 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.cli;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.reader.dem.ElevationProvider;
+import com.graphhopper.reader.dem.RasterElevationProvider;
+import com.graphhopper.util.shapes.BBox;
+import io.dropwizard.core.cli.ConfiguredCommand;
+import io.dropwizard.core.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+public class ElevationRasterCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+
+    public ElevationRasterCommand() {
+        super("elevation_raster", "creates the elevation raster in graph.elevation.raster_dir from the configured elevation provider");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--bbox")
+                .type(String.class)
+                .required(true)
+                .help("the area of the raster as minLon,maxLon,minLat,maxLat");
+        subparser.addArgument("--samples_per_degree")
+                .type(Integer.class)
+                .required(false)
+                .setDefault(1200)
+                .help("the resolution of the raster, e.g. 1200 for three arc seconds");
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace args, GraphHopperServerConfiguration configuration) {
+        GraphHopperConfig ghConfig = new GraphHopperConfig(configuration.getGraphHopperConfiguration());
+        String rasterDir = ghConfig.getString("graph.elevation.raster_dir", "");
+        if (rasterDir.isEmpty())
+            throw new IllegalArgumentException("graph.elevation.raster_dir must be specified to create the elevation raster");
+        // read the elevation from the configured provider and not from the raster we are about to create
+        ghConfig.putObject("graph.elevation.raster_dir", "");
+        ElevationProvider source = new GraphHopper().init(ghConfig).getElevationProvider();
+        if (source == ElevationProvider.NOOP)
+            throw new IllegalArgumentException("graph.elevation.provider must be specified to create the elevation raster");
+        try {
+            RasterElevationProvider.createRaster(source, BBox.parseBBoxString(args.getString("bbox")),
+                    args.getInt("samples_per_degree"), rasterDir);
+        } finally {
+            source.release();
+        }
+    }
+}
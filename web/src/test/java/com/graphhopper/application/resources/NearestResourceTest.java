@@ -17,6 +17,7 @@
  */
 package com.graphhopper.application.resources;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.application.GraphHopperApplication;
 import com.graphhopper.application.GraphHopperServerConfiguration;
 import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
@@ -25,6 +26,9 @@ import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.util.Helper;
 import io.dropwizard.testing.junit5.DropwizardAppExtension;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -34,7 +38,7 @@ import java.io.File;
 import java.util.List;
 
 import static com.graphhopper.application.util.TestUtils.clientTarget;
-import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author svantulden
@@ -65,4 +69,24 @@ public class NearestResourceTest {
         NearestResource.Response json = clientTarget(app, "/nearest?point=42.554851,1.536198").request().get(NearestResource.Response.class);
         assertArrayEquals(new double[]{1.5363743623376815, 42.554839049600155}, json.coordinates, "nearest point");
     }
+
+    @Test
+    public void testMultipleNearestQuery() {
+        List<NearestResource.Response> json = clientTarget(app, "/nearest").request()
+                .post(Entity.json("[[1.536198,42.554851],[1.5363743623376815,42.554839049600155]]"), new GenericType<List<NearestResource.Response>>() {
+                });
+        assertEquals(2, json.size());
+        assertArrayEquals(new double[]{1.5363743623376815, 42.554839049600155}, json.get(0).coordinates, "nearest point");
+        assertArrayEquals(json.get(0).coordinates, json.get(1).coordinates, 1.e-6, "nearest point of snapped point");
+        assertEquals(0, json.get(1).distance, 1.e-3);
+    }
+
+    @Test
+    public void testMultipleNearestQueryOutOfBounds() {
+        Response response = clientTarget(app, "/nearest").request()
+                .post(Entity.json("[[1.536198,42.554851],[-60,-50]]"));
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertEquals(1, json.get("hints").get(0).get("point_index").asInt(), json.toString());
+    }
 }
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.application.resources;
 
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
@@ -130,6 +131,26 @@ public class RouteResourceTest {
         assertEquals("[1.548191,42.510033,1.548191,42.510033]", path.get("bbox").toString());
     }
 
+    @Test
+    public void testTimingsAndMetrics() {
+        Map<String, Timer> timers = app.getEnvironment().metrics().getTimers();
+        long legsBefore = timers.containsKey("route.foot.astarbi.route_legs") ? timers.get("route.foot.astarbi.route_legs").getCount() : 0;
+        JsonNode json = clientTarget(app, "/route?profile=foot&algorithm=astarbi&ch.disable=true&" +
+                "point=42.554851,1.536198&point=42.531896,1.553278&point=42.510071,1.548128").request().get(JsonNode.class);
+        // the timings are only recorded as metrics and do not show up in the response
+        JsonNode hints = json.get("hints");
+        hints.fieldNames().forEachRemaining(name -> assertFalse(name.startsWith("timings"), hints.toString()));
+
+        timers = app.getEnvironment().metrics().getTimers();
+        for (String stage : List.of("snap", "query_graph", "route", "path_extraction", "path_merging", "total", "serialization"))
+            assertTrue(timers.get("route.foot.astarbi." + stage).getCount() > 0, stage);
+        assertEquals(legsBefore + 2, timers.get("route.foot.astarbi.route_legs").getCount());
+
+        // the algorithm is only used for the metric name if it is known
+        clientTarget(app, "/route?profile=foot&algorithm=unknown&point=42.554851,1.536198&point=42.510071,1.548128").request().get();
+        assertFalse(app.getEnvironment().metrics().getTimers().keySet().stream().anyMatch(name -> name.contains("unknown")));
+    }
+
     @Test
     public void testBasicPostQuery() {
         String jsonStr = "{ \"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }";